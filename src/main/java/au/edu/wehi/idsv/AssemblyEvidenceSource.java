@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterators;
@@ -21,6 +22,7 @@ import au.edu.wehi.idsv.sam.CigarUtil;
 import au.edu.wehi.idsv.sam.SAMFileUtil;
 import au.edu.wehi.idsv.sam.SAMRecordUtil;
 import au.edu.wehi.idsv.util.FileHelper;
+import au.edu.wehi.idsv.util.MemoryGovernor;
 import au.edu.wehi.idsv.visualisation.AssemblyTelemetry;
 import gridss.SoftClipsToSplitReads;
 import gridss.cmdline.CommandLineProgramHelper;
@@ -54,6 +56,10 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 	private int cachedMaxReadLength = -1;
 	private int cachedMaxReadMappedLength = -1;
 	private AssemblyTelemetry telemetry;
+	/**
+	 * Invoked with the chunk number once assembly of each chunk has started. Used for fault injection testing.
+	 */
+	IntConsumer chunkStartedHook = null;
 	/**
 	 * Generates assembly evidence based on the given evidence
 	 * @param evidence evidence for creating assembly
@@ -80,13 +86,20 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 		List<QueryInterval[]> chunks = getContext().getReference().getIntervals(getContext().getConfig().chunkSize, getContext().getConfig().chunkSequenceChangePenalty);
 		List<File> assembledChunk = new ArrayList<>();
 		List<Future<Void>> tasks = new ArrayList<>();
+		ChunkManifest manifest = new ChunkManifest(getContext().getFileSystemContext().getChunkManifest(getFile()), getContext().getConfig().getConfigurationHash(), getManifestInputs());
 		for (int i = 0; i < chunks.size(); i++) {
 			QueryInterval[] chunck = chunks.get(i);
 			File f = getContext().getFileSystemContext().getAssemblyChunkBam(getFile(), i);
 			int chunkNumber = i;
 			assembledChunk.add(f);
-			if (!f.exists()) {
-				tasks.add(threadpool.submit(() -> { assembleChunk(f, chunkNumber, chunck); return null; }));
+			if (manifest.isComplete(chunkNumber, chunck, f)) {
+				log.info(String.format("Skipping previously assembled chunk %d", chunkNumber));
+			} else {
+				tasks.add(threadpool.submit(() -> {
+					assembleChunk(f, chunkNumber, chunck);
+					manifest.markComplete(chunkNumber, chunck, f);
+					return null;
+				}));
 			}
 			
 		}
@@ -137,6 +150,7 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 			for (File f : deduplicatedChunks) {
 				FileHelper.delete(f, true);
 			}
+			manifest.delete();
 		}
 		File throttledFilename = new File(getFile().getAbsolutePath() + ".throttled.bed");
 		try {
@@ -147,6 +161,18 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 			log.warn(e, "Unable to write " + throttledFilename.getAbsolutePath());
 		}
 	}
+	private List<File> getManifestInputs() {
+		List<File> inputs = new ArrayList<>();
+		for (SAMEvidenceSource ses : source) {
+			if (ses.getFile() != null) {
+				inputs.add(ses.getFile());
+			}
+		}
+		if (getContext().getReferenceFile() != null) {
+			inputs.add(getContext().getReferenceFile());
+		}
+		return inputs;
+	}
 	private void runTasks(List<Future<Void>> tasks) {
 		// Assemble as much as we can before dying
 		Exception firstException = null;
@@ -177,6 +203,9 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 		File filteredout = FileSystemContext.getWorkingFileFor(output, "filtered.");
 		File tmpout = FileSystemContext.getWorkingFileFor(output, "gridss.tmp.");
 		try (SAMFileWriter writer = new SAMFileWriterFactory().makeSAMOrBAMWriter(header, false, tmpout)) {
+			if (chunkStartedHook != null) {
+				chunkStartedHook.accept(chunkNumber);
+			}
 			if (getContext().getAssemblyParameters().writeFiltered) {
 				try (SAMFileWriter filteredWriter = new SAMFileWriterFactory().makeSAMOrBAMWriter(header, false, filteredout)) {
 					for (BreakendDirection direction : BreakendDirection.values()) {
@@ -220,23 +249,38 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 	private void assembleChunk(SAMFileWriter writer, SAMFileWriter filteredWriter, int chunkNumber, QueryInterval[] intervals, BreakendDirection direction, AssemblyIdGenerator assemblyNameGenerator) {
 		QueryInterval[] expanded = getExpanded(intervals);
 		try (CloseableIterator<DirectedEvidence> input = mergedIterator(source, expanded)) {
-			Iterator<DirectedEvidence> throttledIt = throttled(input);
+			DirectedEvidenceDensityThrottlingIterator throttledIt = throttled(input);
 			PositionalAssembler assembler = new PositionalAssembler(getContext(), AssemblyEvidenceSource.this, assemblyNameGenerator, throttledIt, direction);
 			if (telemetry != null) {
 				assembler.setTelemetry(telemetry.getTelemetry(chunkNumber, direction));
 			}
-			while (assembler.hasNext()) {
-				SAMRecord asm = assembler.next();
-				asm = transformAssembly(asm); // transform before chunk bounds checking as the position may have moved
-				if (QueryIntervalUtil.overlaps(intervals, asm.getReferenceIndex(), asm.getAlignmentStart())) {
-					// only output assemblies that start within our chunk
-					if (shouldFilterAssembly(asm)) {
-						if (filteredWriter != null) {
-							filteredWriter.addAlignment(asm);
-						}
-					} else {
-						writer.addAlignment(asm);
+			getContext().registerBuffer(String.format("%s.chunk%d.%s", AssemblyEvidenceSource.class.getName(), chunkNumber, direction), assembler);
+			MemoryGovernor governor = MemoryGovernor.forHeapFraction(getContext().getAssemblyParameters().downsampling.maximumHeapFraction, getContext().getWorkerThreadCount());
+			if (governor != null) {
+				throttledIt.setMemoryGovernor(governor);
+				governor.register(assembler);
+			}
+			try {
+				writeAssemblies(writer, filteredWriter, intervals, assembler);
+			} finally {
+				if (governor != null) {
+					governor.unregister(assembler);
+				}
+			}
+		}
+	}
+	private void writeAssemblies(SAMFileWriter writer, SAMFileWriter filteredWriter, QueryInterval[] intervals, PositionalAssembler assembler) {
+		while (assembler.hasNext()) {
+			SAMRecord asm = assembler.next();
+			asm = transformAssembly(asm); // transform before chunk bounds checking as the position may have moved
+			if (QueryIntervalUtil.overlaps(intervals, asm.getReferenceIndex(), asm.getAlignmentStart())) {
+				// only output assemblies that start within our chunk
+				if (shouldFilterAssembly(asm)) {
+					if (filteredWriter != null) {
+						filteredWriter.addAlignment(asm);
 					}
+				} else {
+					writer.addAlignment(asm);
 				}
 			}
 		}
@@ -312,7 +356,7 @@ public class AssemblyEvidenceSource extends SAMEvidenceSource {
 		}
 		return assembly;
 	}
-	private Iterator<DirectedEvidence> throttled(Iterator<DirectedEvidence> it) {
+	private DirectedEvidenceDensityThrottlingIterator throttled(Iterator<DirectedEvidence> it) {
 		AssemblyConfiguration ap = getContext().getAssemblyParameters();
 		DirectedEvidenceDensityThrottlingIterator dit = new DirectedEvidenceDensityThrottlingIterator(
 				throttled,
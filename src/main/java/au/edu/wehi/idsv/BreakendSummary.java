@@ -4,7 +4,6 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Ordering;
 import com.google.common.math.IntMath;
 
@@ -40,6 +39,17 @@ public class BreakendSummary {
 	 * Breakpoint is in the given direction
 	 */
 	public final BreakendDirection direction;
+	/**
+	 * Lazily calculated sort keys. Evidence holds a single breakend so
+	 * each key is calculated at most once per evidence regardless of how
+	 * many times the evidence is compared during sorting and merging.
+	 */
+	private long startSortKey = UNSET_SORT_KEY;
+	private long endSortKey = UNSET_SORT_KEY;
+	/**
+	 * Sort keys of valid breakends are never negative since the reference index must be valid
+	 */
+	protected static final long UNSET_SORT_KEY = -1;
 	public BreakendSummary(int referenceIndex, BreakendDirection direction, int nominal) {
 		this(referenceIndex, direction, nominal, nominal, nominal);
 	}
@@ -287,24 +297,55 @@ public class BreakendSummary {
 			return false;
 		return true;
 	}
+	/**
+	 * Packs the given position into a sort key ordered by reference index then position
+	 * @param referenceIndex reference index
+	 * @param position position
+	 * @return sort key
+	 */
+	public static long sortKey(int referenceIndex, int position) {
+		return ((long)referenceIndex << 32) + ((long)position - Integer.MIN_VALUE);
+	}
+	/**
+	 * Sort key of the start of the breakend interval.
+	 * Sort key ordering is consistent with {@link #ByStartEnd}
+	 */
+	public long getStartSortKey() {
+		long key = startSortKey;
+		if (key == UNSET_SORT_KEY) {
+			key = sortKey(referenceIndex, start);
+			startSortKey = key;
+		}
+		return key;
+	}
+	/**
+	 * Sort key of the end of the breakend interval.
+	 * Sort key ordering is consistent with {@link #ByEndStart}
+	 */
+	public long getEndSortKey() {
+		long key = endSortKey;
+		if (key == UNSET_SORT_KEY) {
+			key = sortKey(referenceIndex, end);
+			endSortKey = key;
+		}
+		return key;
+	}
 	public static Ordering<BreakendSummary> ByStartEnd = new Ordering<BreakendSummary>() {
 		public int compare(BreakendSummary o1, BreakendSummary o2) {
-			  return ComparisonChain.start()
-			        .compare(o1.referenceIndex, o2.referenceIndex)
-			        .compare(o1.start, o2.start)
-			        .compare(o1.end, o2.end)
-			        .compare(o1.nominal, o2.nominal)
-			        .result();
+			int cmp = Long.compare(o1.getStartSortKey(), o2.getStartSortKey());
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.end, o2.end);
+			if (cmp != 0) return cmp;
+			return Integer.compare(o1.nominal, o2.nominal);
 		  }
 	};
 	public static Ordering<BreakendSummary> ByEndStart = new Ordering<BreakendSummary>() {
 		public int compare(BreakendSummary o1, BreakendSummary o2) {
-			  return ComparisonChain.start()
-			        .compare(o1.referenceIndex, o2.referenceIndex)
-			        .compare(o1.end, o2.end)
-			        .compare(o1.start, o2.start)
-			        .compare(o1.nominal, o2.nominal)
-			        .result();
+			int cmp = Long.compare(o1.getEndSortKey(), o2.getEndSortKey());
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.start, o2.start);
+			if (cmp != 0) return cmp;
+			return Integer.compare(o1.nominal, o2.nominal);
 		  }
 	};
 }
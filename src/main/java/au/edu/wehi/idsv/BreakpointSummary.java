@@ -2,7 +2,6 @@ package au.edu.wehi.idsv;
 
 import java.math.RoundingMode;
 
-import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Ordering;
 
 import au.edu.wehi.idsv.util.IntervalUtil;
@@ -35,6 +34,7 @@ public class BreakpointSummary extends BreakendSummary {
 	 * Breakpoint is in the given direction on the destination contig
 	 */
 	public final BreakendDirection direction2;
+	private long start2SortKey = UNSET_SORT_KEY;
 	public BreakpointSummary(int referenceIndex1, BreakendDirection direction1, int nominal1,
 			int referenceIndex2, BreakendDirection direction2, int nominal2) {
 		this(referenceIndex1, direction1, nominal1, nominal1, nominal1,
@@ -62,6 +62,17 @@ public class BreakpointSummary extends BreakendSummary {
 		this(local.referenceIndex, local.direction, local.nominal, local.start, local.end, 
 				remote.referenceIndex, remote.direction, remote.nominal, remote.start, remote.end);
 	}
+	/**
+	 * Sort key of the start of the remote breakend interval.
+	 */
+	public long getStart2SortKey() {
+		long key = start2SortKey;
+		if (key == UNSET_SORT_KEY) {
+			key = sortKey(referenceIndex2, start2);
+			start2SortKey = key;
+		}
+		return key;
+	}
 	public BreakendSummary localBreakend() {
 		return new BreakendSummary(referenceIndex, direction, nominal, start, end);
 	}
@@ -260,16 +271,17 @@ public class BreakpointSummary extends BreakendSummary {
 	}
 	public static Ordering<BreakpointSummary> ByStartStart2EndEnd2 = new Ordering<BreakpointSummary>() {
 		public int compare(BreakpointSummary o1, BreakpointSummary o2) {
-			  return ComparisonChain.start()
-			        .compare(o1.referenceIndex, o2.referenceIndex)
-			        .compare(o1.start, o2.start)
-			        .compare(o1.referenceIndex2, o2.referenceIndex2)
-			        .compare(o1.start2, o2.start2)
-			        .compare(o1.end, o2.end)
-			        .compare(o1.end2, o2.end2)
-			        .compare(o1.nominal, o2.nominal)
-			        .compare(o1.nominal2, o2.nominal2)
-			        .result();
+			int cmp = Long.compare(o1.getStartSortKey(), o2.getStartSortKey());
+			if (cmp != 0) return cmp;
+			cmp = Long.compare(o1.getStart2SortKey(), o2.getStart2SortKey());
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.end, o2.end);
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.end2, o2.end2);
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.nominal, o2.nominal);
+			if (cmp != 0) return cmp;
+			return Integer.compare(o1.nominal2, o2.nominal2);
 		  }
 	};
 	/**
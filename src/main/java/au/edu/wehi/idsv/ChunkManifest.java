@@ -0,0 +1,134 @@
+package au.edu.wehi.idsv;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import au.edu.wehi.idsv.util.FileHelper;
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.util.Log;
+import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
+
+/**
+ * Records the chunks of a processing step that have completed successfully
+ * so an interrupted step can be resumed without recomputing completed chunks.
+ *
+ * A chunk is considered complete only if it was recorded in the manifest
+ * with the same genomic intervals, the chunk output still exists with the
+ * recorded size, and neither the configuration nor the input files of the
+ * step have changed since the manifest was written.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class ChunkManifest {
+	private static final Log log = Log.getInstance(ChunkManifest.class);
+	private static final String HEADER = "##gridssChunkManifest=1";
+	private static final String CONFIGURATION_PREFIX = "##configuration=";
+	private static final String INPUT_PREFIX = "##input=";
+	private final File file;
+	private final List<String> header = new ArrayList<>();
+	private final Int2ObjectRBTreeMap<String> completed = new Int2ObjectRBTreeMap<>();
+	/**
+	 * Loads the manifest, discarding any completed chunks that are no longer valid
+	 * @param file manifest file
+	 * @param configurationHash hash of the configuration used to generate the chunks
+	 * @param inputs input files of the step
+	 */
+	public ChunkManifest(File file, String configurationHash, List<File> inputs) throws IOException {
+		this.file = file;
+		header.add(HEADER);
+		header.add(CONFIGURATION_PREFIX + configurationHash);
+		for (File input : inputs) {
+			header.add(INPUT_PREFIX + fingerprint(input));
+		}
+		if (file.exists()) {
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			if (lines.size() >= header.size() && lines.subList(0, header.size()).equals(header)) {
+				for (String line : lines.subList(header.size(), lines.size())) {
+					String[] fields = line.split("\t");
+					// ignore lines partially written when the process was terminated
+					if (fields.length == 4) {
+						try {
+							completed.put(Integer.parseInt(fields[0]), line);
+						} catch (NumberFormatException e) {
+						}
+					}
+				}
+			} else {
+				log.info(String.format("Configuration or input files have changed since %s was written. Ignoring existing chunks.", file));
+			}
+		}
+		write();
+	}
+	private static String fingerprint(File file) {
+		return String.format("%s\t%d\t%d", file.getAbsolutePath(), file.length(), file.lastModified());
+	}
+	private static String record(int chunk, QueryInterval[] intervals, File output) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(chunk);
+		sb.append('\t');
+		for (int i = 0; i < intervals.length; i++) {
+			if (i > 0) sb.append(',');
+			sb.append(intervals[i].referenceIndex);
+			sb.append(':');
+			sb.append(intervals[i].start);
+			sb.append('-');
+			sb.append(intervals[i].end);
+		}
+		sb.append('\t');
+		sb.append(output.getName());
+		sb.append('\t');
+		sb.append(output.length());
+		return sb.toString();
+	}
+	/**
+	 * Determines whether the given chunk has already been successfully computed
+	 * @param chunk chunk number
+	 * @param intervals genomic intervals of the chunk
+	 * @param output chunk output file
+	 * @return true if the chunk output can be reused, false if the chunk needs to be computed
+	 */
+	public synchronized boolean isComplete(int chunk, QueryInterval[] intervals, File output) {
+		String line = completed.get(chunk);
+		return line != null && output.exists() && line.equals(record(chunk, intervals, output));
+	}
+	/**
+	 * Records the successful completion of the given chunk
+	 * @param chunk chunk number
+	 * @param intervals genomic intervals of the chunk
+	 * @param output chunk output file
+	 */
+	public synchronized void markComplete(int chunk, QueryInterval[] intervals, File output) throws IOException {
+		String line = record(chunk, intervals, output);
+		completed.put(chunk, line);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+			writer.write(line);
+			writer.write('\n');
+		}
+	}
+	public synchronized void delete() throws IOException {
+		FileHelper.delete(file, false);
+	}
+	private void write() throws IOException {
+		File tmp = FileSystemContext.getWorkingFileFor(file);
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+			for (String line : header) {
+				writer.write(line);
+				writer.write('\n');
+			}
+			for (String line : completed.values()) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		}
+		FileHelper.move(tmp, file, false);
+	}
+}
@@ -11,6 +11,15 @@ import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.CloserUtil;
 
+/**
+ * Converts records into evidence.
+ * 
+ * Records that cannot contain evidence are rejected based on their alignment and flags
+ * before any evidence is created and evidence is written directly into the output buffer.
+ * 
+ * @author Daniel Cameron
+ *
+ */
 public class DirectedEvidenceIterator implements CloseableIterator<DirectedEvidence>, PeekingIterator<DirectedEvidence> {
 	private final SAMEvidenceSource source;
 	private Iterator<SAMRecord> it;
@@ -33,7 +42,7 @@ public class DirectedEvidenceIterator implements CloseableIterator<DirectedEvide
 		}
 	}
 	private void addToBuffer(SAMRecord record) {
-		buffer.addAll(SingleReadEvidence.createEvidence(source, minIndelSize, record));
+		SingleReadEvidence.createEvidence(source, minIndelSize, record, buffer);
 		if (!record.getSupplementaryAlignmentFlag()) {
 			NonReferenceReadPair nrrp = NonReferenceReadPair.create(source, record);
 			if (nrrp != null) {
@@ -1,6 +1,7 @@
 package au.edu.wehi.idsv;
 
-import com.google.common.collect.ComparisonChain;
+import java.util.function.ToLongFunction;
+
 import com.google.common.collect.Ordering;
 
 public abstract class DirectedEvidenceOrder {
@@ -18,38 +19,33 @@ public abstract class DirectedEvidenceOrder {
 		public int compare(DirectedEvidence arg1, DirectedEvidence arg2) {
 			BreakendSummary loc1 = arg1.getBreakendSummary();
 			BreakendSummary loc2 = arg2.getBreakendSummary();
-			int arg1_referenceIndex2 = 0, arg2_referenceIndex2 = 0;
-			int arg1_start2 = 0, arg2_start2 = 0;
-			int arg1_end2 = 0, arg2_end2 = 0;
-			int arg1_nominal2 = 0, arg2_nominal2 = 0;
-			if (loc1 instanceof BreakpointSummary) {
-				BreakpointSummary bp = (BreakpointSummary)loc1;
-				arg1_referenceIndex2 = bp.referenceIndex2;
-				arg1_start2 = bp.start2;
-				arg1_end2 = bp.end2;
-				arg1_nominal2 = bp.nominal2;
-			}
-			if (loc2 instanceof BreakpointSummary) {
-				BreakpointSummary bp = (BreakpointSummary)loc2;
-				arg2_referenceIndex2 = bp.referenceIndex2;
-				arg2_start2 = bp.start2;
-				arg2_end2 = bp.end2;
-				arg2_nominal2 = bp.nominal2;
-			}
-			return ComparisonChain.start()
-			        .compare(loc1.referenceIndex, loc2.referenceIndex)
-			        .compare(loc1.start, loc2.start)
-			        .compare(loc1.end, loc2.end)
-			        .compare(loc1.nominal, loc2.nominal)
-			        .compare(arg1_referenceIndex2, arg2_referenceIndex2)
-			        .compare(arg1_start2, arg2_start2)
-			        .compare(arg1_end2, arg2_end2)
-			        .compare(arg1_nominal2, arg2_nominal2)
-			        .result();
+			int cmp = Long.compare(loc1.getStartSortKey(), loc2.getStartSortKey());
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(loc1.end, loc2.end);
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(loc1.nominal, loc2.nominal);
+			if (cmp != 0) return cmp;
+			boolean isBreakpoint1 = loc1 instanceof BreakpointSummary;
+			boolean isBreakpoint2 = loc2 instanceof BreakpointSummary;
+			if (!isBreakpoint1 && !isBreakpoint2) return 0;
+			BreakpointSummary bp1 = isBreakpoint1 ? (BreakpointSummary)loc1 : null;
+			BreakpointSummary bp2 = isBreakpoint2 ? (BreakpointSummary)loc2 : null;
+			cmp = Integer.compare(isBreakpoint1 ? bp1.referenceIndex2 : 0, isBreakpoint2 ? bp2.referenceIndex2 : 0);
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(isBreakpoint1 ? bp1.start2 : 0, isBreakpoint2 ? bp2.start2 : 0);
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(isBreakpoint1 ? bp1.end2 : 0, isBreakpoint2 ? bp2.end2 : 0);
+			if (cmp != 0) return cmp;
+			return Integer.compare(isBreakpoint1 ? bp1.nominal2 : 0, isBreakpoint2 ? bp2.nominal2 : 0);
 		}
 	};
 	/**
 	 * Natural (genomic location of breakend) ordering of directed evidence.  
 	 */
 	public static Ordering<DirectedEvidence> ByNatural = ByStartStart2EndEnd2;
+	/**
+	 * Reference index and start position of the breakend packed into a single sort key.
+	 * Sort key ordering is consistent with ByNatural.
+	 */
+	public static ToLongFunction<DirectedEvidence> ByNaturalSortKey = e -> e.getBreakendSummary().getStartSortKey();
 }
@@ -0,0 +1,331 @@
+package au.edu.wehi.idsv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import au.edu.wehi.idsv.util.FileHelper;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BufferedLineReader;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.CloserUtil;
+import htsjdk.samtools.util.RuntimeIOException;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Block-compressed store of the filtered and sorted evidence of a SAMEvidenceSource.
+ *
+ * Each entry consists of the breakend bounds of the evidence, the type of
+ * evidence and the BAM encoding of the (transformed) record the evidence was
+ * generated from. Records are only decoded for entries overlapping the
+ * requested intervals, and are decoded lazily as BAM records. Evidence is
+ * regenerated from the decoded record without repeating the record
+ * transformation, filtering or sorting performed when the store was written.
+ *
+ * A separate index records the virtual file offset of every
+ * {@link #INDEX_INTERVAL}th entry.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class EvidenceStore {
+	private static final int MAGIC = 0x47455631; // GEV1
+	private static final int VERSION = 1;
+	/**
+	 * Number of entries between index entries
+	 */
+	private static final int INDEX_INTERVAL = 128;
+	/**
+	 * Entry type of read pair evidence. Single read evidence entry types are
+	 * the offset of the evidence in {@link SingleReadEvidence#createEvidence(SAMEvidenceSource, int, SAMRecord)}.
+	 */
+	private static final int READ_PAIR = -1;
+	/**
+	 * Reference index written after the final entry
+	 */
+	private static final int END_OF_ENTRIES = -1;
+	private final SAMEvidenceSource source;
+	private final File file;
+	private final int minIndelSize;
+	private final String fingerprint;
+	private final SAMFileHeader header;
+	private final long dataStart;
+	private final int maxBreakendWidth;
+	private final long[] indexPosition;
+	private final long[] indexPointer;
+	/**
+	 * Opens an existing evidence store
+	 * @param source evidence source the store was generated from
+	 * @param file store file
+	 * @param minIndelSize minimum indel size used when the store was written
+	 */
+	public EvidenceStore(SAMEvidenceSource source, File file, int minIndelSize) throws IOException {
+		this.source = source;
+		this.file = file;
+		this.minIndelSize = minIndelSize;
+		try (BlockCompressedInputStream in = new BlockCompressedInputStream(file)) {
+			BinaryCodec codec = new BinaryCodec(in);
+			this.fingerprint = readHeader(codec);
+			this.header = new SAMTextHeaderCodec().decode(BufferedLineReader.fromString(codec.readLengthAndString(false)), file.getName());
+			this.dataStart = in.getFilePointer();
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getIndexFile(file))))) {
+			if (in.readInt() != MAGIC) throw new IOException("Invalid evidence store index " + getIndexFile(file));
+			this.maxBreakendWidth = in.readInt();
+			int n = in.readInt();
+			this.indexPosition = new long[n];
+			this.indexPointer = new long[n];
+			for (int i = 0; i < n; i++) {
+				indexPosition[i] = in.readLong();
+				indexPointer[i] = in.readLong();
+			}
+		}
+	}
+	private static File getIndexFile(File file) {
+		return new File(file.getAbsolutePath() + ".idx");
+	}
+	private static String readHeader(BinaryCodec codec) throws IOException {
+		if (codec.readInt() != MAGIC) throw new IOException("Not an evidence store");
+		if (codec.readInt() != VERSION) throw new IOException("Unsupported evidence store version");
+		return codec.readLengthAndString(false);
+	}
+	/**
+	 * Determines whether the given store was written with the given fingerprint
+	 * @param file store file
+	 * @param fingerprint fingerprint of the inputs and settings used to generate the evidence
+	 * @return true if the store exists and can be used, false otherwise
+	 */
+	public static boolean isCurrent(File file, String fingerprint) {
+		if (!file.exists() || !getIndexFile(file).exists()) return false;
+		try (BlockCompressedInputStream in = new BlockCompressedInputStream(file)) {
+			return fingerprint.equals(readHeader(new BinaryCodec(in)));
+		} catch (Exception e) {
+			return false;
+		}
+	}
+	public String getFingerprint() {
+		return fingerprint;
+	}
+	/**
+	 * Writes the given evidence to a new store
+	 * @param file store file
+	 * @param fingerprint fingerprint of the inputs and settings used to generate the evidence
+	 * @param source evidence source
+	 * @param minIndelSize minimum indel size used to generate the evidence
+	 * @param header header of the records the evidence was generated from
+	 * @param it evidence in {@link DirectedEvidenceOrder#ByNatural} order
+	 * @throws IOException if the store could not be written or the evidence is not in sorted order
+	 */
+	public static void write(File file, String fingerprint, SAMEvidenceSource source, int minIndelSize, SAMFileHeader header, Iterator<DirectedEvidence> it) throws IOException {
+		File tmp = FileSystemContext.getWorkingFileFor(file);
+		try {
+			writeStore(tmp, fingerprint, source, minIndelSize, header, it);
+			// also moves the .idx index
+			FileHelper.move(tmp, file, true);
+		} finally {
+			delete(tmp);
+		}
+	}
+	private static void writeStore(File tmp, String fingerprint, SAMEvidenceSource source, int minIndelSize, SAMFileHeader header, Iterator<DirectedEvidence> it) throws IOException {
+		File tmpIndex = getIndexFile(tmp);
+		LinearGenomicCoordinate lgc = source.getContext().getLinear();
+		LongArrayList positions = new LongArrayList();
+		LongArrayList pointers = new LongArrayList();
+		int maxBreakendWidth = 0;
+		try (BlockCompressedOutputStream out = new BlockCompressedOutputStream(tmp)) {
+			BinaryCodec codec = new BinaryCodec(out);
+			codec.writeInt(MAGIC);
+			codec.writeInt(VERSION);
+			codec.writeString(fingerprint, true, false);
+			StringWriter headerText = new StringWriter();
+			new SAMTextHeaderCodec().encode(headerText, header);
+			codec.writeString(headerText.toString(), true, false);
+			BAMRecordCodec recordCodec = new BAMRecordCodec(header);
+			recordCodec.setOutputStream(out);
+			long lastPosition = Long.MIN_VALUE;
+			long count = 0;
+			while (it.hasNext()) {
+				DirectedEvidence e = it.next();
+				BreakendSummary bs = e.getBreakendSummary();
+				long position = lgc.getLinearCoordinate(bs.referenceIndex, bs.start);
+				if (position < lastPosition) {
+					throw new IOException(String.format("Evidence %s not in sorted order", e.getEvidenceID()));
+				}
+				lastPosition = position;
+				if (count++ % INDEX_INTERVAL == 0) {
+					positions.add(position);
+					pointers.add(out.getFilePointer());
+				}
+				SAMRecord r;
+				int type;
+				if (e instanceof NonReferenceReadPair) {
+					r = ((NonReferenceReadPair)e).getLocalledMappedRead();
+					type = READ_PAIR;
+				} else if (e instanceof SingleReadEvidence) {
+					r = ((SingleReadEvidence)e).getSAMRecord();
+					type = singleReadEvidenceType(source, minIndelSize, (SingleReadEvidence)e);
+				} else {
+					throw new IllegalArgumentException("Unable to store " + e.getClass().getName());
+				}
+				maxBreakendWidth = Math.max(maxBreakendWidth, bs.end - bs.start);
+				codec.writeInt(bs.referenceIndex);
+				codec.writeInt(bs.start);
+				codec.writeInt(bs.end);
+				codec.writeInt(type);
+				recordCodec.encode(r);
+			}
+			codec.writeInt(END_OF_ENTRIES);
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpIndex)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(maxBreakendWidth);
+			out.writeInt(positions.size());
+			for (int i = 0; i < positions.size(); i++) {
+				out.writeLong(positions.getLong(i));
+				out.writeLong(pointers.getLong(i));
+			}
+		}
+	}
+	/**
+	 * Deletes the given store and its index
+	 * @param file store file
+	 */
+	public static void delete(File file) throws IOException {
+		FileHelper.delete(file, true);
+	}
+	private static int singleReadEvidenceType(SAMEvidenceSource source, int minIndelSize, SingleReadEvidence e) {
+		List<SingleReadEvidence> list = SingleReadEvidence.createEvidence(source, minIndelSize, e.getSAMRecord());
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i).getEvidenceID().equals(e.getEvidenceID())) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unable to regenerate evidence %s from %s", e.getEvidenceID(), e.getSAMRecord().getReadName()));
+	}
+	/**
+	 * Iterates over all evidence in the store
+	 */
+	public CloseableIterator<DirectedEvidence> iterator() {
+		return new EvidenceStoreIterator(dataStart, null, Long.MAX_VALUE);
+	}
+	/**
+	 * Iterates over the evidence with breakends overlapping the given intervals
+	 * @param intervals intervals to return evidence for
+	 */
+	public CloseableIterator<DirectedEvidence> iterator(QueryInterval[] intervals) {
+		if (intervals.length == 0) {
+			return new EvidenceStoreIterator(dataStart, intervals, Long.MIN_VALUE);
+		}
+		LinearGenomicCoordinate lgc = source.getContext().getLinear();
+		long first = Long.MAX_VALUE;
+		long last = Long.MIN_VALUE;
+		for (QueryInterval qi : intervals) {
+			first = Math.min(first, lgc.getLinearCoordinate(qi.referenceIndex, qi.start - maxBreakendWidth));
+			last = Math.max(last, lgc.getLinearCoordinate(qi.referenceIndex, qi.end));
+		}
+		// start from the last indexed entry before the first position of interest
+		int lo = 0;
+		int hi = indexPosition.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (indexPosition[mid] < first) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		int offset = lo - 1;
+		long pointer = offset < 0 ? dataStart : indexPointer[offset];
+		return new EvidenceStoreIterator(pointer, intervals, last);
+	}
+	private class EvidenceStoreIterator implements CloseableIterator<DirectedEvidence> {
+		private final QueryInterval[] intervals;
+		private final long lastPosition;
+		private final LinearGenomicCoordinate lgc = source.getContext().getLinear();
+		private BlockCompressedInputStream in;
+		private BinaryCodec codec;
+		private BAMRecordCodec recordCodec;
+		private DirectedEvidence next = null;
+		private byte[] skipBuffer = new byte[0];
+		public EvidenceStoreIterator(long pointer, QueryInterval[] intervals, long lastPosition) {
+			this.intervals = intervals;
+			this.lastPosition = lastPosition;
+			try {
+				this.in = new BlockCompressedInputStream(file);
+				this.in.seek(pointer);
+			} catch (IOException e) {
+				throw new RuntimeIOException(e);
+			}
+			this.codec = new BinaryCodec(in);
+			this.recordCodec = new BAMRecordCodec(header);
+			this.recordCodec.setInputStream(in, file.getName());
+		}
+		private void ensureNext() {
+			while (next == null && in != null) {
+				int referenceIndex = codec.readInt();
+				if (referenceIndex == END_OF_ENTRIES) {
+					close();
+					return;
+				}
+				int start = codec.readInt();
+				int end = codec.readInt();
+				int type = codec.readInt();
+				if (lgc.getLinearCoordinate(referenceIndex, start) > lastPosition) {
+					close();
+					return;
+				}
+				if (intervals == null || QueryIntervalUtil.overlaps(intervals, referenceIndex, start, end)) {
+					next = toEvidence(recordCodec.decode(), type);
+				} else {
+					skipRecord();
+				}
+			}
+		}
+		private void skipRecord() {
+			int blockSize = codec.readInt();
+			if (skipBuffer.length < blockSize) {
+				skipBuffer = new byte[blockSize];
+			}
+			codec.readBytes(skipBuffer, 0, blockSize);
+		}
+		private DirectedEvidence toEvidence(SAMRecord r, int type) {
+			if (type == READ_PAIR) {
+				return NonReferenceReadPair.create(source, r);
+			}
+			return SingleReadEvidence.createEvidence(source, minIndelSize, r).get(type);
+		}
+		@Override
+		public boolean hasNext() {
+			ensureNext();
+			return next != null;
+		}
+		@Override
+		public DirectedEvidence next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			DirectedEvidence e = next;
+			next = null;
+			return e;
+		}
+		@Override
+		public void close() {
+			CloserUtil.close(in);
+			in = null;
+		}
+	}
+}
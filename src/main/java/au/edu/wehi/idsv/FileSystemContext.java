@@ -69,8 +69,10 @@ public class FileSystemContext {
 	private static final String FORMAT_REALIGN_SAM = "%1$s/%2$s.realign.%3$d" + SAM_SUFFIX;
 	private static final String FORMAT_BREAKPOINT_VCF = "%1$s/%2$s.breakpoint" + VCF_SUFFIX;
 	private static final String FORMAT_ASSEMBLY_CHUNK_SAM = "%1$s/%2$s.assembly.chunk%3$d" + SAM_SUFFIX;
-	private static final String FORMAT_ASSEMBLY_TELEMETRY = "%1$s/%2$s.events.csv";
+	private static final String FORMAT_ASSEMBLY_TELEMETRY = "%1$s/%2$s.telemetry.bin";
 	private static final String FORMAT_VARIANT_CALL_CHUNK_VCF = "%1$s/%2$s.breakpoint.chunk%3$d" + VCF_SUFFIX;
+	private static final String FORMAT_CHUNK_MANIFEST = "%1$s/%2$s.chunks.manifest";
+	private static final String FORMAT_EVIDENCE_STORE = "%1$s/%2$s.evidence.chunk%3$d.bin";
 	/**
 	 * Gets the idsv intermediate working directory for the given input
 	 * @param input
@@ -156,4 +158,10 @@ public class FileSystemContext {
 	public File getVariantCallChunkVcf(File input, int chunk) {
 		return getFile(String.format(FORMAT_VARIANT_CALL_CHUNK_VCF, getIntermediateDirectory(input), getSource(input).getName(), chunk));
 	}
+	public File getEvidenceStore(File input, int chunk) {
+		return getFile(String.format(FORMAT_EVIDENCE_STORE, getIntermediateDirectory(input), getSource(input).getName(), chunk));
+	}
+	public File getChunkManifest(File output) {
+		return getFile(String.format(FORMAT_CHUNK_MANIFEST, getIntermediateDirectory(output), getSource(output).getName()));
+	}
 }
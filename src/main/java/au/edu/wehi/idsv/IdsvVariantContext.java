@@ -21,6 +21,11 @@ public class IdsvVariantContext extends VariantContext {
 	private static final long serialVersionUID = 1L;
 	protected final GenomicProcessingContext processContext;
 	protected final EvidenceSource source;
+	/**
+	 * Lazily resolved since sorting compares each variant many times
+	 */
+	private int referenceIndex = UNRESOLVED_REFERENCE_INDEX;
+	private static final int UNRESOLVED_REFERENCE_INDEX = Integer.MIN_VALUE;
 	public IdsvVariantContext(GenomicProcessingContext processContext, EvidenceSource source, VariantContext context) {
 		super(context);
 		this.processContext = processContext;
@@ -46,7 +51,12 @@ public class IdsvVariantContext extends VariantContext {
      * @return reference index for the given sequence name, or -1 if the variant is not on a reference contig
      */
 	public int getReferenceIndex() {
-		return getReferenceIndex(processContext, this);
+		int index = referenceIndex;
+		if (index == UNRESOLVED_REFERENCE_INDEX) {
+			index = getReferenceIndex(processContext, this);
+			referenceIndex = index;
+		}
+		return index;
 	}
 	/**
      * @return reference index for the given sequence name, or -1 if the variant is not on a reference contig
@@ -78,22 +88,20 @@ public class IdsvVariantContext extends VariantContext {
 	}
 	public static Ordering<IdsvVariantContext> ByLocationStart = new Ordering<IdsvVariantContext>() {
 		public int compare(IdsvVariantContext o1, IdsvVariantContext o2) {
-			return ComparisonChain.start()
-			        .compare(o1.getReferenceIndex(), o2.getReferenceIndex())
-			        .compare(o1.getStart(), o2.getStart())
-			        .compare(o1.getEnd(), o2.getEnd())
-			        .compare(o1.getID(), o2.getID())
-			        .result();
+			int cmp = Long.compare(BreakendSummary.sortKey(o1.getReferenceIndex(), o1.getStart()), BreakendSummary.sortKey(o2.getReferenceIndex(), o2.getStart()));
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.getEnd(), o2.getEnd());
+			if (cmp != 0) return cmp;
+			return o1.getID().compareTo(o2.getID());
 		  }
 	};
 	public static Ordering<IdsvVariantContext> ByLocationEnd = new Ordering<IdsvVariantContext>() {
 		public int compare(IdsvVariantContext o1, IdsvVariantContext o2) {
-			return ComparisonChain.start()
-			        .compare(o1.getReferenceIndex(), o2.getReferenceIndex())
-			        .compare(o1.getEnd(), o2.getEnd())
-			        .compare(o1.getStart(), o2.getStart())
-			        .compare(o1.getID(), o2.getID())
-			        .result();
+			int cmp = Long.compare(BreakendSummary.sortKey(o1.getReferenceIndex(), o1.getEnd()), BreakendSummary.sortKey(o2.getReferenceIndex(), o2.getEnd()));
+			if (cmp != 0) return cmp;
+			cmp = Integer.compare(o1.getStart(), o2.getStart());
+			if (cmp != 0) return cmp;
+			return o1.getID().compareTo(o2.getID());
 		  }
 	};
 	public static Ordering<IdsvVariantContext> ByQual = new Ordering<IdsvVariantContext>() {
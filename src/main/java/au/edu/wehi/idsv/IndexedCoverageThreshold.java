@@ -0,0 +1,222 @@
+package au.edu.wehi.idsv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import au.edu.wehi.idsv.bed.IntervalBed;
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMIndexMetaData;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.Log;
+
+/**
+ * Identifies regions of at least the given coverage of an indexed, coordinate sorted BAM file.
+ *
+ * Each contig is split into tiles processed independently. Only the fields required to
+ * calculate the alignment start and end are decoded from the raw BAM records and coverage
+ * is calculated using a difference array over the tile. Intervals reported by adjacent
+ * tiles are merged so the result is identical to {@link SequentialCoverageThreshold}.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class IndexedCoverageThreshold {
+	private static final Log log = Log.getInstance(IndexedCoverageThreshold.class);
+	public static final int DEFAULT_TILE_SIZE = 1 << 20;
+	private static final int FIXED_FIELDS_LENGTH = 32;
+	private static final int FLAG_UNMAPPED = 0x4;
+	private final File bam;
+	private final SAMSequenceDictionary dictionary;
+	private final LinearGenomicCoordinate linear;
+	private final int threshold;
+	private final int tileSize;
+	public IndexedCoverageThreshold(File bam, SAMSequenceDictionary dictionary, LinearGenomicCoordinate linear, int thresholdCoverage, int tileSize) {
+		if (thresholdCoverage <= 0) throw new IllegalArgumentException("Coverage threshhold must be greater than zero.");
+		if (tileSize <= 0) throw new IllegalArgumentException("Tile size must be greater than zero.");
+		this.bam = bam;
+		this.dictionary = dictionary;
+		this.linear = linear;
+		this.threshold = thresholdCoverage;
+		this.tileSize = tileSize;
+	}
+	/**
+	 * Determines whether coverage of the given file can be calculated from the BAM index
+	 * @param file input file
+	 * @return true if the file is an indexed coordinate sorted BAM
+	 */
+	public static boolean canUseIndex(File file) {
+		if (file == null || !file.isFile()) return false;
+		try (SamReader reader = SamReaderFactory.makeDefault().open(file)) {
+			return reader.type() == SamReader.Type.BAM_TYPE
+					&& reader.hasIndex()
+					&& reader.getFileHeader().getSortOrder() == SortOrder.coordinate;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+	private static class Tile {
+		public final int referenceIndex;
+		public final int start;
+		public final int end;
+		public final boolean isLastTileOfContig;
+		public final long firstOffset;
+		public Tile(int referenceIndex, int start, int end, boolean isLastTileOfContig, long firstOffset) {
+			this.referenceIndex = referenceIndex;
+			this.start = start;
+			this.end = end;
+			this.isLastTileOfContig = isLastTileOfContig;
+			this.firstOffset = firstOffset;
+		}
+	}
+	private List<Tile> getTiles() throws IOException {
+		List<Tile> tiles = new ArrayList<>();
+		try (SamReader reader = SamReaderFactory.makeDefault().open(bam)) {
+			BAMIndex index = reader.indexing().getIndex();
+			for (int referenceIndex = 0; referenceIndex < dictionary.size(); referenceIndex++) {
+				BAMIndexMetaData metadata = index.getMetaData(referenceIndex);
+				if (metadata != null && metadata.getAlignedRecordCount() + metadata.getUnalignedRecordCount() == 0) continue;
+				int length = dictionary.getSequence(referenceIndex).getSequenceLength();
+				for (int start = 1; start <= Math.max(length, 1); start += tileSize) {
+					int end = Math.min(length, start + tileSize - 1);
+					boolean last = end >= length;
+					// reads past the end of the contig are included in the last tile
+					BAMFileSpan span = index.getSpanOverlapping(referenceIndex, start, last ? Integer.MAX_VALUE >> 1 : end);
+					if (span != null && !span.isEmpty()) {
+						tiles.add(new Tile(referenceIndex, start, end, last, span.getFirstOffset()));
+					}
+				}
+			}
+		}
+		return tiles;
+	}
+	/**
+	 * Calculates the regions of at least threshold coverage
+	 * @param threadpool threads to process tiles on
+	 * @return regions of at least threshold coverage
+	 */
+	public IntervalBed calculate(ExecutorService threadpool) throws IOException {
+		List<Tile> tiles = getTiles();
+		log.debug(String.format("Calculating coverage of %s in %d tiles", bam, tiles.size()));
+		List<Future<IntervalBed>> futures = new ArrayList<>(tiles.size());
+		for (Tile tile : tiles) {
+			futures.add(threadpool.submit(() -> process(tile)));
+		}
+		List<IntervalBed> beds = new ArrayList<>(tiles.size());
+		try {
+			for (Future<IntervalBed> f : futures) {
+				beds.add(f.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			for (Future<IntervalBed> f : futures) {
+				f.cancel(true);
+			}
+		}
+		return IntervalBed.merge(dictionary, linear, beds);
+	}
+	private IntervalBed process(Tile tile) throws IOException {
+		// diff[i] is the change in coverage between position tile.start + i - 1 and tile.start + i
+		int[] diff = new int[tile.end - tile.start + 2];
+		int maxEnd = tile.end;
+		byte[] buffer = new byte[FIXED_FIELDS_LENGTH];
+		ByteBuffer bb = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+		try (BlockCompressedInputStream in = new BlockCompressedInputStream(bam)) {
+			in.seek(tile.firstOffset);
+			while (readFully(in, buffer, 4)) {
+				int blockSize = bb.getInt(0);
+				if (!readFully(in, buffer, FIXED_FIELDS_LENGTH)) break;
+				int referenceIndex = bb.getInt(0);
+				int start = bb.getInt(4) + 1;
+				int readNameLength = buffer[8] & 0xFF;
+				int cigarLength = bb.getShort(12) & 0xFFFF;
+				int flag = bb.getShort(14) & 0xFFFF;
+				if (referenceIndex > tile.referenceIndex || referenceIndex < 0) break;
+				if (!tile.isLastTileOfContig && start > tile.end) break;
+				skipFully(in, readNameLength);
+				int referenceLength = 0;
+				for (int i = 0; i < cigarLength; i++) {
+					if (!readFully(in, buffer, 4)) throw new IOException("Truncated BAM record in " + bam);
+					int op = bb.getInt(0);
+					switch (op & 0xF) {
+						case 0: // M
+						case 2: // D
+						case 3: // N
+						case 7: // =
+						case 8: // X
+							referenceLength += op >>> 4;
+							break;
+					}
+				}
+				skipFully(in, blockSize - FIXED_FIELDS_LENGTH - readNameLength - 4 * cigarLength);
+				if (referenceIndex != tile.referenceIndex || (flag & FLAG_UNMAPPED) != 0) continue;
+				int end = start + referenceLength - 1;
+				if (end < start || end < tile.start) continue;
+				if (tile.isLastTileOfContig && end > maxEnd) {
+					maxEnd = end;
+					if (maxEnd - tile.start + 2 > diff.length) {
+						diff = Arrays.copyOf(diff, Math.max(maxEnd - tile.start + 2, diff.length * 2));
+					}
+				}
+				diff[Math.max(start, tile.start) - tile.start]++;
+				diff[Math.min(end, maxEnd) - tile.start + 1]--;
+			}
+		}
+		IntervalBed bed = new IntervalBed(dictionary, linear);
+		int coverage = 0;
+		int intervalStart = -1;
+		for (int i = 0; i <= maxEnd - tile.start; i++) {
+			coverage += diff[i];
+			if (coverage >= threshold) {
+				if (intervalStart < 0) intervalStart = tile.start + i;
+			} else if (intervalStart >= 0) {
+				bed.addInterval(tile.referenceIndex, intervalStart, tile.start + i - 1);
+				intervalStart = -1;
+			}
+		}
+		if (intervalStart >= 0) {
+			bed.addInterval(tile.referenceIndex, intervalStart, maxEnd);
+		}
+		return bed;
+	}
+	private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+		int offset = 0;
+		while (offset < length) {
+			int read = in.read(buffer, offset, length - offset);
+			if (read < 0) {
+				if (offset == 0) return false;
+				throw new IOException("Unexpected end of file");
+			}
+			offset += read;
+		}
+		return true;
+	}
+	private static void skipFully(InputStream in, long length) throws IOException {
+		while (length > 0) {
+			long skipped = in.skip(length);
+			if (skipped <= 0) {
+				if (in.read() < 0) throw new IOException("Unexpected end of file");
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+}
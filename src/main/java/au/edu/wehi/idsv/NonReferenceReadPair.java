@@ -5,6 +5,7 @@ import java.nio.charset.StandardCharsets;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import au.edu.wehi.idsv.sam.ReadStatistics;
 import au.edu.wehi.idsv.sam.SAMRecordUtil;
 import au.edu.wehi.idsv.sam.SamTags;
 import au.edu.wehi.idsv.util.MathUtil;
@@ -51,8 +52,8 @@ public abstract class NonReferenceReadPair implements DirectedEvidence {
 	 */
 	public static NonReferenceReadPair create(SAMRecord local, SAMRecord remote, SAMEvidenceSource source) {
 		if (local == null || remote == null) return null;
-		if (SAMRecordUtil.entropy(local) < source.getContext().getConfig().minAnchorShannonEntropy) return null;
-		if (SAMRecordUtil.entropy(remote) < source.getContext().getConfig().minAnchorShannonEntropy) return null;
+		if (ReadStatistics.get(local).isEntropyBelow(source.getContext().getConfig().minAnchorShannonEntropy)) return null;
+		if (ReadStatistics.get(remote).isEntropyBelow(source.getContext().getConfig().minAnchorShannonEntropy)) return null;
 		if (!meetsAnchorCriteria(source, local)) return null;
 		if (SAMRecordUtil.isDovetailing(local,  remote, PairOrientation.FR, source.getContext().getConfig().dovetailMargin)) return null; 
 		// should only need to check for adapters in OEA as DP with adapter should be dovetailing
@@ -91,6 +92,8 @@ public abstract class NonReferenceReadPair implements DirectedEvidence {
 		if (!record.getReadPairedFlag()) return null;
 		assertAttribute(record, SAMTag.R2);
 		assertAttribute(record, SAMTag.Q2);
+		// reject concordant and poorly anchored reads before constructing the mate
+		if (!meetsAnchorCriteria(source, record)) return null;
 		SAMRecord remote = new SAMRecord(record.getHeader());
 		remote.setReadUnmappedFlag(record.getMateUnmappedFlag());
 		byte[] r2 = record.getStringAttribute(SAMTag.R2.name()).getBytes(StandardCharsets.US_ASCII);
@@ -1,6 +1,8 @@
 package au.edu.wehi.idsv;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.NavigableMap;
 
 import com.google.common.collect.Maps;
@@ -20,6 +22,11 @@ public class PaddedLinearGenomicCoordinate implements LinearGenomicCoordinate {
 	private final SAMSequenceDictionary dictionary;
 	private long[] offset;
 	private NavigableMap<Long, Integer> referenceIndices;
+	/**
+	 * Flattened referenceIndices lookup for binary search without boxing
+	 */
+	private long[] lookupStart;
+	private int[] lookupReferenceIndex;
 	/**
 	 * Create a coordinate lookup from the given dictionary
 	 * @param dictionary sequence dictionary
@@ -47,6 +54,14 @@ public class PaddedLinearGenomicCoordinate implements LinearGenomicCoordinate {
 		} else {
 			generatePaddedLookups(sequences, padding);
 		}
+		lookupStart = new long[referenceIndices.size()];
+		lookupReferenceIndex = new int[referenceIndices.size()];
+		int i = 0;
+		for (Entry<Long, Integer> entry : referenceIndices.entrySet()) {
+			lookupStart[i] = entry.getKey();
+			lookupReferenceIndex[i] = entry.getValue();
+			i++;
+		}
 	}
 	private void generatePaddedLookups(List<SAMSequenceRecord> sequences, long padding) {
 		offset = new long[sequences.size()];
@@ -137,7 +152,10 @@ public class PaddedLinearGenomicCoordinate implements LinearGenomicCoordinate {
 	 */
 	@Override
 	public int getReferenceIndex(long linearCoordinate) {
-		return referenceIndices.floorEntry(linearCoordinate - 1).getValue();
+		// equivalent to referenceIndices.floorEntry(linearCoordinate - 1)
+		int i = Arrays.binarySearch(lookupStart, linearCoordinate - 1);
+		if (i < 0) i = -i - 2;
+		return lookupReferenceIndex[i];
 	}
 	/* (non-Javadoc)
 	 * @see au.edu.wehi.idsv.LinearGenomicCoordinate#getReferencePosition(long)
@@ -1,10 +1,11 @@
 package au.edu.wehi.idsv;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -15,10 +16,12 @@ import au.edu.wehi.idsv.bed.IntervalBed;
 import au.edu.wehi.idsv.configuration.GridssConfiguration;
 import au.edu.wehi.idsv.configuration.SoftClipConfiguration;
 import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
-import au.edu.wehi.idsv.sam.ChimericAlignment;
+import au.edu.wehi.idsv.sam.ChimericAlignmentCursor;
 import au.edu.wehi.idsv.sam.CigarUtil;
+import au.edu.wehi.idsv.sam.ReadStatistics;
 import au.edu.wehi.idsv.sam.SAMFileUtil;
 import au.edu.wehi.idsv.sam.SAMRecordUtil;
+import au.edu.wehi.idsv.sam.TextCigarParser.CigarSummary;
 import au.edu.wehi.idsv.util.AsyncBufferedIterator;
 import au.edu.wehi.idsv.util.AutoClosingIterator;
 import au.edu.wehi.idsv.util.AutoClosingMergedIterator;
@@ -32,7 +35,6 @@ import gridss.analysis.CollectGridssMetrics;
 import gridss.analysis.StructuralVariantReadMetrics;
 import gridss.cmdline.CommandLineProgramHelper;
 import gridss.cmdline.ReferenceCommandLineProgram;
-import htsjdk.samtools.Cigar;
 import htsjdk.samtools.QueryInterval;
 import htsjdk.samtools.SAMFileHeader.SortOrder;
 import htsjdk.samtools.SAMRecord;
@@ -42,7 +44,6 @@ import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SamPairUtil.PairOrientation;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
-import htsjdk.samtools.TextCigarCodec;
 import htsjdk.samtools.metrics.MetricsFile;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.Log;
@@ -61,9 +62,22 @@ public class SAMEvidenceSource extends EvidenceSource {
 	private final int rpcMinFragmentSize;
 	private final int rpcMaxFragmentSize;
 	private final double rpcConcordantPercentage;
-	private IdsvSamFileMetrics metrics;
+	private volatile IdsvSamFileMetrics metrics;
 	private StructuralVariantReadMetrics svMetrics;
 	private ReadPairConcordanceCalculator rpcc;
+	/**
+	 * Reference chunks each evidence store covers
+	 */
+	private List<QueryInterval[]> storeChunks;
+	/**
+	 * Linear coordinate of the start of each evidence store chunk
+	 */
+	private long[] storeChunkStart;
+	private EvidenceStore[] evidenceStore;
+	private Object[] evidenceStoreLock;
+	private volatile boolean evidenceStoreFailed = false;
+	private static final ThreadLocal<ChimericAlignmentCursor> saCursor = ThreadLocal.withInitial(() -> new ChimericAlignmentCursor());
+	private static final ThreadLocal<StringBuilder> saBuffer = ThreadLocal.withInitial(() -> new StringBuilder());
 	public SAMEvidenceSource(ProcessingContext processContext, File file, File nameSorted, int sourceCategory) {
 		this(processContext, file, nameSorted, sourceCategory, ReadPairConcordanceMethod.SAM_FLAG, 0, 0, 0);
 	}
@@ -107,6 +121,14 @@ public class SAMEvidenceSource extends EvidenceSource {
 		return sourceCategory;
 	}
 	public void ensureMetrics() {
+		if (metrics == null) {
+			loadMetrics();
+		}
+	}
+	/**
+	 * Chunks are processed concurrently so only one thread can calculate the metrics
+	 */
+	private synchronized void loadMetrics() {
 		if (metrics == null) {
 			File idsvFile = getContext().getFileSystemContext().getIdsvMetrics(getFile());
 			File cigarFile = getContext().getFileSystemContext().getCigarMetrics(getFile());
@@ -124,6 +146,7 @@ public class SAMEvidenceSource extends EvidenceSource {
 						"GRIDSS_PROGRAM=CollectTagMetrics",
 						"GRIDSS_PROGRAM=CollectIdsvMetrics",
 						"GRIDSS_PROGRAM=ReportThresholdCoverage",
+						"WORKER_THREADS=" + getProcessContext().getWorkerThreadCount(),
 						// The CollectMultipleMetrics super class complains if no PROGRAM set so
 						// we'll just collect some stuff that is useful, but we don't actually
 						// use yet
@@ -237,6 +260,10 @@ public class SAMEvidenceSource extends EvidenceSource {
 		}
 	}
 	public CloseableIterator<DirectedEvidence> iterator(final QueryInterval[] intervals) {
+		CloseableIterator<DirectedEvidence> stored = storeIterator(intervals);
+		if (stored != null) {
+			return stored;
+		}
 		SamReader reader = getReader();
 		// expand query bounds as the alignment for a discordant read pair could fall before or after the breakend interval we are extracting
 		SAMRecordIterator it = tryOpenReader(reader, QueryIntervalUtil.padIntervals(getContext().getDictionary(), intervals, getMaxConcordantFragmentSize() + 1));
@@ -269,17 +296,158 @@ public class SAMEvidenceSource extends EvidenceSource {
 		return it;
 	}
 	public CloseableIterator<DirectedEvidence> iterator() {
+		CloseableIterator<DirectedEvidence> stored = storeIterator(null);
+		if (stored != null) {
+			return stored;
+		}
+		return evidenceIterator();
+	}
+	private CloseableIterator<DirectedEvidence> evidenceIterator() {
 		SamReader reader = getReader();
 		SAMRecordIterator it = reader.iterator();
 		it.assertSorted(SortOrder.coordinate);
 		Iterator<DirectedEvidence> eit = asEvidence(it);
 		return new AutoClosingIterator<>(eit, reader, it);
 	}
-	private SamReader getReader() {
+	private File getReaderFile() {
 		File svFile = getContext().getFileSystemContext().getSVBam(getFile());
-		SamReader reader = factory.open(svFile.exists() ? svFile : getFile());
+		return svFile.exists() ? svFile : getFile();
+	}
+	private SamReader getReader() {
+		SamReader reader = factory.open(getReaderFile());
 		return reader;
 	}
+	/**
+	 * Iterates over evidence from the evidence store.
+	 * 
+	 * Evidence is materialised into a separate store for each reference chunk. Each
+	 * chunk is materialised on first use under its own lock so workers processing
+	 * different chunks materialise their evidence in parallel.
+	 * 
+	 * @param intervals intervals to return evidence for. All evidence is returned if null.
+	 * @return evidence iterator, or null if evidence should be read directly from the SAM/BAM
+	 */
+	private CloseableIterator<DirectedEvidence> storeIterator(QueryInterval[] intervals) {
+		if (!getContext().getConfig().evidenceStore || evidenceStoreFailed) return null;
+		File readerFile = getReaderFile();
+		if (readerFile == null || !readerFile.exists()) return null;
+		initEvidenceStoreChunks();
+		int firstChunk = 0;
+		int lastChunk = storeChunks.size() - 1;
+		if (intervals != null) {
+			if (intervals.length == 0) return new AutoClosingIterator<>(ImmutableList.<DirectedEvidence>of().iterator());
+			// evidence breakends are within the same distance of the read as the padding used when reading directly
+			int padding = getMaxConcordantFragmentSize() + 1;
+			firstChunk = Integer.MAX_VALUE;
+			lastChunk = Integer.MIN_VALUE;
+			for (QueryInterval qi : intervals) {
+				firstChunk = Math.min(firstChunk, getEvidenceStoreChunk(qi.referenceIndex, qi.start - padding));
+				lastChunk = Math.max(lastChunk, getEvidenceStoreChunk(qi.referenceIndex, qi.end));
+			}
+		}
+		List<CloseableIterator<DirectedEvidence>> its = new ArrayList<>();
+		for (int i = firstChunk; i <= lastChunk; i++) {
+			EvidenceStore store = getEvidenceStore(i, readerFile);
+			if (store == null) {
+				its.forEach(it -> it.close());
+				return null;
+			}
+			its.add(intervals == null ? store.iterator() : store.iterator(intervals));
+		}
+		// chunks are in genomic order so concatenating the chunks retains the evidence sort order
+		return new AutoClosingIterator<>(Iterators.concat(its.iterator()), its.toArray(new Closeable[0]));
+	}
+	private synchronized void initEvidenceStoreChunks() {
+		if (storeChunks != null) return;
+		List<QueryInterval[]> chunks = getContext().getReference().getIntervals(getContext().getConfig().chunkSize, getContext().getConfig().chunkSequenceChangePenalty);
+		LinearGenomicCoordinate lgc = getContext().getLinear();
+		storeChunkStart = new long[chunks.size()];
+		for (int i = 0; i < chunks.size(); i++) {
+			storeChunkStart[i] = lgc.getLinearCoordinate(chunks.get(i)[0].referenceIndex, chunks.get(i)[0].start);
+		}
+		evidenceStore = new EvidenceStore[chunks.size()];
+		evidenceStoreLock = new Object[chunks.size()];
+		for (int i = 0; i < chunks.size(); i++) {
+			evidenceStoreLock[i] = new Object();
+		}
+		storeChunks = chunks;
+	}
+	/**
+	 * Gets the evidence store chunk containing evidence starting at the given position
+	 */
+	private int getEvidenceStoreChunk(int referenceIndex, int position) {
+		int length = getContext().getDictionary().getSequence(referenceIndex).getSequenceLength();
+		long linear = getContext().getLinear().getLinearCoordinate(referenceIndex, Math.max(1, Math.min(position, length)));
+		int lo = 0;
+		int hi = storeChunkStart.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (storeChunkStart[mid] <= linear) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return Math.max(0, lo - 1);
+	}
+	/**
+	 * Gets the evidence store for the given chunk, materialising the evidence if the existing store is out of date
+	 * @return evidence store, or null if evidence should be read directly from the SAM/BAM
+	 */
+	private EvidenceStore getEvidenceStore(int chunk, File readerFile) {
+		File coverageBlacklist = getContext().getFileSystemContext().getCoverageBlacklistBed(getFile());
+		QueryInterval[] chunkIntervals = storeChunks.get(chunk);
+		String fingerprint = String.format("%s\t%d\t%d\t%d\t%d\t%d\t%s\t%d:%d-%d:%d",
+				readerFile.getAbsolutePath(), readerFile.length(), readerFile.lastModified(),
+				coverageBlacklist.length(), coverageBlacklist.lastModified(),
+				minIndelSize(),
+				getContext().getConfig().getConfigurationHash(),
+				chunkIntervals[0].referenceIndex, chunkIntervals[0].start,
+				chunkIntervals[chunkIntervals.length - 1].referenceIndex, chunkIntervals[chunkIntervals.length - 1].end);
+		synchronized (evidenceStoreLock[chunk]) {
+			if (evidenceStoreFailed) return null;
+			if (evidenceStore[chunk] != null && evidenceStore[chunk].getFingerprint().equals(fingerprint)) {
+				return evidenceStore[chunk];
+			}
+			File storeFile = getContext().getFileSystemContext().getEvidenceStore(getFile(), chunk);
+			try {
+				if (!EvidenceStore.isCurrent(storeFile, fingerprint)) {
+					log.debug("Materialising evidence for chunk " + chunk + " of " + readerFile.getAbsolutePath());
+					QueryInterval[] qi = QueryIntervalUtil.padIntervals(getContext().getDictionary(), chunkIntervals, getMaxConcordantFragmentSize() + 1);
+					try (SamReader reader = getReader()) {
+						try (SAMRecordIterator it = tryOpenReader(reader, qi)) {
+							Iterator<DirectedEvidence> eit = asEvidence(it);
+							eit = Iterators.filter(eit, e -> getEvidenceStoreChunk(e.getBreakendSummary().referenceIndex, e.getBreakendSummary().start) == chunk);
+							EvidenceStore.write(storeFile, fingerprint, this, minIndelSize(), reader.getFileHeader(), eit);
+						}
+					}
+				}
+				evidenceStore[chunk] = new EvidenceStore(this, storeFile, minIndelSize());
+			} catch (IOException e) {
+				log.warn(e, "Unable to use evidence store " + storeFile.getAbsolutePath() + ". Reading evidence directly from " + readerFile.getAbsolutePath());
+				evidenceStoreFailed = true;
+				try {
+					EvidenceStore.delete(storeFile);
+				} catch (IOException ex) {
+					log.debug(ex, "Unable to delete " + storeFile.getAbsolutePath());
+				}
+				return null;
+			}
+			return evidenceStore[chunk];
+		}
+	}
+	/**
+	 * Deletes the evidence stores of this source
+	 */
+	public void deleteEvidenceStore() throws IOException {
+		initEvidenceStoreChunks();
+		for (int i = 0; i < storeChunks.size(); i++) {
+			synchronized (evidenceStoreLock[i]) {
+				evidenceStore[i] = null;
+				EvidenceStore.delete(getContext().getFileSystemContext().getEvidenceStore(getFile(), i));
+			}
+		}
+	}
 	private Iterator<DirectedEvidence> asEvidence(Iterator<SAMRecord> it) {
 		it = new BufferedIterator<>(it, 2); // TODO: remove when https://github.com/samtools/htsjdk/issues/760 is resolved 
 		it = Iterators.transform(it, r -> transform(r));
@@ -313,27 +481,46 @@ public class SAMEvidenceSource extends EvidenceSource {
 			int mateRef = r.getMateReferenceIndex();
 			int mateStart = r.getMateAlignmentStart();
 			int mateEnd = mateStart;
-			String mc = r.getStringAttribute(SAMTag.MC.name());
-			if (mc != null) {
-				Cigar mateCigar = TextCigarCodec.decode(mc);
-				mateEnd += mateCigar.getReferenceLength() - 1;
+			CigarSummary mateCigar = SAMRecordUtil.getMateCigarSummary(r);
+			if (mateCigar != null) {
+				mateEnd += mateCigar.referenceLength - 1;
 			}
 			if (getBlacklistedRegions().overlaps(mateRef, mateStart, mateEnd)) {
 				r.setMateUnmappedFlag(true);
 			}
 		}
-		if (r.getAttribute(SAMTag.SA.name()) != null) {
-			SAMSequenceDictionary dict = getContext().getDictionary();
-			r.setAttribute(SAMTag.SA.name(), ChimericAlignment.getChimericAlignments(r).stream()
-					.filter(ca -> !getBlacklistedRegions().overlaps(
-							dict.getSequence(ca.rname).getSequenceIndex(),
-							ca.pos,
-							ca.pos + ca.cigar.getReferenceLength() - 1))
-					.map(ca -> ca.toString())
-					.collect(Collectors.joining(";")));
+		String sa = r.getStringAttribute(SAMTag.SA.name());
+		if (sa != null) {
+			String filtered = removeBlacklistedAlignments(sa);
+			if (filtered != null) {
+				r.setAttribute(SAMTag.SA.name(), filtered);
+			}
 		}
 		return r;
 	}
+	/**
+	 * Removes split read alignments overlapping blacklisted regions from the given SA tag
+	 * @param sa SA tag
+	 * @return filtered SA tag, null if no alignments overlap a blacklisted region
+	 */
+	private String removeBlacklistedAlignments(String sa) {
+		SAMSequenceDictionary dict = getContext().getDictionary();
+		IntervalBed blacklist = getBlacklistedRegions();
+		ChimericAlignmentCursor c = saCursor.get().reset(sa);
+		StringBuilder sb = saBuffer.get();
+		sb.setLength(0);
+		boolean removed = false;
+		while (c.next()) {
+			int referenceIndex = c.getReferenceIndex(dict);
+			if (referenceIndex >= 0 && blacklist.overlaps(referenceIndex, c.getPosition(), c.getAlignmentEnd())) {
+				removed = true;
+			} else {
+				if (sb.length() > 0) sb.append(';');
+				c.appendTo(sb);
+			}
+		}
+		return removed ? sb.toString() : null;
+	}
 	public boolean shouldFilter(SAMRecord r) {
 		if (r.getReadUnmappedFlag()) {
 			return true;
@@ -400,8 +587,9 @@ public class SAMEvidenceSource extends EvidenceSource {
 			if (config.adapters.isAdapterSoftClip(sce)) return true;
 			if (!AssemblyAttributes.isAssembly(sce.getSAMRecord())) {
 				// TODO: symmetrical identity and entropy filters on both sides
-				if (SAMRecordUtil.getAlignedIdentity(sce.getSAMRecord()) < scc.minAnchorIdentity) return true;
-				if (SAMRecordUtil.alignedEntropy(sce.getSAMRecord()) < config.minAnchorShannonEntropy) return true;
+				ReadStatistics stats = ReadStatistics.get(sce.getSAMRecord());
+				if (stats.getAlignedIdentity() < scc.minAnchorIdentity) return true;
+				if (stats.isAlignedEntropyBelow(config.minAnchorShannonEntropy)) return true;
 			}
 		}
 		if (e instanceof IndelEvidence) {
@@ -489,7 +677,7 @@ public class SAMEvidenceSource extends EvidenceSource {
 			}
 			toMerge.add(it);
 		}
-		CloseableIterator<DirectedEvidence> merged = new AutoClosingMergedIterator<DirectedEvidence>(toMerge, DirectedEvidenceOrder.ByNatural);
+		CloseableIterator<DirectedEvidence> merged = new AutoClosingMergedIterator<DirectedEvidence>(toMerge, DirectedEvidenceOrder.ByNatural, DirectedEvidenceOrder.ByNaturalSortKey);
 		return merged;
 	}
 	public static CloseableIterator<DirectedEvidence> mergedIterator(final List<SAMEvidenceSource> source, final QueryInterval[] intervals) {
@@ -498,7 +686,7 @@ public class SAMEvidenceSource extends EvidenceSource {
 			CloseableIterator<DirectedEvidence> it = bam.iterator(intervals);
 			toMerge.add(it);
 		}
-		CloseableIterator<DirectedEvidence> merged = new AutoClosingMergedIterator<DirectedEvidence>(toMerge, DirectedEvidenceOrder.ByNatural);
+		CloseableIterator<DirectedEvidence> merged = new AutoClosingMergedIterator<DirectedEvidence>(toMerge, DirectedEvidenceOrder.ByNatural, DirectedEvidenceOrder.ByNaturalSortKey);
 		return merged;
 	}
 	/**
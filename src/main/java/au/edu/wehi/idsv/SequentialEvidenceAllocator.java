@@ -2,7 +2,7 @@ package au.edu.wehi.idsv;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -26,10 +26,9 @@ import com.google.common.collect.TreeRangeMap;
 
 import au.edu.wehi.idsv.util.RangeUtil;
 import au.edu.wehi.idsv.vcf.VcfSvConstants;
+import au.edu.wehi.idsv.visualisation.HeapSizeEstimates;
 import au.edu.wehi.idsv.visualisation.TrackedBuffer;
 import htsjdk.samtools.SAMRecord;
-import htsjdk.samtools.util.IntervalTree;
-import htsjdk.samtools.util.IntervalTree.Node;
 import htsjdk.samtools.util.Log;
 import htsjdk.samtools.util.ProgressLogger;
 
@@ -263,7 +262,7 @@ public class SequentialEvidenceAllocator implements Iterator<SequentialEvidenceA
 	@Override
 	public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
 		return ImmutableList.of(
-				new NamedTrackedBuffer(trackedBufferName_variantBuffer, variantBuffer.size()),
+				new NamedTrackedBuffer(trackedBufferName_variantBuffer, variantBuffer.size(), HeapSizeEstimates.VARIANT_CONTEXT_BYTES),
 				new NamedTrackedBuffer(trackedBufferName_bufferedVariantId, bufferedVariantId.size())
 				);
 	}
@@ -272,31 +271,12 @@ public class SequentialEvidenceAllocator implements Iterator<SequentialEvidenceA
 		public abstract void remove(VariantEvidenceSupport ves);
 		public abstract Iterator<VariantEvidenceSupport> findAllOverlapping(BreakendSummary breakend);
 		public abstract VariantEvidenceSupport findBestOverlapping(BreakendSummary breakend);
-		protected void add(IntervalTree<List<VariantEvidenceSupport>> lookup, int start, int end, VariantEvidenceSupport ves) {
-			Node<List<VariantEvidenceSupport>> node = lookup.find(start, end);
-			if (node != null) {
-				node.getValue().add(ves);
-			} else {
-				ArrayList<VariantEvidenceSupport> list = new ArrayList<>(2);
-				list.add(ves);
-				lookup.put(start, end, list);
-			}
-		}
-		protected void remove(IntervalTree<List<VariantEvidenceSupport>> lookup, int start, int end, VariantEvidenceSupport ves) {
-			Node<List<VariantEvidenceSupport>> node = lookup.find(start, end);
-			if (node != null) {
-				node.getValue().remove(ves);
-				if (node.getValue().isEmpty()) {
-					lookup.remove(start, end);
-				}
-			}
-		}
 		protected int getIndex(int referenceIndex, BreakendDirection dir) {
 			return 2 * referenceIndex + (dir == BreakendDirection.Forward ? 0 : 1);
 		}
-		protected List<IntervalTree<List<VariantEvidenceSupport>>> createByReferenceIndexDirectionLookup(int referenceSequenceCount) {
+		protected List<IntervalIndex> createByReferenceIndexDirectionLookup(int referenceSequenceCount) {
 			return IntStream.range(0, referenceSequenceCount * 2)
-					.mapToObj(i -> new IntervalTree<List<VariantEvidenceSupport>>())
+					.mapToObj(i -> new IntervalIndex())
 					.collect(Collectors.toList());
 		}
 		protected VariantEvidenceSupport findBestOverlapping(BreakendSummary breakend, Iterator<VariantEvidenceSupport> it) {
@@ -311,67 +291,125 @@ public class SequentialEvidenceAllocator implements Iterator<SequentialEvidenceA
 			return best;
 		}
 	}
+	/**
+	 * Interval index of the calls in the active window.
+	 * 
+	 * Intervals are stored in primitive arrays sorted by start position. Since the
+	 * active window contains only a small number of calls, inserting and removing
+	 * by shifting the arrays is cheaper than maintaining a tree of lists.
+	 */
+	private static class IntervalIndex {
+		private int[] start = new int[16];
+		private int[] end = new int[16];
+		private VariantEvidenceSupport[] value = new VariantEvidenceSupport[16];
+		private int size = 0;
+		/**
+		 * Width of the widest interval added. Overlapping intervals cannot start
+		 * more than this distance before the query interval.
+		 */
+		private int maxWidth = 0;
+		/**
+		 * @return index of the first interval starting at or after the given position
+		 */
+		private int lowerBound(long position) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (start[mid] < position) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+		public void add(int intervalStart, int intervalEnd, VariantEvidenceSupport ves) {
+			if (size == start.length) {
+				start = Arrays.copyOf(start, size * 2);
+				end = Arrays.copyOf(end, size * 2);
+				value = Arrays.copyOf(value, size * 2);
+			}
+			// insert after existing intervals with the same start
+			int i = lowerBound((long)intervalStart + 1);
+			System.arraycopy(start, i, start, i + 1, size - i);
+			System.arraycopy(end, i, end, i + 1, size - i);
+			System.arraycopy(value, i, value, i + 1, size - i);
+			start[i] = intervalStart;
+			end[i] = intervalEnd;
+			value[i] = ves;
+			size++;
+			maxWidth = Math.max(maxWidth, intervalEnd - intervalStart);
+		}
+		public void remove(int intervalStart, VariantEvidenceSupport ves) {
+			for (int i = lowerBound(intervalStart); i < size && start[i] == intervalStart; i++) {
+				if (value[i] == ves) {
+					System.arraycopy(start, i + 1, start, i, size - i - 1);
+					System.arraycopy(end, i + 1, end, i, size - i - 1);
+					System.arraycopy(value, i + 1, value, i, size - i - 1);
+					size--;
+					value[size] = null;
+					return;
+				}
+			}
+		}
+		/**
+		 * Finds the calls overlapping the given breakend
+		 * @param queryStart start of interval to find overlaps of
+		 * @param queryEnd end of interval to find overlaps of
+		 * @param breakend breakend that returned calls must overlap 
+		 */
+		public Iterator<VariantEvidenceSupport> overlapping(int queryStart, int queryEnd, BreakendSummary breakend) {
+			return new AbstractIterator<VariantEvidenceSupport>() {
+				private int i = lowerBound((long)queryStart - maxWidth);
+				@Override
+				protected VariantEvidenceSupport computeNext() {
+					while (i < size && start[i] <= queryEnd) {
+						int current = i++;
+						if (end[current] >= queryStart && value[current].location.overlaps(breakend)) {
+							return value[current];
+						}
+					}
+					return endOfData();
+				}
+			};
+		}
+	}
 	/**
 	 * Finds all variant calls overlapping the given evidence 
 	 * @author Daniel Cameron
 	 *
 	 */
 	private class LocalOverlapLookup extends OverlapLookup {
-		List<IntervalTree<List<VariantEvidenceSupport>>> localLookup;
+		List<IntervalIndex> localLookup;
 		public LocalOverlapLookup(int referenceSequenceCount) {
 			localLookup = createByReferenceIndexDirectionLookup(referenceSequenceCount);
 		}
 		public void add(VariantEvidenceSupport ves)
 		{
-			add(localLookup.get(getIndex(ves.location.referenceIndex, ves.location.direction)), ves.location.start, ves.location.end, ves);
+			localLookup.get(getIndex(ves.location.referenceIndex, ves.location.direction)).add(ves.location.start, ves.location.end, ves);
 		}
 		public void remove(VariantEvidenceSupport ves)
 		{
-			remove(localLookup.get(getIndex(ves.location.referenceIndex, ves.location.direction)), ves.location.start, ves.location.end, ves);
+			localLookup.get(getIndex(ves.location.referenceIndex, ves.location.direction)).remove(ves.location.start, ves);
 		}
 		public Iterator<VariantEvidenceSupport> findAllOverlapping(BreakendSummary breakend) {
-			IntervalTree<List<VariantEvidenceSupport>> tree = localLookup.get(getIndex(breakend.referenceIndex, breakend.direction));
-			Iterator<Node<List<VariantEvidenceSupport>>> nodeit = tree.overlappers(breakend.start, breakend.end);
-			return new VariantEvidenceSupportNodeListIterator(nodeit, breakend);
+			IntervalIndex index = localLookup.get(getIndex(breakend.referenceIndex, breakend.direction));
+			return index.overlapping(breakend.start, breakend.end, breakend);
 		}
 		public VariantEvidenceSupport findBestOverlapping(BreakendSummary breakend) {
 			Iterator<VariantEvidenceSupport> it = findAllOverlapping(breakend);
 			return findBestOverlapping(breakend, it);
 		}
 	}
-	private static class VariantEvidenceSupportNodeListIterator extends AbstractIterator<VariantEvidenceSupport> {
-		private final Iterator<Node<List<VariantEvidenceSupport>>> nodeIt;
-		private final BreakendSummary breakend;
-		private Iterator<VariantEvidenceSupport> listIt = Collections.emptyIterator();
-		public VariantEvidenceSupportNodeListIterator(Iterator<Node<List<VariantEvidenceSupport>>> nodeIt, BreakendSummary breakend) {
-			this.nodeIt = nodeIt;
-			this.breakend = breakend;
-		}
-		@Override
-		protected VariantEvidenceSupport computeNext() {
-			while (nodeIt.hasNext() || listIt.hasNext()) {
-				// advance through current list
-				while (listIt.hasNext()) {
-					VariantEvidenceSupport ves = listIt.next();
-					if (ves.location.overlaps(breakend)) {
-						return ves;
-					}
-				}
-				if (nodeIt.hasNext()) {
-					listIt = nodeIt.next().getValue().iterator();
-				}
-			}
-			return endOfData();
-		}
-	}
 	/**
-	 * Finds the best overlapping variant call using a 1D interval tree on the remote breakpoint
+	 * Finds the best overlapping variant call using a 1D interval index on the remote breakpoint
 	 * This should have better performance as, for repetitive sequence, the remote breakends
 	 * are distributed across all repeats, but the local breakends all map to the same location
 	 * (since we are doing a sequential traveral).
 	 */
 	private class RemoteOverlapLookup extends OverlapLookup {
-		List<IntervalTree<List<VariantEvidenceSupport>>> remoteLookup;
+		List<IntervalIndex> remoteLookup;
 		List<RangeMap<Integer, VariantEvidenceSupport>> bestLocal;
 		public RemoteOverlapLookup(int referenceSequenceCount) {
 			this.remoteLookup = createByReferenceIndexDirectionLookup(referenceSequenceCount);
@@ -380,13 +418,13 @@ public class SequentialEvidenceAllocator implements Iterator<SequentialEvidenceA
 					.collect(Collectors.toList());
 		}
 		public void add(VariantEvidenceSupport ves) {
-			add(remoteLookup.get(getIndex(ves.location.referenceIndex2, ves.location.direction2)), ves.location.start2, ves.location.end2, ves);
+			remoteLookup.get(getIndex(ves.location.referenceIndex2, ves.location.direction2)).add(ves.location.start2, ves.location.end2, ves);
 			// need to add over the intervals in which we are the best
 			RangeMap<Integer, VariantEvidenceSupport> rm = bestLocal.get(getIndex(ves.location.referenceIndex, ves.location.direction));
 			RangeUtil.addWhereBest(rm, Range.closedOpen(ves.location.start, ves.location.end + 1), ves, ByScoreAscPositionDesc);
 		}
 		public void remove(VariantEvidenceSupport ves) {
-			remove(remoteLookup.get(getIndex(ves.location.referenceIndex2, ves.location.direction2)), ves.location.start2, ves.location.end2, ves);
+			remoteLookup.get(getIndex(ves.location.referenceIndex2, ves.location.direction2)).remove(ves.location.start2, ves);
 			// we can remove all intervals before our end position as to be removed,
 			// we need to have already added all the potential support for any variant
 			// before our end position
@@ -398,10 +436,8 @@ public class SequentialEvidenceAllocator implements Iterator<SequentialEvidenceA
 			throw new NotImplementedException("RemoteOverlapLookup requires unique greedy evidence assignment");
 		}
 		public VariantEvidenceSupport findBestOverlapping(BreakpointSummary breakend) {
-			IntervalTree<List<VariantEvidenceSupport>> tree = remoteLookup.get(getIndex(breakend.referenceIndex2, breakend.direction2));
-			Iterator<Node<List<VariantEvidenceSupport>>> nodeit = tree.overlappers(breakend.start2, breakend.end2);
-			Iterator<VariantEvidenceSupport> it = new VariantEvidenceSupportNodeListIterator(nodeit, breakend);
-			return findBestOverlapping(breakend, it);
+			IntervalIndex index = remoteLookup.get(getIndex(breakend.referenceIndex2, breakend.direction2));
+			return findBestOverlapping(breakend, index.overlapping(breakend.start2, breakend.end2, breakend));
 		}
 		@Override
 		public VariantEvidenceSupport findBestOverlapping(BreakendSummary breakend) {
@@ -17,6 +17,10 @@ import htsjdk.samtools.util.Log;
  */
 public class SequentialEvidenceAnnotator extends ParallelTransformIterator<VariantEvidenceSupport, VariantContextDirectedEvidence> implements TrackedBuffer {
 	private static final Log log = Log.getInstance(SequentialEvidenceAnnotator.class);
+	/**
+	 * Minimum number of batches to annotate in parallel when the lookahead is large enough
+	 */
+	private static final int MIN_PARALLEL_BATCHES = 4;
 	/**
 	 * Creates an ordered evidence annotation
 	 * @param context processing context
@@ -24,7 +28,8 @@ public class SequentialEvidenceAnnotator extends ParallelTransformIterator<Varia
 	 * @param evidence evidence order by breakend position
 	 * @param maxCallWindowSize
 	 * @param assignEvidenceToSingleBreakpoint uniquely assign evidence to only the highest scoring call
-	 * @param lookahead number of records to annotate in parallel.
+	 * @param lookahead maximum number of records to annotate in parallel.
+	 * Records are dispatched in batches such that no more than this many records are buffered.
 	 * @param threadpool thread pool used to perform annotation
 	 */
 	public SequentialEvidenceAnnotator(
@@ -36,7 +41,19 @@ public class SequentialEvidenceAnnotator extends ParallelTransformIterator<Varia
 			int lookahead,
 			Executor threadpool) {
 		super(new SequentialEvidenceAllocator(context, calls, evidence, maxCallWindowSize, assignEvidenceToSingleBreakpoint),
-			call -> make(context, call), lookahead, threadpool);
+			call -> make(context, call), batchCount(lookahead), batchSize(lookahead), threadpool);
+	}
+	/**
+	 * Maximum number of records in each annotation batch for the given record lookahead
+	 */
+	static int batchSize(int lookahead) {
+		return Math.max(1, Math.min(DEFAULT_MAX_BATCH_SIZE, lookahead / MIN_PARALLEL_BATCHES));
+	}
+	/**
+	 * Number of annotation batches to dispatch for the given record lookahead
+	 */
+	static int batchCount(int lookahead) {
+		return lookahead / batchSize(lookahead);
 	}
 	private static VariantContextDirectedEvidence make(ProcessingContext context, VariantEvidenceSupport ves) {
 		try {
@@ -13,6 +13,7 @@ import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Queues;
 
 import au.edu.wehi.idsv.util.SlidingWindowList;
+import au.edu.wehi.idsv.visualisation.HeapSizeEstimates;
 import au.edu.wehi.idsv.visualisation.TrackedBuffer;
 import gridss.analysis.IdsvMetrics;
 import htsjdk.samtools.SAMRecord;
@@ -209,9 +210,9 @@ public class SequentialReferenceCoverageLookup implements Closeable, ReferenceCo
 	@Override
 	public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
 		return ImmutableList.of(
-				new NamedTrackedBuffer(trackedBufferName_currentReferenceRead, currentReferenceRead.size()),
-				new NamedTrackedBuffer(trackedBufferName_currentStartReferencePairs, currentStartReferencePairs.size()),
-				new NamedTrackedBuffer(trackedBufferName_currentEndReferencePairs, currentEndReferencePairs.size())
+				new NamedTrackedBuffer(trackedBufferName_currentReferenceRead, currentReferenceRead.size(), HeapSizeEstimates.BOXED_PRIMITIVE_BYTES),
+				new NamedTrackedBuffer(trackedBufferName_currentStartReferencePairs, currentStartReferencePairs.size(), HeapSizeEstimates.BOXED_PRIMITIVE_BYTES),
+				new NamedTrackedBuffer(trackedBufferName_currentEndReferencePairs, currentEndReferencePairs.size(), HeapSizeEstimates.BOXED_PRIMITIVE_BYTES)
 				);
 	}
 	@Override
@@ -9,6 +9,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 
+import au.edu.wehi.idsv.visualisation.HeapSizeEstimates;
 import au.edu.wehi.idsv.visualisation.TrackedBuffer;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.util.Log;
@@ -130,7 +131,7 @@ public abstract class SequentialSAMRecordFactoryBase<T> implements TrackedBuffer
 	@Override
 	public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
 		return ImmutableList.of(
-				new NamedTrackedBuffer(trackedBufferName, currentReads.size())
+				new NamedTrackedBuffer(trackedBufferName, currentReads.size(), HeapSizeEstimates.samRecord(HeapSizeEstimates.TYPICAL_READ_LENGTH))
 				);
 	}
 }
@@ -3,6 +3,7 @@ package au.edu.wehi.idsv;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -11,8 +12,11 @@ import au.edu.wehi.idsv.sam.SAMRecordUtil;
 import au.edu.wehi.idsv.sam.SamTags;
 import au.edu.wehi.idsv.util.IntervalUtil;
 import au.edu.wehi.idsv.util.MessageThrottler;
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.util.Log;
 import htsjdk.samtools.util.SequenceUtil;
 
@@ -32,31 +36,72 @@ public abstract class SingleReadEvidence implements DirectedEvidence {
 	private boolean unableToCalculateHomology = false;
 	
 	public static List<SingleReadEvidence> createEvidence(SAMEvidenceSource source, int minIndelSize, SAMRecord record) {
-		if (record.getReadUnmappedFlag()) return Collections.emptyList();
+		if (!mayHaveEvidence(record, minIndelSize)) return Collections.emptyList();
 		List<SingleReadEvidence> list = new ArrayList<>(4);
+		createEvidence(source, minIndelSize, record, list);
+		return list;
+	}
+	/**
+	 * Determines whether the given record could contain single read evidence.
+	 * 
+	 * Only the flags, CIGAR operators and SA tag presence are inspected so records fully
+	 * aligned to the reference can be rejected without creating any evidence.
+	 * @param record record to check
+	 * @param minIndelSize minimum indel size
+	 * @return false if the record is guaranteed to contain no single read evidence
+	 */
+	public static boolean mayHaveEvidence(SAMRecord record, int minIndelSize) {
+		if (record.getReadUnmappedFlag() || record.getCigar() == null) return false;
+		if (record.getAttribute(SAMTag.SA.name()) != null) return true;
+		Cigar cigar = record.getCigar();
+		return cigar.isLeftClipped() || cigar.isRightClipped() || hasIndel(cigar, minIndelSize);
+	}
+	private static boolean hasIndel(Cigar cigar, int minIndelSize) {
+		boolean hasIndel = false;
+		int indelBases = 0;
+		for (CigarElement ce : cigar.getCigarElements()) {
+			if (ce.getOperator().isIndelOrSkippedRegion()) {
+				hasIndel = true;
+				indelBases += ce.getLength();
+			}
+		}
+		return hasIndel && indelBases >= minIndelSize;
+	}
+	/**
+	 * Creates the single read evidence of the given record
+	 * @param source evidence source
+	 * @param minIndelSize minimum indel size
+	 * @param record record
+	 * @param out collection to write evidence into
+	 */
+	public static void createEvidence(SAMEvidenceSource source, int minIndelSize, SAMRecord record, Collection<? super SingleReadEvidence> out) {
+		if (!mayHaveEvidence(record, minIndelSize)) return;
 		try {
-			List<SplitReadEvidence> srlist = SplitReadEvidence.create(source, record);
-			list.addAll(srlist);
-			// only add soft clip if there isn't a split read
 			boolean hasForwardSR = false;
 			boolean hasBackwardSR = false;
-			for (SplitReadEvidence sre : srlist) {
-				switch (sre.getBreakendSummary().direction) {
-				case Forward:
-					hasForwardSR = true;
-					break;
-				case Backward:
-					hasBackwardSR = true;
-					break;
+			if (record.getAttribute(SAMTag.SA.name()) != null) {
+				for (SplitReadEvidence sre : SplitReadEvidence.create(source, record)) {
+					out.add(sre);
+					switch (sre.getBreakendSummary().direction) {
+					case Forward:
+						hasForwardSR = true;
+						break;
+					case Backward:
+						hasBackwardSR = true;
+						break;
+					}
 				}
 			}
+			// only add soft clip if there isn't a split read
 			if (!hasForwardSR && SAMRecordUtil.getEndSoftClipLength(record) > 0) {
-				list.add(SoftClipEvidence.create(source, BreakendDirection.Forward, record));
+				out.add(SoftClipEvidence.create(source, BreakendDirection.Forward, record));
 			}
 			if (!hasBackwardSR && SAMRecordUtil.getStartSoftClipLength(record) > 0) {
-				list.add(SoftClipEvidence.create(source, BreakendDirection.Backward, record));
+				out.add(SoftClipEvidence.create(source, BreakendDirection.Backward, record));
+			}
+			if (hasIndel(record.getCigar(), minIndelSize)) {
+				out.addAll(IndelEvidence.create(source, minIndelSize, record));
 			}
-			list.addAll(IndelEvidence.create(source, minIndelSize, record));
 		} catch (IllegalArgumentException iae) {
 			if (!MessageThrottler.Current.shouldSupress(log, "SingleReadEvidence.createEvidence() failure")) {
 				String msg = String.format("createEvidence(): Error processing %s from %s. Ignoring read. "
@@ -66,7 +111,6 @@ public abstract class SingleReadEvidence implements DirectedEvidence {
 				log.error(iae, msg);
 			}
 		}
-		return list;
 	}
 	protected SingleReadEvidence(SAMEvidenceSource source, SAMRecord record, BreakendSummary location,
 			int offsetLocalStart, int offsetLocalEnd,
@@ -110,7 +110,7 @@ public class SplitReadEvidence extends SingleReadEvidence implements DirectedBre
 	 * @param overlap number of bases overlapping with the adjacent chimeric alignment
 	 * @return Breakend position factoring in microhomology
 	 */
-	private static BreakendSummary withOverlap(BreakendSummary bs, int overlap) {
+	public static BreakendSummary withOverlap(BreakendSummary bs, int overlap) {
 		if (overlap <= 0) return bs;
 		return new BreakendSummary(bs.referenceIndex, bs.direction, bs.nominal,
 				bs.start - (bs.direction == BreakendDirection.Forward ? overlap : 0),
@@ -20,7 +20,6 @@ import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMRecord.SAMTagAndValue;
-import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SAMUtils;
 import htsjdk.samtools.fastq.FastqRecord;
 import htsjdk.samtools.util.SequenceUtil;
@@ -122,19 +121,17 @@ public class SplitReadIdentificationHelper {
 	 */
 	private static void writeSA(SAMRecord record, List<SAMRecord> alignments) {
 		alignments.sort(ByFirstAlignedBaseReadOffset);
-		List<String> satags = alignments
+		List<ChimericAlignment> satags = alignments
 				.stream()
-				.map(r -> new ChimericAlignment(r).toString())
+				.map(r -> new ChimericAlignment(r))
 				.collect(Collectors.toList());
-		record.setAttribute(SAMTag.SA.name(), satags.stream().collect(Collectors.joining(";")));
+		ChimericAlignment.setChimericAlignments(record, satags);
 		// Primary alignment is first record as per SAMTags specs
-		satags.add(0, new ChimericAlignment(record).toString());
+		satags.add(0, new ChimericAlignment(record));
 		for (int i = 0; i < alignments.size(); i++) {
-			final String currentsatag = satags.get(i + 1);
-			String tag = satags.stream()
-					.filter(s -> s != currentsatag) // can use reference equality since we're comparing to ourself
-					.collect(Collectors.joining(";"));
-			alignments.get(i).setAttribute(SAMTag.SA.name(), tag);
+			List<ChimericAlignment> tag = new ArrayList<>(satags);
+			tag.remove(i + 1);
+			ChimericAlignment.setChimericAlignments(alignments.get(i), tag);
 		}
 	}
 	/**
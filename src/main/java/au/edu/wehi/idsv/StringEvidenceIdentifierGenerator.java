@@ -95,19 +95,36 @@ public class StringEvidenceIdentifierGenerator implements EvidenceIdentifierGene
 	}
 	@Override
 	public String getEvidenceID(SplitReadEvidence e) {
-		StringBuilder sb = buildAlignmentUniqueName(e.getSAMRecord());
+		return getSplitReadEvidenceID(e.getSAMRecord(), e.getBreakendSummary().direction);
+	}
+	@Override
+	public String getEvidenceID(IndelEvidence e) {
+		return getIndelEvidenceID(e.getSAMRecord(), e.getIndelCigarOffset(), e.getBreakendSummary().direction);
+	}
+	/**
+	 * Identifier of the split read evidence that would be created from the given record
+	 * @param record split read alignment with hard clips converted to soft clips
+	 * @param direction direction of the local breakend
+	 */
+	public String getSplitReadEvidenceID(SAMRecord record, BreakendDirection direction) {
+		StringBuilder sb = buildAlignmentUniqueName(record);
 		sb.append(SEPERATOR);
 		sb.append("sr");
-		sb.append(e.getBreakendSummary().direction.toChar());
+		sb.append(direction.toChar());
 		return sb.toString();
 	}
-	@Override
-	public String getEvidenceID(IndelEvidence e) {
-		StringBuilder sb = buildAlignmentUniqueName(e.getSAMRecord());
+	/**
+	 * Identifier of the indel evidence that would be created from the given record
+	 * @param record read alignment
+	 * @param indelCigarOffset offset of the first indel CIGAR element
+	 * @param direction direction of the local breakend
+	 */
+	public String getIndelEvidenceID(SAMRecord record, int indelCigarOffset, BreakendDirection direction) {
+		StringBuilder sb = buildAlignmentUniqueName(record);
 		sb.append(SEPERATOR);
-		sb.append(e.getIndelCigarOffset());
+		sb.append(indelCigarOffset);
 		sb.append('i');
-		sb.append(e.getBreakendSummary().direction.toChar());
+		sb.append(direction.toChar());
 		return sb.toString();
 	}
 }
@@ -45,14 +45,20 @@ public class VariantCaller {
 		List<QueryInterval[]> chunks = processContext.getReference().getIntervals(processContext.getConfig().chunkSize, processContext.getConfig().chunkSequenceChangePenalty);
 		List<File> calledChunk = new ArrayList<>();
 		List<Future<Void>> tasks = new ArrayList<>();
-		
+		ChunkManifest manifest = new ChunkManifest(processContext.getFileSystemContext().getChunkManifest(vcf), processContext.getConfig().getConfigurationHash(), getManifestInputs());
 		for (int i = 0; i < chunks.size(); i++) {
 			QueryInterval[] chunck = chunks.get(i);
 			File f = processContext.getFileSystemContext().getVariantCallChunkVcf(vcf, i);
 			int chunkNumber = i;
 			calledChunk.add(f);
-			if (!f.exists()) {
-				tasks.add(threadpool.submit(() -> { callChunk(f, es, chunkNumber, chunck); return null; }));
+			if (manifest.isComplete(chunkNumber, chunck, f)) {
+				log.info(String.format("Skipping previously called chunk %d", chunkNumber));
+			} else {
+				tasks.add(threadpool.submit(() -> {
+					callChunk(f, es, chunkNumber, chunck);
+					manifest.markComplete(chunkNumber, chunck, f);
+					return null;
+				}));
 			}
 		}
 		runTasks(tasks);
@@ -69,7 +75,18 @@ public class VariantCaller {
 				FileHelper.delete(f, true);
 			}
 			FileHelper.delete(mergedOut, true);
+			manifest.delete();
+		}
+	}
+	private List<File> getManifestInputs() {
+		List<File> inputs = new ArrayList<>();
+		for (SAMEvidenceSource ses : samEvidence) {
+			inputs.add(ses.getFile());
+		}
+		if (assemblyEvidence != null && assemblyEvidence.getFile() != null) {
+			inputs.add(assemblyEvidence.getFile());
 		}
+		return inputs;
 	}
 	private void runTasks(List<Future<Void>> tasks) {
 		// Run as many tasks as we can before dying
@@ -2,6 +2,8 @@ package au.edu.wehi.idsv.configuration;
 
 import org.apache.commons.configuration.Configuration;
 
+import au.edu.wehi.idsv.debruijn.KmerEncodingHelper;
+
 public class AssemblyConfiguration {
 	public static final String CONFIGURATION_PREFIX = "assembly";
 	public AssemblyConfiguration(Configuration config) {
@@ -18,12 +20,18 @@ public class AssemblyConfiguration {
 		anchorLength = config.getInt("anchorLength");
 		removeMisassembledPartialContigsDuringAssembly = config.getBoolean("removeMisassembledPartialContigsDuringAssembly");
 		maxExpectedBreakendLengthMultiple = config.getFloat("maxExpectedBreakendLengthMultiple");
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		if (k > KmerEncodingHelper.MAX_K) {
+			throw new IllegalArgumentException(String.format("k=%d is not supported. Kmers are encoded in a single 64 bit word so k cannot exceed %d", k, KmerEncodingHelper.MAX_K));
+		}
 	}
 	public ErrorCorrectionConfiguration errorCorrection;
 	public DownsamplingConfiguration downsampling;
 	public PositionalAssemblyConfiguration positional;
 	/**
-	 * De Bruijn graph kmer size
+	 * De Bruijn graph kmer size. Cannot exceed {@link KmerEncodingHelper#MAX_K}.
 	 */
 	public int k;
 	/**
@@ -9,6 +9,7 @@ public class DownsamplingConfiguration {
 		acceptDensityPortion = config.getDouble("acceptDensityPortion");
 		targetEvidenceDensity = config.getDouble("targetEvidenceDensity");
 		minimumDensityWindowSize = config.getInt("minimumDensityWindowSize");
+		maximumHeapFraction = config.getDouble("maximumHeapFraction");
 	}
 	/**
 	 * Evidence per base to assemble without filtering
@@ -22,4 +23,11 @@ public class DownsamplingConfiguration {
 	 * Minimum window size for density calculation 
 	 */
 	public int minimumDensityWindowSize;
+	/**
+	 * Portion of the maximum heap size that assembly buffers can retain before
+	 * evidence is downsampled more aggressively. Each assembly chunk is limited to an
+	 * equal share of this portion for each worker thread so the downsampling of a chunk
+	 * does not depend on the other chunks being assembled. Zero disables heap-based downsampling.
+	 */
+	public double maximumHeapFraction;
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ public class ErrorCorrectionConfiguration {
 		maxBaseMismatchForCollapse = config.getInt("maxBaseMismatchForCollapse");
 		collapseBubblesOnly = config.getBoolean("collapseBubblesOnly");
 		maxPathCollapseLengthMultiple = config.getFloat("maxPathCollapseLengthMultiple");
+		maxTraversalNodesPerCollapse = config.getInt("maxTraversalNodesPerCollapse");
 	}
 	/**
 	 * Maximum of base mismatches for de bruijn kmer paths to be merged   
@@ -24,4 +25,9 @@ public class ErrorCorrectionConfiguration {
 	 */
 	public float maxPathCollapseLengthMultiple;
 	public int maxPathCollapseLengthInBases(int readLength) { return (int)(maxPathCollapseLengthMultiple * readLength); }
+	/**
+	 * Maximum number of nodes to traverse when searching for a similar path to collapse into.
+	 * Searches exceeding this limit are abandoned and the node is not collapsed.
+	 */
+	public int maxTraversalNodesPerCollapse;
 }
\ No newline at end of file
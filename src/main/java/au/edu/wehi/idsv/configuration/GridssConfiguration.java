@@ -2,6 +2,9 @@ package au.edu.wehi.idsv.configuration;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.configuration.CompositeConfiguration;
 import org.apache.commons.configuration.Configuration;
@@ -9,6 +12,8 @@ import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import au.edu.wehi.idsv.AdapterHelper;
 import htsjdk.samtools.util.Log;
@@ -75,6 +80,12 @@ public class GridssConfiguration {
 	 * Use a hashed evidenceID to save space and prevent read names exceeding the 254 character limit imposed by BAM 
 	 */
 	public boolean hashEvidenceID;
+	/**
+	 * Materialise the filtered and sorted evidence of each input into an evidence store
+	 * on first use so subsequent assembly, variant calling, and evidence allocation passes
+	 * do not need to regenerate evidence from the input reads.
+	 */
+	public boolean evidenceStore;
 	public AssemblyConfiguration getAssembly() {
 		return assembly;
 	}
@@ -90,11 +101,19 @@ public class GridssConfiguration {
 	public ScoringConfiguration getScoring() {
 		return scoring;
 	}
+	/**
+	 * Hash of the configuration settings this configuration was loaded from.
+	 * Used to determine whether intermediate results were generated with the same settings.
+	 */
+	public String getConfigurationHash() {
+		return configurationHash;
+	}
 	private final AssemblyConfiguration assembly;
 	private final SoftClipConfiguration softclip;
 	private final VisualisationConfiguration visualisation;
 	private final VariantCallingConfiguration variantCalling;
 	private final ScoringConfiguration scoring;
+	private final String configurationHash;
 	public GridssConfiguration() throws ConfigurationException {
 		this((File)null, new File("."));
 	}
@@ -118,6 +137,22 @@ public class GridssConfiguration {
 		chunkSequenceChangePenalty = config.getInt("chunkSequenceChangePenalty");
 		useReadGroupSampleNameCategoryLabel = config.getBoolean("useReadGroupSampleNameCategoryLabel");
 		hashEvidenceID = config.getBoolean("hashEvidenceID");
+		evidenceStore = config.getBoolean("evidenceStore");
+		configurationHash = hash(config);
+	}
+	private static String hash(Configuration config) {
+		List<String> keys = Lists.newArrayList(config.getKeys());
+		Collections.sort(keys);
+		Hasher hasher = Hashing.sha256().newHasher();
+		for (String key : keys) {
+			hasher.putString(key, StandardCharsets.UTF_8);
+			for (String value : config.getStringArray(key)) {
+				hasher.putByte((byte)'=');
+				hasher.putString(value, StandardCharsets.UTF_8);
+			}
+			hasher.putByte((byte)'\n');
+		}
+		return hasher.hash().toString();
 	}
 	public static Configuration LoadConfiguration(File configuration) throws ConfigurationException {
 		CompositeConfiguration config = new CompositeConfiguration();
@@ -0,0 +1,261 @@
+package au.edu.wehi.idsv.debruijn;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Mutable 2-bit encoded base sequence of a path of successive kmers.
+ *
+ * Successive kmers overlap by k-1 bases so storing the underlying
+ * base sequence requires 2 bits per kmer instead of a 64 bit word per kmer.
+ * Kmers are extracted on demand.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class PackedKmerPath {
+	private static final int BITS_PER_BASE = 2;
+	private static final int BASES_PER_WORD = Long.SIZE / BITS_PER_BASE;
+	private static final int ARRAY_SHIFT = Long.SIZE - 1 - Long.numberOfLeadingZeros(BASES_PER_WORD);
+	private static final int ARRAY_OFFSET_MASK = (1 << ARRAY_SHIFT) - 1;
+	private static final long[] EMPTY = new long[0];
+	/**
+	 * First base is packed in MSB of first word.
+	 * Bits after the final base are always zero.
+	 */
+	private long[] packed;
+	private int baseCount;
+	private final int k;
+	public PackedKmerPath(int k, long kmer) {
+		if (k > KmerEncodingHelper.MAX_K) throw new IllegalArgumentException("k exceeds maximum kmer size");
+		this.k = k;
+		this.packed = new long[1];
+		this.packed[0] = kmer << (Long.SIZE - BITS_PER_BASE * k);
+		this.baseCount = k;
+	}
+	private PackedKmerPath(int k, long[] packed, int baseCount) {
+		this.k = k;
+		this.packed = packed;
+		this.baseCount = baseCount;
+	}
+	public PackedKmerPath(PackedKmerPath path) {
+		this(path.k, Arrays.copyOf(path.packed, wordsRequired(path.baseCount)), path.baseCount);
+	}
+	private static int wordsRequired(int bases) {
+		return (bases + BASES_PER_WORD - 1) >> ARRAY_SHIFT;
+	}
+	public int k() {
+		return k;
+	}
+	/**
+	 * Number of kmers in the path
+	 */
+	public int length() {
+		return baseCount - k + 1;
+	}
+	/**
+	 * Number of bases in the path
+	 */
+	public int baseCount() {
+		return baseCount;
+	}
+	/**
+	 * Returns the 32 bases starting at the given base offset packed into the MSBs.
+	 * Bases after the end of the sequence are returned as 0.
+	 */
+	private static long window(long[] packed, int offset) {
+		int wordIndex = offset >> ARRAY_SHIFT;
+		int wordOffset = offset & ARRAY_OFFSET_MASK;
+		long window = packed[wordIndex] << (BITS_PER_BASE * wordOffset);
+		if (wordOffset != 0 && wordIndex + 1 < packed.length) {
+			window |= packed[wordIndex + 1] >>> (Long.SIZE - BITS_PER_BASE * wordOffset);
+		}
+		return window;
+	}
+	/**
+	 * 2-bit encoded base at the given base offset
+	 */
+	public int base(int offset) {
+		assert(offset >= 0 && offset < baseCount);
+		int wordOffset = offset & ARRAY_OFFSET_MASK;
+		return (int)(packed[offset >> ARRAY_SHIFT] >>> (Long.SIZE - BITS_PER_BASE * (wordOffset + 1))) & 3;
+	}
+	/**
+	 * Encoded kmer starting at the given kmer offset
+	 */
+	public long kmer(int offset) {
+		assert(offset >= 0 && offset < length());
+		return window(packed, offset) >>> (Long.SIZE - BITS_PER_BASE * k);
+	}
+	public long firstKmer() {
+		return kmer(0);
+	}
+	public long lastKmer() {
+		return kmer(length() - 1);
+	}
+	private void ensureCapacity(int bases) {
+		int words = wordsRequired(bases);
+		if (words > packed.length) {
+			packed = Arrays.copyOf(packed, Math.max(words, packed.length + (packed.length >> 1) + 1));
+		}
+	}
+	/**
+	 * Appends the given 2-bit encoded base to the end of the sequence.
+	 * @param encodedBase encoded base
+	 */
+	public void appendBase(int encodedBase) {
+		ensureCapacity(baseCount + 1);
+		int wordOffset = baseCount & ARRAY_OFFSET_MASK;
+		packed[baseCount >> ARRAY_SHIFT] |= ((long)(encodedBase & 3)) << (Long.SIZE - BITS_PER_BASE * (wordOffset + 1));
+		baseCount++;
+	}
+	/**
+	 * Appends the successor kmer
+	 * @param kmer successor kmer of the current final kmer
+	 */
+	public void append(long kmer) {
+		assert(KmerEncodingHelper.isNext(k, lastKmer(), kmer));
+		appendBase((int)kmer);
+	}
+	/**
+	 * Appends the kmers of the given path.
+	 * The first kmer of the given path must be a successor of the final kmer of this path
+	 * @param path path to append
+	 */
+	public void append(PackedKmerPath path) {
+		assert(path.k == k);
+		assert(KmerEncodingHelper.isNext(k, lastKmer(), path.firstKmer()));
+		appendBases(path.packed, k - 1, path.baseCount - (k - 1));
+	}
+	private void appendBases(long[] src, int srcOffset, int length) {
+		ensureCapacity(baseCount + length);
+		while (length > 0) {
+			int chunk = Math.min(length, BASES_PER_WORD);
+			long bases = window(src, srcOffset);
+			if (chunk < BASES_PER_WORD) {
+				bases &= -1L << (Long.SIZE - BITS_PER_BASE * chunk);
+			}
+			int wordIndex = baseCount >> ARRAY_SHIFT;
+			int wordOffset = baseCount & ARRAY_OFFSET_MASK;
+			packed[wordIndex] |= bases >>> (BITS_PER_BASE * wordOffset);
+			if (wordOffset != 0 && wordOffset + chunk > BASES_PER_WORD) {
+				packed[wordIndex + 1] |= bases << (Long.SIZE - BITS_PER_BASE * wordOffset);
+			}
+			baseCount += chunk;
+			srcOffset += chunk;
+			length -= chunk;
+		}
+	}
+	/**
+	 * Creates a new path containing the kmers starting from the given kmer offset
+	 * @param kmerOffset offset of first kmer to include
+	 * @return kmer path
+	 */
+	public PackedKmerPath suffix(int kmerOffset) {
+		assert(kmerOffset >= 0 && kmerOffset < length());
+		PackedKmerPath path = new PackedKmerPath(k, EMPTY, 0);
+		path.appendBases(packed, kmerOffset, baseCount - kmerOffset);
+		return path;
+	}
+	/**
+	 * Truncates the path to the given number of kmers
+	 * @param kmerCount number of kmers to retain
+	 */
+	public void truncate(int kmerCount) {
+		assert(kmerCount >= 0 && kmerCount <= length());
+		int newBaseCount = kmerCount + k - 1;
+		int words = wordsRequired(newBaseCount);
+		for (int i = words; i < packed.length; i++) {
+			packed[i] = 0;
+		}
+		int wordOffset = newBaseCount & ARRAY_OFFSET_MASK;
+		if (wordOffset != 0) {
+			packed[words - 1] &= -1L << (Long.SIZE - BITS_PER_BASE * wordOffset);
+		}
+		baseCount = newBaseCount;
+	}
+	/**
+	 * Removes the first kmer from the path
+	 */
+	public void removeFirst() {
+		assert(length() > 0);
+		if (length() == 1) {
+			truncate(0);
+		} else {
+			PackedKmerPath path = suffix(1);
+			packed = path.packed;
+			baseCount = path.baseCount;
+		}
+	}
+	/**
+	 * Removes the final kmer from the path
+	 */
+	public void removeLast() {
+		truncate(length() - 1);
+	}
+	/**
+	 * Base calls of the path
+	 * @return path sequence in picard base format
+	 */
+	public byte[] getBases() {
+		byte[] bases = new byte[baseCount];
+		for (int i = 0; i < baseCount; i++) {
+			bases[i] = KmerEncodingHelper.encodedToPicardBase(base(i));
+		}
+		return bases;
+	}
+	/**
+	 * Counts of each encoded base
+	 * @return base counts indexed by encoded base
+	 */
+	public int[] baseCounts() {
+		int[] counts = new int[4];
+		for (int i = 0; i < baseCount; i++) {
+			counts[base(i)]++;
+		}
+		return counts;
+	}
+	/**
+	 * Expands the path into the full kmer sequence
+	 * @return kmers of path
+	 */
+	public LongArrayList kmers() {
+		int length = length();
+		LongArrayList list = new LongArrayList(length);
+		for (int i = 0; i < length; i++) {
+			list.add(kmer(i));
+		}
+		return list;
+	}
+	@Override
+	public int hashCode() {
+		int result = 31 * k + baseCount;
+		int words = wordsRequired(baseCount);
+		for (int i = 0; i < words; i++) {
+			result = 31 * result + Long.hashCode(packed[i]);
+		}
+		return result;
+	}
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PackedKmerPath other = (PackedKmerPath) obj;
+		if (k != other.k || baseCount != other.baseCount)
+			return false;
+		int words = wordsRequired(baseCount);
+		for (int i = 0; i < words; i++) {
+			if (packed[i] != other.packed[i]) return false;
+		}
+		return true;
+	}
+	@Override
+	public String toString() {
+		return new String(getBases());
+	}
+}
@@ -1,5 +1,6 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.PriorityQueue;
 
@@ -12,6 +13,7 @@ import com.google.common.primitives.Longs;
 import au.edu.wehi.idsv.Defaults;
 import au.edu.wehi.idsv.debruijn.positional.AggregateNodeIterator.KmerNodeAggregator.KmerNodeAggregatorSnapshot;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
 
 /**
  * Transforms a start position sorted sequence of KmerNodes to a
@@ -24,6 +26,10 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 	private PriorityQueue<ImmutableKmerNode> outputSortBuffer = new PriorityQueue<ImmutableKmerNode>(1024, KmerNodeUtil.ByFirstStart);
 	private Long2ObjectOpenHashMap<KmerNodeAggregator> byKmer = new Long2ObjectOpenHashMap<KmerNodeAggregator>();
 	private PriorityQueue<KmerNodeAggregatorSnapshot> byEnd = new PriorityQueue<KmerNodeAggregatorSnapshot>(1024, BySnapshotEnd);
+	/**
+	 * Empty aggregators available for reuse
+	 */
+	private ArrayDeque<KmerNodeAggregator> aggregatorPool = new ArrayDeque<KmerNodeAggregator>();
 	private int maxWidth = 0;
 	private int inputPosition = Integer.MIN_VALUE;
 	private long consumed = 0;
@@ -73,11 +79,16 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 			long kmer = n.firstKmer();
 			KmerNodeAggregator ag = byKmer.get(kmer);
 			if (ag == null) {
-				ag = new KmerNodeAggregator(kmer);
+				ag = aggregatorPool.isEmpty() ? new KmerNodeAggregator() : aggregatorPool.pop();
+				ag.init(kmer);
 				byKmer.put(kmer, ag);
 			}
+			int endBefore = ag.end();
 			ag.add(n);
-			byEnd.add(ag.new KmerNodeAggregatorSnapshot());
+			if (ag.end() != endBefore) {
+				// existing snapshot is still valid if the end position is unchanged
+				byEnd.add(ag.new KmerNodeAggregatorSnapshot());
+			}
 		}
 	}
 	/**
@@ -92,6 +103,8 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 			ag.advanceTo(inputPosition - 1);
 			if (ag.isEmpty()) {
 				byKmer.remove(ag.kmer);
+				ag.release();
+				aggregatorPool.push(ag);
 			} else {
 				KmerNodeAggregatorSnapshot newSnapshot = ag.new KmerNodeAggregatorSnapshot();
 				assert(newSnapshot.snapshotEnd >= inputPosition);
@@ -99,6 +112,15 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 			}
 		}
 	}
+	private static int activeEnd(long encoded) {
+		return (int)(encoded >> 32);
+	}
+	private static int activeWeight(long encoded) {
+		return ((int)encoded) >>> 1;
+	}
+	private static boolean activeIsReference(long encoded) {
+		return (encoded & 1) != 0;
+	}
 	private static final Ordering<KmerNodeAggregatorSnapshot> BySnapshotEnd = new Ordering<KmerNodeAggregatorSnapshot>() {
 		@Override
 		public int compare(KmerNodeAggregatorSnapshot left, KmerNodeAggregatorSnapshot right) {
@@ -115,26 +137,42 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 		public class KmerNodeAggregatorSnapshot {
 			public KmerNodeAggregatorSnapshot() {
 				this.snapshotEnd = KmerNodeAggregator.this.end();
+				this.snapshotGeneration = KmerNodeAggregator.this.generation;
 			}
 			public final int snapshotEnd;
+			private final int snapshotGeneration;
 			/**
 			 * Determines whether the snapshot is still valid
 			 * @return
 			 */
 			public boolean isValid() {
-				return this.snapshotEnd == KmerNodeAggregator.this.end();
+				return this.snapshotGeneration == KmerNodeAggregator.this.generation && this.snapshotEnd == KmerNodeAggregator.this.end();
 			}
 			// what's the correct syntax for doing this from outside the class?
 			public KmerNodeAggregator aggregator() { return KmerNodeAggregator.this; }
 		}
-		public KmerNodeAggregator(long kmer) {
+		private void init(long kmer) {
+			assert(isEmpty());
 			this.kmer = kmer;
+			this.start = Integer.MIN_VALUE;
 		}
-		public boolean isEmpty() { return active.isEmpty(); }
 		/**
-		 * KmerNodes in the currently active aggregation interval
+		 * Returns this aggregator to the pool.
+		 * Any outstanding snapshots of this aggregator are invalidated.
 		 */
-		private PriorityQueue<KmerNode> active = new PriorityQueue<KmerNode>(8, KmerNodeUtil.ByLastEnd);
+		private void release() {
+			assert(isEmpty());
+			generation++;
+		}
+		public boolean isEmpty() { return active.isEmpty() && pendingWeight == 0; }
+		/**
+		 * KmerNodes in the currently active aggregation interval.
+		 * Only the end position, weight and reference flag of each node is required
+		 * so nodes are encoded as end position in the high 32 bits followed by
+		 * weight and the reference flag in the low 32 bits. This ensures KmerNodes
+		 * are not retained once they have been added.
+		 */
+		private LongHeapPriorityQueue active = new LongHeapPriorityQueue(4);
 		/**
 		 * Start position of currently active aggregation interval
 		 */
@@ -144,18 +182,43 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 		 */
 		private int weight = 0;
 		/**
-		 * Number of active reference KmerNode 
+		 * Total weight of active reference KmerNode 
 		 */
-		private int referenceCount = 0;
+		private int referenceWeight = 0;
+		/**
+		 * Aggregator reuse count
+		 */
+		private int generation = 0;
+		/**
+		 * Most recently added nodes not yet added to active.
+		 * Successive nodes with the same end position and reference status are merged
+		 * into a single active entry as is typical for high coverage soft clipped reads.
+		 */
+		private int pendingEnd;
+		private int pendingWeight = 0;
+		private boolean pendingReference;
 		/**
 		 * Advances to the next node, adding aggregate nodes to the given collection
 		 * @param node next node
 		 * @param emitTo collection to emit aggregate records to
 		 */
-		private final long kmer;
+		private long kmer;
 		public int end() {
-			if (active.isEmpty()) return Integer.MAX_VALUE;
-			return active.peek().firstEnd();
+			int end = Integer.MAX_VALUE;
+			if (!active.isEmpty()) {
+				end = activeEnd(active.firstLong());
+			}
+			if (pendingWeight > 0) {
+				end = Math.min(end, pendingEnd);
+			}
+			return end;
+		}
+		private void flushPending() {
+			if (pendingWeight > 0) {
+				assert(pendingWeight < (1 << 30));
+				active.enqueue(((long)pendingEnd << 32) | (pendingWeight << 1) | (pendingReference ? 1 : 0));
+				pendingWeight = 0;
+			}
 		}
 		public void add(KmerNode node) {
 			assert(node.firstKmer() == kmer);
@@ -163,14 +226,20 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 			maxWidth = Math.max(maxWidth, node.width());
 			advanceTo(node.firstStart() - 1);
 			if (weight > 0 && start < node.firstStart()) {
-				outputSortBuffer.add(new ImmutableKmerNode(kmer, start, node.firstStart() - 1, referenceCount > 0, weight));
+				outputSortBuffer.add(new ImmutableKmerNode(kmer, start, node.firstStart() - 1, referenceWeight > 0, weight));
 			}
 			start = node.firstStart();
 			if (node.isReference()) {
-				referenceCount++;
+				referenceWeight += node.weight();
 			}
 			weight += node.weight();
-			active.add(node);
+			assert(node.weight() > 0);
+			if (pendingWeight > 0 && (pendingEnd != node.firstEnd() || pendingReference != node.isReference())) {
+				flushPending();
+			}
+			pendingEnd = node.firstEnd();
+			pendingReference = node.isReference();
+			pendingWeight += node.weight();
 		}
 		/**
 		 * Process up to and including the given position
@@ -178,15 +247,17 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 		 * @param emitTo collection to emit aggregate records to
 		 */
 		public void advanceTo(int position) {
-			while (!active.isEmpty() && active.peek().firstEnd() <= position) {
-				int end = active.peek().firstEnd();
-				outputSortBuffer.add(new ImmutableKmerNode(kmer, start, end, referenceCount > 0, weight));
-				while (!active.isEmpty() && active.peek().firstEnd() == end) {
-					KmerNode endingHere = active.poll();
-					assert(endingHere.firstKmer() == kmer);
-					weight -= endingHere.weight();
-					if (endingHere.isReference()) {
-						referenceCount--;
+			if (pendingWeight > 0 && pendingEnd <= position) {
+				flushPending();
+			}
+			while (!active.isEmpty() && activeEnd(active.firstLong()) <= position) {
+				int end = activeEnd(active.firstLong());
+				outputSortBuffer.add(new ImmutableKmerNode(kmer, start, end, referenceWeight > 0, weight));
+				while (!active.isEmpty() && activeEnd(active.firstLong()) == end) {
+					long endingHere = active.dequeueLong();
+					weight -= activeWeight(endingHere);
+					if (activeIsReference(endingHere)) {
+						referenceWeight -= activeWeight(endingHere);
 					}
 				}
 				start = end + 1;
@@ -205,7 +276,7 @@ public class AggregateNodeIterator implements PeekingIterator<KmerNode> {
 		// kmer lookup is correct
 		assert(byKmer.entrySet().stream().allMatch(kvp -> kvp.getKey() == kvp.getValue().kmer));
 		// empty aggregators have been removed
-		assert(byKmer.values().stream().allMatch(ag -> !ag.active.isEmpty()));
+		assert(byKmer.values().stream().allMatch(ag -> !ag.isEmpty()));
 		// could have many start position entries, but only one position is valid (and even that could have duplicate entries)
 		assert(byEnd.size() >= byKmer.size());
 		assert(byEnd.stream().allMatch(snapshot -> !snapshot.isValid() || byKmer.containsKey(snapshot.aggregator().kmer)));
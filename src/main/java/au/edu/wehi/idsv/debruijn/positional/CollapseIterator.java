@@ -13,6 +13,7 @@ import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
 
 import au.edu.wehi.idsv.debruijn.DeBruijnSequenceGraphNodeUtil;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyChunkTelemetry;
 import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
 import it.unimi.dsi.fastutil.ints.IntSortedSet;
 
@@ -36,6 +37,7 @@ public abstract class CollapseIterator implements PeekingIterator<KmerPathNode>
 	protected final int k;
 	private final int maxCollapseLength;
 	protected final int maxBasesMismatch;
+	private final int maxTraversalNodes;
 	private final NavigableSet<KmerPathNode> processed = new TreeSet<KmerPathNode>(KmerNodeUtil.ByFirstStartEndKmerReference);
 	private final NavigableSet<KmerPathNode> unprocessed = new TreeSet<KmerPathNode>(KmerNodeUtil.ByLastEndStartKmerReference);
 	private final int processOffset;
@@ -48,6 +50,16 @@ public abstract class CollapseIterator implements PeekingIterator<KmerPathNode>
 	protected int maxNodeWidth = 0;
 	protected int maxNodeLength = 0;
 	protected int postCollapseBufferSize;
+	protected long traversalLimitCount = 0;
+	/**
+	 * Node currently being collapsed
+	 */
+	private KmerPathNode collapseNode = null;
+	private long collapseTraversalStart;
+	private long collapseStartTime;
+	private boolean collapseTraversalLimitReached;
+	private AssemblyChunkTelemetry telemetry = null;
+	private int referenceIndex;
 	private int emitOffset() {
 		// records ending before this position cannot be changed by subsequent operations
 		int unchangedOffset = processOffset + maxNodeLength + maxNodeWidth + maxCollapseLength + 1
@@ -76,11 +88,13 @@ public abstract class CollapseIterator implements PeekingIterator<KmerPathNode>
 			int k,
 			int maxPathCollapseLength,
 			int maxBasesMismatch,
+			int maxTraversalNodes,
 			int preCollapseBufferSize,
 			int postCollapseBufferSize) {
 		this.underlying = Iterators.peekingIterator(it);
 		this.k = k;
 		this.maxBasesMismatch = maxBasesMismatch;
+		this.maxTraversalNodes = maxTraversalNodes;
 		this.maxCollapseLength = maxPathCollapseLength;
 		this.processOffset = maxPathCollapseLength + 1 + preCollapseBufferSize;
 	}
@@ -151,14 +165,39 @@ public abstract class CollapseIterator implements PeekingIterator<KmerPathNode>
 	private boolean collapseNext(int maxCollapseLength) {
 		KmerPathNode node = unprocessed.pollFirst();
 		processed.add(node);
+		collapseNode = node;
+		collapseTraversalStart = nodesTraversed;
+		collapseTraversalLimitReached = false;
+		if (telemetry != null) {
+			collapseStartTime = System.nanoTime();
+		}
 		return collapse(node, maxCollapseLength);
 	}
 	/**
 	 * Collapses paths involving the given node
+	 * 
+	 * Implementations should abandon the search for a collapse path
+	 * once isTraversalLimitReached() returns true.
 	 * @param node
 	 * @return
 	 */
 	protected abstract boolean collapse(KmerPathNode node, int maxCollapseLength);
+	/**
+	 * Determines whether the number of nodes traversed when collapsing the current
+	 * node has exceeded the traversal limit. 
+	 * @return true if the collapse should be abandoned
+	 */
+	protected boolean isTraversalLimitReached() {
+		if (nodesTraversed - collapseTraversalStart <= maxTraversalNodes) return false;
+		if (!collapseTraversalLimitReached) {
+			collapseTraversalLimitReached = true;
+			traversalLimitCount++;
+			if (telemetry != null) {
+				telemetry.collapseTraversalLimit(referenceIndex, collapseNode.firstStart(), collapseNode.lastEnd(), nodesTraversed - collapseTraversalStart, System.nanoTime() - collapseStartTime);
+			}
+		}
+		return true;
+	}
 	/**
 	 * Merges the given source path into the target path 
 	 * @param sourcePath path to merge
@@ -355,6 +394,25 @@ public abstract class CollapseIterator implements PeekingIterator<KmerPathNode>
 	public long tracking_leafCollapseCount() {
 		return leavesCollapsed;
 	}
+	/**
+	 * Number of nodes for which the collapse path search was abandoned
+	 * due to the traversal limit being reached 
+	 */
+	public long tracking_traversalLimitCount() {
+		return traversalLimitCount;
+	}
+	public AssemblyChunkTelemetry getTelemetry() {
+		return telemetry;
+	}
+	/**
+	 * Reports collapse searches exceeding the traversal limit to the given telemetry
+	 * @param telemetry telemetry
+	 * @param referenceIndex contig being assembled
+	 */
+	public void setTelemetry(AssemblyChunkTelemetry telemetry, int referenceIndex) {
+		this.telemetry = telemetry;
+		this.referenceIndex = referenceIndex;
+	}
 	@Override
 	public void remove() {
 		throw new UnsupportedOperationException();
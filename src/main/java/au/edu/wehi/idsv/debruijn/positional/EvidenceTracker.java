@@ -1,82 +1,179 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ListIterator;
 import java.util.Set;
 
 import au.edu.wehi.idsv.util.IntervalUtil;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 
 /**
  * Tracks evidence provided to a given graph by wrapping a source iterator
  * and tracking evidence emitted by the iterator 
  * 
+ * Support nodes are stored in pooled slots linked into intrusive per-kmer
+ * and per-evidence lists so tracking and removal does not allocate once
+ * the pool has grown to the working set size.
+ * 
  * @author Daniel Cameron
  *
  */
 public class EvidenceTracker {
 	//public static EvidenceTracker TEMP_HACK_CURRENT_TRACKER = null;
-	private final Long2ObjectOpenHashMap<LinkedList<KmerSupportNode>> lookup = new Long2ObjectOpenHashMap<LinkedList<KmerSupportNode>>();
+	private static final int NIL = -1;
+	private static final int INITIAL_CAPACITY = 1024;
+	/**
+	 * First support node slot of each kmer
+	 */
+	private final Long2IntOpenHashMap kmerHead = new Long2IntOpenHashMap();
+	/**
+	 * Numeric identifier of each tracked evidence
+	 */
+	private final Reference2IntOpenHashMap<KmerEvidence> evidenceLookup = new Reference2IntOpenHashMap<KmerEvidence>();
 	private final ObjectOpenHashSet<String> id = new ObjectOpenHashSet<String>();
+	/**
+	 * Evidence and kmer offset of the support node of each slot
+	 */
+	private KmerEvidence[] slotEvidence = new KmerEvidence[INITIAL_CAPACITY];
+	private int[] slotOffset = new int[INITIAL_CAPACITY];
+	/**
+	 * Next/previous slot with the same kmer. Free slots are chained through kmerNext.
+	 */
+	private int[] kmerNext = new int[INITIAL_CAPACITY];
+	private int[] kmerPrev = new int[INITIAL_CAPACITY];
+	/**
+	 * Next slot of the same evidence
+	 */
+	private int[] evidenceNext = new int[INITIAL_CAPACITY];
+	private int freeSlot = NIL;
+	private int slotsUsed = 0;
+	private int supportNodeCount = 0;
+	/**
+	 * First slot of each evidence. Free evidence identifiers are chained through evidenceHead.
+	 */
+	private int[] evidenceHead = new int[INITIAL_CAPACITY];
+	private int freeEvidence = NIL;
+	private int evidenceUsed = 0;
 	private long evidenceTotal = 0;
 	/**
 	 * Tracks evidence emitted from the given iterator
 	 * @param it iterator to track
 	 */
 	public EvidenceTracker() {
+		kmerHead.defaultReturnValue(NIL);
+		evidenceLookup.defaultReturnValue(NIL);
+	}
+	private int allocateSlot() {
+		if (freeSlot != NIL) {
+			int slot = freeSlot;
+			freeSlot = kmerNext[slot];
+			return slot;
+		}
+		if (slotsUsed == slotEvidence.length) {
+			int size = slotEvidence.length + (slotEvidence.length >> 1);
+			slotEvidence = Arrays.copyOf(slotEvidence, size);
+			slotOffset = Arrays.copyOf(slotOffset, size);
+			kmerNext = Arrays.copyOf(kmerNext, size);
+			kmerPrev = Arrays.copyOf(kmerPrev, size);
+			evidenceNext = Arrays.copyOf(evidenceNext, size);
+		}
+		return slotsUsed++;
+	}
+	private void freeSlot(int slot) {
+		slotEvidence[slot] = null;
+		kmerNext[slot] = freeSlot;
+		freeSlot = slot;
+	}
+	private int allocateEvidence(KmerEvidence evidence) {
+		int eid;
+		if (freeEvidence != NIL) {
+			eid = freeEvidence;
+			freeEvidence = evidenceHead[eid];
+		} else {
+			if (evidenceUsed == evidenceHead.length) {
+				evidenceHead = Arrays.copyOf(evidenceHead, evidenceHead.length + (evidenceHead.length >> 1));
+			}
+			eid = evidenceUsed++;
+		}
+		evidenceHead[eid] = NIL;
+		evidenceLookup.put(evidence, eid);
+		return eid;
 	}
 	/**
 	 * Tracks the given evidence
 	 * @param evidence
 	 */
 	public KmerSupportNode track(KmerSupportNode support) {
-		long kmer = support.lastKmer();
-		LinkedList<KmerSupportNode> list = lookup.get(kmer);
-		if (list == null) {
-			list = new LinkedList<KmerSupportNode>();
-			lookup.put(kmer, list);
-		}
-		list.add(support);
-		if (id.add(support.evidence().evidence().getEvidenceID())) {
-			evidenceTotal++;
-		}
+		track(support.evidence(), support.offset());
 		return support;
 	}
 	/**
-	 * Stops tracking all nodes associated with the given evidence 
-	 * @param evidence
+	 * Tracks the support node of the given evidence kmer
+	 * @param evidence evidence
+	 * @param offset kmer offset
 	 */
-	public void remove(KmerEvidence evidence) {
-		for (int i = 0; i < evidence.length(); i++) {
-			long kmer = evidence.kmer(i);
-			remove(kmer, evidence);
+	public void track(KmerEvidence evidence, int offset) {
+		int eid = evidenceLookup.getInt(evidence);
+		if (eid == NIL) {
+			eid = allocateEvidence(evidence);
+		}
+		int slot = allocateSlot();
+		slotEvidence[slot] = evidence;
+		slotOffset[slot] = offset;
+		evidenceNext[slot] = evidenceHead[eid];
+		evidenceHead[eid] = slot;
+		long kmer = evidence.kmer(offset);
+		int head = kmerHead.get(kmer);
+		kmerNext[slot] = head;
+		kmerPrev[slot] = NIL;
+		if (head != NIL) {
+			kmerPrev[head] = slot;
+		}
+		kmerHead.put(kmer, slot);
+		supportNodeCount++;
+		if (id.add(evidence.evidence().getEvidenceID())) {
+			evidenceTotal++;
 		}
-		id.remove(evidence.evidence().getEvidenceID());
 	}
 	/**
 	 * Stops tracking all nodes associated with the given evidence 
 	 * @param evidence
 	 */
-	private void remove(long kmer, KmerEvidence evidence) {
-		LinkedList<KmerSupportNode> list = lookup.get(kmer);
-		if (list != null) {
-			ListIterator<KmerSupportNode> it = list.listIterator();
-			while (it.hasNext()) {
-				KmerSupportNode n = it.next();
-				if (n.evidence() == evidence) { 
-					it.remove();
-				}
-			}
-			if (list.size() == 0) {
-				lookup.remove(kmer);
+	public void remove(KmerEvidence evidence) {
+		int eid = evidenceLookup.removeInt(evidence);
+		if (eid != NIL) {
+			for (int slot = evidenceHead[eid]; slot != NIL; ) {
+				int nextSlot = evidenceNext[slot];
+				unlinkKmer(slot);
+				freeSlot(slot);
+				supportNodeCount--;
+				slot = nextSlot;
 			}
+			evidenceHead[eid] = freeEvidence;
+			freeEvidence = eid;
+		}
+		id.remove(evidence.evidence().getEvidenceID());
+	}
+	private void unlinkKmer(int slot) {
+		int prev = kmerPrev[slot];
+		int next = kmerNext[slot];
+		if (next != NIL) {
+			kmerPrev[next] = prev;
+		}
+		if (prev != NIL) {
+			kmerNext[prev] = next;
+		} else if (next != NIL) {
+			kmerHead.put(slotEvidence[slot].kmer(slotOffset[slot]), next);
+		} else {
+			kmerHead.remove(slotEvidence[slot].kmer(slotOffset[slot]));
 		}
 	}
 	/**
@@ -101,43 +198,38 @@ public class EvidenceTracker {
 			int start = sn.firstStart();
 			int end = sn.firstEnd();
 			for (int i = 0; i < sn.length(); i++) {
-				toCollection(evidence, sn.kmer(i), start + i, end + i, remove);
+				toCollection(evidence, sn.kmer(i), start + i, end + i);
 			}
 			LongArrayList collapsed = sn.node().collapsedKmers();
 			IntArrayList collapsedOffset = sn.node().collapsedKmerOffsets();
 			for (int i = 0; i < collapsed.size(); i++) {
 				int offset = collapsedOffset.getInt(i);
-				toCollection(evidence, collapsed.getLong(i), start + offset, end + offset, remove);
+				toCollection(evidence, collapsed.getLong(i), start + offset, end + offset);
 			}
 		}
 		if (remove) {
 			for (KmerEvidence e : evidence) {
-				// remove any leftover evidence kmers not on the called path   
+				// removes both the support nodes overlapping the contig
+				// and any leftover evidence kmers not on the called path
 				remove(e);
 			}
 		}
 		return evidence;
 	}
 	/**
-	 * Stops tracking all evidence overlapping the given kmer interval and adds to the given collection
+	 * Adds all evidence overlapping the given kmer interval to the given collection
 	 * 
 	 * @param collection
 	 * @param kmer
 	 * @param start
 	 * @param end
 	 */
-	private void toCollection(Collection<KmerEvidence> collection, long kmer, int start, int end, boolean remove) {
-		LinkedList<KmerSupportNode> list = lookup.get(kmer);
-		if (list != null) {
-			ListIterator<KmerSupportNode> it = list.listIterator();
-			while (it.hasNext()) {
-				KmerSupportNode n = it.next();
-				if (IntervalUtil.overlapsClosed(start, end, n.lastStart(), n.lastEnd())) {
-					if (remove) {
-						it.remove();
-					}
-					collection.add(n.evidence());
-				}
+	private void toCollection(Collection<KmerEvidence> collection, long kmer, int start, int end) {
+		for (int slot = kmerHead.get(kmer); slot != NIL; slot = kmerNext[slot]) {
+			KmerEvidence e = slotEvidence[slot];
+			int offset = slotOffset[slot];
+			if (IntervalUtil.overlapsClosed(start, end, e.startPosition() + offset, e.endPosition() + offset)) {
+				collection.add(e);
 			}
 		}
 	}
@@ -159,11 +251,10 @@ public class EvidenceTracker {
 	public boolean matchesExpected(int expectedWidthWeight, LongArrayList kmers, int start, int end) {
 		int evidenceWeight = 0;
 		for (long kmer : kmers) {
-			LinkedList<KmerSupportNode> list = lookup.get(kmer);
-			if (list != null) {
-				for (KmerSupportNode n : list) {
-					evidenceWeight += n.weight() * IntervalUtil.overlapsWidthClosed(start, end, n.lastStart(), n.lastEnd());
-				}
+			for (int slot = kmerHead.get(kmer); slot != NIL; slot = kmerNext[slot]) {
+				KmerEvidence e = slotEvidence[slot];
+				int offset = slotOffset[slot];
+				evidenceWeight += e.weight(offset) * IntervalUtil.overlapsWidthClosed(start, end, e.startPosition() + offset, e.endPosition() + offset);
 			}
 		}
 		assert(evidenceWeight == expectedWidthWeight);
@@ -217,12 +308,22 @@ public class EvidenceTracker {
 		return id.size();
 	}
 	public int tracking_kmerCount() {
-		return lookup.size();
+		return kmerHead.size();
 	}
 	public int tracking_supportNodeCount() {
-		return lookup.values().stream().mapToInt(x -> x.size()).sum();
+		return supportNodeCount;
 	}
 	public int tracking_maxKmerSupportNodesCount() {
-		return lookup.values().stream().mapToInt(x -> x.size()).max().orElse(0);
+		int max = 0;
+		IntIterator it = kmerHead.values().iterator();
+		while (it.hasNext()) {
+			int head = it.nextInt();
+			int count = 0;
+			for (int slot = head; slot != NIL; slot = kmerNext[slot]) {
+				count++;
+			}
+			max = Math.max(max, count);
+		}
+		return max;
 	}
 }
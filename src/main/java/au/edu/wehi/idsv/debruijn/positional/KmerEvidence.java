@@ -47,11 +47,18 @@ public class KmerEvidence extends PackedKmerList {
 	private final int end;
 	private final float score;
 	public KmerSupportNode node(int offset) {
-		if (ambiguous != null && ambiguous.get(offset)) {
+		if (isAmbiguous(offset)) {
 			return null;
 		}
 		return new KmerSupportNode(this, offset);
 	}
+	/**
+	 * Determines whether the kmer at the given offset contains an ambiguous base
+	 * thus does not provide support to any node 
+	 */
+	public boolean isAmbiguous(int offset) {
+		return ambiguous != null && ambiguous.get(offset);
+	}
 	public float evidenceQuality() { return score; }
 	public DirectedEvidence evidence() { return evidence; }
 	/**
@@ -16,6 +16,7 @@ import com.google.common.collect.PeekingIterator;
 import au.edu.wehi.idsv.Defaults;
 import au.edu.wehi.idsv.debruijn.DeBruijnSequenceGraphNode;
 import au.edu.wehi.idsv.debruijn.KmerEncodingHelper;
+import au.edu.wehi.idsv.debruijn.PackedKmerPath;
 import au.edu.wehi.idsv.util.CollectionUtil;
 import au.edu.wehi.idsv.util.IntervalUtil;
 import it.unimi.dsi.fastutil.Hash;
@@ -33,7 +34,11 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 	private static final List<KmerPathNode> EMPTY_EDGE_LIST = ImmutableList.of();
 	private static final Ordering<KmerNode> NEXT_SORT_ORDER = KmerNodeUtil.ByFirstStart;
 	private static final Ordering<KmerNode> PREV_SORT_ORDER = KmerNodeUtil.ByLastStart;
-	private LongArrayList kmers; // FIXME: replace with 2-bit encoding of kmer sequence
+	/**
+	 * 2-bit encoded path sequence. Successive kmers overlap by k-1 bases so
+	 * storing the base sequence instead of each kmer reduces node memory usage by a factor of ~k
+	 */
+	private PackedKmerPath kmers;
 	private LongArrayList additionalKmers = null;
 	private IntArrayList additionalKmerOffsets = null;
 	private IntArrayList weight;
@@ -47,11 +52,15 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 	private ArrayList<KmerPathNode> nextList = null;
 	private ArrayList<KmerPathNode> prevList = null;
 	private boolean edgesSorted = true;
+	/**
+	 * Epoch of the KmerPathNodeMarker that last marked this node
+	 */
+	private int markEpoch = 0;
 	/**
 	 * Final kmer in path graph
 	 */
-	public long lastKmer() { return kmer(length() - 1); }
-	public long firstKmer() { return kmer(0); }
+	public long lastKmer() { return kmers.lastKmer(); }
+	public long firstKmer() { return kmers.firstKmer(); }
 	/**
 	 * First possible position of final kmer
 	 */
@@ -62,18 +71,35 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 	public int lastEnd() { return endPosition(length() - 1); }
 	public int firstStart() { return start; }
 	public int firstEnd() { return end; }
-	public long kmer(int offset) { return kmers.getLong(offset); }
+	public long kmer(int offset) { return kmers.kmer(offset); }
 	public int startPosition(int offset) { return start + offset; }
 	public int endPosition(int offset) { return end + offset; }
 	public int weight() { return totalWeight; }
-	public LongArrayList pathKmers() { return kmers; }
+	/**
+	 * Kmers of this path.
+	 * 
+	 * Note: kmers are stored in packed format so this list is constructed on each call.
+	 * Use kmer(int), pathBases() or pathBaseCounts() where possible. 
+	 * @return kmers
+	 */
+	public LongArrayList pathKmers() { return kmers.kmers(); }
+	/**
+	 * Base sequence of path
+	 * @return bases of path in picard base format
+	 */
+	public byte[] pathBases() { return kmers.getBases(); }
+	/**
+	 * Counts of each 2-bit encoded base in the path sequence
+	 */
+	public int[] pathBaseCounts() { return kmers.baseCounts(); }
+	public int k() { return kmers.k(); }
 	public IntArrayList pathWeights() { return weight; }
 	@Override
 	public int weight(int offset) {
 		return weight.getInt(offset);
 	}
 	public boolean isReference() { return reference; }
-	public int length() { return kmers.size(); }
+	public int length() { return kmers.length(); }
 	public int width() { return end - start + 1; }
 	/**
 	 * List of kmers that have been collapsed into this path
@@ -89,9 +115,8 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 	{
 		return additionalKmerOffsets != null ? additionalKmerOffsets : EMPTY_OFFSET_LIST;
 	}
-	public KmerPathNode(long kmer, int start, int end, boolean reference, int weight) {
-		this.kmers = new LongArrayList(1);
-		this.kmers.add(kmer);
+	public KmerPathNode(int k, long kmer, int start, int end, boolean reference, int weight) {
+		this.kmers = new PackedKmerPath(k, kmer);
 		this.weight = new IntArrayList(1);
 		this.weight.add(weight);
 		this.totalWeight = weight;
@@ -99,19 +124,24 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		this.end = end;
 		this.reference = reference;
 	}
-	private KmerPathNode(LongArrayList kmer, int start, int end, boolean reference, int totalWeight, IntArrayList weight) {
-		this.kmers = kmer.clone();
+	private KmerPathNode(PackedKmerPath kmer, int start, int end, boolean reference, int totalWeight, IntArrayList weight) {
+		this.kmers = new PackedKmerPath(kmer);
 		this.weight = weight.clone();
 		this.totalWeight = totalWeight;
 		this.start = start;
 		this.end = end;
 		this.reference = reference;
 	}
-	private KmerPathNode(LongArrayList kmer, int start, int end, boolean reference, IntArrayList weight) {
-		this(kmer, start, end, reference, sumWeights(weight), weight);
+	private KmerPathNode(PackedKmerPath kmer, int start, int end, boolean reference, IntArrayList weight) {
+		this.kmers = kmer;
+		this.weight = weight;
+		this.totalWeight = sumWeights(weight);
+		this.start = start;
+		this.end = end;
+		this.reference = reference;
 	}
-	public KmerPathNode(KmerNode node) {
-		this(node.lastKmer(), node.lastStart(), node.lastEnd(), node.isReference(), node.weight());
+	public KmerPathNode(int k, KmerNode node) {
+		this(k, node.lastKmer(), node.lastStart(), node.lastEnd(), node.isReference(), node.weight());
 	}
 	private static int sumWeights(IntArrayList weight) {
 		int sum = 0;
@@ -126,7 +156,7 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		assert(node.lastEnd() == lastEnd() + 1);
 		assert(node.isReference() == isReference());
 		assert(nextList == null || nextList.size() == 0);
-		kmers.add(node.lastKmer());
+		kmers.append(node.lastKmer());
 		weight.add(node.weight());
 		totalWeight += node.weight();
 		reference |= node.isReference();
@@ -149,7 +179,7 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		assert(prevList.size() == 1);
 		assert(prevList.get(0) == node);
 		int nodeLength = node.length();
-		node.kmers.addAll(kmers);
+		node.kmers.append(kmers);
 		kmers = node.kmers;
 		node.weight.addAll(weight);
 		weight = node.weight;
@@ -277,10 +307,12 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 			additionalKmerOffsets.addAll(toMerge.additionalKmerOffsets);
 		}
 		if (additionalKmers == null) {
-			additionalKmers = toMerge.kmers;
-			additionalKmerOffsets = new IntArrayList(toMerge.kmers.size());
+			additionalKmers = toMerge.kmers.kmers();
+			additionalKmerOffsets = new IntArrayList(toMerge.length());
 		} else {
-			additionalKmers.addAll(toMerge.kmers);
+			for (int i = 0; i < toMerge.length(); i++) {
+				additionalKmers.add(toMerge.kmer(i));
+			}
 		}
 		for (int i = 0; i < toMerge.length(); i++) {
 			additionalKmerOffsets.add(i);
@@ -313,6 +345,12 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 	public boolean isValid() {
 		return kmers != null;
 	}
+	int markEpoch() {
+		return markEpoch;
+	}
+	void markEpoch(int epoch) {
+		this.markEpoch = epoch;
+	}
 	/**
 	 * Successor nodes, ordered by adjacency position  
 	 * 
@@ -518,10 +556,10 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		assert(firstNodeLength > 0);
 		assert(firstNodeLength < length());
 		// copy our new kmers and weights
-		LongArrayList kmerSecond = new LongArrayList(kmers.subList(firstNodeLength, length()));
+		PackedKmerPath kmerSecond = kmers.suffix(firstNodeLength);
 		IntArrayList weightSecond = new IntArrayList(weight.subList(firstNodeLength, length()));
 		// let split own our current arrays
-		this.kmers.removeElements(firstNodeLength, this.kmers.size());
+		this.kmers.truncate(firstNodeLength);
 		this.weight.removeElements(firstNodeLength, this.weight.size());
 		KmerPathNode split = new KmerPathNode(
 				this.kmers,
@@ -650,11 +688,7 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 			return String.format("[%d-%d]%s %dw (INVALID) ", firstStart(), firstEnd(), isReference() ? "R" : " ", weight());
 		}
 		StringBuilder sb = new StringBuilder(String.format("[%d-%d]%s %dw ", firstStart(), firstEnd(), isReference() ? "R" : " ", weight()));
-		sb.append(KmerEncodingHelper.toApproximateString(firstKmer()));
-		sb.append(' ');
-		for (int i = 1; i < length(); i++) {
-			sb.append((char)KmerEncodingHelper.lastBaseEncodedToPicardBase(kmer(i)));
-		}
+		sb.append(kmers.toString());
 		sb.append(String.format(" (%d)", length()));
 		sb.append('\n');
 		return sb.toString();
@@ -667,8 +701,8 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		result = prime * result + end;
 		result = prime * result + totalWeight;
 		if (kmers != null) {
-			result = prime * result + Long.hashCode(kmers.getLong(0));
-			result = prime * result + Long.hashCode(kmers.getLong(kmers.size() - 1));
+			result = prime * result + Long.hashCode(kmers.firstKmer());
+			result = prime * result + Long.hashCode(kmers.lastKmer());
 		}
 		// incorporating these adds hash cost whilst giving minimal improvement
 		// to hash collision rate
@@ -713,7 +747,7 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 			assert(removed);
 		}
 		nextList = null;
-		for (KmerPathNode n : prevList) {
+		for (KmerPathNode n : prev()) {
 			boolean removed = CollectionUtil.removeByReference(n.nextList, this);
 			assert(removed);
 		}
@@ -761,7 +795,11 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		}
 		totalWeight -= weight.getInt(offset);
 		weight.remove(offset);
-		kmers.remove(offset);
+		if (offset == 0) {
+			kmers.removeFirst();
+		} else {
+			kmers.removeLast();
+		}
 		if (additionalKmers != null) {
 			if (length() > 0) {
 				int offsetShift = offset == 0 ? 1 : 0;
@@ -1014,7 +1052,7 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		assert(length() <= maxPathLength);
 		assert(end - start <= maxSupportWidth);
 		for (int i = 1; i < length(); i++) {
-			assert(KmerEncodingHelper.isNext(k, kmers.getLong(i - 1), kmers.getLong(i)));
+			assert(KmerEncodingHelper.isNext(k, kmers.kmer(i - 1), kmers.kmer(i)));
 		}
 		assert(sumWeights(weight) == totalWeight);
 		if (nextList != null) {
@@ -1034,7 +1072,7 @@ public class KmerPathNode implements KmerNode, DeBruijnSequenceGraphNode {
 		assert(isValid());
 		assert(start <= end);
 		assert(totalWeight > 0);
-		assert(kmers.size() == length());
+		assert(kmers.length() == weight.size());
 		assert(weight.size() == length());
 		assert(sumWeights(weight) == totalWeight);
 		assert(sanityCheckEdges(this, true));
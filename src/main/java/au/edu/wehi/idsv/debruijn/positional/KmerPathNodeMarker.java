@@ -0,0 +1,54 @@
+package au.edu.wehi.idsv.debruijn.positional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable set of KmerPathNodes for graph traversal.
+ * 
+ * Membership is recorded by stamping the node with the epoch of the
+ * marker so add, remove and contains do not require a hash lookup
+ * and clear() is O(1).
+ * 
+ * A node can only be marked by a single marker at any time. 
+ * 
+ * @author Daniel Cameron
+ *
+ */
+public class KmerPathNodeMarker {
+	private static final AtomicInteger nextEpoch = new AtomicInteger(1);
+	private int epoch;
+	public KmerPathNodeMarker() {
+		clear();
+	}
+	/**
+	 * Unmarks all nodes
+	 */
+	public void clear() {
+		epoch = nextEpoch.getAndIncrement();
+		if (epoch == 0) {
+			// skip the epoch of unmarked nodes on overflow
+			epoch = nextEpoch.getAndIncrement();
+		}
+	}
+	/**
+	 * Marks the given node
+	 * @return true if the node was not already marked
+	 */
+	public boolean add(KmerPathNode node) {
+		if (node.markEpoch() == epoch) return false;
+		node.markEpoch(epoch);
+		return true;
+	}
+	/**
+	 * Unmarks the given node
+	 * @return true if the node was marked
+	 */
+	public boolean remove(KmerPathNode node) {
+		if (node.markEpoch() != epoch) return false;
+		node.markEpoch(0);
+		return true;
+	}
+	public boolean contains(KmerPathNode node) {
+		return node.markEpoch() == epoch;
+	}
+}
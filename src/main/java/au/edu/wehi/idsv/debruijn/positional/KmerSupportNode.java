@@ -8,8 +8,8 @@ import au.edu.wehi.idsv.debruijn.KmerEncodingHelper;
  *
  */
 public class KmerSupportNode implements KmerNode {
-	private final int offset;
-	private final KmerEvidence evidence;
+	private int offset;
+	private KmerEvidence evidence;
 	public long lastKmer() { return evidence.kmer(offset); }
 	public int lastStart() { return evidence.startPosition() + offset; }
 	public int lastEnd() { return evidence.endPosition() + offset; }
@@ -21,6 +21,15 @@ public class KmerSupportNode implements KmerNode {
 		this.evidence = evidence;
 		this.offset = offset;
 	}
+	/**
+	 * Repoints this node to the given evidence kmer.
+	 * Only used for flyweight nodes that are not retained by the caller.
+	 */
+	KmerSupportNode reset(KmerEvidence evidence, int offset) {
+		this.evidence = evidence;
+		this.offset = offset;
+		return this;
+	}
 	@Override
 	public String toString() {
 		return String.format("[%d-%d]%s %d %s", lastStart(), lastEnd(), isReference() ? "R" : " ", weight(), KmerEncodingHelper.toApproximateString(lastKmer()));
@@ -1,11 +1,8 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -34,12 +31,27 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 	 *  * - * - * - * - *
 	 */
 	private static final int RECOLLAPSE_MARGIN = 1;
+	/**
+	 * Nodes on the leaf path being collapsed
+	 */
+	private final KmerPathNodeMarker visited = new KmerPathNodeMarker();
 	public LeafBubbleCollapseIterator(
 			Iterator<KmerPathNode> it,
 			int k,
 			int maxPathCollapseLength,
 			int maxBasesMismatch) {
-		super(it, k, maxPathCollapseLength, maxBasesMismatch, 0, RECOLLAPSE_MARGIN * maxPathCollapseLength);
+		this(it, k, maxPathCollapseLength, maxBasesMismatch, Integer.MAX_VALUE);
+	}
+	/**
+	 * @param maxTraversalNodes maximum number of nodes to traverse when searching for a path to collapse each node into
+	 */
+	public LeafBubbleCollapseIterator(
+			Iterator<KmerPathNode> it,
+			int k,
+			int maxPathCollapseLength,
+			int maxBasesMismatch,
+			int maxTraversalNodes) {
+		super(it, k, maxPathCollapseLength, maxBasesMismatch, maxTraversalNodes, 0, RECOLLAPSE_MARGIN * maxPathCollapseLength);
 	}
 	@Override
 	protected boolean collapse(KmerPathNode node, int maxCollapseLength) {
@@ -53,7 +65,8 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 			if (node != rootCandidate.node()) { // don't collapse self loops
 				for (Range<Integer> r : rootCandidate.prevPathRangesOfDegree(KmerPathSubnode.MULTIPLE_EDGES).asRanges()) {
 					KmerPathSubnode leafStart = new KmerPathSubnode(startCandidate.node(), r.lowerEndpoint() - startCandidate.length(), r.upperEndpoint() - startCandidate.length());
-					Set<KmerPathNode> visited = Collections.newSetFromMap(new IdentityHashMap<KmerPathNode, Boolean>());
+					if (isTraversalLimitReached()) return false;
+					visited.clear();
 					visited.add(leafStart.node());
 					visited.add(rootCandidate.node());
 					if (backwardLeafTraverse(visited, new TraversalNode(new TraversalNode(rootCandidate, 0), leafStart), maxCollapseLength)) return true;
@@ -68,7 +81,8 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 			if (node != rootCandidate.node()) { // don't collapse self loops
 				for (Range<Integer> r : rootCandidate.nextPathRangesOfDegree(KmerPathSubnode.MULTIPLE_EDGES).asRanges()) {
 					KmerPathSubnode leafStart = new KmerPathSubnode(startCandidate.node(), r.lowerEndpoint() + rootCandidate.length(), r.upperEndpoint() + rootCandidate.length());
-					Set<KmerPathNode> visited = Collections.newSetFromMap(new IdentityHashMap<KmerPathNode, Boolean>());
+					if (isTraversalLimitReached()) return false;
+					visited.clear();
 					visited.add(leafStart.node());
 					visited.add(rootCandidate.node());
 					if (forwardLeafTraverse(visited, new TraversalNode(new TraversalNode(rootCandidate, 0), leafStart), maxCollapseLength)) return true;
@@ -83,7 +97,9 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 	 * @param tn leaf path
 	 * @return true if a path could be merged, false otherwise
 	 */
-	private boolean backwardLeafTraverse(Set<KmerPathNode> visited, TraversalNode tn, int maxCollapseLength) {
+	private boolean backwardLeafTraverse(KmerPathNodeMarker visited, TraversalNode tn, int maxCollapseLength) {
+		nodesTraversed++;
+		if (isTraversalLimitReached()) return false;
 		KmerPathSubnode node = tn.node;
 		for (Range<Integer> range : node.prevPathRangesOfDegree(KmerPathSubnode.NO_EDGES).asRanges()) {
 			// Terminal leaf
@@ -113,7 +129,9 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 		}
 		return false;
 	}
-	private boolean forwardLeafTraverse(Set<KmerPathNode> visited, TraversalNode tn, int maxCollapseLength) {
+	private boolean forwardLeafTraverse(KmerPathNodeMarker visited, TraversalNode tn, int maxCollapseLength) {
+		nodesTraversed++;
+		if (isTraversalLimitReached()) return false;
 		KmerPathSubnode node = tn.node;
 		for (Range<Integer> range : node.nextPathRangesOfDegree(KmerPathSubnode.NO_EDGES).asRanges()) {
 			// Terminal leaf
@@ -158,7 +176,7 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 					new TraversalNode(into, anchorStart - into.pathLength, anchorEnd - into.pathLength));
 		}
 	}
-	private List<TraversalNode> successors(Set<KmerPathNode> refnodes, TraversalNode node, boolean traversalForward) {
+	private List<TraversalNode> successors(KmerPathNodeMarker refnodes, TraversalNode node, boolean traversalForward) {
 		List<TraversalNode> succ = new ArrayList<TraversalNode>(4);
 		for (KmerPathSubnode sn : traversalForward ? node.node.next() : node.node.prev()) {
 			if (!intersects(refnodes, node, sn)) {
@@ -168,7 +186,7 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 		}
 		return succ;
 	}
-	private static boolean intersects(Set<KmerPathNode> refnodes, TraversalNode node, KmerPathSubnode sn) {
+	private static boolean intersects(KmerPathNodeMarker refnodes, TraversalNode node, KmerPathSubnode sn) {
 		if (refnodes.contains(sn.node())) return true;
 		return node.traversingWouldCauseSelfIntersection(sn.node());
 	}
@@ -242,7 +260,7 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 	 * @param terminalNode node our path must finish on, null if collapsing leaf
 	 * @return true if the path was collapsed, false otherwise
 	 */
-	private boolean memoizedCollapse(Set<KmerPathNode> collapseNodes, TraversalNode toCollapse, boolean traversalForward, KmerPathNode terminalNode) {
+	private boolean memoizedCollapse(KmerPathNodeMarker collapseNodes, TraversalNode toCollapse, boolean traversalForward, KmerPathNode terminalNode) {
 		LongArrayList toCollapsePathKmers = new LongArrayList(toCollapse.pathLength);
 		for (KmerPathSubnode sn : traversalForward ? toCollapse.toSubnodeNextPath() : toCollapse.toSubnodePrevPath()) {
 			toCollapsePathKmers.addAll(sn.node().pathKmers());
@@ -251,25 +269,32 @@ public class LeafBubbleCollapseIterator extends CollapseIterator {
 		if (terminalNode != null) {
 			collapseNodes.remove(terminalNode);
 		}
+		if (memoizedCollapse(collapseNodes, toCollapse, toCollapsePathKmers, traversalForward, terminalNode)) return true;
+		if (terminalNode != null) {
+			collapseNodes.add(terminalNode);
+		}
+		return false;
+	}
+	private boolean memoizedCollapse(KmerPathNodeMarker collapseNodes, TraversalNode toCollapse, LongArrayList toCollapsePathKmers, boolean traversalForward, KmerPathNode terminalNode) {
 		SortedMap<KmerPathSubnode, List<MemoizedPath>> frontier = new TreeMap<KmerPathSubnode, List<MemoizedPath>>(KmerNodeUtil.ByFirstStartKmer);
 		KmerPathSubnode root = traversalForward ? toCollapse.toSubnodeNextPath().getFirst() : toCollapse.toSubnodePrevPath().getLast();
 		// set up frontier
 		for (TraversalNode tn : successors(collapseNodes, new TraversalNode(root, 0), traversalForward)) {
+			nodesTraversed++;
 			MemoizedPath mp = new MemoizedPath(tn, partialSequenceBasesDifferent(toCollapsePathKmers, tn, traversalForward));
 			if (frontierProcess(frontier, mp, toCollapse, traversalForward, terminalNode)) return true;
 		}
 		while (!frontier.isEmpty()) {
+			if (isTraversalLimitReached()) return false;
 			for (MemoizedPath mp : frontierPop(frontier)) {
 				for (TraversalNode tn : successors(collapseNodes, mp.path, traversalForward)) {
+					nodesTraversed++;
 					int basesDifferent = mp.basesDifferent + partialSequenceBasesDifferent(toCollapsePathKmers, tn, traversalForward);
 					MemoizedPath mpnext = new MemoizedPath(tn, basesDifferent);
 					if (frontierProcess(frontier, mpnext, toCollapse, traversalForward, terminalNode)) return true;
 				}
 			}
 		}
-		if (terminalNode != null) {
-			collapseNodes.add(terminalNode);
-		}
 		return false;
 	}
 	private void mergeBackward(TraversalNode source, TraversalNode target) {
@@ -10,11 +10,10 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NavigableSet;
 import java.util.Set;
-import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 import au.edu.wehi.idsv.Defaults;
 import au.edu.wehi.idsv.SanityCheckFailureException;
@@ -57,16 +56,11 @@ import htsjdk.samtools.util.Log;
 public class MemoizedContigCaller extends ContigCaller {
 	private static final Log log = Log.getInstance(MemoizedContigCaller.class);
 	/**
-	 * Path scores in order of descending score
+	 * Path scores in order of descending score, indexed by path start position
 	 */
-	private final SortedSet<TraversalNode> contigByScore = new TreeSet<>(TraversalNode.ByScoreDescPathFirstEndSubnode);
-	// We could convert this into an AbstractInt2IntSortedMap if we changed MemoizedContigTraverse
-	// to only call onFrontierRemove() on nodes that are actually in the frontier
-	private final SortedSet<TraversalNode> frontierByPathStart = new TreeSet<>(TraversalNode.ByPathFirstStartEndSubnode);
+	private final TraversalNodeQueue contigByScore = new TraversalNodeQueue(true, true);
+	private final TraversalNodeQueue frontierByPathStart = new TraversalNodeQueue(false, false);
 	private final MemoizedContigTraverse frontier = new MemoizedContigTraverse();
-	
-	private int contigByScoreBeforePosition_startPosition = Integer.MIN_VALUE;
-	private SortedSet<TraversalNode> contigByScoreBeforePosition = new TreeSet<>(TraversalNode.ByScoreDescPathFirstEndSubnode);;
 	/**
 	 * Scoring bonus for anchoring the start/end of a contig at a reference node. 
 	 */
@@ -86,25 +80,14 @@ public class MemoizedContigCaller extends ContigCaller {
 				assert(!tn.parent.node.isReference());
 			}
 			contigByScore.add(tn);
-			if (tn.pathFirstStart() < contigByScoreBeforePosition_startPosition) {
-				contigByScoreBeforePosition.add(tn);
-			}
 		}
 		@Override
 		protected void onMemoizeRemove(TraversalNode tn) {
 			contigByScore.remove(tn);
-			if (tn.pathFirstStart() < contigByScoreBeforePosition_startPosition) {
-				contigByScoreBeforePosition.remove(tn);
-			}
 		}
 		@Override
 		protected void onMemoizeRemove(Collection<TraversalNode> tns) {
 			contigByScore.removeAll(tns);
-			for (TraversalNode tn : tns) {
-				if (tn.pathFirstStart() < contigByScoreBeforePosition_startPosition) {
-					contigByScoreBeforePosition.remove(tn);
-				}
-			}
 		}
 		@Override
 		protected void onFrontierAdd(TraversalNode tn) {
@@ -339,18 +322,7 @@ public class MemoizedContigCaller extends ContigCaller {
 	 */
 	public ArrayDeque<KmerPathSubnode> callBestContigStartingBefore(int unprocessedPosition, int contigStartsBefore) {
 		advanceFrontier(unprocessedPosition);
-		ensureContigByScoreBeforePosition(contigStartsBefore);
-		if (contigByScoreBeforePosition.isEmpty()) return null;
-		return asUnanchoredPath(contigByScoreBeforePosition.first());
-	}
-	private void ensureContigByScoreBeforePosition(int contigStartsBefore) {
-		if (contigByScoreBeforePosition_startPosition != contigStartsBefore) {
-			contigByScoreBeforePosition = new TreeSet<>(TraversalNode.ByScoreDescPathFirstEndSubnode);
-			contigByScore.stream()
-				.filter(n -> n.pathFirstStart() < contigStartsBefore)
-				.collect(Collectors.toCollection(() -> contigByScoreBeforePosition));
-			contigByScoreBeforePosition_startPosition = contigStartsBefore;
-		}
+		return asUnanchoredPath(contigByScore.firstStartingBefore(contigStartsBefore));
 	}
 	/**
 	 * Returns the earliest path start still in the frontier
@@ -396,7 +368,7 @@ public class MemoizedContigCaller extends ContigCaller {
 	public void exportScores(File file) throws IOException {
 		try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
 			writer.write("start,score\n");
-			for (TraversalNode tn : contigByScore) {
+			for (TraversalNode tn : TraversalNode.ByScoreDescPathFirstEndSubnode.sortedCopy(contigByScore)) {
 				writer.write(String.format("%d,%d\n", tn.score, tn.pathFirstStart()));
 			}
 		}
@@ -491,13 +463,13 @@ public class MemoizedContigCaller extends ContigCaller {
 	public void sanityCheckMatches(MemoizedContigCaller caller) {
 		NavigableSet<TraversalNode> set1 = new TreeSet<>(TraversalNode.ByKmerScoreStartEnd);
 		NavigableSet<TraversalNode> set2 = new TreeSet<>(TraversalNode.ByKmerScoreStartEnd);
-		set1.addAll(contigByScore);
-		set2.addAll(caller.contigByScore);
+		Iterables.addAll(set1, contigByScore);
+		Iterables.addAll(set2, caller.contigByScore);
 		sanityCheckMatches(set1, set2);
 		set1 = new TreeSet<>(TraversalNode.ByKmerScoreStartEnd);
 		set2 = new TreeSet<>(TraversalNode.ByKmerScoreStartEnd);
-		set1.addAll(frontierByPathStart);
-		set2.addAll(caller.frontierByPathStart);
+		Iterables.addAll(set1, frontierByPathStart);
+		Iterables.addAll(set2, caller.frontierByPathStart);
 		sanityCheckMatches(set1, set2);
 	}
 	public static void sanityCheckMatches(NavigableSet<TraversalNode> set1, NavigableSet<TraversalNode> set2) {
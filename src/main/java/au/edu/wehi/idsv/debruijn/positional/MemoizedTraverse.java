@@ -10,12 +10,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedSet;
 import java.util.Stack;
-import java.util.TreeSet;
 import java.util.stream.Stream;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
 import com.google.common.io.Files;
 
 import au.edu.wehi.idsv.Defaults;
@@ -25,7 +24,7 @@ import au.edu.wehi.idsv.visualisation.PositionalDeBruijnGraphTracker.Memoization
 import htsjdk.samtools.util.Log;
 import it.unimi.dsi.fastutil.ints.AbstractInt2ObjectSortedMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
-import it.unimi.dsi.fastutil.objects.ObjectOpenCustomHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 
 /**
  * Helper class to track memoization of nodes during positional graph traversal
@@ -41,7 +40,13 @@ public class MemoizedTraverse {
 	 * of each node. 
 	 */
 	private final IdentityHashMap<KmerPathNode, AbstractInt2ObjectSortedMap<TraversalNode>> memoized = new IdentityHashMap<>();
-	private final SortedSet<TraversalNode> frontier = new TreeSet<>(TraversalNode.ByLastEndKmer);
+	/**
+	 * Memoized paths indexed by the node of their immediate predecessor.
+	 * This allows the memoized paths invalidated by the removal
+	 * of a node to be found without scanning all paths of the successor nodes.
+	 */
+	private final IdentityHashMap<KmerPathNode, ReferenceOpenHashSet<TraversalNode>> byParent = new IdentityHashMap<>();
+	private final TraversalNodeFrontier frontier = new TraversalNodeFrontier();
 	private final MemoizationStats stats = new MemoizationStats();
 	/**
 	 * Removes all given nodes from the graph
@@ -51,7 +56,6 @@ public class MemoizedTraverse {
 		// bulk remove nodes in removal set
 		int initialSize = memoized.size();
 		Collection<TraversalNode> tns = new ArrayList<>(2 * nodes.size());
-		Set<KmerPathNode> children = new ObjectOpenCustomHashSet<KmerPathNode>(new KmerNodeUtil.HashByLastEndKmer<KmerPathNode>());
 		for (KmerPathNode node : nodes) {
 			if (node == null) {
 				if (!MessageThrottler.Current.shouldSupress(log, "removal of null KmerPathNode")) {
@@ -66,23 +70,23 @@ public class MemoizedTraverse {
 				}
 			} else if (!cache.isEmpty()) {
 				tns.addAll(cache.values());
-				children.addAll(node.next());
 			}
 		}
-		children.removeAll(nodes);
+		for (TraversalNode tn : tns) {
+			unindex(tn);
+		}
 		onMemoizeRemove(tns);
-		frontier.removeAll(tns);
+		frontierRemoveAll(tns);
 		onFrontierRemove(tns);
 		
 		// bulk remove child paths
-		Collection<TraversalNode> childPaths = removeChildPaths(children, nodes);
+		Collection<TraversalNode> childPaths = removeChildPaths(nodes);
 		int descendentCount = childPaths.size();
 		onMemoizeRemove(childPaths);
-		frontier.removeAll(childPaths);
+		frontierRemoveAll(childPaths);
 		onFrontierRemove(childPaths);
 		
-		// Individually remove any descendant of the children
-		// (bulk KmerPathNode-based removal code requires better data structure)
+		// remove all descendants of the child paths
 		int frontierResetCount = 0;
 		Stack<TraversalNode> callStack = new Stack<>();
 		for (TraversalNode childtn : childPaths) {
@@ -104,23 +108,22 @@ public class MemoizedTraverse {
 		}
 	}
 	/**
-	 * Finds all child paths coming from any of the given parents
-	 * @param toCheck nodes to check for children 
+	 * Removes all memoized paths coming from any of the given parents
 	 * @param parents parents to identify
-	 * @param matches output collection of identified paths
+	 * @return removed paths
 	 */
-	private Collection<TraversalNode> removeChildPaths(Iterable<KmerPathNode> toCheck, Set<KmerPathNode> parents) {
+	private Collection<TraversalNode> removeChildPaths(Set<KmerPathNode> parents) {
 		Collection<TraversalNode> matches = new ArrayList<>();
-		for (KmerPathNode node : toCheck) {
-			AbstractInt2ObjectSortedMap<TraversalNode> cache = memoized.get(node);
-			if (cache == null || cache.isEmpty()) continue;
-			Iterator<TraversalNode> it = cache.values().iterator();
-			while (it.hasNext()) {
-				TraversalNode tn = it.next();
-				if (tn.parent != null && parents.contains(tn.parent.node.node())) {
-					it.remove();
-					matches.add(tn);
-				}
+		for (KmerPathNode node : parents) {
+			if (node == null) continue;
+			ReferenceOpenHashSet<TraversalNode> children = byParent.remove(node);
+			if (children == null) continue;
+			for (TraversalNode tn : children) {
+				// paths of removed nodes have already been unindexed
+				assert(!parents.contains(tn.node.node()));
+				TraversalNode removed = memoized.get(tn.node.node()).remove(tn.node.firstEnd());
+				assert(removed == tn);
+				matches.add(tn);
 			}
 		}
 		return matches;
@@ -164,10 +167,12 @@ public class MemoizedTraverse {
 	 */
 	private int unmemoize(TraversalNode tn, Stack<TraversalNode> callStack, boolean alreadyRemoved) {
 		if (!alreadyRemoved) {
-			if (memoized.get(tn.node.node()).remove(tn.node.firstEnd()) == null) {
+			TraversalNode removed = memoized.get(tn.node.node()).remove(tn.node.firstEnd());
+			if (removed == null) {
 				// already processed this TraversalNode
 				return 0;
 			}
+			unindex(removed);
 			onMemoizeRemove(tn);
 			if (frontier.remove(tn)) {
 				onFrontierRemove(tn);
@@ -175,9 +180,9 @@ public class MemoizedTraverse {
 		}
 		int frontierResetCount = addAlternatePathsToFrontier(tn);
 		// check if this path continues on to any children
-		for (KmerPathNode child : tn.node.node().next()) {
-			for (TraversalNode childtn : memoized(child)) {
-				if (childtn.parent == null) continue;
+		ReferenceOpenHashSet<TraversalNode> children = byParent.get(tn.node.node());
+		if (children != null) {
+			for (TraversalNode childtn : children) {
 				// can't use reference equality since
 				// the parent node could have been split
 				// on an unrelated path.
@@ -185,19 +190,43 @@ public class MemoizedTraverse {
 				// and are memoized only as terminal nodes
 				// with a starting node traversal object recreated
 				// for each traversal
-				if (childtn.parent.node.node() == tn.node.node() &&
-						// need to compare against the child internal since childtn.parent
-						// could have an outdated overlapping interval whilest the actual
-						// memoized parent interval was split and does not require updating
-						IntervalUtil.overlapsClosed(childtn.node.firstStart(), childtn.node.firstEnd(),
-								tn.node.lastStart() + 1, tn.node.lastEnd() + 1)
-						) {
+				// need to compare against the child internal since childtn.parent
+				// could have an outdated overlapping interval whilest the actual
+				// memoized parent interval was split and does not require updating
+				if (IntervalUtil.overlapsClosed(childtn.node.firstStart(), childtn.node.firstEnd(),
+						tn.node.lastStart() + 1, tn.node.lastEnd() + 1)) {
 					callStack.push(childtn);
 				}
 			}
 		}
 		return frontierResetCount;
 	}
+	private void index(TraversalNode tn) {
+		if (tn.parent == null) return;
+		KmerPathNode parent = tn.parent.node.node();
+		ReferenceOpenHashSet<TraversalNode> children = byParent.get(parent);
+		if (children == null) {
+			children = new ReferenceOpenHashSet<TraversalNode>(4);
+			byParent.put(parent, children);
+		}
+		children.add(tn);
+	}
+	private void unindex(TraversalNode tn) {
+		if (tn.parent == null) return;
+		KmerPathNode parent = tn.parent.node.node();
+		ReferenceOpenHashSet<TraversalNode> children = byParent.get(parent);
+		if (children != null) {
+			children.remove(tn);
+			if (children.isEmpty()) {
+				byParent.remove(parent);
+			}
+		}
+	}
+	private void frontierRemoveAll(Collection<TraversalNode> tns) {
+		for (TraversalNode tn : tns) {
+			frontier.remove(tn);
+		}
+	}
 	/**
 	 * Adds alternate paths to the given memoized path to
 	 * the frontier.
@@ -276,6 +305,7 @@ public class MemoizedTraverse {
 			if (node.score > existing.score) {
 				// remove existing node in overlapping interval
 				it.remove();
+				unindex(existing);
 				onMemoizeRemove(existing);
 				boolean inFrontier = frontier.remove(existing);
 				if (inFrontier) {
@@ -326,6 +356,7 @@ public class MemoizedTraverse {
 		}
 		if (node != null) {
 			cache.put(node.node.firstEnd(), node);
+			index(node);
 			onMemoizeAdd(node);
 			frontier.add(node);
 			onFrontierAdd(node);
@@ -333,6 +364,7 @@ public class MemoizedTraverse {
 		if (addlist != null) {
 			for (TraversalNode n : addlist) {
 				cache.put(n.node.firstEnd(), n);
+				index(n);
 				onMemoizeAdd(n);
 			}
 		}
@@ -370,8 +402,7 @@ public class MemoizedTraverse {
 	 * @return
 	 */
 	public TraversalNode pollFrontier() {
-		TraversalNode head = frontier.first();
-		frontier.remove(head);
+		TraversalNode head = frontier.poll();
 		onFrontierRemove(head);
 		return head;
 	}
@@ -449,7 +480,7 @@ public class MemoizedTraverse {
 	 */
 	public void export(File file) throws IOException {
 		StringBuilder sb = new StringBuilder("score,kmerlength,start,end,nodehash,parenthash,nodestart,nodeend,memoized,frontier\n");
-		Stream.concat(frontier.stream(), memoized.values().stream().flatMap(m -> m.values().stream())).distinct().forEach(tn -> {
+		Stream.concat(Streams.stream(frontier), memoized.values().stream().flatMap(m -> m.values().stream())).distinct().forEach(tn -> {
 			sb.append(String.format("%d,%d,%d,%d,%x,%x,%d,%d,%b,%b\n",
 				tn.score,
 				tn.pathLength,
@@ -475,6 +506,16 @@ public class MemoizedTraverse {
 				assert(tn.sanityCheck());
 				assert(tn.node.node() == node);
 				assert(tn.node.firstEnd() == position);
+				if (tn.parent != null) {
+					assert(byParent.get(tn.parent.node.node()).contains(tn));
+				}
+			}
+		}
+		for (Entry<KmerPathNode, ReferenceOpenHashSet<TraversalNode>> entry : byParent.entrySet()) {
+			assert(!entry.getValue().isEmpty());
+			for (TraversalNode tn : entry.getValue()) {
+				assert(tn.parent.node.node() == entry.getKey());
+				assert(memoized.get(tn.node.node()).get(tn.node.firstEnd()) == tn);
 			}
 		}
 		for (TraversalNode tn : frontier) {
@@ -18,6 +18,7 @@ import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.PeekingIterator;
@@ -34,15 +35,17 @@ import au.edu.wehi.idsv.Defaults;
 import au.edu.wehi.idsv.DirectedEvidence;
 import au.edu.wehi.idsv.SanityCheckFailureException;
 import au.edu.wehi.idsv.debruijn.DeBruijnGraphBase;
-import au.edu.wehi.idsv.debruijn.KmerEncodingHelper;
 import au.edu.wehi.idsv.graph.ScalingHelper;
 import au.edu.wehi.idsv.model.Models;
 import au.edu.wehi.idsv.util.IntervalUtil;
 import au.edu.wehi.idsv.util.MessageThrottler;
 import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyChunkTelemetry;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyPhase;
+import au.edu.wehi.idsv.visualisation.HeapSizeEstimates;
 import au.edu.wehi.idsv.visualisation.PositionalDeBruijnGraphTracker;
 import au.edu.wehi.idsv.visualisation.PositionalDeBruijnGraphTracker.ContigStats;
 import au.edu.wehi.idsv.visualisation.PositionalExporter;
+import au.edu.wehi.idsv.visualisation.TrackedBuffer;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.util.Log;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
@@ -58,7 +61,7 @@ import it.unimi.dsi.fastutil.objects.ObjectOpenCustomHashSet;
  * @author Daniel Cameron
  *
  */
-public class NonReferenceContigAssembler implements Iterator<SAMRecord> {
+public class NonReferenceContigAssembler implements Iterator<SAMRecord>, TrackedBuffer {
 	private static final Log log = Log.getInstance(NonReferenceContigAssembler.class);
 	/**
 	 * Debugging tracker to ensure memoization export files have unique names
@@ -236,6 +239,14 @@ public class NonReferenceContigAssembler implements Iterator<SAMRecord> {
 		return Math.max(breakendContigLength, maxAnchorLength);
 	}
 	private void ensureCalledContig() {
+		AssemblyPhase previous = enterPhase(AssemblyPhase.ContigCalling);
+		try {
+			callUntilContigCalled();
+		} finally {
+			exitPhase(previous);
+		}
+	}
+	private void callUntilContigCalled() {
 		while (called.isEmpty()) {
 			flushExcessivelyDenseIntervals();
 			// remove misassembled partial contigs
@@ -453,7 +464,7 @@ public class NonReferenceContigAssembler implements Iterator<SAMRecord> {
 		fullContig.addAll(contig);
 		fullContig.addAll(endingAnchor);
 		
-		byte[] bases = KmerEncodingHelper.baseCalls(fullContig.stream().flatMap(sn -> sn.node().pathKmers().stream()).collect(Collectors.toList()), k);
+		byte[] bases = baseCalls(fullContig);
 		byte[] quals = DeBruijnGraphBase.kmerWeightsToBaseQuals(k, fullContig.stream().flatMapToInt(sn -> sn.node().pathWeights().stream().mapToInt(Integer::intValue)).toArray());
 		assert(quals.length == bases.length);
 		// left aligned anchor position although it shouldn't matter since anchoring should be a single base wide
@@ -572,6 +583,24 @@ public class NonReferenceContigAssembler implements Iterator<SAMRecord> {
 		}
 		return assembledContig;
 	}
+	/**
+	 * Base calls of the given contig
+	 * @param contig kmer path
+	 * @return base calls of a positive strand readout of the contig
+	 */
+	private byte[] baseCalls(List<KmerPathSubnode> contig) {
+		byte[] bases = new byte[contig.stream().mapToInt(sn -> sn.length()).sum() + k - 1];
+		int offset = 0;
+		for (KmerPathSubnode sn : contig) {
+			byte[] nodeBases = sn.node().pathBases();
+			// successive nodes overlap by k-1 bases
+			int skip = offset == 0 ? 0 : k - 1;
+			System.arraycopy(nodeBases, skip, bases, offset, nodeBases.length - skip);
+			offset += nodeBases.length - skip;
+		}
+		assert(offset == bases.length);
+		return bases;
+	}
 	private boolean containsKmerRepeat(Collection<KmerPathSubnode> contig) {
 		LongSet existing = new LongOpenHashSet();
 		for (KmerPathSubnode n : contig) {
@@ -593,6 +622,14 @@ public class NonReferenceContigAssembler implements Iterator<SAMRecord> {
 	 * @param evidence
 	 */
 	private void removeFromGraph(Set<KmerEvidence> evidence) {
+		AssemblyPhase previous = enterPhase(AssemblyPhase.EvidenceRemoval);
+		try {
+			removeEvidenceFromGraph(evidence);
+		} finally {
+			exitPhase(previous);
+		}
+	}
+	private void removeEvidenceFromGraph(Set<KmerEvidence> evidence) {
 		assert(!evidence.isEmpty());
 		// Tracks what we need to remove from each kmer of each path node
 		Map<KmerPathNode, List<List<KmerNode>>> toRemove = new IdentityHashMap<KmerPathNode, List<List<KmerNode>>>();
@@ -818,12 +855,45 @@ public class NonReferenceContigAssembler implements Iterator<SAMRecord> {
 		if (graphByPosition.size() == 0) return Integer.MAX_VALUE;
 		return graphByPosition.first().firstStart();
 	}
+	private String trackedBufferName_graphNodes = "assembly.graphNodes";
+	private String trackedBufferName_graphKmers = "assembly.graphKmers";
+	private String trackedBufferName_evidence = "assembly.evidence";
+	private String trackedBufferName_supportNodes = "assembly.supportNodes";
+	@Override
+	public void setTrackedBufferContext(String context) {
+		this.trackedBufferName_graphNodes = context + ".assembly.graphNodes";
+		this.trackedBufferName_graphKmers = context + ".assembly.graphKmers";
+		this.trackedBufferName_evidence = context + ".assembly.evidence";
+		this.trackedBufferName_supportNodes = context + ".assembly.supportNodes";
+	}
+	@Override
+	public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
+		return ImmutableList.of(
+				new NamedTrackedBuffer(trackedBufferName_graphNodes, graphByPosition.size(), HeapSizeEstimates.KMER_PATH_NODE_BYTES),
+				new NamedTrackedBuffer(trackedBufferName_graphKmers, graphByKmerNode.size(), HeapSizeEstimates.GRAPH_KMER_BYTES),
+				new NamedTrackedBuffer(trackedBufferName_evidence, (int)evidenceTracker.tracking_evidenceActive(), HeapSizeEstimates.directedEvidence(aes.getMaxReadLength())),
+				new NamedTrackedBuffer(trackedBufferName_supportNodes, evidenceTracker.tracking_supportNodeCount(), HeapSizeEstimates.SUPPORT_NODE_BYTES)
+				);
+	}
 	public PositionalDeBruijnGraphTracker getExportTracker() {
 		return exportTracker;
 	}
 	public void setExportTracker(PositionalDeBruijnGraphTracker exportTracker) {
 		this.exportTracker = exportTracker;
 	}
+	/**
+	 * Starts timing the given assembly phase
+	 * @return phase to restore, or null if telemetry is not enabled
+	 */
+	private AssemblyPhase enterPhase(AssemblyPhase phase) {
+		if (telemetry == null) return null;
+		return telemetry.enter(phase);
+	}
+	private void exitPhase(AssemblyPhase previous) {
+		if (telemetry != null && previous != null) {
+			telemetry.enter(previous);
+		}
+	}
 	public AssemblyChunkTelemetry getTelemetry() {
 		return telemetry;
 	}
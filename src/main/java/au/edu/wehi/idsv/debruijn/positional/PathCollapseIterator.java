@@ -15,6 +15,8 @@ import au.edu.wehi.idsv.debruijn.KmerEncodingHelper;
 import au.edu.wehi.idsv.debruijn.positional.KmerPathNodeBasePath.TraversalNode;
 import au.edu.wehi.idsv.util.IntervalUtil;
 import au.edu.wehi.idsv.util.SequenceUtil;
+import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 /**
  * Graph simplifier that merging similar paths
@@ -90,6 +92,18 @@ import au.edu.wehi.idsv.util.SequenceUtil;
 public class PathCollapseIterator extends CollapseIterator implements DeBruijnGraph<KmerPathSubnode> {
 	private final boolean bubblesAndLeavesOnly;
 	private final double minimumPathNodeEntropy;
+	/**
+	 * Nodes on either path of the current traversal
+	 */
+	private final KmerPathNodeMarker onPath = new KmerPathNodeMarker();
+	/**
+	 * Depth first search stack: number of bases different between the paths 
+	 */
+	private final IntArrayList dfsBasesDifferent = new IntArrayList();
+	/**
+	 * Depth first search stack: whether path A (or path B) is being extended 
+	 */
+	private final BooleanArrayList dfsExtendPathA = new BooleanArrayList();
 	public PathCollapseIterator(
 			Iterator<KmerPathNode> it,
 			int k,
@@ -97,7 +111,20 @@ public class PathCollapseIterator extends CollapseIterator implements DeBruijnGr
 			int maxBasesMismatch,
 			boolean bubblesAndLeavesOnly,
 			double minimumPathNodeEntropy) {
-		super(it, k, maxPathCollapseLength, maxBasesMismatch, 0, 0);
+		this(it, k, maxPathCollapseLength, maxBasesMismatch, bubblesAndLeavesOnly, minimumPathNodeEntropy, Integer.MAX_VALUE);
+	}
+	/**
+	 * @param maxTraversalNodes maximum number of nodes to traverse when searching for a path to collapse each node into
+	 */
+	public PathCollapseIterator(
+			Iterator<KmerPathNode> it,
+			int k,
+			int maxPathCollapseLength,
+			int maxBasesMismatch,
+			boolean bubblesAndLeavesOnly,
+			double minimumPathNodeEntropy,
+			int maxTraversalNodes) {
+		super(it, k, maxPathCollapseLength, maxBasesMismatch, maxTraversalNodes, 0, 0);
 		this.bubblesAndLeavesOnly = bubblesAndLeavesOnly;
 		this.minimumPathNodeEntropy = minimumPathNodeEntropy;
 	}
@@ -123,23 +150,26 @@ public class PathCollapseIterator extends CollapseIterator implements DeBruijnGr
 		return false;
 	}
 	private boolean collapseSimilarPath(KmerPathNode root, KmerPathSubnode startNodeA, KmerPathSubnode startNodeB, boolean findLeaf, boolean findCommonChild, boolean traverseForward, int maxCollapseLength) {
+		if (isTraversalLimitReached()) return false;
 		if (!hasSufficientEntropy(startNodeA.node())) return false;
 		if (!hasSufficientEntropy(startNodeB.node())) return false;
 		KmerPathNodePath pathA = new KmerPathNodePath(startNodeA, traverseForward, maxCollapseLength);
 		KmerPathNodePath pathB = new KmerPathNodePath(startNodeB, traverseForward, maxCollapseLength);
 		if (pathA.pathLength() <= maxCollapseLength && pathB.pathLength() <= maxCollapseLength) {
-			Set<KmerPathNode> set = Collections.newSetFromMap(new IdentityHashMap<KmerPathNode, Boolean>());
-			set.add(root);
-			set.add(pathA.headPath());
-			set.add(pathB.headPath());
-			if (set.size() == 3) {
-				return collapseSimilarPath(set, pathA, pathB, pathBasesDifferent(pathA, pathB, traverseForward), findLeaf, findCommonChild, traverseForward);
+			KmerPathNode headA = pathA.headPath();
+			KmerPathNode headB = pathB.headPath();
+			if (root != headA && root != headB && headA != headB) {
+				onPath.clear();
+				onPath.add(root);
+				onPath.add(headA);
+				onPath.add(headB);
+				return collapseSimilarPath(pathA, pathB, pathBasesDifferent(pathA, pathB, traverseForward), findLeaf, findCommonChild, traverseForward);
 			}
 		}
 		return false;
 	}
 	/**
-	 * Recusive node traversal of path trees looking for similar paths
+	 * Node traversal of path trees looking for similar paths
 	 * 
 	 * Need to simultaneous traverse across both trees comparing all possible path combinations until a match is found. 
 	 * 
@@ -152,62 +182,74 @@ public class PathCollapseIterator extends CollapseIterator implements DeBruijnGr
 	 * only 1 kmer difference so should collapse but when merging, we are unable to fragment
 	 * [1,11] AAAA in such a way that each KmerPathSubnode contains a single KmerPathNode
 	 * per KmerPathSubnode, we have to fragment the KmerPathNode across all boundaries.
-	 * For now, we handle this by not collapsing if we encounter a KmerPathNode repeat. 
+	 * For now, we handle this by not collapsing if we encounter a KmerPathNode repeat.
 	 * 
+	 * The depth first search is performed using an explicit stack instead of recursion.
+	 * At each depth, the shorter of the two paths is extended.
 	 */
 	private boolean collapseSimilarPath(
-			final Set<KmerPathNode> onPath,
 			final KmerPathNodePath pathA,
 			final KmerPathNodePath pathB,
 			final int basesDifferent,
 			final boolean findLeaf,
 			final boolean findCommonChild,
 			final boolean traverseForward) {
+		dfsBasesDifferent.clear();
+		dfsExtendPathA.clear();
+		if (visit(pathA, pathB, basesDifferent, findLeaf, traverseForward)) return true;
+		while (!dfsBasesDifferent.isEmpty()) {
+			if (isTraversalLimitReached()) return false;
+			int depth = dfsBasesDifferent.size() - 1;
+			boolean extendPathA = dfsExtendPathA.getBoolean(depth);
+			KmerPathNodePath headPath = extendPathA ? pathA : pathB;
+			KmerPathNodePath refPath = extendPathA ? pathB : pathA;
+			if (!headPath.dfsNextChild()) {
+				// done with this node
+				dfsBasesDifferent.popInt();
+				dfsExtendPathA.popBoolean();
+				if (depth > 0) {
+					// return to the parent traversal
+					KmerPathNodePath parentHeadPath = dfsExtendPathA.getBoolean(depth - 1) ? pathA : pathB;
+					onPath.remove(parentHeadPath.headPath());
+					parentHeadPath.pop();
+				}
+				continue;
+			}
+			KmerPathNode added = headPath.headPath();
+			int childBasesDifferent = dfsBasesDifferent.getInt(depth) + headNodeBasesDifferent(headPath, refPath, traverseForward);
+			if (!onPath.contains(added) && hasSufficientEntropy(added)) {
+				onPath.add(added);
+				if (extendPathA) {
+					pathB.dfsResetChildTraversal();
+				}
+				if (visit(pathA, pathB, childBasesDifferent, findLeaf, traverseForward)) return true;
+				if (dfsBasesDifferent.size() > depth + 1) {
+					// traverse children
+					continue;
+				}
+				assert(added == headPath.headPath());
+				onPath.remove(added);
+			} else if (added == refPath.headPath() && findCommonChild && couldMatch(pathA, pathB, childBasesDifferent, traverseForward)) {
+				if (tryPathCollapse(pathA, pathB, traverseForward)) return true;
+			}
+			headPath.pop();
+		}
+		return false;
+	}
+	/**
+	 * Visits the current path pair and, if the paths could still match, pushes
+	 * the pair onto the traversal stack for child traversal  
+	 * @return true if a path was collapsed
+	 */
+	private boolean visit(KmerPathNodePath pathA, KmerPathNodePath pathB, int basesDifferent, boolean findLeaf, boolean traverseForward) {
 		nodesTraversed++;
 		if (!couldMatch(pathA, pathB, basesDifferent, traverseForward)) return false;
 		if (findLeaf) {
 			if (tryLeafCollapse(pathA, pathB, traverseForward)) return true;
 			if (tryLeafCollapse(pathB, pathA, traverseForward)) return true; 
 		}
-		int pathAlength = pathA.pathLength();
-		int pathBlength = pathB.pathLength();
-		if (pathA.pathLength() <= pathB.pathLength()) {
-			while (pathA.dfsNextChild()) {
-				KmerPathNode added = pathA.headPath();
-				int additionalBasesDifferent = headNodeBasesDifferent(pathA, pathB, traverseForward);
-				if (!onPath.contains(added) && hasSufficientEntropy(added)) {
-					onPath.add(added);
-					pathB.dfsResetChildTraversal();
-					if (collapseSimilarPath(onPath, pathA, pathB, basesDifferent + additionalBasesDifferent, findLeaf, findCommonChild, traverseForward)) return true;
-					assert(added == pathA.headPath());
-					onPath.remove(added);
-				} else if (added == pathB.headPath() && findCommonChild && couldMatch(pathA, pathB, basesDifferent + additionalBasesDifferent, traverseForward)) {
-					if (tryPathCollapse(pathA, pathB, traverseForward)) return true;
-				}
-				pathA.pop();
-				assert(pathAlength == pathA.pathLength());
-				assert(pathBlength == pathB.pathLength());
-			}
-			//pathA.dfsPop(); // done with this node
-		} else {
-			while (pathB.dfsNextChild()) {
-				KmerPathNode added = pathB.headPath();
-				int additionalBasesDifferent = headNodeBasesDifferent(pathB, pathA, traverseForward);
-				if (!onPath.contains(added) && hasSufficientEntropy(added)) {
-					onPath.add(added);
-					if (collapseSimilarPath(onPath, pathA, pathB, basesDifferent + additionalBasesDifferent, findLeaf, findCommonChild, traverseForward)) return true;
-					assert(added == pathB.headPath());
-					onPath.remove(added);
-				} else if (added == pathA.headPath() && findCommonChild && couldMatch(pathA, pathB, basesDifferent + additionalBasesDifferent, traverseForward)) {
-					if (tryPathCollapse(pathA, pathB, traverseForward)) return true;
-				}
-				pathB.pop();
-				assert(pathAlength == pathA.pathLength());
-				assert(pathBlength == pathB.pathLength());
-			}
-		}
-		assert(pathA.pathLength() == pathAlength);
-		assert(pathB.pathLength() == pathBlength);
+		dfsBasesDifferent.push(basesDifferent);
+		dfsExtendPathA.push(pathA.pathLength() <= pathB.pathLength());
 		return false;
 	}
 	private boolean couldMatch(KmerPathNodePath pathA, KmerPathNodePath pathB, int basesDifferent, boolean traverseForward) {
@@ -352,7 +394,7 @@ public class PathCollapseIterator extends CollapseIterator implements DeBruijnGr
 	}
 	private boolean hasSufficientEntropy(KmerPathNode node) {
 		if (minimumPathNodeEntropy <= 0) return true;
-		double entropy = SequenceUtil.shannonEntropy(KmerEncodingHelper.baseCounts(k, node.pathKmers()));
+		double entropy = SequenceUtil.shannonEntropy(node.pathBaseCounts());
 		return entropy > minimumPathNodeEntropy;
 	}
 	@Override
@@ -3,8 +3,10 @@ package au.edu.wehi.idsv.debruijn.positional;
 import java.io.File;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 
@@ -18,7 +20,9 @@ import au.edu.wehi.idsv.configuration.AssemblyConfiguration;
 import au.edu.wehi.idsv.configuration.VisualisationConfiguration;
 import au.edu.wehi.idsv.sam.SamTags;
 import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyChunkTelemetry;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyPhase;
 import au.edu.wehi.idsv.visualisation.PositionalDeBruijnGraphTracker;
+import au.edu.wehi.idsv.visualisation.TrackedBuffer;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.util.Log;
 
@@ -28,14 +32,15 @@ import htsjdk.samtools.util.Log;
  * @author Daniel Cameron
  *
  */
-public class PositionalAssembler implements Iterator<SAMRecord> {
+public class PositionalAssembler implements Iterator<SAMRecord>, TrackedBuffer {
 	private static final Log log = Log.getInstance(PositionalAssembler.class);
 	private final ProcessingContext context;
 	private final AssemblyEvidenceSource source;
 	private final AssemblyIdGenerator assemblyNameGenerator;
 	private final PeekingIterator<DirectedEvidence> it;
 	private final BreakendDirection direction;
-	private NonReferenceContigAssembler currentAssembler = null;
+	private volatile NonReferenceContigAssembler currentAssembler = null;
+	private String trackedBufferContext = null;
 	private String currentContig = "";
 	private AssemblyChunkTelemetry telemetry = null;
 	public PositionalAssembler(ProcessingContext context, AssemblyEvidenceSource source, AssemblyIdGenerator assemblyNameGenerator, Iterator<DirectedEvidence> backingIterator, BreakendDirection direction) {
@@ -72,6 +77,7 @@ public class PositionalAssembler implements Iterator<SAMRecord> {
 		}
 	}
 	private void closeCurrentAssembler() {
+		if (currentAssembler == null) return;
 		if (currentAssembler.getExportTracker() != null) {
 			try {
 				currentAssembler.getExportTracker().close();
@@ -128,14 +134,15 @@ public class PositionalAssembler implements Iterator<SAMRecord> {
 		currentContig = context.getDictionary().getSequence(referenceIndex).getSequenceName();
 		ReferenceIndexIterator evidenceIt = new ReferenceIndexIterator(it, referenceIndex);
 		EvidenceTracker evidenceTracker = new EvidenceTracker();
-		SupportNodeIterator supportIt = new SupportNodeIterator(k, evidenceIt, source.getMaxConcordantFragmentSize(), evidenceTracker, ap.includePairAnchors, ap.pairAnchorMismatchIgnoreEndBases);
-		AggregateNodeIterator agIt = new AggregateNodeIterator(supportIt);
-		Iterator<KmerNode> knIt = agIt;
+		// AggregateNodeIterator does not retain support nodes so we can safely reuse them
+		SupportNodeIterator supportIt = new SupportNodeIterator(k, evidenceIt, source.getMaxConcordantFragmentSize(), evidenceTracker, ap.includePairAnchors, ap.pairAnchorMismatchIgnoreEndBases, true);
+		AggregateNodeIterator agIt = new AggregateNodeIterator(timed(supportIt, AssemblyPhase.SupportNodeGeneration));
+		Iterator<KmerNode> knIt = timed(agIt, AssemblyPhase.Aggregation);
 		if (Defaults.SANITY_CHECK_DE_BRUIJN) {
 			knIt = evidenceTracker.new AggregateNodeAssertionInterceptor(knIt);
 		}
 		PathNodeIterator pathNodeIt = new PathNodeIterator(knIt, maxPathLength, k); 
-		Iterator<KmerPathNode> pnIt = pathNodeIt;
+		Iterator<KmerPathNode> pnIt = timed(pathNodeIt, AssemblyPhase.PathNodeGeneration);
 		if (Defaults.SANITY_CHECK_DE_BRUIJN) {
 			pnIt = evidenceTracker.new PathNodeAssertionInterceptor(pnIt, "PathNodeIterator");
 		}
@@ -144,16 +151,17 @@ public class PositionalAssembler implements Iterator<SAMRecord> {
 		if (ap.errorCorrection.maxBaseMismatchForCollapse > 0) {
 			if (!ap.errorCorrection.collapseBubblesOnly) {
 				log.warn("Collapsing all paths is an exponential time operation. Gridss is likely to hang if your genome contains repetative sequence");
-				collapseIt = new PathCollapseIterator(pnIt, k, maxPathCollapseLength, ap.errorCorrection.maxBaseMismatchForCollapse, false, 0);
+				collapseIt = new PathCollapseIterator(pnIt, k, maxPathCollapseLength, ap.errorCorrection.maxBaseMismatchForCollapse, false, 0, ap.errorCorrection.maxTraversalNodesPerCollapse);
 			} else {
-				collapseIt = new LeafBubbleCollapseIterator(pnIt, k, maxPathCollapseLength, ap.errorCorrection.maxBaseMismatchForCollapse);
+				collapseIt = new LeafBubbleCollapseIterator(pnIt, k, maxPathCollapseLength, ap.errorCorrection.maxBaseMismatchForCollapse, ap.errorCorrection.maxTraversalNodesPerCollapse);
 			}
-			pnIt = collapseIt;
+			collapseIt.setTelemetry(getTelemetry(), referenceIndex);
+			pnIt = timed(collapseIt, AssemblyPhase.Collapse);
 			if (Defaults.SANITY_CHECK_DE_BRUIJN) {
 				pnIt = evidenceTracker.new PathNodeAssertionInterceptor(pnIt, "PathCollapseIterator");
 			}
 			simplifyIt = new PathSimplificationIterator(pnIt, maxPathLength, maxKmerSupportIntervalWidth);
-			pnIt = simplifyIt;
+			pnIt = timed(simplifyIt, AssemblyPhase.Simplification);
 			if (Defaults.SANITY_CHECK_DE_BRUIJN) {
 				pnIt = evidenceTracker.new PathNodeAssertionInterceptor(pnIt, "PathSimplificationIterator");
 			}
@@ -173,8 +181,32 @@ public class PositionalAssembler implements Iterator<SAMRecord> {
 			}
 		}
 		currentAssembler.setTelemetry(getTelemetry());
+		if (trackedBufferContext != null) {
+			currentAssembler.setTrackedBufferContext(trackedBufferContext);
+		}
 		return currentAssembler;
 	}
+	/**
+	 * Attributes time spent in the given iterator to the given assembly phase
+	 */
+	private <T> Iterator<T> timed(Iterator<T> it, AssemblyPhase phase) {
+		if (telemetry == null) return it;
+		return telemetry.time(it, phase);
+	}
+	@Override
+	public void setTrackedBufferContext(String context) {
+		this.trackedBufferContext = context;
+		NonReferenceContigAssembler assembler = currentAssembler;
+		if (assembler != null) {
+			assembler.setTrackedBufferContext(context);
+		}
+	}
+	@Override
+	public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
+		NonReferenceContigAssembler assembler = currentAssembler;
+		if (assembler == null) return ImmutableList.of();
+		return assembler.currentTrackedBufferSizes();
+	}
 	public AssemblyChunkTelemetry getTelemetry() {
 		return telemetry;
 	}
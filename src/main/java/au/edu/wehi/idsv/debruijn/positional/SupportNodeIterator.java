@@ -1,9 +1,8 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.NoSuchElementException;
 
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
@@ -14,6 +13,8 @@ import au.edu.wehi.idsv.SingleReadEvidence;
 import au.edu.wehi.idsv.util.MessageThrottler;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.util.Log;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
 
 /**
  * Transforms a breakend start DirectedEvidence iterator
@@ -37,7 +38,28 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 	 */
 	private final int emitOffset;
 	private final int maxSupportStartPositionOffset;
-	private final PriorityQueue<KmerSupportNode> buffer = new PriorityQueue<KmerSupportNode>(1024, KmerNodeUtil.ByFirstStart);
+	/**
+	 * Buffered kmers ordered by start position. Each entry encodes the start position
+	 * in the high 32 bits and the buffer slot in the low 32 bits.
+	 */
+	private final LongHeapPriorityQueue buffer = new LongHeapPriorityQueue(1024);
+	/**
+	 * Evidence and kmer offset of each buffer slot.
+	 * Slots are reused once emitted so support nodes are not allocated
+	 * until they are emitted.
+	 */
+	private KmerEvidence[] slotEvidence = new KmerEvidence[1024];
+	private int[] slotOffset = new int[1024];
+	private int slotsUsed = 0;
+	private final IntArrayList freeSlots = new IntArrayList();
+	private final IntArrayList supportOffsets = new IntArrayList();
+	private final IntArrayList anchorSupportOffsets = new IntArrayList();
+	/**
+	 * Flyweight nodes returned when reuseNodes is set
+	 */
+	private final boolean reuseNodes;
+	private final KmerSupportNode nextNode = new KmerSupportNode(null, 0);
+	private final KmerSupportNode peekNode = new KmerSupportNode(null, 0);
 	private final EvidenceTracker tracker;
 	private final int disallowMismatch;
 	private int inputPosition = Integer.MIN_VALUE;
@@ -59,6 +81,14 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 	 * position).
 	 */
 	public SupportNodeIterator(int k, Iterator<DirectedEvidence> it, int maxSupportStartPositionOffset, EvidenceTracker tracker, boolean includePairAnchors, int disallowMismatch) {
+		this(k, it, maxSupportStartPositionOffset, tracker, includePairAnchors, disallowMismatch, false);
+	}
+	/**
+	 * @param reuseNodes return a flyweight node that is only valid until the next call to next()/peek().
+	 * Callers must not retain returned nodes when this flag is set.
+	 */
+	public SupportNodeIterator(int k, Iterator<DirectedEvidence> it, int maxSupportStartPositionOffset, EvidenceTracker tracker, boolean includePairAnchors, int disallowMismatch, boolean reuseNodes) {
+		this.reuseNodes = reuseNodes;
 		this.underlying = Iterators.peekingIterator(it);
 		this.k = k;
 		this.includePairAnchors = includePairAnchors;
@@ -105,9 +135,8 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 		if (e == null) {
 			return;
 		}
-		List<KmerSupportNode> supportNodes = new ArrayList<KmerSupportNode>(e.length() + (e2 == null ? 0 : e2.length()));
-		boolean hasNonReference = addSupport(supportNodes, de, e);
-		addSupport(supportNodes, de, e2);
+		boolean hasNonReference = addSupport(supportOffsets, de, e);
+		addSupport(anchorSupportOffsets, de, e2);
 		if (hasNonReference) {
 			// only add evidence that provides support for an SV
 			// If we have no non-reference kmers then we might
@@ -115,22 +144,48 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 			// never remove it from the graph
 			// SC or RPs with no non-reference kmers can occur when
 			// an ambiguous base case exist in the soft clip/mate  
-			buffer.addAll(supportNodes);
+			enqueue(e, supportOffsets);
+			enqueue(e2, anchorSupportOffsets);
+		}
+	}
+	private void enqueue(KmerEvidence e, IntArrayList offsets) {
+		for (int i = 0; i < offsets.size(); i++) {
+			int offset = offsets.getInt(i);
+			int slot = allocateSlot();
+			slotEvidence[slot] = e;
+			slotOffset[slot] = offset;
+			buffer.enqueue(((long)(e.startPosition() + offset) << 32) | slot);
 			if (tracker != null) {
-				for (KmerSupportNode sn : supportNodes) {
-					tracker.track(sn);
-				}
+				tracker.track(e, offset);
 			}
 		}
 	}
-	private boolean addSupport(List<KmerSupportNode> supportNodes, DirectedEvidence de, KmerEvidence e) {
+	private int allocateSlot() {
+		if (!freeSlots.isEmpty()) {
+			return freeSlots.popInt();
+		}
+		if (slotsUsed == slotEvidence.length) {
+			int size = slotEvidence.length + (slotEvidence.length >> 1);
+			slotEvidence = Arrays.copyOf(slotEvidence, size);
+			slotOffset = Arrays.copyOf(slotOffset, size);
+		}
+		return slotsUsed++;
+	}
+	/**
+	 * Determines the kmers of the given evidence that provide support
+	 * @param supportOffsets supporting kmer offsets
+	 * @return true if any supporting kmer is not a reference kmer
+	 */
+	private boolean addSupport(IntArrayList supportOffsets, DirectedEvidence de, KmerEvidence e) {
+		supportOffsets.clear();
 		boolean hasNonReference = false;
 		if (e != null) {
 			for (int i = 0; i < e.length(); i++) {
-				KmerSupportNode support = e.node(i); 
-				if (support != null) {
+				if (!e.isAmbiguous(i)) {
+					int supportStart = e.startPosition() + i;
+					int supportWeight = e.weight(i);
 					// make sure that we are actually able to resort into kmer order
-					if (support.firstStart() < de.getBreakendSummary().start - maxSupportStartPositionOffset) {
+					if (supportStart < de.getBreakendSummary().start - maxSupportStartPositionOffset) {
 						SAMRecord read = null;
 						if (de instanceof SingleReadEvidence) {
 							read = ((SingleReadEvidence)de).getSAMRecord(); 
@@ -148,17 +203,17 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 								+ " Kmer support starts at %d which is more than %d before the breakpoint start position at %s",
 								de.getEvidenceID(),
 								readString,
-								support.firstStart(), maxSupportStartPositionOffset, de.getBreakendSummary());
+								supportStart, maxSupportStartPositionOffset, de.getBreakendSummary());
 						log.error(msg);
 						// Try to continue
 						//throw new RuntimeException(msg);
-					} else if (support.weight() <= 0) {
-						String msg = String.format("Invalid support weight of %d for evidence %s", support.weight(), de.getEvidenceID());
+					} else if (supportWeight <= 0) {
+						String msg = String.format("Invalid support weight of %d for evidence %s", supportWeight, de.getEvidenceID());
 						log.error(msg);
 						throw new RuntimeException(msg);
 					} else {
-						supportNodes.add(support);
-						hasNonReference |= !support.isReference();
+						supportOffsets.add(i);
+						hasNonReference |= !e.isAnchored(i);
 					}
 				}
 			}
@@ -173,7 +228,11 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 	@Override
 	public KmerSupportNode next() {
 		ensureBuffer();
-		KmerSupportNode node = buffer.poll();
+		if (buffer.isEmpty()) throw new NoSuchElementException();
+		int slot = (int)buffer.dequeueLong();
+		KmerSupportNode node = toNode(nextNode, slot);
+		slotEvidence[slot] = null;
+		freeSlots.add(slot);
 		assert(node.lastStart() >= lastPosition);
 		lastPosition = node.lastStart();		
 		return node;
@@ -181,10 +240,23 @@ public class SupportNodeIterator implements PeekingIterator<KmerSupportNode> {
 	@Override
 	public KmerSupportNode peek() {
 		ensureBuffer();
-		return buffer.peek();
+		if (buffer.isEmpty()) return null;
+		return toNode(peekNode, (int)buffer.firstLong());
+	}
+	private KmerSupportNode toNode(KmerSupportNode flyweight, int slot) {
+		if (reuseNodes) {
+			return flyweight.reset(slotEvidence[slot], slotOffset[slot]);
+		}
+		return new KmerSupportNode(slotEvidence[slot], slotOffset[slot]);
+	}
+	/**
+	 * Start position of the first buffered kmer
+	 */
+	private int bufferStart() {
+		return (int)(buffer.firstLong() >> 32);
 	}
 	private void ensureBuffer() {
-		while (underlying.hasNext() && (buffer.isEmpty() || buffer.peek().lastStart() > inputPosition - emitOffset)) {
+		while (underlying.hasNext() && (buffer.isEmpty() || bufferStart() > inputPosition - emitOffset)) {
 			inputPosition = underlying.peek().getBreakendSummary().start;
 			advance();
 		}
@@ -0,0 +1,141 @@
+package au.edu.wehi.idsv.debruijn.positional;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntHeapPriorityQueue;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/**
+ * Traversal frontier ordered by last kmer end position then last kmer.
+ *
+ * Equivalent to a TreeSet ordered by TraversalNode.ByLastEndKmer, except that
+ * the ordering is performed on a heap of primitive slot indices and arbitrary
+ * removal is O(1). Removed nodes are lazily discarded when they reach the head
+ * of the heap.
+ * 
+ * Membership is by reference. Memoized paths of a node have disjoint intervals
+ * so no two frontier nodes share the same last kmer and end position.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class TraversalNodeFrontier implements Iterable<TraversalNode> {
+	private static final int NO_SLOT = -1;
+	/**
+	 * Slot of each node currently in the frontier
+	 */
+	private final Reference2IntOpenHashMap<TraversalNode> lookup = new Reference2IntOpenHashMap<>();
+	/**
+	 * Frontier node of each slot. Slots of removed nodes are null
+	 * until they are discarded from the heap.
+	 */
+	private TraversalNode[] slotNode = new TraversalNode[64];
+	private int[] slotEnd = new int[64];
+	private long[] slotKmer = new long[64];
+	private int slotsUsed = 0;
+	private final IntArrayList freeSlots = new IntArrayList();
+	private final IntHeapPriorityQueue heap = new IntHeapPriorityQueue((a, b) -> {
+		int cmp = Integer.compare(slotEnd[a], slotEnd[b]);
+		if (cmp != 0) return cmp;
+		return Long.compare(slotKmer[a], slotKmer[b]);
+	});
+	public TraversalNodeFrontier() {
+		lookup.defaultReturnValue(NO_SLOT);
+	}
+	/**
+	 * Adds the given node to the frontier
+	 * @return true if the frontier did not already contain the node
+	 */
+	public boolean add(TraversalNode tn) {
+		if (lookup.containsKey(tn)) return false;
+		int slot = allocateSlot();
+		slotNode[slot] = tn;
+		slotEnd[slot] = tn.node.lastEnd();
+		slotKmer[slot] = tn.node.lastKmer();
+		lookup.put(tn, slot);
+		heap.enqueue(slot);
+		return true;
+	}
+	/**
+	 * Removes the given node from the frontier
+	 * @return true if the node was in the frontier
+	 */
+	public boolean remove(TraversalNode tn) {
+		int slot = lookup.removeInt(tn);
+		if (slot == NO_SLOT) return false;
+		slotNode[slot] = null;
+		if (heap.size() > 2 * lookup.size() + 1024) {
+			compact();
+		}
+		return true;
+	}
+	public boolean contains(TraversalNode tn) {
+		return lookup.containsKey(tn);
+	}
+	public TraversalNode first() {
+		discardRemoved();
+		if (heap.isEmpty()) throw new NoSuchElementException();
+		return slotNode[heap.firstInt()];
+	}
+	public TraversalNode poll() {
+		TraversalNode head = first();
+		lookup.removeInt(head);
+		freeSlot(heap.dequeueInt());
+		return head;
+	}
+	public boolean isEmpty() {
+		return lookup.isEmpty();
+	}
+	public int size() {
+		return lookup.size();
+	}
+	/**
+	 * Iterates over the frontier nodes in no particular order
+	 */
+	@Override
+	public Iterator<TraversalNode> iterator() {
+		return Collections.unmodifiableSet(lookup.keySet()).iterator();
+	}
+	private void discardRemoved() {
+		while (!heap.isEmpty() && slotNode[heap.firstInt()] == null) {
+			freeSlot(heap.dequeueInt());
+		}
+	}
+	/**
+	 * Rebuilds the heap without the slots of removed nodes
+	 */
+	private void compact() {
+		IntArrayList live = new IntArrayList(lookup.size());
+		while (!heap.isEmpty()) {
+			int slot = heap.dequeueInt();
+			if (slotNode[slot] == null) {
+				freeSlot(slot);
+			} else {
+				live.add(slot);
+			}
+		}
+		for (int i = 0; i < live.size(); i++) {
+			heap.enqueue(live.getInt(i));
+		}
+	}
+	private int allocateSlot() {
+		if (!freeSlots.isEmpty()) {
+			return freeSlots.popInt();
+		}
+		if (slotsUsed == slotNode.length) {
+			int size = slotNode.length * 2;
+			slotNode = Arrays.copyOf(slotNode, size);
+			slotEnd = Arrays.copyOf(slotEnd, size);
+			slotKmer = Arrays.copyOf(slotKmer, size);
+		}
+		return slotsUsed++;
+	}
+	private void freeSlot(int slot) {
+		slotNode[slot] = null;
+		freeSlots.add(slot);
+	}
+}
@@ -0,0 +1,317 @@
+package au.edu.wehi.idsv.debruijn.positional;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+
+/**
+ * Addressable priority queue of TraversalNodes.
+ *
+ * Nodes are ordered by either TraversalNode.ByScoreDescPathFirstEndSubnode or
+ * TraversalNode.ByPathFirstStartEndSubnode and, as with a TreeSet using these
+ * orderings, nodes comparing equal are considered duplicates.
+ *
+ * Nodes are held in a 4-ary heap of integer handles. The ordering keys of
+ * each handle are stored in primitive arrays so heap operations do not
+ * dereference the TraversalNode.
+ *
+ * Optionally, nodes can be indexed by the start position of their path.
+ * This allows the best node with a path starting before a given position
+ * to be found without maintaining an additional ordered collection.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class TraversalNodeQueue implements Iterable<TraversalNode> {
+	private static final int NO_HANDLE = -1;
+	private static final int ARITY = 4;
+	/**
+	 * Width of path start position index buckets
+	 */
+	private static final int BUCKET_BITS = 6;
+	/**
+	 * Hash strategy matching the equality semantics of the supported orderings
+	 */
+	private static final Hash.Strategy<TraversalNode> HashByPathFirstStartScoreSubnode = new Hash.Strategy<TraversalNode>() {
+		@Override
+		public int hashCode(TraversalNode tn) {
+			long kmer = tn.node.firstKmer();
+			int result = tn.pathFirstStart();
+			result = 31 * result + tn.score;
+			result = 31 * result + tn.node.firstStart();
+			result = 31 * result + tn.node.firstEnd();
+			result = 31 * result + (int)(kmer ^ (kmer >>> 32));
+			return result;
+		}
+		@Override
+		public boolean equals(TraversalNode a, TraversalNode b) {
+			return (a == b) || (a != null && b != null
+					&& a.score == b.score
+					&& a.pathFirstStart() == b.pathFirstStart()
+					&& a.node.firstStart() == b.node.firstStart()
+					&& a.node.firstEnd() == b.node.firstEnd()
+					&& a.node.firstKmer() == b.node.firstKmer());
+		}
+	};
+	private final boolean byScore;
+	private final boolean indexPathFirstStart;
+	private final Object2IntOpenCustomHashMap<TraversalNode> lookup = new Object2IntOpenCustomHashMap<>(HashByPathFirstStartScoreSubnode);
+	private TraversalNode[] handleNode = new TraversalNode[64];
+	private int[] handleScore = new int[64];
+	private int[] handlePathFirstStart = new int[64];
+	private int[] handleFirstStart = new int[64];
+	private int[] handleFirstEnd = new int[64];
+	private long[] handleFirstKmer = new long[64];
+	private int[] handleHeapIndex = new int[64];
+	private int[] handleBucketIndex = new int[64];
+	private int handlesUsed = 0;
+	private final IntArrayList freeHandles = new IntArrayList();
+	private int[] heap = new int[64];
+	private int size = 0;
+	/**
+	 * Handles bucketed by path start position
+	 */
+	private final Int2ObjectRBTreeMap<Bucket> buckets = new Int2ObjectRBTreeMap<>();
+	private class Bucket {
+		private final IntArrayList members = new IntArrayList(4);
+		/**
+		 * Best member of this bucket. Recalculated on demand after removal of the best member.
+		 */
+		private int best = NO_HANDLE;
+		private boolean bestValid = true;
+		private void add(int handle) {
+			handleBucketIndex[handle] = members.size();
+			members.add(handle);
+			if (bestValid && (best == NO_HANDLE || compare(handle, best) < 0)) {
+				best = handle;
+			}
+		}
+		private void remove(int handle) {
+			int offset = handleBucketIndex[handle];
+			int last = members.popInt();
+			if (last != handle) {
+				members.set(offset, last);
+				handleBucketIndex[last] = offset;
+			}
+			if (best == handle) {
+				best = NO_HANDLE;
+				bestValid = false;
+			}
+		}
+		private int best() {
+			if (!bestValid) {
+				best = NO_HANDLE;
+				for (int i = 0; i < members.size(); i++) {
+					int h = members.getInt(i);
+					if (best == NO_HANDLE || compare(h, best) < 0) {
+						best = h;
+					}
+				}
+				bestValid = true;
+			}
+			return best;
+		}
+	}
+	/**
+	 * @param byScore order by descending score. If false, nodes are ordered by path start position
+	 * @param indexPathFirstStart index nodes by path start position
+	 */
+	public TraversalNodeQueue(boolean byScore, boolean indexPathFirstStart) {
+		this.byScore = byScore;
+		this.indexPathFirstStart = indexPathFirstStart;
+		lookup.defaultReturnValue(NO_HANDLE);
+	}
+	private int compare(int a, int b) {
+		int cmp;
+		if (byScore) {
+			cmp = Integer.compare(handleScore[b], handleScore[a]);
+			if (cmp != 0) return cmp;
+		}
+		cmp = Integer.compare(handlePathFirstStart[a], handlePathFirstStart[b]);
+		if (cmp != 0) return cmp;
+		cmp = Integer.compare(handleScore[a], handleScore[b]);
+		if (cmp != 0) return cmp;
+		cmp = Integer.compare(handleFirstStart[a], handleFirstStart[b]);
+		if (cmp != 0) return cmp;
+		cmp = Integer.compare(handleFirstEnd[a], handleFirstEnd[b]);
+		if (cmp != 0) return cmp;
+		return Long.compare(handleFirstKmer[a], handleFirstKmer[b]);
+	}
+	/**
+	 * Adds the given node
+	 * @return true if no equivalent node was already present
+	 */
+	public boolean add(TraversalNode tn) {
+		if (lookup.containsKey(tn)) return false;
+		int handle = allocateHandle();
+		handleNode[handle] = tn;
+		handleScore[handle] = tn.score;
+		handlePathFirstStart[handle] = tn.pathFirstStart();
+		handleFirstStart[handle] = tn.node.firstStart();
+		handleFirstEnd[handle] = tn.node.firstEnd();
+		handleFirstKmer[handle] = tn.node.firstKmer();
+		lookup.put(tn, handle);
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * size);
+		}
+		heap[size] = handle;
+		handleHeapIndex[handle] = size;
+		size++;
+		siftUp(size - 1);
+		if (indexPathFirstStart) {
+			int key = handlePathFirstStart[handle] >> BUCKET_BITS;
+			Bucket bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new Bucket();
+				buckets.put(key, bucket);
+			}
+			bucket.add(handle);
+		}
+		return true;
+	}
+	/**
+	 * Removes the given node
+	 * @return true if an equivalent node was present
+	 */
+	public boolean remove(TraversalNode tn) {
+		int handle = lookup.removeInt(tn);
+		if (handle == NO_HANDLE) return false;
+		int index = handleHeapIndex[handle];
+		size--;
+		if (index != size) {
+			heap[index] = heap[size];
+			handleHeapIndex[heap[index]] = index;
+			siftDown(index);
+			siftUp(index);
+		}
+		if (indexPathFirstStart) {
+			int key = handlePathFirstStart[handle] >> BUCKET_BITS;
+			Bucket bucket = buckets.get(key);
+			bucket.remove(handle);
+			if (bucket.members.isEmpty()) {
+				buckets.remove(key);
+			}
+		}
+		handleNode[handle] = null;
+		freeHandles.add(handle);
+		return true;
+	}
+	public void removeAll(Iterable<TraversalNode> tns) {
+		for (TraversalNode tn : tns) {
+			remove(tn);
+		}
+	}
+	public boolean contains(TraversalNode tn) {
+		return lookup.containsKey(tn);
+	}
+	public TraversalNode first() {
+		if (size == 0) throw new NoSuchElementException();
+		return handleNode[heap[0]];
+	}
+	/**
+	 * Returns the first node with a path starting before the given position
+	 * @param position position path must start before
+	 * @return first such node, null if no such node exists
+	 */
+	public TraversalNode firstStartingBefore(int position) {
+		if (!indexPathFirstStart) throw new IllegalStateException("Path start position not indexed");
+		int positionKey = position >> BUCKET_BITS;
+		int best = NO_HANDLE;
+		for (Bucket bucket : buckets.headMap(positionKey).values()) {
+			int h = bucket.best();
+			if (best == NO_HANDLE || compare(h, best) < 0) {
+				best = h;
+			}
+		}
+		Bucket partial = buckets.get(positionKey);
+		if (partial != null) {
+			for (int i = 0; i < partial.members.size(); i++) {
+				int h = partial.members.getInt(i);
+				if (handlePathFirstStart[h] < position && (best == NO_HANDLE || compare(h, best) < 0)) {
+					best = h;
+				}
+			}
+		}
+		return best == NO_HANDLE ? null : handleNode[best];
+	}
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	public int size() {
+		return size;
+	}
+	/**
+	 * Iterates over the nodes in no particular order
+	 */
+	@Override
+	public Iterator<TraversalNode> iterator() {
+		return new Iterator<TraversalNode>() {
+			private int offset = 0;
+			@Override
+			public boolean hasNext() {
+				return offset < size;
+			}
+			@Override
+			public TraversalNode next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return handleNode[heap[offset++]];
+			}
+		};
+	}
+	private void siftUp(int index) {
+		int handle = heap[index];
+		while (index > 0) {
+			int parentIndex = (index - 1) / ARITY;
+			int parent = heap[parentIndex];
+			if (compare(handle, parent) >= 0) break;
+			heap[index] = parent;
+			handleHeapIndex[parent] = index;
+			index = parentIndex;
+		}
+		heap[index] = handle;
+		handleHeapIndex[handle] = index;
+	}
+	private void siftDown(int index) {
+		int handle = heap[index];
+		while (true) {
+			int firstChild = ARITY * index + 1;
+			if (firstChild >= size) break;
+			int bestChildIndex = firstChild;
+			int lastChild = Math.min(firstChild + ARITY, size);
+			for (int i = firstChild + 1; i < lastChild; i++) {
+				if (compare(heap[i], heap[bestChildIndex]) < 0) {
+					bestChildIndex = i;
+				}
+			}
+			int bestChild = heap[bestChildIndex];
+			if (compare(bestChild, handle) >= 0) break;
+			heap[index] = bestChild;
+			handleHeapIndex[bestChild] = index;
+			index = bestChildIndex;
+		}
+		heap[index] = handle;
+		handleHeapIndex[handle] = index;
+	}
+	private int allocateHandle() {
+		if (!freeHandles.isEmpty()) {
+			return freeHandles.popInt();
+		}
+		if (handlesUsed == handleNode.length) {
+			int length = 2 * handleNode.length;
+			handleNode = Arrays.copyOf(handleNode, length);
+			handleScore = Arrays.copyOf(handleScore, length);
+			handlePathFirstStart = Arrays.copyOf(handlePathFirstStart, length);
+			handleFirstStart = Arrays.copyOf(handleFirstStart, length);
+			handleFirstEnd = Arrays.copyOf(handleFirstEnd, length);
+			handleFirstKmer = Arrays.copyOf(handleFirstKmer, length);
+			handleHeapIndex = Arrays.copyOf(handleHeapIndex, length);
+			handleBucketIndex = Arrays.copyOf(handleBucketIndex, length);
+		}
+		return handlesUsed++;
+	}
+}
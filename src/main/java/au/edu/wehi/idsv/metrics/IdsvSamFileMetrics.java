@@ -139,7 +139,15 @@ public class IdsvSamFileMetrics {
 	 * @return phred-scaled likelihood of a fragment as or more extreme
 	 */
 	public double getReadPairPhred(int fragmentSize) {
-		return MathUtil.prToPhred(readPairFoldedCumulativeDistribution(fragmentSize));
+		double[] table = getReadPairPhredTable();
+		if (table == null) {
+			return MathUtil.prToPhred(readPairFoldedCumulativeDistribution(fragmentSize));
+		}
+		if (fragmentSize < 0 || fragmentSize >= table.length) {
+			// outside the fragment size distribution
+			fragmentSize = 0;
+		}
+		return table[fragmentSize];
 	}
 	public double readPairFoldedCumulativeDistribution(int fragmentSize) {
 		double pairsFromFragmentDistribution = 0;
@@ -147,14 +155,62 @@ public class IdsvSamFileMetrics {
 			if (fragmentSize >= insertDistribution.getSupportLowerBound() && fragmentSize <= insertDistribution.getSupportUpperBound()) {
 				double prUpper = 1.0 - insertDistribution.cumulativeProbability(fragmentSize - 1);
 				double prLower = insertDistribution.cumulativeProbability(fragmentSize);
-				double pr = Math.min(prUpper, prLower);
-				pairsFromFragmentDistribution = pr * insertDistribution.getTotalMappedPairs();
+				pairsFromFragmentDistribution = readPairsFromFragmentDistribution(prUpper, prLower);
 			}
 		}
+		return readPairFoldedCumulativeDistribution(pairsFromFragmentDistribution);
+	}
+	private double readPairsFromFragmentDistribution(double prUpper, double prLower) {
+		double pr = Math.min(prUpper, prLower);
+		return pr * insertDistribution.getTotalMappedPairs();
+	}
+	private double readPairFoldedCumulativeDistribution(double pairsFromFragmentDistribution) {
 		double totalPairs = idsvMetrics.READ_PAIRS_BOTH_MAPPED;
 		double dpPairs = totalPairs - insertDistribution.getTotalMappedPairs() + pairsFromFragmentDistribution;
 		return dpPairs / totalPairs;
 	}
+	/**
+	 * Largest fragment size for which read pair scores are precomputed
+	 */
+	private static final int MAX_READ_PAIR_PHRED_TABLE_FRAGMENT_SIZE = 1 << 20;
+	private volatile boolean readPairPhredInitialised = false;
+	private double[] readPairPhred = null;
+	/**
+	 * Gets the read pair phred score of every fragment size up to the upper bound
+	 * of the fragment size distribution. Fragment sizes outside the distribution
+	 * have the same score as a fragment size of zero.
+	 * @return read pair phred scores indexed by fragment size, null if scores could not be precomputed
+	 */
+	private double[] getReadPairPhredTable() {
+		if (!readPairPhredInitialised) {
+			synchronized (this) {
+				if (!readPairPhredInitialised) {
+					readPairPhred = createReadPairPhredTable();
+					readPairPhredInitialised = true;
+				}
+			}
+		}
+		return readPairPhred;
+	}
+	private double[] createReadPairPhredTable() {
+		if (insertDistribution == null || idsvMetrics == null) return null;
+		int lower = insertDistribution.getSupportLowerBound();
+		int upper = insertDistribution.getSupportUpperBound();
+		if (upper < lower || upper < 0 || upper > MAX_READ_PAIR_PHRED_TABLE_FRAGMENT_SIZE) return null;
+		double[] cumulative = insertDistribution.cumulativeProbabilityTable();
+		double[] table = new double[upper + 1];
+		for (int fragmentSize = 0; fragmentSize <= upper; fragmentSize++) {
+			double pairsFromFragmentDistribution = 0;
+			if (fragmentSize > 0 && fragmentSize >= lower) {
+				// cumulative probability below the support of the distribution is zero
+				double prUpper = 1.0 - (fragmentSize - 1 >= lower ? cumulative[fragmentSize - 1 - lower] : 0);
+				double prLower = cumulative[fragmentSize - lower];
+				pairsFromFragmentDistribution = readPairsFromFragmentDistribution(prUpper, prLower);
+			}
+			table[fragmentSize] = MathUtil.prToPhred(readPairFoldedCumulativeDistribution(pairsFromFragmentDistribution));
+		}
+		return table;
+	}
 	
 	/**
 	 * Sort order of soft clips by soft clip length
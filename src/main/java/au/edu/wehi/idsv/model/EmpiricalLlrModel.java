@@ -1,8 +1,5 @@
 package au.edu.wehi.idsv.model;
 
-import com.google.common.primitives.Doubles;
-import com.google.common.primitives.Ints;
-
 import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
 import au.edu.wehi.idsv.util.MathUtil;
 import gridss.analysis.IdsvMetrics;
@@ -20,8 +17,11 @@ public class EmpiricalLlrModel implements VariantScoringModel {
 		double likelihoodRatio =  (prEgivenMR + prM * (prEgivenMV - prEgivenMR)) / prEgivenMR;
 		return Math.log10(likelihoodRatio);
 	}
-	private double llr(double prEgivenMR, double prEgivenMV, int... mapq) {
-		return llr(prEgivenMR, prEgivenMV, 1 - MathUtil.phredToPr(MathUtil.phredOr(Doubles.toArray(Ints.asList(mapq)))));
+	private double llr(double prEgivenMR, double prEgivenMV, int mapq) {
+		return llr(prEgivenMR, prEgivenMV, MapqTables.prMapped(mapq));
+	}
+	private double llr(double prEgivenMR, double prEgivenMV, int mapq1, int mapq2) {
+		return llr(prEgivenMR, prEgivenMV, MapqTables.prMapped(mapq1, mapq2));
 	}
 	
 	@Override
@@ -9,30 +9,43 @@ import htsjdk.samtools.CigarOperator;
  * Scoring model based on the likelihood of the evidence and
  * a correct mapping.
  * 
+ * Mapping error probabilities are looked up from precomputed MAPQ tables.
+ * Scores are within floating point tolerance of combining the phred scores
+ * directly using {@link MathUtil#phredOr(double...)}.
+ * 
  * @author Daniel Cameron
  *
  */
 public class EmpiricalReferenceLikelihoodModel implements VariantScoringModel {
+	/**
+	 * Phred-scaled probability of either the evidence or the mapping being in error
+	 * @param phred phred-scaled likelihood of the evidence under the reference model
+	 * @param prMappingError probability of incorrect mapping
+	 */
+	private static double phredOr(double phred, double prMappingError) {
+		double pr = MathUtil.phredToPr(phred);
+		return MathUtil.prToPhred(pr + prMappingError - pr * prMappingError);
+	}
 	@Override
 	public double scoreSplitRead(IdsvSamFileMetrics metrics, int softclipLength, int mapq1, int mapq2) {
-		double score = MathUtil.phredOr(metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, softclipLength), mapq1, mapq2);
+		double score = phredOr(metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, softclipLength), MapqTables.prError(mapq1, mapq2));
 		return score;
 	}
 
 	@Override
 	public double scoreSoftClip(IdsvSamFileMetrics metrics, int softclipLength, int mapq) {
-		double score = MathUtil.phredOr(metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, softclipLength), mapq);
+		double score = phredOr(metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, softclipLength), MapqTables.prError(mapq));
 		return score;
 	}
 	
 	@Override
 	public double scoreIndel(IdsvSamFileMetrics metrics, CigarOperator op, int length, int mapq) {
-		double score = MathUtil.phredOr(metrics.getCigarDistribution().getPhred(op, length), mapq);
+		double score = phredOr(metrics.getCigarDistribution().getPhred(op, length), MapqTables.prError(mapq));
 		return score;
 	}
 	@Override
 	public double scoreReadPair(IdsvSamFileMetrics metrics, int fragmentSize, int mapq1, int mapq2) {
-		double score = MathUtil.phredOr(metrics.getReadPairPhred(fragmentSize), mapq1, mapq2);
+		double score = phredOr(metrics.getReadPairPhred(fragmentSize), MapqTables.prError(mapq1, mapq2));
 		return score;
 	}
 
@@ -41,7 +54,7 @@ public class EmpiricalReferenceLikelihoodModel implements VariantScoringModel {
 		IdsvMetrics im = metrics.getIdsvMetrics();
 		// completely unmapped read pairs are excluded for consistency with sc and dp calculation
 		double prEgivenRM = (double)im.READ_PAIRS_ONE_MAPPED / (double)(im.READ_PAIRS - im.READ_PAIRS_ZERO_MAPPED);
-		double score = MathUtil.phredOr(MathUtil.prToPhred(prEgivenRM), mapq);
+		double score = phredOr(MathUtil.prToPhred(prEgivenRM), MapqTables.prError(mapq));
 		return score;
 	}
 }
@@ -13,7 +13,7 @@ import htsjdk.samtools.CigarOperator;
 public class MapqModel implements VariantScoringModel {
 	@Override
 	public double scoreSplitRead(IdsvSamFileMetrics metrics, int softclipLength, int mapq1, int mapq2) {
-		return MathUtil.phredOr(mapq1, mapq2);
+		return MapqTables.phredOr(mapq1, mapq2);
 	}
 
 	@Override
@@ -28,7 +28,7 @@ public class MapqModel implements VariantScoringModel {
 
 	@Override
 	public double scoreReadPair(IdsvSamFileMetrics metrics, int fragmentSize, int mapq1, int mapq2) {
-		return MathUtil.phredOr(mapq1, mapq2);
+		return MapqTables.phredOr(mapq1, mapq2);
 	}
 
 	@Override
@@ -0,0 +1,106 @@
+package au.edu.wehi.idsv.model;
+
+import au.edu.wehi.idsv.util.MathUtil;
+
+/**
+ * Precomputed mapping error probabilities for every MAPQ and MAPQ pair in 0-255.
+ *
+ * Table entries are calculated with the same operations as direct calculation
+ * so lookups are identical to calling {@link MathUtil} directly.
+ *
+ * @author Daniel Cameron
+ *
+ */
+final class MapqTables {
+	private MapqTables() { }
+	/**
+	 * Largest MAPQ for which mapping probabilities are precomputed
+	 */
+	static final int MAX_PRECOMPUTED_MAPQ = 255;
+	private static final int MAPQ_VALUES = MAX_PRECOMPUTED_MAPQ + 1;
+	/**
+	 * Probability that a read with the given MAPQ is incorrectly mapped
+	 */
+	private static final double[] PR_ERROR = new double[MAPQ_VALUES];
+	/**
+	 * Probability that a read with the given MAPQ is correctly mapped
+	 */
+	private static final double[] PR_MAPPED = new double[MAPQ_VALUES];
+	/**
+	 * Phred-scaled probability that either read with the given MAPQs is incorrectly mapped
+	 */
+	private static final double[] PHRED_EITHER_ERROR = new double[MAPQ_VALUES * MAPQ_VALUES];
+	/**
+	 * Probability that either read with the given MAPQs is incorrectly mapped
+	 */
+	private static final double[] PR_EITHER_ERROR = new double[MAPQ_VALUES * MAPQ_VALUES];
+	/**
+	 * Probability that both reads with the given MAPQs are correctly mapped
+	 */
+	private static final double[] PR_BOTH_MAPPED = new double[MAPQ_VALUES * MAPQ_VALUES];
+	static {
+		for (int mapq1 = 0; mapq1 <= MAX_PRECOMPUTED_MAPQ; mapq1++) {
+			PR_ERROR[mapq1] = calcPrError(mapq1);
+			PR_MAPPED[mapq1] = calcPrMapped(mapq1);
+			for (int mapq2 = 0; mapq2 <= MAX_PRECOMPUTED_MAPQ; mapq2++) {
+				int offset = mapq1 * MAPQ_VALUES + mapq2;
+				PHRED_EITHER_ERROR[offset] = calcPhredOr(mapq1, mapq2);
+				PR_EITHER_ERROR[offset] = calcPrError(mapq1, mapq2);
+				PR_BOTH_MAPPED[offset] = calcPrMapped(mapq1, mapq2);
+			}
+		}
+	}
+	private static double calcPrError(int mapq) {
+		return MathUtil.phredToPr(mapq);
+	}
+	private static double calcPrMapped(int mapq) {
+		return 1 - MathUtil.phredToPr(MathUtil.phredOr(mapq));
+	}
+	private static double calcPhredOr(int mapq1, int mapq2) {
+		return MathUtil.phredOr(mapq1, mapq2);
+	}
+	private static double calcPrError(int mapq1, int mapq2) {
+		return MathUtil.phredToPr(MathUtil.phredOr(mapq1, mapq2));
+	}
+	private static double calcPrMapped(int mapq1, int mapq2) {
+		return 1 - MathUtil.phredToPr(MathUtil.phredOr(mapq1, mapq2));
+	}
+	static boolean isPrecomputed(int mapq) {
+		return mapq >= 0 && mapq <= MAX_PRECOMPUTED_MAPQ;
+	}
+	/**
+	 * @return probability that a read with the given MAPQ is incorrectly mapped
+	 */
+	static double prError(int mapq) {
+		if (!isPrecomputed(mapq)) return calcPrError(mapq);
+		return PR_ERROR[mapq];
+	}
+	/**
+	 * @return probability that a read with the given MAPQ is correctly mapped
+	 */
+	static double prMapped(int mapq) {
+		if (!isPrecomputed(mapq)) return calcPrMapped(mapq);
+		return PR_MAPPED[mapq];
+	}
+	/**
+	 * @return phred-scaled probability that either read is incorrectly mapped
+	 */
+	static double phredOr(int mapq1, int mapq2) {
+		if (!isPrecomputed(mapq1) || !isPrecomputed(mapq2)) return calcPhredOr(mapq1, mapq2);
+		return PHRED_EITHER_ERROR[mapq1 * MAPQ_VALUES + mapq2];
+	}
+	/**
+	 * @return probability that either read is incorrectly mapped
+	 */
+	static double prError(int mapq1, int mapq2) {
+		if (!isPrecomputed(mapq1) || !isPrecomputed(mapq2)) return calcPrError(mapq1, mapq2);
+		return PR_EITHER_ERROR[mapq1 * MAPQ_VALUES + mapq2];
+	}
+	/**
+	 * @return probability that both reads are correctly mapped
+	 */
+	static double prMapped(int mapq1, int mapq2) {
+		if (!isPrecomputed(mapq1) || !isPrecomputed(mapq2)) return calcPrMapped(mapq1, mapq2);
+		return PR_BOTH_MAPPED[mapq1 * MAPQ_VALUES + mapq2];
+	}
+}
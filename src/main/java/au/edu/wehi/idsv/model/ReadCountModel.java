@@ -1,5 +1,7 @@
 package au.edu.wehi.idsv.model;
 
+import java.util.Arrays;
+
 import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
 import htsjdk.samtools.CigarOperator;
 
@@ -35,6 +37,26 @@ public class ReadCountModel implements VariantScoringModel {
 		return 1;
 	}
 	@Override
+	public void scoreSplitReads(IdsvSamFileMetrics metrics, int[] softclipLength, int[] mapq1, int[] mapq2, float[] scores) {
+		Arrays.fill(scores, 1);
+	}
+	@Override
+	public void scoreSoftClips(IdsvSamFileMetrics metrics, int[] softclipLength, int[] mapq, float[] scores) {
+		Arrays.fill(scores, 1);
+	}
+	@Override
+	public void scoreIndels(IdsvSamFileMetrics metrics, CigarOperator[] op, int[] length, int[] mapq, float[] scores) {
+		Arrays.fill(scores, 1);
+	}
+	@Override
+	public void scoreReadPairs(IdsvSamFileMetrics metrics, int[] fragmentSize, int[] mapq1, int[] mapq2, float[] scores) {
+		Arrays.fill(scores, 1);
+	}
+	@Override
+	public void scoreUnmappedMates(IdsvSamFileMetrics metrics, int[] mapq, float[] scores) {
+		Arrays.fill(scores, 1);
+	}
+	@Override
 	public double scoreAssembly(int rp, double rpq, int sc, double scq, int localMapq, int remoteMapq) {
 		return rp + sc;
 	}
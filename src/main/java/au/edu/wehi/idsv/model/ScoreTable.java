@@ -0,0 +1,93 @@
+package au.edu.wehi.idsv.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
+import htsjdk.samtools.CigarOperator;
+
+/**
+ * Per-sample precomputed evidence scores for evidence scored from a single
+ * length and a single MAPQ.
+ *
+ * Entries are the scores returned by the model converted to float, as
+ * evidence scores are stored as float. Soft clip and indel scores are
+ * tabulated for every length with a distinct cigar size phred score, and
+ * every MAPQ in 0-255. Scores outside the table are calculated directly.
+ *
+ * Tables assume that the model uses the evidence length only through
+ * the sample {@link gridss.analysis.CigarSizeDistribution}.
+ *
+ * Split reads and read pairs are scored from two MAPQs and are too large to
+ * tabulate. Models score these using the precomputed {@link MapqTables}.
+ *
+ * @author Daniel Cameron
+ *
+ */
+class ScoreTable {
+	private static final int MAPQ_VALUES = MapqTables.MAX_PRECOMPUTED_MAPQ + 1;
+	/**
+	 * Tables of each sample and model. Tables do not reference their sample
+	 * or model so unused samples and models can be collected.
+	 */
+	private static final Map<IdsvSamFileMetrics, Map<VariantScoringModel, ScoreTable>> cache = new WeakHashMap<>();
+	private final float[] softClip;
+	private final float[] insertion;
+	private final float[] deletion;
+	private final float[] unmappedMate;
+	private ScoreTable(VariantScoringModel model, IdsvSamFileMetrics metrics) {
+		this.softClip = createCigarTable(model, metrics, CigarOperator.SOFT_CLIP);
+		this.insertion = createCigarTable(model, metrics, CigarOperator.INSERTION);
+		this.deletion = createCigarTable(model, metrics, CigarOperator.DELETION);
+		this.unmappedMate = new float[MAPQ_VALUES];
+		for (int mapq = 0; mapq < MAPQ_VALUES; mapq++) {
+			unmappedMate[mapq] = (float)model.scoreUnmappedMate(metrics, mapq);
+		}
+	}
+	/**
+	 * Gets the score table of the given model for the given sample.
+	 * The same model and sample must be passed when scoring using the table.
+	 */
+	public static ScoreTable get(VariantScoringModel model, IdsvSamFileMetrics metrics) {
+		Map<VariantScoringModel, ScoreTable> sampleTables;
+		synchronized (cache) {
+			sampleTables = cache.computeIfAbsent(metrics, m -> Collections.synchronizedMap(new WeakHashMap<>()));
+		}
+		// tables are deterministic so concurrent construction is harmless
+		return sampleTables.computeIfAbsent(model, m -> new ScoreTable(m, metrics));
+	}
+	private static float[] createCigarTable(VariantScoringModel model, IdsvSamFileMetrics metrics, CigarOperator op) {
+		int lengths = metrics.getCigarDistribution().getMaxDistinctLength(op) + 1;
+		float[] table = new float[lengths * MAPQ_VALUES];
+		for (int length = 0; length < lengths; length++) {
+			for (int mapq = 0; mapq < MAPQ_VALUES; mapq++) {
+				table[length * MAPQ_VALUES + mapq] = op == CigarOperator.SOFT_CLIP
+						? (float)model.scoreSoftClip(metrics, length, mapq)
+						: (float)model.scoreIndel(metrics, op, length, mapq);
+			}
+		}
+		return table;
+	}
+	private static int offset(float[] table, int length, int mapq) {
+		if (length < 0 || !MapqTables.isPrecomputed(mapq)) return -1;
+		// all longer lengths share the score of the longest tabulated length
+		int lengths = table.length / MAPQ_VALUES;
+		return Math.min(length, lengths - 1) * MAPQ_VALUES + mapq;
+	}
+	public float scoreSoftClip(VariantScoringModel model, IdsvSamFileMetrics metrics, int softclipLength, int mapq) {
+		int offset = offset(softClip, softclipLength, mapq);
+		if (offset < 0) return (float)model.scoreSoftClip(metrics, softclipLength, mapq);
+		return softClip[offset];
+	}
+	public float scoreIndel(VariantScoringModel model, IdsvSamFileMetrics metrics, CigarOperator op, int length, int mapq) {
+		float[] table = op == CigarOperator.INSERTION ? insertion : op == CigarOperator.DELETION ? deletion : null;
+		int offset = table == null ? -1 : offset(table, length, mapq);
+		if (offset < 0) return (float)model.scoreIndel(metrics, op, length, mapq);
+		return table[offset];
+	}
+	public float scoreUnmappedMate(VariantScoringModel model, IdsvSamFileMetrics metrics, int mapq) {
+		if (!MapqTables.isPrecomputed(mapq)) return (float)model.scoreUnmappedMate(metrics, mapq);
+		return unmappedMate[mapq];
+	}
+}
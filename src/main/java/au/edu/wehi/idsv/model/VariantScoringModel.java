@@ -9,6 +9,55 @@ public interface VariantScoringModel {
 	double scoreIndel(IdsvSamFileMetrics metrics, CigarOperator op, int length, int mapq);
 	double scoreReadPair(IdsvSamFileMetrics metrics, int fragmentSize, int mapq1, int mapq2);
 	double scoreUnmappedMate(IdsvSamFileMetrics metrics, int mapq);
+	/**
+	 * Scores a batch of split reads. Scores are identical to the single
+	 * evidence scores converted to float.
+	 * @param scores output scores. The batch size is the length of this array.
+	 */
+	default void scoreSplitReads(IdsvSamFileMetrics metrics, int[] softclipLength, int[] mapq1, int[] mapq2, float[] scores) {
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = (float)scoreSplitRead(metrics, softclipLength[i], mapq1[i], mapq2[i]);
+		}
+	}
+	/**
+	 * Scores a batch of soft clips using the precomputed score table of the sample.
+	 * @param scores output scores. The batch size is the length of this array.
+	 */
+	default void scoreSoftClips(IdsvSamFileMetrics metrics, int[] softclipLength, int[] mapq, float[] scores) {
+		ScoreTable table = ScoreTable.get(this, metrics);
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = table.scoreSoftClip(this, metrics, softclipLength[i], mapq[i]);
+		}
+	}
+	/**
+	 * Scores a batch of indels using the precomputed score table of the sample.
+	 * @param scores output scores. The batch size is the length of this array.
+	 */
+	default void scoreIndels(IdsvSamFileMetrics metrics, CigarOperator[] op, int[] length, int[] mapq, float[] scores) {
+		ScoreTable table = ScoreTable.get(this, metrics);
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = table.scoreIndel(this, metrics, op[i], length[i], mapq[i]);
+		}
+	}
+	/**
+	 * Scores a batch of discordant read pairs.
+	 * @param scores output scores. The batch size is the length of this array.
+	 */
+	default void scoreReadPairs(IdsvSamFileMetrics metrics, int[] fragmentSize, int[] mapq1, int[] mapq2, float[] scores) {
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = (float)scoreReadPair(metrics, fragmentSize[i], mapq1[i], mapq2[i]);
+		}
+	}
+	/**
+	 * Scores a batch of unmapped mates using the precomputed score table of the sample.
+	 * @param scores output scores. The batch size is the length of this array.
+	 */
+	default void scoreUnmappedMates(IdsvSamFileMetrics metrics, int[] mapq, float[] scores) {
+		ScoreTable table = ScoreTable.get(this, metrics);
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = table.scoreUnmappedMate(this, metrics, mapq[i]);
+		}
+	}
 	default double scoreBreakendAssembly(int rp, double rpq, int sc, double scq, int localMapq) {
 		double qual = rpq + scq;
 		qual = Math.min(localMapq * (rp + sc), qual);
@@ -15,7 +15,6 @@ import htsjdk.samtools.Cigar;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMTag;
-import htsjdk.samtools.TextCigarCodec;
 
 /**
  * SA Z Other canonical alignments in a chimeric alignment, formatted as a semicolon-delimited
@@ -32,7 +31,12 @@ public class ChimericAlignment {
 	public final Cigar cigar;
 	public final int mapq;
 	public final Integer nm;
-	public ChimericAlignment(String rname, int pos, boolean isNegativeStrand, Cigar cigar, int mapq, int nm) {
+	private static final ThreadLocal<ChimericAlignmentCursor> cursor = ThreadLocal.withInitial(() -> new ChimericAlignmentCursor());
+	/**
+	 * Transient attribute key of the parsed SA tag
+	 */
+	private static final Object PARSED_SA_TAG = new Object();
+	public ChimericAlignment(String rname, int pos, boolean isNegativeStrand, Cigar cigar, int mapq, Integer nm) {
 		this.rname = rname;
 		this.pos = pos;
 		this.isNegativeStrand = isNegativeStrand;
@@ -49,36 +53,71 @@ public class ChimericAlignment {
 		this.nm = r.getIntegerAttribute(SAMTag.NM.name());
 	}
 	public ChimericAlignment(String str) {
-		str = str.replace(';', ' ').trim();
-		String[] splits = str.split(",");
-		this.rname = splits[0];
-		this.pos = Integer.parseInt(splits[1]);
-		this.isNegativeStrand = "-".equals(splits[2]);
-		this.cigar = TextCigarCodec.decode(splits[3]);
-		this.mapq = Integer.parseInt(splits[4]);
-		Integer nmParsed = null;
-		try {
-			if (splits.length >= 6) {
-				nmParsed = Integer.parseInt(splits[5]);
-			}
-		} catch (NumberFormatException nfe) {
-			// swallow and fall back to null
-		}
-		this.nm = nmParsed;
+		this(first(str));
+	}
+	private ChimericAlignment(ChimericAlignmentCursor c) {
+		this.rname = c.getReferenceName();
+		this.pos = c.getPosition();
+		this.isNegativeStrand = c.isNegativeStrand();
+		this.cigar = c.getCigar().toCigar();
+		this.mapq = c.getMappingQuality();
+		this.nm = c.hasNm() ? c.getNm() : null;
+	}
+	private static ChimericAlignmentCursor first(String str) {
+		ChimericAlignmentCursor c = new ChimericAlignmentCursor().reset(str);
+		if (!c.next()) throw new IllegalArgumentException(String.format("Missing alignment \"%s\"", str));
+		return c;
 	}
 	public static List<ChimericAlignment> getChimericAlignments(String sa) {
 		if (StringUtils.isEmpty(sa)) return Collections.emptyList();
 		List<ChimericAlignment> list = new ArrayList<ChimericAlignment>();
-		String[] splits = sa.split(";");
-		for (String s : splits) {
-			if (!StringUtils.isEmpty(sa)) {
-				list.add(new ChimericAlignment(s));
-			}
+		ChimericAlignmentCursor c = cursor.get().reset(sa);
+		while (c.next()) {
+			list.add(new ChimericAlignment(c));
 		}
 		return list;
 	}
+	/**
+	 * Gets the alignments of the SA tag of the given record.
+	 * 
+	 * The parsed tag is cached on the record so records are only parsed once
+	 * regardless of how many times this is called.
+	 * @param r record
+	 * @return new list containing the split alignments of the record
+	 */
 	public static List<ChimericAlignment> getChimericAlignments(SAMRecord r) {
-		return getChimericAlignments(r.getStringAttribute(SAMTag.SA.name()));
+		String sa = r.getStringAttribute(SAMTag.SA.name());
+		if (StringUtils.isEmpty(sa)) return new ArrayList<>(0);
+		ParsedTag parsed = (ParsedTag)r.getTransientAttribute(PARSED_SA_TAG);
+		// identity comparison as any update to the tag replaces the attribute value
+		if (parsed == null || parsed.sa != sa) {
+			parsed = new ParsedTag(sa, getChimericAlignments(sa));
+			r.setTransientAttribute(PARSED_SA_TAG, parsed);
+		}
+		return new ArrayList<>(parsed.alignments);
+	}
+	/**
+	 * Sets the SA tag of the given record to the given alignments.
+	 * @param r record to update
+	 * @param alignments split alignments of the record
+	 */
+	public static void setChimericAlignments(SAMRecord r, List<ChimericAlignment> alignments) {
+		StringBuilder sb = new StringBuilder();
+		for (ChimericAlignment ca : alignments) {
+			if (sb.length() > 0) sb.append(';');
+			sb.append(ca.toString());
+		}
+		String sa = sb.toString();
+		r.setAttribute(SAMTag.SA.name(), sa);
+		r.setTransientAttribute(PARSED_SA_TAG, new ParsedTag(sa, new ArrayList<>(alignments)));
+	}
+	private static class ParsedTag {
+		private final String sa;
+		private final List<ChimericAlignment> alignments;
+		public ParsedTag(String sa, List<ChimericAlignment> alignments) {
+			this.sa = sa;
+			this.alignments = alignments;
+		}
 	}
 	private BreakendSummary startBreakend(SAMSequenceDictionary dict) {
 		return new BreakendSummary(dict.getSequenceIndex(rname), BreakendDirection.Backward, pos);
@@ -0,0 +1,191 @@
+package au.edu.wehi.idsv.sam;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+
+/**
+ * Reusable cursor over the alignments of a SA tag.
+ *
+ * Fields are parsed directly from the tag text as primitives without splitting the tag into
+ * intermediate strings. Reference names are resolved against the sequence dictionary
+ * through a lookup table keyed on the characters of the tag.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class ChimericAlignmentCursor {
+	private final TextCigarParser cigar = new TextCigarParser();
+	private String sa;
+	private int offset;
+	private int alignmentStart;
+	private int alignmentEnd;
+	private int rnameStart;
+	private int rnameEnd;
+	private int pos;
+	private boolean isNegativeStrand;
+	private int mapq;
+	private boolean hasNm;
+	private int nm;
+	private SAMSequenceDictionary dict;
+	private String[] names;
+	private int[] lookup;
+	/**
+	 * Starts iterating over the alignments of the given SA tag
+	 * @param sa SA tag value. A null tag is treated as an empty tag
+	 * @return this cursor
+	 */
+	public ChimericAlignmentCursor reset(String sa) {
+		this.sa = sa == null ? "" : sa;
+		this.offset = 0;
+		return this;
+	}
+	/**
+	 * Advances to the next alignment
+	 * @return true if an alignment was found, false if all alignments have been read
+	 */
+	public boolean next() {
+		// skip empty alignments and whitespace separators
+		while (offset < sa.length() && (sa.charAt(offset) == ';' || Character.isWhitespace(sa.charAt(offset)))) {
+			offset++;
+		}
+		if (offset >= sa.length()) return false;
+		alignmentStart = offset;
+		alignmentEnd = sa.indexOf(';', offset);
+		if (alignmentEnd < 0) alignmentEnd = sa.length();
+		while (alignmentEnd > alignmentStart && Character.isWhitespace(sa.charAt(alignmentEnd - 1))) {
+			alignmentEnd--;
+		}
+		offset = alignmentEnd;
+		int fieldStart = alignmentStart;
+		int fieldEnd = nextComma(fieldStart);
+		rnameStart = fieldStart;
+		rnameEnd = fieldEnd;
+		fieldStart = fieldEnd + 1;
+		fieldEnd = nextComma(fieldStart);
+		pos = parseInt(fieldStart, fieldEnd);
+		fieldStart = fieldEnd + 1;
+		fieldEnd = nextComma(fieldStart);
+		isNegativeStrand = fieldEnd - fieldStart == 1 && sa.charAt(fieldStart) == '-';
+		fieldStart = fieldEnd + 1;
+		fieldEnd = nextComma(fieldStart);
+		cigar.parse(sa, fieldStart, fieldEnd);
+		fieldStart = fieldEnd + 1;
+		fieldEnd = nextComma(fieldStart);
+		mapq = parseInt(fieldStart, fieldEnd);
+		hasNm = false;
+		nm = 0;
+		if (fieldEnd < alignmentEnd) {
+			fieldStart = fieldEnd + 1;
+			fieldEnd = nextComma(fieldStart);
+			hasNm = fieldEnd > fieldStart;
+			for (int i = fieldStart; i < fieldEnd && hasNm; i++) {
+				char c = sa.charAt(i);
+				if (c < '0' || c > '9') hasNm = false;
+				else nm = nm * 10 + c - '0';
+			}
+			if (!hasNm) nm = 0;
+		}
+		return true;
+	}
+	private int nextComma(int from) {
+		if (from > alignmentEnd) throw new IllegalArgumentException(String.format("Malformed SA tag \"%s\"", sa));
+		int i = sa.indexOf(',', from);
+		return i < 0 || i > alignmentEnd ? alignmentEnd : i;
+	}
+	private int parseInt(int start, int end) {
+		int value = 0;
+		boolean negative = start < end && sa.charAt(start) == '-';
+		int i = negative ? start + 1 : start;
+		if (i >= end) throw new NumberFormatException(String.format("Malformed SA tag \"%s\"", sa));
+		for (; i < end; i++) {
+			char c = sa.charAt(i);
+			if (c < '0' || c > '9') throw new NumberFormatException(String.format("Malformed SA tag \"%s\"", sa));
+			value = value * 10 + c - '0';
+		}
+		return negative ? -value : value;
+	}
+	/**
+	 * Resolves the reference name of the current alignment
+	 * @param dict sequence dictionary
+	 * @return reference index, or -1 if the reference is not in the dictionary
+	 */
+	public int getReferenceIndex(SAMSequenceDictionary dict) {
+		if (dict != this.dict) {
+			buildLookup(dict);
+		}
+		int hash = hash(sa, rnameStart, rnameEnd);
+		int mask = lookup.length - 1;
+		for (int i = hash & mask; lookup[i] != 0; i = (i + 1) & mask) {
+			String name = names[lookup[i] - 1];
+			if (name.length() == rnameEnd - rnameStart && sa.regionMatches(rnameStart, name, 0, name.length())) {
+				return lookup[i] - 1;
+			}
+		}
+		return -1;
+	}
+	private void buildLookup(SAMSequenceDictionary dict) {
+		int n = dict.size();
+		names = new String[n];
+		int capacity = Integer.highestOneBit(Math.max(n, 1)) << 2;
+		lookup = new int[capacity];
+		for (int i = 0; i < n; i++) {
+			String name = dict.getSequence(i).getSequenceName();
+			names[i] = name;
+			int j = hash(name, 0, name.length()) & (capacity - 1);
+			while (lookup[j] != 0) j = (j + 1) & (capacity - 1);
+			lookup[j] = i + 1;
+		}
+		this.dict = dict;
+	}
+	private static int hash(CharSequence s, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + s.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+	public String getReferenceName() {
+		return sa.substring(rnameStart, rnameEnd);
+	}
+	/**
+	 * 1-based alignment start position
+	 */
+	public int getPosition() {
+		return pos;
+	}
+	/**
+	 * 1-based alignment end position
+	 */
+	public int getAlignmentEnd() {
+		return pos + cigar.getReferenceLength() - 1;
+	}
+	public boolean isNegativeStrand() {
+		return isNegativeStrand;
+	}
+	/**
+	 * CIGAR of the current alignment. The parser is reused by subsequent calls to {@link #next()}
+	 */
+	public TextCigarParser getCigar() {
+		return cigar;
+	}
+	public int getMappingQuality() {
+		return mapq;
+	}
+	public boolean hasNm() {
+		return hasNm;
+	}
+	public int getNm() {
+		return nm;
+	}
+	/**
+	 * Appends the text of the current alignment
+	 * @param sb destination
+	 */
+	public void appendTo(StringBuilder sb) {
+		sb.append(sa, alignmentStart, alignmentEnd);
+	}
+	public ChimericAlignment toChimericAlignment() {
+		return new ChimericAlignment(getReferenceName(), pos, isNegativeStrand, cigar.toCigar(), mapq, hasNm ? nm : null);
+	}
+}
@@ -0,0 +1,168 @@
+package au.edu.wehi.idsv.sam;
+
+import java.util.List;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTag;
+
+/**
+ * Per-record alignment statistics used for evidence filtering.
+ *
+ * CIGAR statistics are calculated once per record and base composition of both the
+ * full read and the aligned portion of the read are calculated in a single pass over
+ * the read bases the first time either entropy is required.
+ *
+ * Statistics are cached on the record and recalculated if the CIGAR or read bases
+ * of the record change. Results are identical to {@link SAMRecordUtil#getAlignedIdentity(SAMRecord)},
+ * {@link SAMRecordUtil#alignedEntropy(SAMRecord)} and {@link SAMRecordUtil#entropy(SAMRecord)}.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class ReadStatistics {
+	private static final Object READ_STATISTICS = new Object();
+	/**
+	 * Tolerance for floating point error in the entropy calculation
+	 */
+	private static final double ENTROPY_BOUND_EPSILON = 1e-9;
+	private final SAMRecord record;
+	private final Cigar cigar;
+	private final byte[] bases;
+	private final int startSoftClipLength;
+	private final int endSoftClipLength;
+	private final int insertedBases;
+	private final int deletedBases;
+	private boolean hasEntropy = false;
+	private double entropy;
+	private double alignedEntropy;
+	private ReadStatistics(SAMRecord record) {
+		this.record = record;
+		this.cigar = record.getCigar();
+		this.bases = record.getReadBases();
+		List<CigarElement> elements = cigar == null ? null : cigar.getCigarElements();
+		this.startSoftClipLength = SAMRecordUtil.getStartSoftClipLength(elements);
+		this.endSoftClipLength = SAMRecordUtil.getEndSoftClipLength(elements);
+		int inserted = 0;
+		int deleted = 0;
+		if (elements != null) {
+			for (CigarElement ce : elements) {
+				if (ce.getOperator() == CigarOperator.INSERTION) inserted += ce.getLength();
+				else if (ce.getOperator() == CigarOperator.DELETION) deleted += ce.getLength();
+			}
+		}
+		this.insertedBases = inserted;
+		this.deletedBases = deleted;
+	}
+	/**
+	 * Gets the statistics of the given record
+	 * @param record record
+	 * @return alignment statistics
+	 */
+	public static ReadStatistics get(SAMRecord record) {
+		ReadStatistics stats = (ReadStatistics)record.getTransientAttribute(READ_STATISTICS);
+		// identity comparison as updates to the record replace the CIGAR and bases
+		if (stats == null || stats.cigar != record.getCigar() || stats.bases != record.getReadBases()) {
+			stats = new ReadStatistics(record);
+			record.setTransientAttribute(READ_STATISTICS, stats);
+		}
+		return stats;
+	}
+	/**
+	 * Upper bound on the entropy of a sequence of the given length
+	 * @param length sequence length
+	 * @return maximum achievable entropy in bits
+	 */
+	public static double maxEntropy(int length) {
+		if (length <= 1) return 0;
+		return Math.log(Math.min(length, 4)) / Math.log(2);
+	}
+	private int getAlignedLength() {
+		return bases.length - startSoftClipLength - endSoftClipLength;
+	}
+	/**
+	 * 0-1 scaled percentage identity of mapped read bases.
+	 * @see SAMRecordUtil#getAlignedIdentity(SAMRecord)
+	 */
+	public float getAlignedIdentity() {
+		Integer nm = record.getIntegerAttribute(SAMTag.NM.name());
+		if (nm == null) {
+			// missing NM error handling
+			return SAMRecordUtil.getAlignedIdentity(record);
+		}
+		int refBasesToConsider = getAlignedLength();
+		int refBaseMatches = refBasesToConsider - nm + insertedBases + deletedBases;
+		return refBaseMatches / (float) refBasesToConsider;
+	}
+	private void calculateEntropy() {
+		if (hasEntropy) return;
+		int[] counts = new int[4];
+		int[] alignedCounts = new int[4];
+		int alignedStart = startSoftClipLength;
+		int alignedEnd = bases.length - endSoftClipLength;
+		for (int i = 0; i < bases.length; i++) {
+			int base;
+			switch (bases[i]) {
+				case 'A':
+				case 'a':
+					base = 0;
+					break;
+				case 'C':
+				case 'c':
+					base = 1;
+					break;
+				case 'G':
+				case 'g':
+					base = 2;
+					break;
+				case 'T':
+				case 't':
+					base = 3;
+					break;
+				default:
+					continue;
+			}
+			counts[base]++;
+			if (i >= alignedStart && i < alignedEnd) {
+				alignedCounts[base]++;
+			}
+		}
+		entropy = bases.length <= 0 ? 0 : au.edu.wehi.idsv.util.SequenceUtil.shannonEntropy(counts);
+		alignedEntropy = getAlignedLength() <= 0 ? 0 : au.edu.wehi.idsv.util.SequenceUtil.shannonEntropy(alignedCounts);
+		hasEntropy = true;
+	}
+	/**
+	 * Entropy of the read excluding soft clipped bases
+	 * @see SAMRecordUtil#alignedEntropy(SAMRecord)
+	 */
+	public double getAlignedEntropy() {
+		calculateEntropy();
+		return alignedEntropy;
+	}
+	/**
+	 * Entropy of the entire read
+	 * @see SAMRecordUtil#entropy(SAMRecord)
+	 */
+	public double getEntropy() {
+		calculateEntropy();
+		return entropy;
+	}
+	/**
+	 * Determines whether the aligned entropy is less than the given threshold.
+	 * Base composition is not calculated if the aligned bases are too short to reach the threshold.
+	 */
+	public boolean isAlignedEntropyBelow(double threshold) {
+		if (maxEntropy(getAlignedLength()) + ENTROPY_BOUND_EPSILON < threshold) return true;
+		return getAlignedEntropy() < threshold;
+	}
+	/**
+	 * Determines whether the read entropy is less than the given threshold.
+	 * Base composition is not calculated if the read is too short to reach the threshold.
+	 */
+	public boolean isEntropyBelow(double threshold) {
+		if (maxEntropy(bases.length) + ENTROPY_BOUND_EPSILON < threshold) return true;
+		return getEntropy() < threshold;
+	}
+}
@@ -32,6 +32,7 @@ import au.edu.wehi.idsv.BreakendDirection;
 import au.edu.wehi.idsv.alignment.AlignerFactory;
 import au.edu.wehi.idsv.alignment.Alignment;
 import au.edu.wehi.idsv.picard.ReferenceLookup;
+import au.edu.wehi.idsv.sam.TextCigarParser.CigarSummary;
 import au.edu.wehi.idsv.util.IntervalUtil;
 import au.edu.wehi.idsv.util.MathUtil;
 import au.edu.wehi.idsv.util.MessageThrottler;
@@ -252,7 +253,10 @@ public class SAMRecordUtil {
 			return false;
 		return isDovetailing(record1.getReferenceIndex(), record1.getAlignmentStart(),
 				record1.getReadNegativeStrandFlag(), record1.getCigar(), record2.getReferenceIndex(),
-				record2.getAlignmentStart(), record2.getReadNegativeStrandFlag(), record2.getCigar(),
+				record2.getAlignmentStart(), record2.getReadNegativeStrandFlag(), true,
+				CigarUtil.referenceLength(record2.getCigar().getCigarElements()),
+				getStartSoftClipLength(record2.getCigar().getCigarElements()),
+				getEndSoftClipLength(record2.getCigar().getCigarElements()),
 				expectedOrientation, margin);
 	}
 
@@ -263,18 +267,19 @@ public class SAMRecordUtil {
 			return false;
 		if (record.getMateUnmappedFlag())
 			return false;
-		Cigar cigar2 = null;
-		String mc = record.getStringAttribute(SAMTag.MC.name());
-		if (mc != null) {
-			cigar2 = TextCigarCodec.decode(mc);
-		}
+		CigarSummary cigar2 = getMateCigarSummary(record);
 		return isDovetailing(record.getReferenceIndex(), record.getAlignmentStart(), record.getReadNegativeStrandFlag(),
 				record.getCigar(), record.getMateReferenceIndex(), record.getMateAlignmentStart(),
-				record.getMateNegativeStrandFlag(), cigar2, expectedOrientation, margin);
+				record.getMateNegativeStrandFlag(), cigar2 != null,
+				cigar2 == null ? 0 : cigar2.referenceLength,
+				cigar2 == null ? 0 : cigar2.startSoftClipLength,
+				cigar2 == null ? 0 : cigar2.endSoftClipLength,
+				expectedOrientation, margin);
 	}
 
 	private static boolean isDovetailing(int reference1, int start1, boolean isNegativeStrand1, Cigar cigar1,
-			int reference2, int start2, boolean isNegativeStrand2, Cigar cigar2, PairOrientation expectedOrientation,
+			int reference2, int start2, boolean isNegativeStrand2, boolean hasCigar2, int referenceLength2,
+			int startSoftClipLength2, int endSoftClipLength2, PairOrientation expectedOrientation,
 			int margin) {
 		if (expectedOrientation != PairOrientation.FR)
 			throw new RuntimeException("NYI");
@@ -284,9 +289,9 @@ public class SAMRecordUtil {
 			return false;
 		if (isNegativeStrand1 == isNegativeStrand2)
 			return false; // FR
-		if (cigar2 != null) {
+		if (hasCigar2) {
 			int end1 = start1 + CigarUtil.referenceLength(cigar1.getCigarElements()) - 1;
-			int end2 = start2 + CigarUtil.referenceLength(cigar2.getCigarElements()) - 1;
+			int end2 = start2 + referenceLength2 - 1;
 			if (Math.abs(end1 - end2) > margin)
 				return false;
 			if (!IntervalUtil.overlapsClosed(start1, end1, start2, end2))
@@ -300,15 +305,43 @@ public class SAMRecordUtil {
 		// <<<SSS
 		int unexpectedClipLength = isNegativeStrand1 ? getEndSoftClipLength(cigar1.getCigarElements())
 				: getStartSoftClipLength(cigar1.getCigarElements());
-		if (cigar2 != null) {
-			unexpectedClipLength += isNegativeStrand2 ? getEndSoftClipLength(cigar2.getCigarElements())
-					: getStartSoftClipLength(cigar2.getCigarElements());
+		if (hasCigar2) {
+			unexpectedClipLength += isNegativeStrand2 ? endSoftClipLength2 : startSoftClipLength2;
 		}
 		if (unexpectedClipLength > margin)
 			return false;
 		return true;
 	}
 
+	/**
+	 * Gets the alignment lengths of the mate of the given record from the MC tag.
+	 * 
+	 * The parsed tag is cached on the record so the mate CIGAR is only parsed once.
+	 * @param record record
+	 * @return mate CIGAR summary, null if the record has no MC tag
+	 */
+	public static CigarSummary getMateCigarSummary(SAMRecord record) {
+		String mc = record.getStringAttribute(SAMTag.MC.name());
+		if (mc == null) return null;
+		ParsedMateCigar parsed = (ParsedMateCigar)record.getTransientAttribute(PARSED_MC_TAG);
+		// identity comparison as any update to the tag replaces the attribute value
+		if (parsed == null || parsed.mc != mc) {
+			parsed = new ParsedMateCigar(mc, mateCigarParser.get().parse(mc).toSummary());
+			record.setTransientAttribute(PARSED_MC_TAG, parsed);
+		}
+		return parsed.summary;
+	}
+	private static final Object PARSED_MC_TAG = new Object();
+	private static final ThreadLocal<TextCigarParser> mateCigarParser = ThreadLocal.withInitial(() -> new TextCigarParser());
+	private static class ParsedMateCigar {
+		private final String mc;
+		private final CigarSummary summary;
+		public ParsedMateCigar(String mc, CigarSummary summary) {
+			this.mc = mc;
+			this.summary = summary;
+		}
+	}
+
 	public static boolean overlap(SAMRecord r1, SAMRecord r2) {
 		boolean result = r1 != null && r2 != null && !r1.getReadUnmappedFlag() && !r2.getReadUnmappedFlag()
 				&& r1.getReferenceIndex().equals(r2.getReferenceIndex())
@@ -0,0 +1,181 @@
+package au.edu.wehi.idsv.sam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+
+/**
+ * Reusable parser of text CIGAR strings.
+ *
+ * Operators are decoded directly from the characters of the CIGAR into a reusable array
+ * using the BAM encoding (length << 4 | op) so no intermediate strings or
+ * {@link CigarElement} are allocated unless {@link #toCigar()} is called.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class TextCigarParser {
+	private static final byte[] OP_LOOKUP = new byte[128];
+	private static final boolean[] CONSUMES_REFERENCE = new boolean[16];
+	private static final boolean[] CONSUMES_READ = new boolean[16];
+	private static final boolean[] IS_CLIP = new boolean[16];
+	private static final int SOFT_CLIP = CigarOperator.enumToBinary(CigarOperator.S);
+	static {
+		Arrays.fill(OP_LOOKUP, (byte)-1);
+		for (CigarOperator op : CigarOperator.values()) {
+			int code = CigarOperator.enumToBinary(op);
+			OP_LOOKUP[CigarOperator.enumToCharacter(op)] = (byte)code;
+			CONSUMES_REFERENCE[code] = op.consumesReferenceBases();
+			CONSUMES_READ[code] = op.consumesReadBases();
+			IS_CLIP[code] = op == CigarOperator.S || op == CigarOperator.H;
+		}
+	}
+	private int[] ops = new int[16];
+	private int size;
+	private int referenceLength;
+	private int readLength;
+	private int startClipLength;
+	private int endClipLength;
+	private int startSoftClipLength;
+	private int endSoftClipLength;
+	/**
+	 * Parses the given CIGAR
+	 * @param s CIGAR
+	 * @return this parser
+	 */
+	public TextCigarParser parse(CharSequence s) {
+		return parse(s, 0, s.length());
+	}
+	/**
+	 * Parses the CIGAR contained within the given character range
+	 * @param s characters
+	 * @param start start offset of CIGAR
+	 * @param end end offset (exclusive) of CIGAR
+	 * @return this parser
+	 */
+	public TextCigarParser parse(CharSequence s, int start, int end) {
+		size = 0;
+		referenceLength = 0;
+		readLength = 0;
+		int length = 0;
+		boolean hasLength = false;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				length = length * 10 + (c - '0');
+				hasLength = true;
+			} else {
+				int op = c < 128 ? OP_LOOKUP[c] : -1;
+				if (op < 0 || !hasLength) {
+					if (c == '*' && end - start == 1) break;
+					throw new IllegalArgumentException(String.format("Malformed CIGAR \"%s\"", s.subSequence(start, end)));
+				}
+				if (size == ops.length) {
+					ops = Arrays.copyOf(ops, ops.length * 2);
+				}
+				ops[size++] = length << 4 | op;
+				if (CONSUMES_REFERENCE[op]) referenceLength += length;
+				if (CONSUMES_READ[op]) readLength += length;
+				length = 0;
+				hasLength = false;
+			}
+		}
+		if (hasLength) {
+			throw new IllegalArgumentException(String.format("Malformed CIGAR \"%s\"", s.subSequence(start, end)));
+		}
+		calculateClipping();
+		return this;
+	}
+	private void calculateClipping() {
+		startClipLength = 0;
+		startSoftClipLength = 0;
+		for (int i = 0; i < size; i++) {
+			int op = ops[i] & 0xF;
+			if (!IS_CLIP[op]) break;
+			startClipLength += getLength(i);
+			if (op == SOFT_CLIP) startSoftClipLength += getLength(i);
+		}
+		endClipLength = 0;
+		endSoftClipLength = 0;
+		for (int i = size - 1; i >= 0; i--) {
+			int op = ops[i] & 0xF;
+			if (!IS_CLIP[op]) break;
+			endClipLength += getLength(i);
+			if (op == SOFT_CLIP) endSoftClipLength += getLength(i);
+		}
+	}
+	/**
+	 * Number of CIGAR operators
+	 */
+	public int size() {
+		return size;
+	}
+	public CigarOperator getOperator(int i) {
+		return CigarOperator.binaryToEnum(ops[i] & 0xF);
+	}
+	public int getLength(int i) {
+		return ops[i] >>> 4;
+	}
+	public int getReferenceLength() {
+		return referenceLength;
+	}
+	public int getReadLength() {
+		return readLength;
+	}
+	/**
+	 * Number of soft and hard clipped bases at the start of the alignment
+	 */
+	public int getStartClipLength() {
+		return startClipLength;
+	}
+	/**
+	 * Number of soft and hard clipped bases at the end of the alignment
+	 */
+	public int getEndClipLength() {
+		return endClipLength;
+	}
+	public int getStartSoftClipLength() {
+		return startSoftClipLength;
+	}
+	public int getEndSoftClipLength() {
+		return endSoftClipLength;
+	}
+	public Cigar toCigar() {
+		List<CigarElement> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(new CigarElement(getLength(i), getOperator(i)));
+		}
+		return new Cigar(list);
+	}
+	/**
+	 * Immutable summary of the parsed CIGAR
+	 */
+	public CigarSummary toSummary() {
+		return new CigarSummary(this);
+	}
+	/**
+	 * Alignment lengths of a CIGAR that has not been decoded
+	 */
+	public static class CigarSummary {
+		public final int referenceLength;
+		public final int readLength;
+		public final int startClipLength;
+		public final int endClipLength;
+		public final int startSoftClipLength;
+		public final int endSoftClipLength;
+		private CigarSummary(TextCigarParser parser) {
+			this.referenceLength = parser.referenceLength;
+			this.readLength = parser.readLength;
+			this.startClipLength = parser.startClipLength;
+			this.endClipLength = parser.endClipLength;
+			this.startSoftClipLength = parser.startSoftClipLength;
+			this.endSoftClipLength = parser.endSoftClipLength;
+		}
+	}
+}
@@ -2,14 +2,12 @@ package au.edu.wehi.idsv.util;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.Lists;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
 
 import au.edu.wehi.idsv.Defaults;
 import au.edu.wehi.idsv.validation.OrderAssertingIterator;
@@ -18,51 +16,149 @@ import htsjdk.samtools.util.CloserUtil;
 
 /**
  * Iterator that automatically closes the the underlying resources when their respective end of stream has been reached.
- * 
+ *
+ * Iterators are merged using a tournament (loser) tree requiring O(log k) comparisons
+ * per element for k underlying iterators. If a sort key is supplied, elements with
+ * differing sort keys are compared by key only.
+ *
  * @author Daniel Cameron
  *
  * @param <T>
  */
 public class AutoClosingMergedIterator<T> implements Closeable, CloseableIterator<T> {
-	private Comparator<? super T> comparator;
-	private List<AutoClosingIterator<T>> stillOpen;
-	private Iterator<? extends T> merged;
+	private final Comparator<? super T> comparator;
+	private final ToLongFunction<? super T> sortKey;
+	private final List<AutoClosingIterator<T>> leaves;
+	/**
+	 * Current head element of each leaf
+	 */
+	private final Object[] head;
+	private final long[] headKey;
+	/**
+	 * Leaf has no remaining elements
+	 */
+	private final boolean[] exhausted;
+	/**
+	 * Loser tree. tree[0] is the overall winner and tree[i] is the leaf that lost at internal node i
+	 */
+	private final int[] tree;
 	private boolean closed = false;
 	private T lastEmitted = null;
 	private List<CountingIterator<T>> counts = new ArrayList<CountingIterator<T>>();
 	private int emitCount = 0;
 	public AutoClosingMergedIterator(final Iterable<? extends Iterator<? extends T>> iterators, final Comparator<? super T> comparator) {
+		this(iterators, comparator, null);
+	}
+	/**
+	 * Merges the given iterators
+	 * @param iterators iterators to merge. Each iterator must be sorted according to the given comparator
+	 * @param comparator sort order
+	 * @param sortKey sort key consistent with the comparator.
+	 * That is, if a sorts before b, then sortKey(a) <= sortKey(b).
+	 * The comparator is only invoked when the sort keys are equal.
+	 */
+	public AutoClosingMergedIterator(final Iterable<? extends Iterator<? extends T>> iterators, final Comparator<? super T> comparator, final ToLongFunction<? super T> sortKey) {
 		this.comparator = comparator;
-		this.stillOpen = Lists.newArrayList(Iterables.transform(iterators, new Function<Iterator<? extends T>, AutoClosingIterator<T>>() {
-			@Override
-			public AutoClosingIterator<T> apply(Iterator<? extends T> input) {
-				AutoClosingIterator<T> it = new AutoClosingIterator<T>(input);
-				if (Defaults.SANITY_CHECK_ITERATORS) {
-					CountingIterator<T> cit = new CountingIterator<T>(it);
-					it = new AutoClosingIterator<T>(new OrderAssertingIterator<T>(cit, comparator), it);
-					counts.add(cit);
-				}
-				return it;
+		this.sortKey = sortKey;
+		this.leaves = new ArrayList<>();
+		for (Iterator<? extends T> input : iterators) {
+			AutoClosingIterator<T> it = new AutoClosingIterator<T>(input);
+			if (Defaults.SANITY_CHECK_ITERATORS) {
+				CountingIterator<T> cit = new CountingIterator<T>(it);
+				it = new AutoClosingIterator<T>(new OrderAssertingIterator<T>(cit, comparator), it);
+				counts.add(cit);
+			}
+			leaves.add(it);
+		}
+		int k = leaves.size();
+		this.head = new Object[k];
+		this.headKey = new long[k];
+		this.exhausted = new boolean[k];
+		this.tree = new int[Math.max(1, k)];
+		for (int i = 0; i < k; i++) {
+			advance(i);
+		}
+		// Leaf index k is a virtual leaf that wins every match.
+		// Replaying each leaf against it results in a valid tree
+		Arrays.fill(tree, k);
+		for (int i = k - 1; i >= 0; i--) {
+			replay(i);
+		}
+	}
+	/**
+	 * Loads the next element of the given leaf, closing the leaf if exhausted
+	 */
+	private void advance(int leaf) {
+		AutoClosingIterator<T> it = leaves.get(leaf);
+		if (it.hasNext()) {
+			T n = it.next();
+			head[leaf] = n;
+			if (sortKey != null) {
+				headKey[leaf] = sortKey.applyAsLong(n);
+			}
+		} else {
+			head[leaf] = null;
+			exhausted[leaf] = true;
+			CloserUtil.close(it);
+		}
+	}
+	/**
+	 * Determines whether leaf a should be emitted before leaf b
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean beats(int a, int b) {
+		int k = leaves.size();
+		if (a == k) return true;
+		if (b == k) return false;
+		if (exhausted[a]) return false;
+		if (exhausted[b]) return true;
+		if (sortKey != null && headKey[a] != headKey[b]) {
+			return headKey[a] < headKey[b];
+		}
+		int cmp = comparator.compare((T)head[a], (T)head[b]);
+		if (cmp != 0) return cmp < 0;
+		// ties are broken by input order
+		return a < b;
+	}
+	/**
+	 * Replays the matches from the given leaf to the root
+	 */
+	private void replay(int leaf) {
+		int k = leaves.size();
+		int winner = leaf;
+		for (int node = (leaf + k) / 2; node > 0; node /= 2) {
+			if (beats(tree[node], winner)) {
+				int tmp = tree[node];
+				tree[node] = winner;
+				winner = tmp;
 			}
-		}));
-		this.merged = Iterators.mergeSorted(stillOpen, comparator);
+		}
+		if (winner != k) {
+			// virtual leaf only wins during tree construction
+			tree[0] = winner;
+		}
 	}
 	@Override
 	public boolean hasNext() {
 		if (closed) return false;
-		if (Defaults.SANITY_CHECK_ITERATORS && !merged.hasNext()) {
+		boolean hasNext = !leaves.isEmpty() && !exhausted[tree[0]];
+		if (Defaults.SANITY_CHECK_ITERATORS && !hasNext) {
 			int underlyingCounts = 0;
 			for (CountingIterator<T> cit : counts) {
 				underlyingCounts += cit.emitted();
 			}
 			assert(underlyingCounts == emitCount);
 		}
-		return merged.hasNext();
+		return hasNext;
 	}
+	@SuppressWarnings("unchecked")
 	@Override
 	public T next() {
-		T n = merged.next();
-		tryclose(false);
+		if (!hasNext()) throw new NoSuchElementException();
+		int winner = tree[0];
+		T n = (T)head[winner];
+		advance(winner);
+		replay(winner);
 		if (lastEmitted != null && comparator.compare(lastEmitted, n) > 0) {
 			throw new IllegalStateException(String.format("Unable to merge out of order sequences. %s emitted before %s", lastEmitted, n));
 		}
@@ -72,25 +168,12 @@ public class AutoClosingMergedIterator<T> implements Closeable, CloseableIterato
 	}
 	@Override
 	public void close() {
-		tryclose(true);
-	}
-	public void tryclose(boolean forceClosed) {
-		if (merged == null) {
-			return;
-		} else if (forceClosed) {
-			merged = null;
-		}
-		if (stillOpen != null) {
-			for (int i = stillOpen.size() - 1; i >= 0 ; i--) {
-				AutoClosingIterator<T> it = stillOpen.get(i);
-				if (forceClosed || !it.hasNext()) {
-					CloserUtil.close(it);
-					stillOpen.remove(i);
-				}
-			}
-			if (stillOpen.size() == 0) {
-				stillOpen = null;
-			}
+		if (closed) return;
+		closed = true;
+		for (int i = 0; i < leaves.size(); i++) {
+			CloserUtil.close(leaves.get(i));
+			head[i] = null;
+			exhausted[i] = true;
 		}
 	}
 	@Override
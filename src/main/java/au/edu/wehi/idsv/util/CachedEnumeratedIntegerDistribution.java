@@ -1,5 +1,7 @@
 package au.edu.wehi.idsv.util;
 
+import java.util.List;
+
 import org.apache.commons.math3.distribution.EnumeratedIntegerDistribution;
 import org.apache.commons.math3.exception.DimensionMismatchException;
 import org.apache.commons.math3.exception.MathArithmeticException;
@@ -7,6 +9,7 @@ import org.apache.commons.math3.exception.NotANumberException;
 import org.apache.commons.math3.exception.NotFiniteNumberException;
 import org.apache.commons.math3.exception.NotPositiveException;
 import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.util.Pair;
 
 import gnu.trove.map.TIntDoubleMap;
 import gnu.trove.map.hash.TIntDoubleHashMap;
@@ -46,6 +49,36 @@ public class CachedEnumeratedIntegerDistribution extends EnumeratedIntegerDistri
     	}
 		return cacheCumulativeProbability.get(x);
     }
+    /**
+     * Calculates the cumulative probability of every value in the support of the distribution
+     * in a single pass. Probabilities are identical to those returned by {@link #cumulativeProbability(int)}.
+     * @return cumulative probability of each value from the support lower bound to the support upper bound inclusive
+     */
+    public double[] cumulativeProbabilityTable() {
+    	int lower = getSupportLowerBound();
+    	int upper = getSupportUpperBound();
+    	double[] table = new double[upper - lower + 1];
+    	List<Pair<Integer, Double>> pmf = innerDistribution.getPmf();
+    	for (int i = 1; i < pmf.size(); i++) {
+    		if (pmf.get(i - 1).getKey() > pmf.get(i).getKey()) {
+    			// partial sums are only identical if summed in the same order
+    			for (int x = lower; x <= upper; x++) {
+    				table[x - lower] = cumulativeProbability(x);
+    			}
+    			return table;
+    		}
+    	}
+    	double probability = 0;
+    	int i = 0;
+    	for (int x = lower; x <= upper; x++) {
+    		while (i < pmf.size() && pmf.get(i).getKey() <= x) {
+    			probability += pmf.get(i).getValue();
+    			i++;
+    		}
+    		table[x - lower] = probability;
+    	}
+    	return table;
+    }
     private Double cacheNumericalMean;
     public double getNumericalMean() {
     	if (cacheNumericalMean == null) {
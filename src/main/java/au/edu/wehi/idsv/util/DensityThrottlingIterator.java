@@ -7,6 +7,7 @@ import java.util.Random;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.PeekingIterator;
 
+import au.edu.wehi.idsv.visualisation.HeapSizeEstimates;
 import au.edu.wehi.idsv.visualisation.TrackedBuffer;
 import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 import it.unimi.dsi.fastutil.longs.LongPriorityQueue;
@@ -19,6 +20,9 @@ import it.unimi.dsi.fastutil.longs.LongPriorityQueue;
  * records to ensure an average maximum number of records in
  * any given window. 
  * 
+ * If a memory governor is supplied, density thresholds are
+ * lowered whilst the governor is over budget.
+ * 
  * @author Daniel Cameron
  *
  * @param <T>
@@ -32,6 +36,20 @@ public abstract class DensityThrottlingIterator<T> implements PeekingIterator<T>
 	private final LongPriorityQueue emittedInWindow = new LongArrayFIFOQueue();
 	private final Random random = new Random(0); // Seed set for reproducible results
 	private T nextRecord = null;
+	/**
+	 * Number of records between memory governor checks
+	 */
+	private static final int GOVERNOR_CHECK_INTERVAL = 256;
+	/**
+	 * Minimum scaling factor applied to the density thresholds
+	 */
+	private static final double MIN_DENSITY_SCALE = 1.0 / 1024;
+	private MemoryGovernor governor = null;
+	private int recordsSinceGovernorCheck = 0;
+	/**
+	 * Scaling factor applied to the density thresholds 
+	 */
+	private double densityScale = 1;
 	
 	/**
 	 * @param it iterator to filter. Cannot contain null elements
@@ -50,6 +68,10 @@ public abstract class DensityThrottlingIterator<T> implements PeekingIterator<T>
 		while (nextRecord == null && underlying.hasNext()) {
 			nextRecord = underlying.next();
 			long position = getPosition(nextRecord);
+			if (governor != null && ++recordsSinceGovernorCheck >= GOVERNOR_CHECK_INTERVAL) {
+				recordsSinceGovernorCheck = 0;
+				updateDensityScale();
+			}
 			// remove records
 			while (!inWindow.isEmpty() && inWindow.firstLong() <= position - windowSize) {
 				inWindow.dequeueLong();
@@ -70,7 +92,7 @@ public abstract class DensityThrottlingIterator<T> implements PeekingIterator<T>
 			// accept all record under the threshold
 			return false;
 		}
-		double x = ((inWindow.size() / windowSize) - acceptDensity) / maxDensity;
+		double x = ((inWindow.size() / windowSize) - acceptDensity * densityScale) / (maxDensity * densityScale);
 		if (Math.exp(-x) >= random.nextDouble()) {
 			// exponential back-off did not filter
 			emittedInWindow.enqueue(position);
@@ -79,7 +101,26 @@ public abstract class DensityThrottlingIterator<T> implements PeekingIterator<T>
 		return true;
 	}
 	public boolean isBelowUnconditionalAcceptanceThreshold() {
-		return emittedInWindow.size() / windowSize < acceptDensity;
+		return emittedInWindow.size() / windowSize < acceptDensity * densityScale;
+	}
+	/**
+	 * Thresholds are lowered multiplicatively for as long as the governor
+	 * remains over budget and recover once the governor is back within budget.
+	 */
+	private void updateDensityScale() {
+		double budgetScale = governor.densityScale();
+		if (budgetScale < 1) {
+			densityScale = Math.max(MIN_DENSITY_SCALE, densityScale * budgetScale);
+		} else {
+			densityScale = Math.min(1, densityScale * 2);
+		}
+	}
+	/**
+	 * Lowers the density thresholds whilst the given governor is over budget
+	 * @param governor memory governor
+	 */
+	public void setMemoryGovernor(MemoryGovernor governor) {
+		this.governor = governor;
 	}
 	@Override
 	public boolean hasNext() {
@@ -112,8 +153,8 @@ public abstract class DensityThrottlingIterator<T> implements PeekingIterator<T>
 	@Override
 	public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
 		return ImmutableList.of(
-				new NamedTrackedBuffer(trackedBufferName_inWindow, inWindow.size()),
-				new NamedTrackedBuffer(trackedBufferName_emittedInWindow, emittedInWindow.size())
+				new NamedTrackedBuffer(trackedBufferName_inWindow, inWindow.size(), HeapSizeEstimates.LONG_BYTES),
+				new NamedTrackedBuffer(trackedBufferName_emittedInWindow, emittedInWindow.size(), HeapSizeEstimates.LONG_BYTES)
 				);
 	}
 }
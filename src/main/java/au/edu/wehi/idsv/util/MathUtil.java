@@ -24,6 +24,24 @@ public class MathUtil {
 		}
 		return resultPhred;
 	}
+	/**
+	 * Returns the phred-scaled error probability of no
+	 * errors given two independent error sources.
+	 *
+	 * Identical to {@link #phredOr(double...)} without allocating an array
+	 */
+	public static double phredOr(double phred1, double phred2) {
+		return prToPhred(phredToPr(phred1) + phredToPr(phred2) - phredToPr(phred1 + phred2));
+	}
+	/**
+	 * Returns the phred-scaled error probability of no
+	 * errors given three independent error sources.
+	 *
+	 * Identical to {@link #phredOr(double...)} without allocating an array
+	 */
+	public static double phredOr(double phred1, double phred2, double phred3) {
+		return phredOr(phredOr(phred1, phred2), phred3);
+	}
 	/**
 	 * Computes the average of the given integers without being vulnerable to integer overflow
 	 * @param values
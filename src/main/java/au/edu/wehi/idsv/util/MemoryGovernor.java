@@ -0,0 +1,90 @@
+package au.edu.wehi.idsv.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import au.edu.wehi.idsv.visualisation.TrackedBuffer;
+import htsjdk.samtools.util.Log;
+
+/**
+ * Limits the heap retained by a processing chunk.
+ * 
+ * The chunk registers its buffers with the governor and consults the governor
+ * to determine how aggressively its input should be downsampled. When the
+ * estimated heap retained by all registered buffers exceeds the budget,
+ * density thresholds are scaled down in proportion to the excess.
+ * 
+ * Each chunk has its own governor with a fixed share of the heap so the
+ * downsampling performed does not depend on which other chunks happen to be
+ * processed at the same time.
+ * 
+ * @author Daniel Cameron
+ *
+ */
+public class MemoryGovernor {
+	private static final Log log = Log.getInstance(MemoryGovernor.class);
+	private final long budgetBytes;
+	private final List<TrackedBuffer> buffers = new ArrayList<>();
+	private boolean overBudget = false;
+	/**
+	 * @param budgetBytes estimated heap size registered buffers can retain before throttling
+	 */
+	public MemoryGovernor(long budgetBytes) {
+		if (budgetBytes <= 0) throw new IllegalArgumentException("budgetBytes must be positive");
+		this.budgetBytes = budgetBytes;
+	}
+	/**
+	 * Creates a governor limiting the buffers of a single chunk to its share of
+	 * the given portion of the maximum heap size
+	 * @param heapFraction portion of the maximum heap size shared by all concurrently processed chunks
+	 * @param concurrentChunks maximum number of chunks processed concurrently
+	 * @return governor, or null if heapFraction is not positive
+	 */
+	public static MemoryGovernor forHeapFraction(double heapFraction, int concurrentChunks) {
+		if (heapFraction <= 0) return null;
+		if (concurrentChunks < 1) throw new IllegalArgumentException("concurrentChunks must be positive");
+		return new MemoryGovernor(Math.max(1, (long)(Runtime.getRuntime().maxMemory() * heapFraction / concurrentChunks)));
+	}
+	public long getBudget() {
+		return budgetBytes;
+	}
+	public synchronized void register(TrackedBuffer buffer) {
+		buffers.add(buffer);
+	}
+	public synchronized void unregister(TrackedBuffer buffer) {
+		for (int i = 0; i < buffers.size(); i++) {
+			if (buffers.get(i) == buffer) {
+				buffers.remove(i);
+				return;
+			}
+		}
+	}
+	/**
+	 * Estimated heap retained by all registered buffers 
+	 */
+	public synchronized long estimatedRetainedBytes() {
+		long bytes = 0;
+		for (TrackedBuffer buffer : buffers) {
+			bytes += buffer.currentTrackedBufferBytes();
+		}
+		return bytes;
+	}
+	/**
+	 * Scaling factor to apply to density thresholds
+	 * @return 1 if within budget, otherwise the ratio of the budget to the estimated retained heap
+	 */
+	public synchronized double densityScale() {
+		long bytes = estimatedRetainedBytes();
+		boolean isOverBudget = bytes > budgetBytes;
+		if (isOverBudget != overBudget) {
+			overBudget = isOverBudget;
+			if (overBudget) {
+				log.info(String.format("Estimated buffer size of %dMB exceeds %dMB budget. Throttling input.", bytes >> 20, budgetBytes >> 20));
+			} else {
+				log.debug(String.format("Estimated buffer size of %dMB within %dMB budget.", bytes >> 20, budgetBytes >> 20));
+			}
+		}
+		if (!isOverBudget) return 1;
+		return budgetBytes / (double)bytes;
+	}
+}
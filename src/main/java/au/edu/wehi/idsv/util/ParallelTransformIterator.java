@@ -1,69 +1,185 @@
 package au.edu.wehi.idsv.util;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 
-import com.google.common.collect.Ordering;
-
 /**
  * Performs a given transformation operation over all elements of an iterator.
  * The transform is applied to multiple iterator elements in parallel with
  * the order of the resultant iteration unchanged.
- * 
+ *
+ * Contiguous runs of elements are transformed as a single batch task.
+ * Batches are held in a fixed ring of slots with the results of each
+ * batch written into the slot by ordinal. When batching is enabled,
+ * the batch size adapts to the measured cost of the transform so
+ * that each task performs roughly the same amount of work.
+ *
  * This class is not thread-safe and access from multiple threads should
  * be synchronised.
- * 
+ *
+ * Exceptions thrown by the transform are rethrown when the corresponding
+ * element is returned. The iteration terminates once an exception has been rethrown.
+ *
  * @author Daniel Cameron
  *
  */
 public class ParallelTransformIterator<T, U> implements Iterator<U> {
-	private static class TransformResult<U> {
-		public TransformResult(final long ordinal, final U result) {
-			this.ordinal = ordinal;
-			this.result = result;
+	/**
+	 * Default maximum batch size for inexpensive transforms
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+	/**
+	 * Target execution time of each batch task
+	 */
+	private static final long TARGET_BATCH_NS = 100000;
+	/**
+	 * Weighting of the most recent batch in the per element cost estimate
+	 */
+	private static final double COST_ESTIMATE_WEIGHT = 0.25;
+	private static class Batch<T, U> implements Runnable {
+		private final Function<T, U> f;
+		private final int maxBatchSize;
+		private Object[] input = new Object[1];
+		private Object[] output = new Object[1];
+		private int size = 0;
+		/**
+		 * Offset of the next result to return
+		 */
+		private int offset = 0;
+		private boolean done = false;
+		private RuntimeException error = null;
+		/**
+		 * Offset of the element for which the transform failed
+		 */
+		private int errorOffset;
+		private long elapsedNs;
+		public Batch(Function<T, U> f, int maxBatchSize) {
+			this.f = f;
+			this.maxBatchSize = maxBatchSize;
+		}
+		private void add(T record) {
+			if (size == input.length) {
+				int length = Math.min(2 * size, maxBatchSize);
+				Object[] newInput = new Object[length];
+				System.arraycopy(input, 0, newInput, 0, size);
+				input = newInput;
+				output = new Object[length];
+			}
+			input[size++] = record;
+		}
+		@SuppressWarnings("unchecked")
+		@Override
+		public void run() {
+			long startTime = System.nanoTime();
+			RuntimeException e = null;
+			int i = 0;
+			try {
+				for (; i < size; i++) {
+					output[i] = f.apply((T)input[i]);
+					input[i] = null;
+				}
+			} catch (RuntimeException ex) {
+				e = ex;
+			}
+			synchronized (this) {
+				error = e;
+				errorOffset = i;
+				elapsedNs = System.nanoTime() - startTime;
+				done = true;
+				notifyAll();
+			}
+		}
+		private synchronized void await() {
+			while (!done) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					// restore the interrupt status so the caller can respond to the interrupt
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+		}
+		@SuppressWarnings("unchecked")
+		private U poll() {
+			if (error != null && offset == errorOffset) {
+				throw error;
+			}
+			U result = (U)output[offset];
+			output[offset++] = null;
+			return result;
+		}
+		private void reset() {
+			for (int i = offset; i < size; i++) {
+				input[i] = null;
+				output[i] = null;
+			}
+			size = 0;
+			offset = 0;
+			done = false;
+			error = null;
 		}
-		public final long ordinal;
-		public final U result;
-		@SuppressWarnings("rawtypes")
-		public static Ordering<TransformResult> byOrdinal = Ordering.natural().onResultOf((TransformResult tr) -> tr.ordinal);
 	}
 	protected final Iterator<T> it;
-	private final Function<T, U> f;
-	private final int lookahead;
 	private final Executor threadpool;
-	private final ArrayBlockingQueue<TransformResult<U>> completed;
-	private final PriorityQueue<TransformResult<U>> results;
+	private final int maxBatchSize;
 	/**
-	 * Number of records that have been read from the underlying iterator
-	 * but not yet returned from this iterator
+	 * Ring of batch slots.
+	 */
+	private final List<Batch<T, U>> batches;
+	/**
+	 * Slot of the batch currently being returned
+	 */
+	private int head = 0;
+	/**
+	 * Number of dispatched batches that have not been fully returned
 	 */
 	private int dispatched = 0;
 	/**
-	 * Ordinal of last record returned from this iterator
+	 * Estimated transform cost per element. Negative if no estimate has yet been made.
 	 */
-	private long lastOrdinal = -1;
-	
+	private double elementNs = -1;
 	/**
-	 * Instantiates a new iterator
+	 * A transform exception has been rethrown and no further elements will be returned
+	 */
+	private boolean failed = false;
+	/**
+	 * Instantiates a new iterator that transforms each element in a separate task
 	 * @param it underlying iterator
 	 * @param f transform function
 	 * @param lookahead number of record to process in parallel
 	 */
 	public ParallelTransformIterator(final Iterator<T> it, final Function<T, U> f, final int lookahead, Executor threadpool) {
+		this(it, f, lookahead, 1, threadpool);
+	}
+	/**
+	 * Instantiates a new iterator that transforms contiguous runs of elements as a single task.
+	 * At most batches * maxBatchSize elements are buffered.
+	 * @param it underlying iterator
+	 * @param f transform function
+	 * @param batches number of batches to process in parallel
+	 * @param maxBatchSize maximum number of elements in each batch.
+	 * Batch size is adjusted based on the measured transform cost.
+	 */
+	public ParallelTransformIterator(final Iterator<T> it, final Function<T, U> f, final int batches, final int maxBatchSize, Executor threadpool) {
+		if (batches < 1) throw new IllegalArgumentException("batches must be positive");
+		if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be positive");
 		this.it = it;
-		this.f = f;
-		this.lookahead = lookahead;
-		this.completed = new ArrayBlockingQueue<TransformResult<U>>(lookahead);
-		this.results = new PriorityQueue<ParallelTransformIterator.TransformResult<U>>(TransformResult.byOrdinal);
+		this.maxBatchSize = maxBatchSize;
 		this.threadpool = threadpool;
+		this.batches = new ArrayList<>(batches);
+		for (int i = 0; i < batches; i++) {
+			this.batches.add(new Batch<T, U>(f, maxBatchSize));
+		}
 	}
 
 	@Override
 	public boolean hasNext() {
+		if (failed) return false;
 		return dispatched > 0 || it.hasNext();
 	}
 
@@ -72,41 +188,57 @@ public class ParallelTransformIterator<T, U> implements Iterator<U> {
 		if (!hasNext()) throw new NoSuchElementException();
 		// dispatching here increases our latency as we're always going to have
 		// lookahead record in our buffers, but it improves throughput as we're
-		// not waiting until we have no records dispatched before requeuing. 
+		// not waiting until we have no records dispatched before requeuing.
 		dispatch();
-		while (results.isEmpty() || results.peek().ordinal != lastOrdinal + 1) {
-			TransformResult<U> record;
-			try {
-				record = completed.take();
-			} catch (InterruptedException e) {
-				// what's the correct interrupt handling mechanism?
-				// if we swallow then raise Thread.currentThread().interrupt();
-				// after getting our record, we might end up blocking
-				// since the worker thread doing the work might also have
-				// been interrupted
-				throw new RuntimeException(e);
-			}
-			results.add(record);
+		Batch<T, U> batch = batches.get(head);
+		batch.await();
+		if (batch.offset == 0) {
+			updateCostEstimate(batch);
+		}
+		U result;
+		try {
+			result = batch.poll();
+		} catch (RuntimeException e) {
+			failed = true;
+			throw e;
+		}
+		if (batch.offset == batch.size) {
+			batch.reset();
+			head = (head + 1) % batches.size();
+			dispatched--;
+			dispatch();
 		}
-		U result = results.poll().result;
-		dispatched--;
-		lastOrdinal++;
-		dispatch();
 		return result;
 	}
+	private void updateCostEstimate(Batch<T, U> batch) {
+		if (maxBatchSize == 1) return;
+		double batchElementNs = batch.elapsedNs / (double)batch.size;
+		if (elementNs < 0) {
+			elementNs = batchElementNs;
+		} else {
+			elementNs = (1 - COST_ESTIMATE_WEIGHT) * elementNs + COST_ESTIMATE_WEIGHT * batchElementNs;
+		}
+	}
 	/**
-	 * Dispatches records until we have lookahead records.
+	 * Number of elements to include in the next batch
+	 */
+	private int batchSize() {
+		if (maxBatchSize == 1 || elementNs < 0) return 1;
+		long size = Math.round(TARGET_BATCH_NS / Math.max(1, elementNs));
+		return (int)Math.max(1, Math.min(maxBatchSize, size));
+	}
+	/**
+	 * Dispatches batches until all batch slots are in use.
 	 */
 	private void dispatch() {
-		while (dispatched < lookahead && it.hasNext()) {
-			T record = it.next();
+		while (dispatched < batches.size() && it.hasNext()) {
+			Batch<T, U> batch = batches.get((head + dispatched) % batches.size());
+			int size = batchSize();
+			while (batch.size < size && it.hasNext()) {
+				batch.add(it.next());
+			}
 			dispatched++;
-			dispatch(lastOrdinal + dispatched, record);
+			threadpool.execute(batch);
 		}
 	}
-	private void dispatch(final long ordinal, final T record) {
-		threadpool.execute(() -> {
-			completed.add(new TransformResult<U>(ordinal, f.apply(record)));
-		});
-	}
 }
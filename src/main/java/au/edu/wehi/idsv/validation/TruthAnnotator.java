@@ -1,13 +1,15 @@
 package au.edu.wehi.idsv.validation;
 
 import java.io.File;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
 import au.edu.wehi.idsv.BreakendDirection;
 import au.edu.wehi.idsv.BreakendSummary;
@@ -20,22 +22,73 @@ import au.edu.wehi.idsv.VariantContextDirectedEvidence;
 import au.edu.wehi.idsv.vcf.VcfSvConstants;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.CloserUtil;
+import htsjdk.samtools.util.IntervalTree;
+import htsjdk.samtools.util.IntervalTree.Node;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFFileReader;
 
 /**
  * Annotates breakends based on a reference truth file
+ * 
+ * Truth variants are converted to breakpoints when loaded and each truth
+ * breakend is indexed by the widest interval it could match. Each call is
+ * compared only against truth breakpoints with an overlapping breakend.
+ * 
+ * INS and DEL truth variants are interpreted using SVLEN, DUP and INV using END,
+ * and all other variants using breakend notation.
+ * 
  * @author Daniel Cameron
  *
  */
 public class TruthAnnotator extends AbstractIterator<VariantContextDirectedEvidence> {
+	/**
+	 * Maximum number of bases of reference homology allowed when matching breakends
+	 */
+	private static final int MAX_MARGIN = 16;
 	private final ProcessingContext processContext;
-	private final List<IdsvVariantContext> truth;
+	/**
+	 * Truth breakends indexed by reference index and direction
+	 */
+	private final List<IntervalTree<List<TruthBreakpoint>>> lookup = new ArrayList<>();
 	private final Iterator<VariantContextDirectedEvidence> it;
+	private static class TruthBreakpoint {
+		public final String id;
+		/**
+		 * Truth breakpoint. Single breakend truth variants have a null breakpoint.
+		 */
+		public final BreakpointSummary breakpoint;
+		public final BreakendSummary breakend;
+		public final int svLen;
+		public TruthBreakpoint(String id, BreakendSummary breakend, int svLen) {
+			this.id = id;
+			this.breakpoint = breakend instanceof BreakpointSummary ? (BreakpointSummary)breakend : null;
+			this.breakend = breakend;
+			this.svLen = svLen;
+		}
+		public boolean matches(BreakpointSummary variantBreakpoint, int untemplatedSequence) {
+			return breakpoint != null && TruthAnnotator.matches(breakpoint, variantBreakpoint, svLen, untemplatedSequence);
+		}
+		public boolean matches(BreakendSummary variantBreakend, int untemplatedSequence) {
+			if (breakpoint == null) {
+				return variantBreakend.overlaps(addMargin(breakend, svLen, untemplatedSequence));
+			}
+			return TruthAnnotator.matches(breakpoint, variantBreakend, svLen, untemplatedSequence);
+		}
+	}
 	public TruthAnnotator(ProcessingContext processContext, Iterator<VariantContextDirectedEvidence> it, File truthVcf) {
+		this(processContext, it, loadTruthVcf(processContext, truthVcf));
+	}
+	public TruthAnnotator(ProcessingContext processContext, Iterator<VariantContextDirectedEvidence> it, List<IdsvVariantContext> truth) {
 		this.processContext = processContext;
-		this.truth = loadTruthVcf(processContext, truthVcf);
 		this.it = it;
+		for (IdsvVariantContext truthVariant : truth) {
+			for (TruthBreakpoint tbp : toTruthBreakpoints(truthVariant)) {
+				index(tbp, tbp.breakend);
+				if (tbp.breakpoint != null) {
+					index(tbp, tbp.breakpoint.remoteBreakend());
+				}
+			}
+		}
 	}
 	private static List<IdsvVariantContext> loadTruthVcf(GenomicProcessingContext processContext, File truthVcf) {
 		List<IdsvVariantContext> truth = Lists.newArrayList();
@@ -53,6 +106,79 @@ public class TruthAnnotator extends AbstractIterator<VariantContextDirectedEvide
 		}
 		return truth;
 	}
+	/**
+	 * Converts the given truth variant to breakpoints
+	 */
+	private static List<TruthBreakpoint> toTruthBreakpoints(IdsvVariantContext truthVariant) {
+		String svType = truthVariant.getAttributeAsString(VcfSvConstants.SV_TYPE_KEY, "");
+		int svLen = truthVariant.getAttributeAsInt(VcfSvConstants.SV_LENGTH_KEY, 0);
+		int referenceIndex = truthVariant.getReferenceIndex();
+		int start = truthVariant.getStart();
+		int end = truthVariant.getEnd();
+		switch (svType) {
+			case "INS":
+			case "DEL":
+				// two breakpoints: forward & backward
+				int endOffset = start + Math.max(0, -svLen) + 1;
+				return Collections.singletonList(new TruthBreakpoint(truthVariant.getID(), new BreakpointSummary(
+						new BreakendSummary(referenceIndex, BreakendDirection.Forward, start),
+						new BreakendSummary(referenceIndex, BreakendDirection.Backward, endOffset)), svLen));
+			case "DUP":
+				return Collections.singletonList(new TruthBreakpoint(truthVariant.getID(), new BreakpointSummary(
+						new BreakendSummary(referenceIndex, BreakendDirection.Backward, start),
+						new BreakendSummary(referenceIndex, BreakendDirection.Forward, end)), svLen));
+			case "INV":
+				return Lists.newArrayList(
+						new TruthBreakpoint(truthVariant.getID(), new BreakpointSummary(
+							new BreakendSummary(referenceIndex, BreakendDirection.Forward, start - 1),
+							new BreakendSummary(referenceIndex, BreakendDirection.Forward, end)), svLen),
+						new TruthBreakpoint(truthVariant.getID(), new BreakpointSummary(
+							new BreakendSummary(referenceIndex, BreakendDirection.Backward, start),
+							new BreakendSummary(referenceIndex, BreakendDirection.Backward, end + 1)), svLen));
+			default:
+				if (truthVariant instanceof VariantContextDirectedEvidence) {
+					// breakend notation
+					return Collections.singletonList(new TruthBreakpoint(truthVariant.getID(), ((VariantContextDirectedEvidence)truthVariant).getBreakendSummary(), svLen));
+				}
+				throw new RuntimeException(String.format("Matching of truth variant at %s:%d not yet implemented.", truthVariant.getContig(), truthVariant.getStart()));
+		}
+	}
+	private static int getIndex(int referenceIndex, BreakendDirection dir) {
+		return 2 * referenceIndex + (dir == BreakendDirection.Forward ? 0 : 1);
+	}
+	/**
+	 * Indexes the given truth breakend by the widest interval it can match.
+	 * The margin is largest when the call has no untemplated sequence.
+	 */
+	private void index(TruthBreakpoint tbp, BreakendSummary breakend) {
+		int index = getIndex(breakend.referenceIndex, breakend.direction);
+		while (lookup.size() <= index) {
+			lookup.add(new IntervalTree<>());
+		}
+		BreakendSummary interval = addMargin(breakend, tbp.svLen, 0);
+		IntervalTree<List<TruthBreakpoint>> tree = lookup.get(index);
+		Node<List<TruthBreakpoint>> node = tree.find(interval.start, interval.end);
+		if (node != null) {
+			node.getValue().add(tbp);
+		} else {
+			List<TruthBreakpoint> list = new ArrayList<>(2);
+			list.add(tbp);
+			tree.put(interval.start, interval.end, list);
+		}
+	}
+	/**
+	 * Finds all truth breakpoints with a breakend that could match the given breakend 
+	 */
+	private Set<TruthBreakpoint> findCandidates(BreakendSummary breakend) {
+		int index = getIndex(breakend.referenceIndex, breakend.direction);
+		if (index >= lookup.size()) return Collections.emptySet();
+		Set<TruthBreakpoint> candidates = new LinkedHashSet<>();
+		Iterator<Node<List<TruthBreakpoint>>> nodeit = lookup.get(index).overlappers(breakend.start, breakend.end);
+		while (nodeit.hasNext()) {
+			candidates.addAll(nodeit.next().getValue());
+		}
+		return candidates;
+	}
 	public VariantContextDirectedEvidence annotate(VariantContextDirectedEvidence variant) {
 		BreakendSummary variantBreakend = variant.getBreakendSummary();
 		BreakpointSummary variantBreakpoint = null;
@@ -60,32 +186,18 @@ public class TruthAnnotator extends AbstractIterator<VariantContextDirectedEvide
 			variantBreakpoint = (BreakpointSummary)variantBreakend;
 			variantBreakend = variantBreakpoint.localBreakend();
 		}
-		HashSet<String> breakpointHits = Sets.newHashSet();
-		HashSet<String> breakendHits = Sets.newHashSet();
-		for (IdsvVariantContext truthVariant : truth) {
-			if ((truthVariant.hasAttribute(VcfSvConstants.SV_TYPE_KEY) && truthVariant.getAttributeAsString(VcfSvConstants.SV_TYPE_KEY, "").equals("INS")) ||
-					(truthVariant.hasAttribute(VcfSvConstants.SV_TYPE_KEY) && truthVariant.getAttributeAsString(VcfSvConstants.SV_TYPE_KEY, "").equals("DEL"))) {
-				int svLen = truthVariant.getAttributeAsInt(VcfSvConstants.SV_LENGTH_KEY, 0);
-				int untemplatedSequence = 0;
-				if (variant instanceof VariantContextDirectedEvidence) {
-					untemplatedSequence = ((VariantContextDirectedEvidence)variant).getBreakendSequence().length;
-				}
-				// two breakpoints: forward & backward
-				BreakendSummary truthBreakendStart = new BreakendSummary(truthVariant.getReferenceIndex(), BreakendDirection.Forward, truthVariant.getStart());
-				int endOffset = Math.max(0, -truthVariant.getAttributeAsInt(VcfSvConstants.SV_LENGTH_KEY, 0));
-				endOffset = truthVariant.getStart() + endOffset + 1;
-				BreakendSummary truthBreakendEnd = new BreakendSummary(truthVariant.getReferenceIndex(), BreakendDirection.Backward, endOffset);
-				BreakpointSummary truthBreakpoint = new BreakpointSummary(truthBreakendStart, truthBreakendEnd);
-				
-				if (matches(truthBreakpoint, variantBreakpoint, svLen, untemplatedSequence)) {
-					breakpointHits.add(truthVariant.getID());
-				} else if (matches(truthBreakpoint, variantBreakend, svLen, untemplatedSequence)) {
-					breakendHits.add(truthVariant.getID());
-				}
-			} else {
-				throw new RuntimeException(String.format("Matching of truth variant at %s:%d not yet implemented.", truthVariant.getContig(), truthVariant.getStart()));
+		int untemplatedSequence = variant.getBreakendSequence().length;
+		Set<String> breakpointHits = new LinkedHashSet<>();
+		Set<String> breakendHits = new LinkedHashSet<>();
+		for (TruthBreakpoint tbp : findCandidates(variantBreakend)) {
+			if (variantBreakpoint != null && tbp.matches(variantBreakpoint, untemplatedSequence)) {
+				breakpointHits.add(tbp.id);
+			} else if (tbp.matches(variantBreakend, untemplatedSequence)) {
+				breakendHits.add(tbp.id);
 			}
 		}
+		// a truth variant with multiple breakpoints is a match if any breakpoint matches
+		breakendHits.removeAll(breakpointHits);
 		if (!breakpointHits.isEmpty() || !breakendHits.isEmpty()) {
 			IdsvVariantContextBuilder builder = new IdsvVariantContextBuilder(processContext, variant);
 			builder.attribute("TRUTH_MATCHES", Lists.newArrayList(breakpointHits));
@@ -104,7 +216,7 @@ public class TruthAnnotator extends AbstractIterator<VariantContextDirectedEvide
 	}
 	private static BreakendSummary addMargin(BreakendSummary loc, int svLen, int untemplatedSequence) {
 		int margin = Math.max(0, svLen - untemplatedSequence);
-		margin = Math.min(16, margin); // limit to 16bp
+		margin = Math.min(MAX_MARGIN, margin); // limit to 16bp
 		return new BreakendSummary(loc.referenceIndex, loc.direction, loc.nominal,
 				loc.start - (loc.direction == BreakendDirection.Forward ? 0 : margin),
 				loc.end + (loc.direction == BreakendDirection.Backward ? 0 : margin));
@@ -1,7 +1,16 @@
 package au.edu.wehi.idsv.vcf;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -124,14 +133,30 @@ public class VcfFileUtil {
 	}
 	/**
 	 * Concatenates the input files in order.
+	 * 
+	 * Uncompressed VCFs with identical headers are concatenated by copying the
+	 * records of each file directly without parsing. Otherwise, the records are
+	 * decoded and written with the header of the first file.
 	 * @param input input files.
 	 * @param output output file
 	 * @throws IOException
 	 */
 	public static void concat(SAMSequenceDictionary dictionary, List<File> input, File output) throws IOException {
 		File tmpout = gridss.Defaults.OUTPUT_TO_TEMP_FILE ? FileSystemContext.getWorkingFileFor(output, "gridss.tmp.concat.") : output;
+		long[] headerLength = getRawConcatenationHeaderLengths(input, tmpout);
+		if (headerLength != null) {
+			rawConcat(input, headerLength, tmpout);
+		} else {
+			log.debug("Headers differ or input is not uncompressed VCF. Concatenating by decoding records.");
+			decodeConcat(dictionary, input, tmpout);
+		}
+		if (tmpout != output) {
+			FileHelper.move(tmpout, output, true);
+		}
+	}
+	static void decodeConcat(SAMSequenceDictionary dictionary, List<File> input, File output) throws IOException {
 		try (VariantContextWriter writer = new VariantContextWriterBuilder()
-				.setOutputFile(tmpout)
+				.setOutputFile(output)
 				.setReferenceDictionary(dictionary)
 				.unsetOption(Options.INDEX_ON_THE_FLY)
 				.build()) {
@@ -147,10 +172,73 @@ public class VcfFileUtil {
 					}
 				}
 			}
-			writer.close();
 		}
-		if (tmpout != output) {
-			FileHelper.move(tmpout, output, true);
+	}
+	/**
+	 * Copies the first file in its entirety followed by the records of the remaining files.
+	 */
+	private static void rawConcat(List<File> input, long[] headerLength, File output) throws IOException {
+		try (FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			for (int i = 0; i < input.size(); i++) {
+				try (FileChannel in = FileChannel.open(input.get(i).toPath(), StandardOpenOption.READ)) {
+					long size = in.size();
+					long position = i == 0 ? 0 : headerLength[i];
+					while (position < size) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
+			}
+		}
+	}
+	/**
+	 * Determines the length of the header of each input file if the files
+	 * can be concatenated without decoding the VCF records.
+	 * @return header length in bytes of each input file, or null if the
+	 * records of the input files must be decoded.
+	 */
+	private static long[] getRawConcatenationHeaderLengths(List<File> input, File output) throws IOException {
+		if (input.isEmpty() || !output.getName().toLowerCase().endsWith(".vcf")) return null;
+		byte[] firstHeader = null;
+		long[] headerLength = new long[input.size()];
+		for (int i = 0; i < input.size(); i++) {
+			byte[] header = readUncompressedHeader(input.get(i));
+			if (header == null) return null;
+			if (firstHeader == null) {
+				firstHeader = header;
+			} else if (!Arrays.equals(firstHeader, header)) {
+				return null;
+			}
+			headerLength[i] = header.length;
+		}
+		return headerLength;
+	}
+	private static final byte[] VCF_MAGIC = "##fileformat=VCF".getBytes(StandardCharsets.US_ASCII);
+	/**
+	 * Reads the header lines of an uncompressed VCF
+	 * @return header bytes, or null if the file is not an uncompressed VCF with
+	 * every record terminated by a newline.
+	 */
+	private static byte[] readUncompressedHeader(File file) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			int last = '\n';
+			int b;
+			while ((b = in.read()) != -1 && !(last == '\n' && b != '#')) {
+				header.write(b);
+				last = b;
+			}
+		}
+		byte[] bytes = header.toByteArray();
+		if (bytes.length < VCF_MAGIC.length || !Arrays.equals(VCF_MAGIC, Arrays.copyOf(bytes, VCF_MAGIC.length))) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer lastByte = ByteBuffer.allocate(1);
+			channel.read(lastByte, channel.size() - 1);
+			if (lastByte.get(0) != '\n') {
+				return null;
+			}
 		}
+		return bytes;
 	}
 }
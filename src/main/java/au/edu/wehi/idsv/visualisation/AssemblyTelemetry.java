@@ -1,92 +1,356 @@
 package au.edu.wehi.idsv.visualisation;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileWriter;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
 import au.edu.wehi.idsv.BreakendDirection;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.util.Log;
 
+/**
+ * Low overhead assembly telemetry.
+ *
+ * Telemetry events are written as fixed-size binary records into a preallocated
+ * ring buffer that is drained to disk by a background thread. Assembly never blocks
+ * on telemetry: records are dropped if the ring buffer is full.
+ *
+ * Each record includes the time spent in each assembly phase since the previous
+ * record for that chunk.
+ *
+ * The telemetry file consists of one or more sections, each of which
+ * consists of a header followed by a sequence of records.
+ *
+ * @author Daniel Cameron
+ *
+ */
 public class AssemblyTelemetry implements Closeable {
 	private static final Log log = Log.getInstance(AssemblyTelemetry.class);
+	private static final int MAGIC = 0x47415431; // "GAT1"
+	private static final int VERSION = 1;
+	static final int RING_CAPACITY = 8192;
+	private static final long FLUSH_INTERVAL_MS = 1000;
+	/**
+	 * Nested timed iterators are timed once every this many calls to the outermost timed iterator
+	 */
+	private static final int SAMPLE_INTERVAL = 16;
+	/**
+	 * Assembly phases for which execution time is tracked
+	 */
+	public enum AssemblyPhase {
+		/**
+		 * Time not spent in any other phase
+		 */
+		Other,
+		SupportNodeGeneration,
+		Aggregation,
+		PathNodeGeneration,
+		Collapse,
+		Simplification,
+		ContigCalling,
+		EvidenceRemoval,
+	}
+	public enum RecordType {
+		LoadGraph,
+		FlushContigs,
+		FlushReferenceNodes,
+		CollapseTraversalLimit,
+	}
+	private static final AssemblyPhase[] PHASES = AssemblyPhase.values();
+	private static final RecordType[] RECORD_TYPES = RecordType.values();
+	private static final int UNAPPORTIONED = PHASES.length;
+	private static final int OUTERMOST_CALL = 1 << 16;
+	/**
+	 * Record layout: type, chunk, direction, referenceIndex, start, end, count, flags, nsElapsed, phase nanoseconds
+	 */
+	public static final int RECORD_SIZE = 8 * 4 + 8 + PHASES.length * 8;
 	private final File file;
 	private final SAMSequenceDictionary dict;
-	private BlockingQueue<String> queue;
+	private final byte[] ring = new byte[RING_CAPACITY * RECORD_SIZE];
+	private final ByteBuffer ringBuffer = ByteBuffer.wrap(ring);
+	/**
+	 * Number of records written to the ring buffer
+	 */
+	private long written = 0;
+	/**
+	 * Number of records drained from the ring buffer
+	 */
+	private long drained = 0;
+	private long dropped = 0;
+	private boolean closed = false;
+	private final Thread thread;
 	public AssemblyTelemetry(File telemetryFile, SAMSequenceDictionary dict) {
 		this.file = telemetryFile;
-		this.queue = new ArrayBlockingQueue<>(4096);
 		this.dict = dict;
-		Thread thread = new Thread(new WriterRunnable(), "AT:" + file.getName());
+		this.thread = new Thread(new WriterRunnable(), "AT:" + file.getName());
 		thread.setDaemon(true);
 		thread.start();
 	}
-	private static void writeHeader(FileWriter writer) {
+	private void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(PHASES.length);
+		for (AssemblyPhase phase : PHASES) {
+			out.writeUTF(phase.name());
+		}
+		out.writeInt(dict.size());
+		for (int i = 0; i < dict.size(); i++) {
+			out.writeUTF(dict.getSequence(i).getSequenceName());
+		}
 	}
 	public AssemblyChunkTelemetry getTelemetry(int chunkNumber, BreakendDirection direction) {
 		return new AssemblyChunkTelemetry(chunkNumber, direction);
 	}
+	/**
+	 * Telemetry for a single assembly chunk.
+	 *
+	 * Phase timing is not thread-safe and must only be performed by the thread assembling the chunk.
+	 *
+	 * Timing every call to every graph construction iterator is prohibitively expensive
+	 * as upstream iterators are called for every kmer. Only calls to the outermost
+	 * timed iterator are always timed. Nested iterators are timed on a sample of
+	 * the outermost calls, and the unsampled time is apportioned to the
+	 * graph construction phases according to the sampled execution time.
+	 */
 	public class AssemblyChunkTelemetry {
-		private int chunk;
-		private BreakendDirection direction;
+		private final int chunk;
+		private final BreakendDirection direction;
+		/**
+		 * Time spent in each phase. The additional final element is
+		 * the graph construction time that has not yet been apportioned.
+		 */
+		private final long[] phaseNs = new long[PHASES.length + 1];
+		/**
+		 * Exponentially decaying graph construction time of sampled calls
+		 */
+		private final long[] sampledNs = new long[PHASES.length];
+		private int currentPhase = AssemblyPhase.Other.ordinal();
+		private long phaseStartTime = System.nanoTime();
+		private boolean inTimedIterator = false;
+		private boolean sampling = false;
+		private long timedIteratorCalls = 0;
 		private AssemblyChunkTelemetry(int chunk, BreakendDirection direction) {
 			this.chunk = chunk;
 			this.direction = direction;
 		}
+		private int switchTo(int phase) {
+			long now = System.nanoTime();
+			long elapsed = now - phaseStartTime;
+			phaseNs[currentPhase] += elapsed;
+			if (sampling) {
+				sampledNs[currentPhase] += elapsed;
+			}
+			phaseStartTime = now;
+			int previous = currentPhase;
+			currentPhase = phase;
+			return previous;
+		}
+		/**
+		 * Attributes the time since the last phase change to the current phase
+		 * and starts the given phase. Must not be called from within a timed iterator.
+		 * @param phase phase to start
+		 * @return previous phase
+		 */
+		public AssemblyPhase enter(AssemblyPhase phase) {
+			assert(!inTimedIterator);
+			return PHASES[switchTo(phase.ordinal())];
+		}
+		/**
+		 * Times the given iterator. Time spent in the iterator and not
+		 * attributed to nested phases is attributed to the given phase.
+		 */
+		public <T> Iterator<T> time(Iterator<T> it, AssemblyPhase phase) {
+			return new PhaseTimingIterator<T>(it, phase);
+		}
+		/**
+		 * Starts a timed iterator call
+		 * @return phase to restore when the call completes flagged with OUTERMOST_CALL
+		 * if this is the outermost timed call, or -1 if the call is not timed
+		 */
+		private int startTimedCall(AssemblyPhase phase) {
+			if (inTimedIterator) {
+				if (!sampling) return -1;
+				return switchTo(phase.ordinal());
+			}
+			inTimedIterator = true;
+			boolean sample = ++timedIteratorCalls % SAMPLE_INTERVAL == 0;
+			int previous = switchTo(sample ? phase.ordinal() : UNAPPORTIONED);
+			sampling = sample;
+			return previous | OUTERMOST_CALL;
+		}
+		private void endTimedCall(int previous) {
+			if (previous < 0) return;
+			switchTo(previous & ~OUTERMOST_CALL);
+			if ((previous & OUTERMOST_CALL) != 0) {
+				inTimedIterator = false;
+				sampling = false;
+			}
+		}
+		private class PhaseTimingIterator<T> implements Iterator<T> {
+			private final Iterator<T> it;
+			private final AssemblyPhase phase;
+			/**
+			 * Underlying iterator is known to have a next element.
+			 * Assembly repeatedly calls hasNext() so we avoid timing calls
+			 * for which the result is already known.
+			 */
+			private boolean hasNext = false;
+			public PhaseTimingIterator(Iterator<T> it, AssemblyPhase phase) {
+				this.it = it;
+				this.phase = phase;
+			}
+			@Override
+			public boolean hasNext() {
+				if (hasNext) return true;
+				int previous = startTimedCall(phase);
+				try {
+					hasNext = it.hasNext();
+					return hasNext;
+				} finally {
+					endTimedCall(previous);
+				}
+			}
+			@Override
+			public T next() {
+				hasNext = false;
+				int previous = startTimedCall(phase);
+				try {
+					return it.next();
+				} finally {
+					endTimedCall(previous);
+				}
+			}
+		}
+		/**
+		 * Apportions unsampled graph construction time according to the sampled time
+		 */
+		private void apportion() {
+			long unapportioned = phaseNs[UNAPPORTIONED];
+			phaseNs[UNAPPORTIONED] = 0;
+			long total = 0;
+			for (long ns : sampledNs) {
+				total += ns;
+			}
+			if (total == 0) {
+				phaseNs[AssemblyPhase.Other.ordinal()] += unapportioned;
+				return;
+			}
+			long remaining = unapportioned;
+			int last = -1;
+			for (int i = 0; i < sampledNs.length; i++) {
+				if (sampledNs[i] > 0) {
+					long ns = (long)(unapportioned * (sampledNs[i] / (double)total));
+					phaseNs[i] += ns;
+					remaining -= ns;
+					last = i;
+				}
+			}
+			phaseNs[last] += remaining;
+			for (int i = 0; i < sampledNs.length; i++) {
+				sampledNs[i] -= sampledNs[i] >> 1;
+			}
+		}
+		private void record(RecordType type, int referenceIndex, int start, int end, long count, boolean flag, long nsElapsed) {
+			// attribute time up to now
+			switchTo(currentPhase);
+			apportion();
+			put(type, chunk, direction, referenceIndex, start, end, (int)Math.min(Integer.MAX_VALUE, count), flag ? 1 : 0, nsElapsed, phaseNs);
+			for (int i = 0; i < phaseNs.length; i++) {
+				phaseNs[i] = 0;
+			}
+		}
 		public void loadGraph(int referenceIndex, int start, int end, int nodes, boolean filtered, long nsSinceLast) {
-			String str = String.format("%d,%s,load,%s,%d,%d,%d,%b,%d\n", chunk, direction.toChar(), dict.getSequence(referenceIndex).getSequenceName(), start, end, nodes, filtered, nsSinceLast / 1000);
-			put(str);
+			record(RecordType.LoadGraph, referenceIndex, start, end, nodes, filtered, nsSinceLast);
 		}
-
 		public void flushContigs(int referenceIndex, int flushStart, int flushEnd, int contigsFlushed, long nsSinceLast) {
-			String str = String.format("%d,%s,flushContigs,%s,%d,%d,%d,,%d\n", chunk, direction.toChar(), dict.getSequence(referenceIndex).getSequenceName(), flushStart, flushEnd, contigsFlushed, nsSinceLast / 1000);
-			put(str);
+			record(RecordType.FlushContigs, referenceIndex, flushStart, flushEnd, contigsFlushed, false, nsSinceLast);
 		}
-
 		public void flushReferenceNodes(int referenceIndex, int flushStart, int flushEnd, int readsFlushed, long nsSinceLast) {
-			String str = String.format("%d,%s,flushReferenceNodes,%s,%d,%d,%d,,%d\n", chunk, direction.toChar(), dict.getSequence(referenceIndex).getSequenceName(), flushStart, flushEnd, readsFlushed, nsSinceLast / 1000);
-			put(str);
+			record(RecordType.FlushReferenceNodes, referenceIndex, flushStart, flushEnd, readsFlushed, false, nsSinceLast);
 		}
-		public void callContig(int referenceIndex, int start, int end, int nodes, int reads, boolean repeatsSimplified) {
+		public void collapseTraversalLimit(int referenceIndex, int start, int end, long nodesTraversed, long nsElapsed) {
+			record(RecordType.CollapseTraversalLimit, referenceIndex, start, end, nodesTraversed, false, nsElapsed);
 		}
 	}
-	private void put(String str) {
-		try {
-			if (queue != null) {
-				queue.put(str);
-			}
-		} catch (InterruptedException e) {
-			queue = null;
+	private synchronized void put(RecordType type, int chunk, BreakendDirection direction, int referenceIndex, int start, int end, int count, int flags, long nsElapsed, long[] phaseNs) {
+		if (closed) return;
+		if (written - drained >= RING_CAPACITY) {
+			dropped++;
+			return;
+		}
+		int offset = (int)(written % RING_CAPACITY) * RECORD_SIZE;
+		ringBuffer.putInt(offset, type.ordinal());
+		ringBuffer.putInt(offset + 4, chunk);
+		ringBuffer.putInt(offset + 8, direction == null ? -1 : direction.ordinal());
+		ringBuffer.putInt(offset + 12, referenceIndex);
+		ringBuffer.putInt(offset + 16, start);
+		ringBuffer.putInt(offset + 20, end);
+		ringBuffer.putInt(offset + 24, count);
+		ringBuffer.putInt(offset + 28, flags);
+		ringBuffer.putLong(offset + 32, nsElapsed);
+		// chunk phase times include the UNAPPORTIONED slot which is always zero once apportioned
+		for (int i = 0; i < PHASES.length; i++) {
+			ringBuffer.putLong(offset + 40 + 8 * i, phaseNs[i]);
+		}
+		written++;
+		if (written - drained >= RING_CAPACITY / 2) {
+			notifyAll();
 		}
 	}
+	/**
+	 * Number of records dropped due to the ring buffer being full
+	 */
+	public synchronized long getDroppedRecordCount() {
+		return dropped;
+	}
 	@Override
 	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+			notifyAll();
+		}
 		try {
-			queue.put("");
-			queue = null;
+			thread.join();
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (dropped > 0) {
+			log.warn(String.format("Assembly telemetry ring buffer full: %d records dropped from %s", dropped, file));
 		}
 	}
-	
 	private class WriterRunnable implements Runnable {
 		public void run() {
-			boolean shouldWriteHeader = !file.exists();
+			byte[] scratch = new byte[ring.length];
 			try {
-				file.getParentFile().mkdirs();
-				try (FileWriter writer = new FileWriter(file, true)) {
-					if (shouldWriteHeader) {
-						writeHeader(writer);
-					}
-					String str = queue.take();
-					while (!str.equals("")) {
-						try {
-							writer.write(str);
-						} catch (Exception e) {
-							// consume all exceptions
+				if (file.getParentFile() != null) {
+					file.getParentFile().mkdirs();
+				}
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+					writeHeader(out);
+					while (true) {
+						int length = 0;
+						boolean done;
+						synchronized (AssemblyTelemetry.this) {
+							while (!closed && written == drained) {
+								AssemblyTelemetry.this.wait(FLUSH_INTERVAL_MS);
+							}
+							length = drain(scratch);
+							done = closed && written == drained;
 						}
-						str = queue.take();
+						out.write(scratch, 0, length);
+						if (done) break;
+						out.flush();
 					}
 				}
 			} catch (Exception e) {
@@ -94,4 +358,117 @@ public class AssemblyTelemetry implements Closeable {
 			}
 		}
 	}
+	/**
+	 * Copies all outstanding records out of the ring buffer
+	 * @return number of bytes copied
+	 */
+	private int drain(byte[] scratch) {
+		int length = 0;
+		while (drained < written) {
+			int offset = (int)(drained % RING_CAPACITY) * RECORD_SIZE;
+			int records = (int)Math.min(written - drained, RING_CAPACITY - drained % RING_CAPACITY);
+			System.arraycopy(ring, offset, scratch, length, records * RECORD_SIZE);
+			length += records * RECORD_SIZE;
+			drained += records;
+		}
+		return length;
+	}
+	/**
+	 * Telemetry record
+	 */
+	public static class Record {
+		public RecordType type;
+		public int chunk;
+		/**
+		 * Assembly direction. Null if assembly was performed in both directions simultaneously.
+		 */
+		public BreakendDirection direction;
+		public int referenceIndex;
+		public String contig;
+		public int start;
+		public int end;
+		public int count;
+		public int flags;
+		public long nsElapsed;
+		/**
+		 * Nanoseconds spent in each phase since the previous record for this chunk
+		 */
+		public long[] phaseNs = new long[PHASES.length];
+		public long totalPhaseNs() {
+			long total = 0;
+			for (long ns : phaseNs) {
+				total += ns;
+			}
+			return total;
+		}
+	}
+	/**
+	 * Reads the given telemetry file. The record passed to the consumer is reused.
+	 * @param file telemetry file
+	 * @param consumer record consumer
+	 * @throws IOException
+	 */
+	public static void read(File file, Consumer<Record> consumer) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			read(in, consumer);
+		}
+	}
+	private static void read(DataInputStream in, Consumer<Record> consumer) throws IOException {
+		Record r = new Record();
+		String[] contigs = null;
+		int[] phaseLookup = null;
+		byte[] buffer = new byte[RECORD_SIZE];
+		ByteBuffer bb = ByteBuffer.wrap(buffer);
+		while (true) {
+			int first;
+			try {
+				first = in.readInt();
+			} catch (EOFException e) {
+				return;
+			}
+			if (first == MAGIC) {
+				int version = in.readInt();
+				if (version != VERSION) throw new IOException("Unsupported assembly telemetry version " + Integer.toString(version));
+				phaseLookup = new int[in.readInt()];
+				for (int i = 0; i < phaseLookup.length; i++) {
+					phaseLookup[i] = AssemblyPhase.valueOf(in.readUTF()).ordinal();
+				}
+				contigs = new String[in.readInt()];
+				for (int i = 0; i < contigs.length; i++) {
+					contigs[i] = in.readUTF();
+				}
+				continue;
+			}
+			if (contigs == null) throw new IOException("Missing assembly telemetry header");
+			int recordSize = 40 + 8 * phaseLookup.length;
+			if (buffer.length < recordSize) {
+				buffer = new byte[recordSize];
+				bb = ByteBuffer.wrap(buffer);
+			}
+			try {
+				in.readFully(buffer, 4, recordSize - 4);
+			} catch (EOFException e) {
+				// truncated record
+				return;
+			}
+			r.type = RECORD_TYPES[first];
+			r.chunk = bb.getInt(4);
+			int direction = bb.getInt(8);
+			r.direction = direction < 0 ? null : BreakendDirection.values()[direction];
+			r.referenceIndex = bb.getInt(12);
+			r.contig = r.referenceIndex >= 0 && r.referenceIndex < contigs.length ? contigs[r.referenceIndex] : null;
+			r.start = bb.getInt(16);
+			r.end = bb.getInt(20);
+			r.count = bb.getInt(24);
+			r.flags = bb.getInt(28);
+			r.nsElapsed = bb.getLong(32);
+			for (int i = 0; i < r.phaseNs.length; i++) {
+				r.phaseNs[i] = 0;
+			}
+			for (int i = 0; i < phaseLookup.length; i++) {
+				r.phaseNs[phaseLookup[i]] = bb.getLong(40 + 8 * i);
+			}
+			consumer.accept(r);
+		}
+	}
 }
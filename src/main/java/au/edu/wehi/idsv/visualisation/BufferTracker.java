@@ -61,6 +61,8 @@ public class BufferTracker {
 					sb.append(bufferSize.name);
 					sb.append(',');
 					sb.append(Long.toString(bufferSize.size));
+					sb.append(',');
+					sb.append(Long.toString(bufferSize.estimatedBytes));
 					sb.append('\n');
 				}
 			}
@@ -0,0 +1,59 @@
+package au.edu.wehi.idsv.visualisation;
+
+/**
+ * Cheap estimates of the heap retained by commonly buffered object types.
+ * 
+ * Estimates are based on typical 64-bit JVM object layouts with compressed
+ * object pointers and are intended for memory accounting, not exact measurement.
+ * 
+ * @author Daniel Cameron
+ *
+ */
+public final class HeapSizeEstimates {
+	private HeapSizeEstimates() { }
+	/**
+	 * Estimate for objects of unknown type
+	 */
+	public static final int OBJECT_BYTES = 32;
+	/**
+	 * Boxed primitive including the collection slot referencing it
+	 */
+	public static final int BOXED_PRIMITIVE_BYTES = 24;
+	public static final int LONG_BYTES = 8;
+	/**
+	 * SAMRecord fields, read name, cigar and attributes 
+	 */
+	private static final int SAM_RECORD_BASE_BYTES = 480;
+	/**
+	 * Evidence fields, breakend location and cached derived values 
+	 */
+	private static final int DIRECTED_EVIDENCE_BASE_BYTES = 160;
+	/**
+	 * Typical read length used when the read length of buffered records is not known
+	 */
+	public static final int TYPICAL_READ_LENGTH = 150;
+	/**
+	 * KmerPathNode fields including the edge and weight list overheads
+	 */
+	public static final int KMER_PATH_NODE_BYTES = 224;
+	/**
+	 * Each kmer loaded into the assembly graph: packed bases and weight
+	 * of the path node kmer, the KmerPathNodeKmerNode wrapper and the kmer lookup entry 
+	 */
+	public static final int GRAPH_KMER_BYTES = 80;
+	/**
+	 * Evidence tracker slot for each support node
+	 */
+	public static final int SUPPORT_NODE_BYTES = 40;
+	/**
+	 * VariantContext including its attributes and genotype
+	 */
+	public static final int VARIANT_CONTEXT_BYTES = 2048;
+	public static long samRecord(int readLength) {
+		// bases and base qualities
+		return SAM_RECORD_BASE_BYTES + 2L * readLength;
+	}
+	public static long directedEvidence(int readLength) {
+		return DIRECTED_EVIDENCE_BASE_BYTES + samRecord(readLength);
+	}
+}
@@ -90,7 +90,7 @@ public class PositionalDeBruijnGraphTracker implements Closeable {
 		writer.write(",supportProcessedSize");
 		writer.write(",aggregateProcessedSize,aggregateQueueSize,aggregateActiveSize");
 		writer.write(",pathNodeProcessedSize,pathNodeActiveSize,pathNodeEdgeLookupSize,pathNodePathLookupSize");
-		writer.write(",collapseProcessedSize,collapseUnprocessedSize,collapseTraversalCount,collapsedBranchCount,collapsedLeafCount");
+		writer.write(",collapseProcessedSize,collapseUnprocessedSize,collapseTraversalCount,collapsedBranchCount,collapsedLeafCount,collapseTraversalLimitCount");
 		writer.write(",simplifyProcessedSize,simplifyLookupSize,simplifyUnprocessedSize,simplifiedCount");
 		writer.write(",trackerLookupSize");
 		writer.write(",contigFrontierSize,contigMemoizedSize");
@@ -167,6 +167,8 @@ public class PositionalDeBruijnGraphTracker implements Closeable {
 			writer.write(',');
 			if (collapse != null) writer.write(Long.toString(collapse.tracking_leafCollapseCount()));
 			writer.write(',');
+			if (collapse != null) writer.write(Long.toString(collapse.tracking_traversalLimitCount()));
+			writer.write(',');
 			if (simplify != null) writer.write(Integer.toString(simplify.tracking_processedSize()));
 			writer.write(',');
 			if (simplify != null) writer.write(Integer.toString(simplify.tracking_lookupSize()));
@@ -54,7 +54,7 @@ public class PositionalExporter {
 				writer.append(",reference=");
 				writer.append(n.isReference() ? '1' : '0');
 				writer.append(";\n");
-				writer.append(new String(KmerEncodingHelper.baseCalls(n.pathKmers(), k)));
+				writer.append(new String(n.pathBases()));
 				writer.append('\n');
 			}
 			writer.append("#FASTG:end;\n");
@@ -100,7 +100,7 @@ public class PositionalExporter {
 				writer.append(id(n, k));
 				writer.append(String.format(" [s=%d,e=%d,wid=%d,w=%d,l=%d,r=%s,alt=%d,seq=\"%s\",contig=%s];\n",
 						n.firstStart(), n.firstEnd(), n.width(), n.weight(), n.length(), n.isReference() ? "true" : "false",
-								n.collapsedKmers().size(), new String(KmerEncodingHelper.baseCalls(n.pathKmers(), k)),
+								n.collapsedKmers().size(), new String(n.pathBases()),
 								lookup.contains(n) ? "true" : "false"));
 			}
 			// edges
@@ -127,7 +127,7 @@ public class PositionalExporter {
 				writer.append('>');
 				writer.append(id(n, k));
 				writer.append('\n');
-				writer.append(new String(KmerEncodingHelper.baseCalls(n.pathKmers(), k)));
+				writer.append(new String(n.pathBases()));
 				writer.append('\n');
 			}
 		} finally {
@@ -5,12 +5,35 @@ import java.util.List;
 public interface TrackedBuffer {
 	public class NamedTrackedBuffer {
 		public NamedTrackedBuffer(String name, int size) {
+			this(name, size, HeapSizeEstimates.OBJECT_BYTES);
+		}
+		/**
+		 * @param name buffer name
+		 * @param size number of elements in the buffer
+		 * @param bytesPerElement estimated heap retained by each buffer element
+		 */
+		public NamedTrackedBuffer(String name, int size, long bytesPerElement) {
 			this.name = name;
 			this.size = size;
+			this.estimatedBytes = size * bytesPerElement;
 		}
 		public final String name;
 		public final int size;
+		/**
+		 * Estimated heap retained by the buffer
+		 */
+		public final long estimatedBytes;
 	}
 	public void setTrackedBufferContext(String context);
 	public List<NamedTrackedBuffer> currentTrackedBufferSizes();
+	/**
+	 * Estimated heap retained by all buffers
+	 */
+	public default long currentTrackedBufferBytes() {
+		long bytes = 0;
+		for (NamedTrackedBuffer buffer : currentTrackedBufferSizes()) {
+			bytes += buffer.estimatedBytes;
+		}
+		return bytes;
+	}
 }
@@ -11,10 +11,16 @@ import gridss.cmdline.VcfTransformCommandLineProgram;
 import htsjdk.samtools.util.CloseableIterator;
 
 public class AnnotateInexactHomology extends VcfTransformCommandLineProgram {
+	/**
+	 * Maximum number of calls annotated in a single task.
+	 * Homology annotation performs alignment so the adaptive batch size is typically small.
+	 * This limits buffering to (WORKER_THREADS + 1) * MAX_BATCH_SIZE records.
+	 */
+	static final int MAX_BATCH_SIZE = 16;
 	@Override
 	public CloseableIterator<VariantContextDirectedBreakpoint> iterator(CloseableIterator<VariantContextDirectedBreakpoint> calls, ExecutorService threadpool) {
 		Iterator<VariantContextDirectedBreakpoint> it = new ParallelTransformIterator<VariantContextDirectedBreakpoint, VariantContextDirectedBreakpoint>(
-				calls, call -> BreakpointHomology.annotate(getContext(), call), WORKER_THREADS + 1, threadpool);
+				calls, call -> BreakpointHomology.annotate(getContext(), call), WORKER_THREADS + 1, MAX_BATCH_SIZE, threadpool);
 		return new AutoClosingIterator<>(it, calls);
 	}
 	public static void main(String[] argv) {
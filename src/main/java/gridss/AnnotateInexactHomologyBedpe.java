@@ -75,7 +75,7 @@ public class AnnotateInexactHomologyBedpe extends ReferenceCommandLineProgram {
 		try (BedpeIterator bit = new BedpeIterator(INPUT, dict)) {
 			try (BedpeWriter writer = new BedpeWriter(dict, OUTPUT)) {
 				ParallelTransformIterator<BedpeRecord, InexactHomologyBedpeRecord> asyncit = new ParallelTransformIterator<BedpeRecord, InexactHomologyBedpeRecord>(
-						bit, rec -> new InexactHomologyBedpeRecord(rec), WORKER_THREADS + 1, threadpool);
+						bit, rec -> new InexactHomologyBedpeRecord(rec), WORKER_THREADS + 1, AnnotateInexactHomology.MAX_BATCH_SIZE, threadpool);
 				while (asyncit.hasNext()) {
 					InexactHomologyBedpeRecord rec = asyncit.next();
 					writer.write(
@@ -130,6 +130,12 @@ public class CallVariants extends FullEvidenceCommandLineProgram {
 	    	assemblyEvidence.ensureExtracted();
 	    	// call and annotate variants
 	    	callVariants(threadpool);
+	    	if (gridss.Defaults.DELETE_TEMPORARY_FILES) {
+	    		for (SAMEvidenceSource ses : getSamEvidenceSources()) {
+	    			ses.deleteEvidenceStore();
+	    		}
+	    		assemblyEvidence.deleteEvidenceStore();
+	    	}
 	    	lockFile.delete();
 		} else {
 			log.error("Aborting since lock " + lockFile + " already exists. GRIDSS does not support multiple simultaneous instances running on the same data.");
@@ -8,23 +8,34 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.BreakendSummary;
 import au.edu.wehi.idsv.BreakpointSummary;
-import au.edu.wehi.idsv.DirectedBreakpoint;
 import au.edu.wehi.idsv.IndelEvidence;
 import au.edu.wehi.idsv.ProgressLoggingSAMRecordIterator;
 import au.edu.wehi.idsv.SplitReadEvidence;
+import au.edu.wehi.idsv.StringEvidenceIdentifierGenerator;
+import au.edu.wehi.idsv.sam.ChimericAlignment;
+import au.edu.wehi.idsv.sam.CigarUtil;
+import au.edu.wehi.idsv.sam.SAMRecordUtil;
 import au.edu.wehi.idsv.util.AsyncBufferedIterator;
 import au.edu.wehi.idsv.util.MathUtil;
+import au.edu.wehi.idsv.util.ParallelTransformIterator;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
 import htsjdk.samtools.util.CloseableIterator;
@@ -40,6 +51,14 @@ import picard.cmdline.StandardOptionDefinitions;
         programGroup = picard.cmdline.programgroups.SamOrBam.class)
 public class ReadsToBedpe extends CommandLineProgram {
 	private static final Log log = Log.getInstance(ReadsToBedpe.class);
+	/**
+	 * Number of records converted by each worker task
+	 */
+	private static final int BATCH_SIZE = 1024;
+	/**
+	 * Identifiers match those of the evidence created from the read alignment
+	 */
+	private static final StringEvidenceIdentifierGenerator ID_GENERATOR = new StringEvidenceIdentifierGenerator();
     @Argument(shortName=StandardOptionDefinitions.INPUT_SHORT_NAME, doc="Input file", optional=false)
     public File INPUT;
     @Argument(shortName=StandardOptionDefinitions.OUTPUT_SHORT_NAME, doc="Output BEDPE", optional=false)
@@ -55,6 +74,8 @@ public class ReadsToBedpe extends CommandLineProgram {
     @Argument(doc="Include a unique identifier for each breakpoint supported by each read. "
     		+ "Note that this identified can be quite long for long read sequencing technologies.", optional=true)
     public boolean UNIQUE_IDENTIFIER= true;
+    @Argument(doc="Number of worker threads to spawn. Defaults to number of cores available.", shortName="THREADS")
+    public int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
     @Override
 	protected int doWork() {
 		log.debug("Setting language-neutral locale");
@@ -65,28 +86,23 @@ public class ReadsToBedpe extends CommandLineProgram {
     		try (SamReader reader = readerFactory.open(INPUT)) {
     			SAMFileHeader header = reader.getFileHeader();
     			SAMSequenceDictionary dict = header.getSequenceDictionary();
-    			//log.info(String.format("Using %d worker threads", WORKER_THREADS));
-        		//ExecutorService threadpool = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactoryBuilder().setDaemon(false).setNameFormat("Worker-%d").build());
+    			log.info(String.format("Using %d worker threads", WORKER_THREADS));
+        		ExecutorService threadpool = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactoryBuilder().setDaemon(false).setNameFormat("Worker-%d").build());
     			try (CloseableIterator<SAMRecord> rawit = new AsyncBufferedIterator<SAMRecord>(reader.iterator(), 3, 64)) {
     				ProgressLoggingSAMRecordIterator logit = new ProgressLoggingSAMRecordIterator(rawit, new ProgressLogger(log));
-    				//ParallelTransformIterator<SAMRecord, List<String>> it = new ParallelTransformIterator<>(logit, r -> asBedPe(dict, r), 16 + 2 * WORKER_THREADS, threadpool);
-    				Iterator<List<String>> it = Iterators.transform(logit, r -> asBedPe(dict, r));
-    				
-    				int i = 0;
+    				Iterator<List<SAMRecord>> batchit = Iterators.partition(logit, BATCH_SIZE);
+    				// Batches are returned in input order so output is identical to serial conversion
+    				ParallelTransformIterator<List<SAMRecord>, List<String>> it = new ParallelTransformIterator<>(batchit, batch -> asBedPe(dict, batch), 2 * WORKER_THREADS, threadpool);
     				try (BufferedWriter writer = new BufferedWriter(new FileWriter(OUTPUT))) {
     					while (it.hasNext()) {
     						for (String line : it.next()) {
-    							if (line != null) {
-		    						writer.write(line);
-		    						writer.write('\n');
-    							}
+	    						writer.write(line);
+	    						writer.write('\n');
     						}
-    						i++;
-    					}
-    					if (i % 1000 == 0) {
-    						writer.flush();
     					}
     				}
+    			} finally {
+    				threadpool.shutdown();
     			}
     		}
 		} catch (IOException e) {
@@ -95,35 +111,127 @@ public class ReadsToBedpe extends CommandLineProgram {
 		}
     	return 0;
 	}
-	private List<String> asBedPe(SAMSequenceDictionary dict, SAMRecord record) {
+	private List<String> asBedPe(SAMSequenceDictionary dict, List<SAMRecord> records) {
 		List<String> result = new ArrayList<>();
-		// Split read
-		for (SplitReadEvidence sre : SplitReadEvidence.create(null, record)) {
-			if (sre.getBreakendSummary().isLowBreakend()) {
-				result.add(asBedPe(dict, sre));
+		for (SAMRecord record : records) {
+			asBedPe(dict, record, result);
+		}
+		return result;
+	}
+	private void asBedPe(SAMSequenceDictionary dict, SAMRecord record, List<String> result) {
+		if (record.getReadUnmappedFlag() || record.getCigar() == null) return;
+		if (record.getMappingQuality() < MIN_MAPQ) return;
+		// Lines are written directly from the SA tag and CIGAR since
+		// creating the equivalent evidence is relatively expensive
+		if (SPLIT_READS && record.getAttribute(SAMTag.SA.name()) != null) {
+			splitReadsAsBedPe(dict, record, result);
+		}
+		if (INDELS && hasIndel(record)) {
+			indelsAsBedPe(dict, record, result);
+		}
+	}
+	/**
+	 * Writes the low breakend of the breakpoints between this alignment and the
+	 * adjacent alignments in the read. Breakpoint bounds match {@link SplitReadEvidence}.
+	 */
+	private void splitReadsAsBedPe(SAMSequenceDictionary dict, SAMRecord record, List<String> result) {
+		List<ChimericAlignment> aln = ChimericAlignment.getChimericAlignments(record);
+		if (aln.isEmpty()) return;
+		// read offsets include hard clipped bases
+		record = SAMRecordUtil.hardClipToN(record);
+		ChimericAlignment chim = new ChimericAlignment(record);
+		int startOffset = chim.getFirstAlignedBaseReadOffset();
+		int endOffset = chim.getLastAlignedBaseReadOffset() + 1;
+		ChimericAlignment pre = null;
+		ChimericAlignment post = null;
+		for (ChimericAlignment ca : aln) {
+			int offset = ca.getFirstAlignedBaseReadOffset();
+			if (offset < startOffset && (pre == null || offset > pre.getFirstAlignedBaseReadOffset())) {
+				pre = ca;
 			}
+			if (offset > startOffset && (post == null || offset < post.getFirstAlignedBaseReadOffset())) {
+				post = ca;
+			}
+		}
+		if (pre != null) {
+			int overlap = pre.getLastAlignedBaseReadOffset() + 1 - startOffset;
+			splitReadAsBedPe(dict, record, chim, pre, chim.predecessorBreakend(dict), pre.successorBreakend(dict), overlap, result);
 		}
-		// indel
-		for (IndelEvidence ie : IndelEvidence.create(null, MIN_SIZE, record)) {
-			if (ie.getBreakendSummary().direction == BreakendDirection.Forward) {
-				result.add(asBedPe(dict, ie));
+		if (post != null) {
+			int overlap = endOffset - post.getFirstAlignedBaseReadOffset();
+			splitReadAsBedPe(dict, record, chim, post, chim.successorBreakend(dict), post.predecessorBreakend(dict), overlap, result);
+		}
+	}
+	private void splitReadAsBedPe(SAMSequenceDictionary dict, SAMRecord record, ChimericAlignment chim, ChimericAlignment remote,
+			BreakendSummary localBreakend, BreakendSummary remoteBreakend, int overlap, List<String> result) {
+		BreakpointSummary bp = new BreakpointSummary(SplitReadEvidence.withOverlap(localBreakend, overlap), SplitReadEvidence.withOverlap(remoteBreakend, overlap));
+		int localImprecision = CigarUtil.widthOfImprecision(chim.cigar);
+		int remoteImprecision = CigarUtil.widthOfImprecision(remote.cigar);
+		if (localImprecision > 0 || remoteImprecision > 0) {
+			bp = bp.adjustPosition(Math.max(0, localImprecision - 1), Math.max(0, remoteImprecision - 1), true);
+		}
+		if (!bp.isLowBreakend()) return;
+		if (!shouldWrite(bp, record.getMappingQuality(), remote.mapq)) return;
+		// overlapping alignments are trimmed so no bases are untemplated
+		int untemplatedLength = Math.max(0, -overlap);
+		result.add(asBedPe(dict, bp, (int)MathUtil.phredOr(record.getMappingQuality(), remote.mapq), "splitread",
+				UNIQUE_IDENTIFIER ? ID_GENERATOR.getSplitReadEvidenceID(record, bp.direction) : null,
+				untemplatedLength));
+	}
+	/**
+	 * Writes the indels in the read CIGAR. Breakpoint bounds match {@link IndelEvidence}.
+	 */
+	private void indelsAsBedPe(SAMSequenceDictionary dict, SAMRecord record, List<String> result) {
+		if (CigarUtil.widthOfImprecision(record.getCigar()) > 0) {
+			// not a real indel: this is a placeholder CIGAR for an unanchored breakend assembly
+			return;
+		}
+		List<CigarElement> cl = record.getCigar().getCigarElements();
+		int mapq = record.getMappingQuality();
+		int indelStartOffset = 1;
+		while (indelStartOffset < cl.size()) {
+			if (cl.get(indelStartOffset).getOperator().isIndelOrSkippedRegion() &&
+					!cl.get(indelStartOffset - 1).getOperator().isIndelOrSkippedRegion()) {
+				int indelEndOffset = indelStartOffset;
+				int indelSize = 0;
+				while (indelEndOffset < cl.size() && cl.get(indelEndOffset).getOperator().isIndelOrSkippedRegion()) {
+					indelSize += cl.get(indelEndOffset).getLength();
+					indelEndOffset++;
+				}
+				if (indelSize >= MIN_SIZE && indelEndOffset < cl.size()) {
+					int preRefLength = CigarUtil.referenceLength(cl.subList(0, indelStartOffset));
+					int postRefLength = CigarUtil.referenceLength(cl.subList(indelEndOffset, cl.size()));
+					BreakpointSummary bp = new BreakpointSummary(
+							record.getReferenceIndex(), BreakendDirection.Forward, record.getAlignmentStart() + preRefLength - 1,
+							record.getReferenceIndex(), BreakendDirection.Backward, record.getAlignmentEnd() - postRefLength + 1);
+					if (shouldWrite(bp, mapq, mapq)) {
+						result.add(asBedPe(dict, bp, mapq, "indel",
+								UNIQUE_IDENTIFIER ? ID_GENERATOR.getIndelEvidenceID(record, indelStartOffset, bp.direction) : null,
+								CigarUtil.readLength(cl.subList(indelStartOffset, indelEndOffset))));
+					}
+				}
+				indelStartOffset = indelEndOffset;
+			} else {
+				indelStartOffset++;
 			}
 		}
-		return result;
 	}
-	private String asBedPe(SAMSequenceDictionary dict, SplitReadEvidence e) {
-		return asBedPe(dict, e, (int)MathUtil.phredOr(e.getLocalMapq(), e.getRemoteMapq()), "splitread");
+	private static boolean hasIndel(SAMRecord record) {
+		for (CigarElement ce : record.getCigar().getCigarElements()) {
+			if (ce.getOperator() == CigarOperator.DELETION || ce.getOperator() == CigarOperator.INSERTION) {
+				return true;
+			}
+		}
+		return false;
 	}
-	private String asBedPe(SAMSequenceDictionary dict, IndelEvidence e) {
-		return asBedPe(dict, e, e.getLocalMapq(), "indel");
+	private boolean shouldWrite(BreakpointSummary bp, int localMapq, int remoteMapq) {
+		Integer size = bp.getEventSize();
+		if (size == null || Math.abs(size) < MIN_SIZE) return false;
+		if (localMapq < MIN_MAPQ || remoteMapq < MIN_MAPQ) return false;
+		return true;
 	}
-	private String asBedPe(SAMSequenceDictionary dict, DirectedBreakpoint e, int mapq, String source) {
+	private static String asBedPe(SAMSequenceDictionary dict, BreakpointSummary bp, int mapq, String source, String evidenceId, int untemplatedLength) {
 		StringBuilder sb = new StringBuilder();
-		Integer size = e.getBreakendSummary().getEventSize();
-		if (size == null || Math.abs(size) < MIN_SIZE) return null;
-		if (e.getLocalMapq() < MIN_MAPQ || e.getRemoteMapq() < MIN_MAPQ) return null;
-		
-		BreakpointSummary bp = e.getBreakendSummary();
 		sb.append(dict.getSequence(bp.referenceIndex).getSequenceName());
 		sb.append('	');
 		sb.append(Integer.toString(bp.start - 1));
@@ -136,11 +244,7 @@ public class ReadsToBedpe extends CommandLineProgram {
 		sb.append('	');
 		sb.append(Integer.toString(bp.end2));
 		sb.append('	');
-		if (UNIQUE_IDENTIFIER) {
-			sb.append(e.getEvidenceID());
-		} else {
-			sb.append('.');
-		}
+		sb.append(evidenceId == null ? "." : evidenceId);
 		sb.append('	');
 		sb.append(Integer.toString(mapq));
 		sb.append('	');
@@ -150,7 +254,7 @@ public class ReadsToBedpe extends CommandLineProgram {
 		sb.append('	');
 		sb.append(source);
 		sb.append('	');
-		sb.append(e.getUntemplatedSequence().length());
+		sb.append(untemplatedLength);
 		return sb.toString();
 	}
 	private void validateParameters() {
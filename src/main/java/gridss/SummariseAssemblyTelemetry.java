@@ -0,0 +1,127 @@
+package gridss;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyPhase;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.Log;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import picard.cmdline.CommandLineProgram;
+import picard.cmdline.StandardOptionDefinitions;
+
+@CommandLineProgramProperties(
+		summary = "Summarises assembly telemetry by reporting the genomic loci in which assembly took the longest.",
+		oneLineSummary = "Reports the slowest loci to assemble.",
+        programGroup = gridss.cmdline.programgroups.Assembly.class)
+public class SummariseAssemblyTelemetry extends CommandLineProgram {
+	private static final Log log = Log.getInstance(SummariseAssemblyTelemetry.class);
+	private static final AssemblyPhase[] PHASES = AssemblyPhase.values();
+	@Argument(shortName=StandardOptionDefinitions.INPUT_SHORT_NAME, doc="Assembly telemetry file", optional=false)
+	public File INPUT;
+	@Argument(shortName=StandardOptionDefinitions.OUTPUT_SHORT_NAME, doc="Tab-separated loci summary", optional=false)
+	public File OUTPUT;
+	@Argument(doc="Number of loci to report", optional=true)
+	public int TOP_N = 100;
+	@Argument(doc="Width of each locus in bases", optional=true)
+	public int BIN_SIZE = 10000;
+	/**
+	 * Assembly time of a single genomic bin
+	 */
+	public static class LocusSummary {
+		public final String contig;
+		public final int start;
+		public final int end;
+		public final long[] phaseNs = new long[PHASES.length];
+		public int records = 0;
+		public int filtered = 0;
+		private LocusSummary(String contig, int start, int end) {
+			this.contig = contig;
+			this.start = start;
+			this.end = end;
+		}
+		public long totalNs() {
+			long total = 0;
+			for (long ns : phaseNs) {
+				total += ns;
+			}
+			return total;
+		}
+	}
+	/**
+	 * Calculates the loci with the longest assembly time
+	 * @param file telemetry file
+	 * @param binSize locus width
+	 * @param topN number of loci to return
+	 * @return loci in descending order of assembly time
+	 */
+	public static List<LocusSummary> summarise(File file, int binSize, int topN) throws IOException {
+		Object2ObjectOpenHashMap<String, LocusSummary> loci = new Object2ObjectOpenHashMap<>();
+		AssemblyTelemetry.read(file, r -> {
+			if (r.contig == null) return;
+			int bin = Math.max(0, r.start - 1) / binSize;
+			String key = r.contig + ":" + Integer.toString(bin);
+			LocusSummary locus = loci.get(key);
+			if (locus == null) {
+				locus = new LocusSummary(r.contig, bin * binSize + 1, (bin + 1) * binSize);
+				loci.put(key, locus);
+			}
+			for (int i = 0; i < r.phaseNs.length; i++) {
+				locus.phaseNs[i] += r.phaseNs[i];
+			}
+			locus.records++;
+			if (r.type == AssemblyTelemetry.RecordType.LoadGraph && r.flags != 0) {
+				locus.filtered++;
+			}
+		});
+		List<LocusSummary> result = new ArrayList<>(loci.values());
+		result.sort(Comparator.comparingLong(LocusSummary::totalNs).reversed()
+				.thenComparing(l -> l.contig)
+				.thenComparingInt(l -> l.start));
+		if (result.size() > topN) {
+			result = new ArrayList<>(result.subList(0, topN));
+		}
+		return result;
+	}
+	@Override
+	protected int doWork() {
+		IOUtil.assertFileIsReadable(INPUT);
+		IOUtil.assertFileIsWritable(OUTPUT);
+		try {
+			List<LocusSummary> loci = summarise(INPUT, BIN_SIZE, TOP_N);
+			try (BufferedWriter writer = new BufferedWriter(new FileWriter(OUTPUT))) {
+				writer.write("contig\tstart\tend\ttotal_ms");
+				for (AssemblyPhase phase : PHASES) {
+					writer.write('\t');
+					writer.write(phase.name());
+					writer.write("_ms");
+				}
+				writer.write("\trecords\tfiltered\n");
+				for (LocusSummary locus : loci) {
+					writer.write(String.format(Locale.ENGLISH, "%s\t%d\t%d\t%.3f", locus.contig, locus.start, locus.end, locus.totalNs() / 1000000.0));
+					for (long ns : locus.phaseNs) {
+						writer.write(String.format(Locale.ENGLISH, "\t%.3f", ns / 1000000.0));
+					}
+					writer.write(String.format("\t%d\t%d\n", locus.records, locus.filtered));
+				}
+			}
+		} catch (IOException e) {
+			log.error(e);
+			return -1;
+		}
+		return 0;
+	}
+	public static void main(String[] argv) {
+		System.exit(new SummariseAssemblyTelemetry().instanceMain(argv));
+	}
+}
@@ -55,4 +55,13 @@ public class CigarSizeDistribution {
 		if (length >= opPhred.length) return opPhred[opPhred.length - 1];
 		return opPhred[length];
 	}
+	/**
+	 * Returns the largest length with a distinct phred score.
+	 * All longer operators have the same score as this length.
+	 * @param operator cigar operator
+	 * @return largest length with a distinct phred score
+	 */
+	public int getMaxDistinctLength(CigarOperator operator) {
+		return phred[CigarOperator.enumToBinary(operator)].length - 1;
+	}
 }
@@ -43,7 +43,6 @@ import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.metrics.MetricsFile;
 import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.util.IOUtil;
-import picard.analysis.SinglePassSamProgram;
 
 @CommandLineProgramProperties(
         summary = "Reads a SAM or BAM file and writes a file containing metrics about " +
@@ -51,13 +50,11 @@ import picard.analysis.SinglePassSamProgram;
         oneLineSummary = "Writes CIGAR distribution metrics for a SAM or BAM file",
         programGroup = picard.cmdline.programgroups.Metrics.class
 )
-public class CollectCigarMetrics extends SinglePassSamProgram {
+public class CollectCigarMetrics extends ParallelSinglePassSamProgram<CollectCigarMetrics.CigarAccumulator> {
 	public static final String METRICS_SUFFIX = ".cigar_metrics";
 	
 	@Argument(shortName="Z", doc="If set to true include a zero length operator for each operator not included in the alignment CIGAR.")
     public boolean INCLUDE_OMITTED_OPERATORS = true;
-	
-    private EnumMap<CigarOperator, List<CigarDetailMetrics>> cigar;    
 
     /** Required main method. */
     public static void main(final String[] args) {
@@ -67,70 +64,88 @@ public class CollectCigarMetrics extends SinglePassSamProgram {
     @Override
     protected void setup(final SAMFileHeader header, final File samFile) {
         IOUtil.assertFileIsWritable(OUTPUT);
-        HashMap<CigarOperator, List<CigarDetailMetrics>> hm = new HashMap<CigarOperator, List<CigarDetailMetrics>>();
-        for (CigarOperator op : CigarOperator.values()) {
-			hm.put(op, new ArrayList<CigarDetailMetrics>());
-		}
-        cigar = new EnumMap<>(hm);
     }
 
     @Override
-    protected void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
-    	// Skip unwanted records
-    	if (rec.getReadUnmappedFlag()) return;
-    	if (rec.getCigar() == null) return;
-    	List<CigarElement> list = rec.getCigar().getCigarElements();
-    	if (list == null || list.size() == 0) return;
-    	for (CigarElement ce : list) {
-    		acceptCigarElement(ce);
+    protected CigarAccumulator createAccumulator() {
+    	return new CigarAccumulator();
+    }
+
+    public class CigarAccumulator implements ParallelSinglePassSamProgram.Accumulator<CigarAccumulator> {
+    	private final EnumMap<CigarOperator, List<CigarDetailMetrics>> cigar;
+    	private CigarAccumulator() {
+	        HashMap<CigarOperator, List<CigarDetailMetrics>> hm = new HashMap<CigarOperator, List<CigarDetailMetrics>>();
+	        for (CigarOperator op : CigarOperator.values()) {
+				hm.put(op, new ArrayList<CigarDetailMetrics>());
+			}
+	        cigar = new EnumMap<>(hm);
     	}
-    	if (INCLUDE_OMITTED_OPERATORS) {
-	    	for (CigarOperator op : CigarOperator.values()) {
-	    		switch (op) {
-	    			case S:
-	    				if (CigarUtil.getStartSoftClipLength(list) == 0) {
-	    					acceptCigarElement(new CigarElement(0, CigarOperator.S));
-	    				}
-	    				if (CigarUtil.getEndSoftClipLength(list) == 0) {
-	    					acceptCigarElement(new CigarElement(0, CigarOperator.S));
-	    				}
-	    				break;
-	    			case H:
-	    				if (list.get(0).getOperator() != CigarOperator.H) {
-	    					acceptCigarElement(new CigarElement(0, CigarOperator.H));
-	    				}
-	    				if (list.get(list.size() - 1).getOperator() != CigarOperator.H) {
-	    					acceptCigarElement(new CigarElement(0, CigarOperator.H));
-	    				}
-	    				break;
-	    			default:
-	    				if (!Iterables.any(list, ce -> ce.getOperator() == op)) {
-	    					acceptCigarElement(new CigarElement(0, op));
-	    				}
-	    				break;
-	    		}
+	    @Override
+	    public void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
+	    	// Skip unwanted records
+	    	if (rec.getReadUnmappedFlag()) return;
+	    	if (rec.getCigar() == null) return;
+	    	List<CigarElement> list = rec.getCigar().getCigarElements();
+	    	if (list == null || list.size() == 0) return;
+	    	for (CigarElement ce : list) {
+	    		acceptCigarElement(ce.getOperator(), ce.getLength(), 1);
 	    	}
-    	}
+	    	if (INCLUDE_OMITTED_OPERATORS) {
+		    	for (CigarOperator op : CigarOperator.values()) {
+		    		switch (op) {
+		    			case S:
+		    				if (CigarUtil.getStartSoftClipLength(list) == 0) {
+		    					acceptCigarElement(CigarOperator.S, 0, 1);
+		    				}
+		    				if (CigarUtil.getEndSoftClipLength(list) == 0) {
+		    					acceptCigarElement(CigarOperator.S, 0, 1);
+		    				}
+		    				break;
+		    			case H:
+		    				if (list.get(0).getOperator() != CigarOperator.H) {
+		    					acceptCigarElement(CigarOperator.H, 0, 1);
+		    				}
+		    				if (list.get(list.size() - 1).getOperator() != CigarOperator.H) {
+		    					acceptCigarElement(CigarOperator.H, 0, 1);
+		    				}
+		    				break;
+		    			default:
+		    				if (!Iterables.any(list, ce -> ce.getOperator() == op)) {
+		    					acceptCigarElement(op, 0, 1);
+		    				}
+		    				break;
+		    		}
+		    	}
+	    	}
+	    }
+	    
+	    private void acceptCigarElement(CigarOperator op, int length, long count) {
+	    	List<CigarDetailMetrics> list = cigar.get(op);
+	    	while (list.size() <= length) {
+	    		CigarDetailMetrics cdm = new CigarDetailMetrics();
+	    		cdm.LENGTH = list.size();
+	    		cdm.OPERATOR = (char)CigarOperator.enumToCharacter(op);
+	    		cdm.COUNT = 0;
+	    		list.add(cdm);
+	    	}
+	    	list.get(length).COUNT += count;
+		}
+
+		@Override
+		public void merge(CigarAccumulator accumulator) {
+			for (List<CigarDetailMetrics> list : accumulator.cigar.values()) {
+				for (CigarDetailMetrics cdm : list) {
+					acceptCigarElement(CigarOperator.characterToEnum(cdm.OPERATOR), cdm.LENGTH, cdm.COUNT);
+				}
+			}
+		}
     }
     
-    private void acceptCigarElement(CigarElement ce) {
-    	List<CigarDetailMetrics> list = cigar.get(ce.getOperator());
-    	int length = ce.getLength();
-    	while (list.size() <= length) {
-    		CigarDetailMetrics cdm = new CigarDetailMetrics();
-    		cdm.LENGTH = list.size();
-    		cdm.OPERATOR = (char)CigarOperator.enumToCharacter(ce.getOperator());
-    		cdm.COUNT = 0;
-    		list.add(cdm);
-    	}
-    	list.get(ce.getLength()).COUNT++;
-	}
-    
     @Override
-    protected void finish() {
+    protected void finish(CigarAccumulator accumulator) {
     	// TODO: build histograms?
         final MetricsFile<CigarDetailMetrics, Integer> metrics = getMetricsFile();
-        cigar.values().stream().flatMap(c -> c.stream()).forEach(metric -> {
+        accumulator.cigar.values().stream().flatMap(c -> c.stream()).forEach(metric -> {
         	metrics.addMetric(metric);
 		});
         metrics.write(OUTPUT);
@@ -65,27 +65,54 @@ public class CollectFragmentGCMetrics extends GcSinglePassSamProgram {
     @Argument(shortName="LEVEL", doc="The level(s) at which to accumulate metrics.  ")
     private Set<MetricAccumulationLevel> METRIC_ACCUMULATION_LEVEL = CollectionUtil.makeSet(MetricAccumulationLevel.ALL_READS);
 
-    // Calculates Metrics for all METRIC_ACCUMULATION_LEVELs provided
-    private GcMetricsCollector multiCollector;
+    @Argument(doc="Number of worker threads to process records on.", shortName="THREADS", optional=true)
+    public int WORKER_THREADS = 1;
+
+    private ParallelRecordAccumulator<GcAccumulator> records;
+    private SAMFileHeader header;
+
+    /**
+     * GC metrics collected from a subset of the input records.
+     *
+     * This program extends {@link GcSinglePassSamProgram} for its fragment size and
+     * read pair concordance arguments so it cannot also extend {@link ParallelSinglePassSamProgram}.
+     * It uses the same {@link ParallelRecordAccumulator} engine instead.
+     */
+    private class GcAccumulator implements ParallelSinglePassSamProgram.Accumulator<GcAccumulator> {
+        private final GcMetricsCollector collector = new GcMetricsCollector(UNPAIRED_FRAGMENT_SIZE, getReadPairConcordanceCalculator(), METRIC_ACCUMULATION_LEVEL, header.getReadGroups());
+        @Override
+        public void acceptRead(final SAMRecord record, final ReferenceSequence ref) {
+            if (record.getDuplicateReadFlag() && IGNORE_DUPLICATES) {
+                // ignore duplicates
+            } else {
+                collector.acceptRecord(record, ref);
+            }
+        }
+        @Override
+        public void merge(GcAccumulator accumulator) {
+            collector.merge(accumulator.collector);
+        }
+    }
 
     @Override protected void setup(final SAMFileHeader header, final File samFile) {
         IOUtil.assertFileIsWritable(OUTPUT);
         if (Histogram_FILE != null) {
         	IOUtil.assertFileIsWritable(Histogram_FILE);
         }
-        //Delegate actual collection to GcMetricsCollector
-        multiCollector = new GcMetricsCollector(UNPAIRED_FRAGMENT_SIZE, getReadPairConcordanceCalculator(), METRIC_ACCUMULATION_LEVEL, header.getReadGroups());
+        this.header = header;
+        // initialise before the concordance calculator is shared between worker threads
+        getReadPairConcordanceCalculator();
+        records = new ParallelRecordAccumulator<>(WORKER_THREADS, getClass().getSimpleName(), GcAccumulator::new);
     }
 
     @Override protected void acceptRead(final SAMRecord record, final ReferenceSequence ref) {
-    	if (record.getDuplicateReadFlag() && IGNORE_DUPLICATES) {
-    		// ignore duplicates
-    	} else {
-    		multiCollector.acceptRecord(record, ref);
-    	}
+    	records.acceptRead(record, ref);
     }
 
     @Override protected void finish() {
+        // Calculates Metrics for all METRIC_ACCUMULATION_LEVELs provided
+        final GcMetricsCollector multiCollector = records.finish().collector;
+        records = null;
         multiCollector.finish();
 
         final MetricsFile<GcMetrics, Integer> file = getMetricsFile();
@@ -1,10 +1,12 @@
 package gridss.analysis;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 import org.apache.commons.lang3.NotImplementedException;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -13,6 +15,8 @@ import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
+import htsjdk.samtools.util.Log;
+import htsjdk.samtools.util.RuntimeIOException;
 import picard.analysis.CollectMultipleMetrics;
 import picard.analysis.MetricAccumulationLevel;
 import picard.analysis.SinglePassSamProgram;
@@ -30,6 +34,7 @@ import picard.analysis.SinglePassSamProgram;
         programGroup = picard.cmdline.programgroups.Metrics.class
 )
 public class CollectGridssMetrics extends CollectMultipleMetrics {
+	private static final Log log = Log.getInstance(CollectGridssMetrics.class);
     public static enum GridssProgram {
     	CollectCigarMetrics,
     	CollectMapqMetrics,
@@ -42,6 +47,12 @@ public class CollectGridssMetrics extends CollectMultipleMetrics {
     
     @Argument(doc = "Threshold coverage to report for ReportThresholdCoverage.", optional=true)
     public Integer THRESHOLD_COVERAGE = null;
+    @Argument(doc="Number of worker threads to spawn for programs that can use them. Defaults to number of cores available.", shortName="THREADS", optional=true)
+    public int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+    @Argument(doc="Sample STOP_AFTER records evenly across the genome instead of the first STOP_AFTER records. "
+    		+ "Requires an indexed coordinate sorted BAM input. "
+    		+ "Ignored if STOP_AFTER is not set.", optional=true)
+    public boolean UNIFORM_STOP_AFTER = false;
 
     public CollectGridssMetrics() {
     	// By default, only run those required by GRIDSS
@@ -67,8 +78,42 @@ public class CollectGridssMetrics extends CollectMultipleMetrics {
     	List<ProgramInterface> toRun = Lists.newArrayList(Iterables.transform(GRIDSS_PROGRAM, p -> new GridssProgramProgramInterfaceFactory().create(p)));
 		toRun.addAll(PROGRAM);
     	setProgramsToRun(toRun);
+    	if (UNIFORM_STOP_AFTER && STOP_AFTER > 0) {
+    		if (UniformSubsample.canSubsample(INPUT, REFERENCE_SEQUENCE)) {
+    			return doWorkOnUniformSubsample();
+    		}
+    		log.warn("UNIFORM_STOP_AFTER requires an indexed coordinate sorted BAM. Using the first " + STOP_AFTER + " records of " + INPUT);
+    	}
     	return super.doWork();
     }
+    /**
+     * Calculates metrics on a subsample of the input taken evenly across the genome.
+     */
+    private int doWorkOnUniformSubsample() {
+    	File originalInput = INPUT;
+    	int originalStopAfter = STOP_AFTER;
+    	File tmpDir = TMP_DIR == null || TMP_DIR.isEmpty() ? new File(".") : TMP_DIR.get(0);
+    	// subsample file has the same name as the input as ReportThresholdCoverage records the input file name
+    	File subsampleDir = new File(tmpDir, "gridss.tmp.subsample." + UUID.randomUUID());
+    	File subsample = new File(subsampleDir, INPUT.getName());
+    	try {
+    		if (!subsampleDir.mkdirs()) {
+    			throw new IOException("Unable to create " + subsampleDir);
+    		}
+    		long records = new UniformSubsample(INPUT, REFERENCE_SEQUENCE, UniformSubsample.DEFAULT_REGIONS).write(subsample, STOP_AFTER);
+    		log.info(String.format("Sampled %d records evenly across %s", records, INPUT));
+    		INPUT = subsample;
+    		STOP_AFTER = 0;
+    		return super.doWork();
+    	} catch (IOException e) {
+    		throw new RuntimeIOException(e);
+    	} finally {
+    		INPUT = originalInput;
+    		STOP_AFTER = originalStopAfter;
+    		subsample.delete();
+    		subsampleDir.delete();
+    	}
+    }
     private class GridssProgramProgramInterfaceFactory {
     	public ProgramInterface create(GridssProgram program) {
     		switch (program) {
@@ -85,6 +130,7 @@ public class CollectGridssMetrics extends CollectMultipleMetrics {
 	    	                // overrides
 	    	                program.INPUT = input;
 	    	                program.setReferenceSequence(reference);
+	    	                program.WORKER_THREADS = WORKER_THREADS;
 	
 	    	                return program;
 	    				}
@@ -110,6 +156,7 @@ public class CollectGridssMetrics extends CollectMultipleMetrics {
     		                // overrides
     		                program.INPUT = input;
     		                program.setReferenceSequence(reference);
+    		                program.WORKER_THREADS = WORKER_THREADS;
     		                return program;
     					}
 
@@ -164,6 +211,7 @@ public class CollectGridssMetrics extends CollectMultipleMetrics {
     		                // overrides
     		                program.INPUT = input;
     		                program.setReferenceSequence(reference);
+    		                program.WORKER_THREADS = WORKER_THREADS;
 
     		                return program;
     					}
@@ -192,6 +240,9 @@ public class CollectGridssMetrics extends CollectMultipleMetrics {
     		                program.INPUT = input;
     		                program.setReferenceSequence(reference);
     		                program.THRESHOLD_COVERAGE = THRESHOLD_COVERAGE;
+    		                program.WORKER_THREADS = WORKER_THREADS;
+    		                // coverage from the BAM index would include records after STOP_AFTER
+    		                program.STOP_AFTER = STOP_AFTER;
     		                return program;
     					}
 
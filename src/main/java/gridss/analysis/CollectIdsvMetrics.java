@@ -36,7 +36,6 @@ import htsjdk.samtools.SamPairUtil.PairOrientation;
 import htsjdk.samtools.metrics.MetricsFile;
 import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.util.IOUtil;
-import picard.analysis.SinglePassSamProgram;
 import picard.cmdline.programgroups.Metrics;
 
 @CommandLineProgramProperties(
@@ -45,10 +44,8 @@ import picard.cmdline.programgroups.Metrics;
         oneLineSummary = "Writes idsv metrics for a SAM or BAM file",
         programGroup = Metrics.class
 )
-public class CollectIdsvMetrics extends SinglePassSamProgram {
+public class CollectIdsvMetrics extends ParallelSinglePassSamProgram<CollectIdsvMetrics.IdsvAccumulator> {
 	public static final String METRICS_SUFFIX = ".idsv_metrics";
-	
-    private IdsvMetrics idsv;    
 
     /** Required main method. */
     public static void main(final String[] args) {
@@ -58,56 +55,83 @@ public class CollectIdsvMetrics extends SinglePassSamProgram {
     @Override
     public void setup(final SAMFileHeader header, final File samFile) {
         IOUtil.assertFileIsWritable(OUTPUT);
-        idsv = new IdsvMetrics();
     }
 
     @Override
-    public void acceptRead(final SAMRecord record, final ReferenceSequence ref) {
-    	idsv.MAX_READ_LENGTH = Math.max(idsv.MAX_READ_LENGTH, record.getReadLength());
-    	if (!record.getReadUnmappedFlag()) {
-    		idsv.MAX_READ_MAPPED_LENGTH = Math.max(idsv.MAX_READ_MAPPED_LENGTH, record.getAlignmentEnd() - record.getAlignmentStart() + 1);
-    	}
-    	if (record.getNotPrimaryAlignmentFlag()) {
-    		if (record.getAttribute(SAMTag.SA.name()) == null) {
-    			idsv.SECONDARY_NOT_SPLIT++;
-    		}
-    	}
-    	if (record.getReadPairedFlag()) {
-    		if (record.getProperPairFlag()) {
-	    		int fragmentSize = SAMRecordUtil.estimateFragmentSize(record, PairOrientation.FR);
-	    		fragmentSize = Math.abs(fragmentSize);
-	    		if (idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH == null) {
-	    			idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH = fragmentSize;
-	    		} else {
-	    			idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH = Math.max(idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH, Math.abs(fragmentSize));
+    protected IdsvAccumulator createAccumulator() {
+    	return new IdsvAccumulator();
+    }
+
+    public static class IdsvAccumulator implements ParallelSinglePassSamProgram.Accumulator<IdsvAccumulator> {
+    	private final IdsvMetrics idsv = new IdsvMetrics();
+	    @Override
+	    public void acceptRead(final SAMRecord record, final ReferenceSequence ref) {
+	    	idsv.MAX_READ_LENGTH = Math.max(idsv.MAX_READ_LENGTH, record.getReadLength());
+	    	if (!record.getReadUnmappedFlag()) {
+	    		idsv.MAX_READ_MAPPED_LENGTH = Math.max(idsv.MAX_READ_MAPPED_LENGTH, record.getAlignmentEnd() - record.getAlignmentStart() + 1);
+	    	}
+	    	if (record.getNotPrimaryAlignmentFlag()) {
+	    		if (record.getAttribute(SAMTag.SA.name()) == null) {
+	    			idsv.SECONDARY_NOT_SPLIT++;
 	    		}
-	    		if (idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH == null) {
-	    			idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH = fragmentSize;
-	    		} else {
-	    			idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH = Math.min(idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH, Math.abs(fragmentSize));
+	    	}
+	    	if (record.getReadPairedFlag()) {
+	    		if (record.getProperPairFlag()) {
+		    		int fragmentSize = SAMRecordUtil.estimateFragmentSize(record, PairOrientation.FR);
+		    		fragmentSize = Math.abs(fragmentSize);
+		    		if (idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH == null) {
+		    			idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH = fragmentSize;
+		    		} else {
+		    			idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH = Math.max(idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH, Math.abs(fragmentSize));
+		    		}
+		    		if (idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH == null) {
+		    			idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH = fragmentSize;
+		    		} else {
+		    			idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH = Math.min(idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH, Math.abs(fragmentSize));
+		    		}
 	    		}
-    		}
-    		if (record.getFirstOfPairFlag()) {
-    			idsv.READ_PAIRS++;
-    			if (record.getReadUnmappedFlag() && record.getMateUnmappedFlag()) {
-    				idsv.READ_PAIRS_ZERO_MAPPED++;
-    			} else if (!record.getReadUnmappedFlag() && !record.getMateUnmappedFlag()) {
-    				idsv.READ_PAIRS_BOTH_MAPPED++;
-    			} else {
-    				idsv.READ_PAIRS_ONE_MAPPED++;
-    			}
-    		}
-    	}
-    	idsv.READS++;
-    	if (!record.getReadUnmappedFlag()) {
-    		idsv.MAPPED_READS++;
-    	}
+	    		if (record.getFirstOfPairFlag()) {
+	    			idsv.READ_PAIRS++;
+	    			if (record.getReadUnmappedFlag() && record.getMateUnmappedFlag()) {
+	    				idsv.READ_PAIRS_ZERO_MAPPED++;
+	    			} else if (!record.getReadUnmappedFlag() && !record.getMateUnmappedFlag()) {
+	    				idsv.READ_PAIRS_BOTH_MAPPED++;
+	    			} else {
+	    				idsv.READ_PAIRS_ONE_MAPPED++;
+	    			}
+	    		}
+	    	}
+	    	idsv.READS++;
+	    	if (!record.getReadUnmappedFlag()) {
+	    		idsv.MAPPED_READS++;
+	    	}
+	    }
+
+		@Override
+		public void merge(IdsvAccumulator accumulator) {
+			IdsvMetrics other = accumulator.idsv;
+			idsv.MAX_READ_LENGTH = Math.max(idsv.MAX_READ_LENGTH, other.MAX_READ_LENGTH);
+			idsv.MAX_READ_MAPPED_LENGTH = Math.max(idsv.MAX_READ_MAPPED_LENGTH, other.MAX_READ_MAPPED_LENGTH);
+			if (other.MAX_PROPER_PAIR_FRAGMENT_LENGTH != null) {
+				idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH = idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH == null ? other.MAX_PROPER_PAIR_FRAGMENT_LENGTH : Math.max(idsv.MAX_PROPER_PAIR_FRAGMENT_LENGTH, other.MAX_PROPER_PAIR_FRAGMENT_LENGTH);
+			}
+			if (other.MIN_PROPER_PAIR_FRAGMENT_LENGTH != null) {
+				idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH = idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH == null ? other.MIN_PROPER_PAIR_FRAGMENT_LENGTH : Math.min(idsv.MIN_PROPER_PAIR_FRAGMENT_LENGTH, other.MIN_PROPER_PAIR_FRAGMENT_LENGTH);
+			}
+			idsv.READS += other.READS;
+			idsv.MAPPED_READS += other.MAPPED_READS;
+			idsv.READ_PAIRS += other.READ_PAIRS;
+			idsv.READ_PAIRS_BOTH_MAPPED += other.READ_PAIRS_BOTH_MAPPED;
+			idsv.READ_PAIRS_ONE_MAPPED += other.READ_PAIRS_ONE_MAPPED;
+			idsv.READ_PAIRS_ZERO_MAPPED += other.READ_PAIRS_ZERO_MAPPED;
+			idsv.SECONDARY_NOT_SPLIT += other.SECONDARY_NOT_SPLIT;
+		}
     }
     
     @Override
-    public void finish() {
+    protected void finish(IdsvAccumulator accumulator) {
         final MetricsFile<IdsvMetrics, Integer> metricsFile = getMetricsFile();
-        metricsFile.addMetric(idsv);
+        metricsFile.addMetric(accumulator.idsv);
         metricsFile.write(OUTPUT);
     }
 }
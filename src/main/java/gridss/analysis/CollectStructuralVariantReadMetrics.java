@@ -20,6 +20,18 @@ import htsjdk.samtools.filter.AlignedFilter;
 import htsjdk.samtools.metrics.MetricsFile;
 import picard.cmdline.programgroups.Metrics;
 
+/**
+ * Counts structural variant supporting reads.
+ *
+ * Unlike the other metrics programs, this program does not process records on worker
+ * threads. It is driven fragment by fragment from the serial {@link ExtractSVReads} pass,
+ * which must write its output in input order. The per-fragment work is a handful of flag
+ * and CIGAR checks that {@link ExtractSVReads} also performs, so copying each fragment
+ * and handing it to a worker thread would cost more than the counting itself.
+ *
+ * @author Daniel Cameron
+ *
+ */
 @CommandLineProgramProperties(
 		summary = "Collects metrics regarding the structural variant reads present in the input.",
 		oneLineSummary = "Collects metrics regarding the structural variant reads present in the input.",
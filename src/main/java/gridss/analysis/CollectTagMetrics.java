@@ -37,7 +37,6 @@ import htsjdk.samtools.SAMRecord.SAMTagAndValue;
 import htsjdk.samtools.metrics.MetricsFile;
 import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.util.IOUtil;
-import picard.analysis.SinglePassSamProgram;
 import picard.cmdline.programgroups.Metrics;
 
 @CommandLineProgramProperties(
@@ -46,10 +45,8 @@ import picard.cmdline.programgroups.Metrics;
         oneLineSummary = "Writes SAM tag metrics for a SAM or BAM file",
         programGroup = Metrics.class
 )
-public class CollectTagMetrics extends SinglePassSamProgram {
+public class CollectTagMetrics extends ParallelSinglePassSamProgram<CollectTagMetrics.TagAccumulator> {
 	public static final String METRICS_SUFFIX = ".tag_metrics";
-	
-	private Map<String, TagSummaryMetrics> tags = new HashMap<>();
 
     /** Required main method. */
     public static void main(final String[] args) {
@@ -59,13 +56,22 @@ public class CollectTagMetrics extends SinglePassSamProgram {
     @Override
     protected void setup(final SAMFileHeader header, final File samFile) {
         IOUtil.assertFileIsWritable(OUTPUT);
-        tags = new HashMap<>();
     }
 
     @Override
-    protected void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
-    	for (SAMTagAndValue attr : rec.getAttributes()) {
-    		String tag = attr.tag;
+    protected TagAccumulator createAccumulator() {
+    	return new TagAccumulator();
+    }
+
+    public static class TagAccumulator implements ParallelSinglePassSamProgram.Accumulator<TagAccumulator> {
+    	private final Map<String, TagSummaryMetrics> tags = new HashMap<>();
+	    @Override
+	    public void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
+	    	for (SAMTagAndValue attr : rec.getAttributes()) {
+	    		add(attr.tag, 1);
+	    	}
+	    }
+	    private void add(String tag, long count) {
     		TagSummaryMetrics metric = tags.get(tag);
     		if (metric == null) {
     			metric = new TagSummaryMetrics();
@@ -73,15 +79,20 @@ public class CollectTagMetrics extends SinglePassSamProgram {
     			metric.COUNT = 0;
     			tags.put(tag, metric);
     		}
-    		metric.COUNT++;
-    		
-    	}
+    		metric.COUNT += count;
+	    }
+		@Override
+		public void merge(TagAccumulator accumulator) {
+			for (TagSummaryMetrics metric : accumulator.tags.values()) {
+				add(metric.TAG, metric.COUNT);
+			}
+		}
     }
     
     @Override
-    protected void finish() {
+    protected void finish(TagAccumulator accumulator) {
         final MetricsFile<TagSummaryMetrics, Integer> metrics = getMetricsFile();
-        tags.values().stream()
+        accumulator.tags.values().stream()
         	.sorted(Comparator.comparing(m -> m.TAG))
         	.forEach(metric -> { metrics.addMetric(metric); });
         metrics.write(OUTPUT);
@@ -24,7 +24,10 @@
 
 package gridss.analysis;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import au.edu.wehi.idsv.ReadGcSummary;
@@ -44,6 +47,10 @@ import picard.metrics.PerUnitMetricCollector;
 public class GcMetricsCollector extends MultiLevelCollector<GcMetrics, Integer, Integer> {
 	private final int defaultFragmentSize; 
 	private final ReadPairConcordanceCalculator rpcc;
+	/**
+	 * Child collectors by sample, library and read group so collectors can be merged
+	 */
+	private final Map<List<String>, PerUnitGcMetricsCollector> children = new LinkedHashMap<>();
     public GcMetricsCollector(final int defaultFragmentSize, final ReadPairConcordanceCalculator rpcc,
     		final Set<MetricAccumulationLevel> accumulationLevels, final List<SAMReadGroupRecord> samRgRecords) {
     	this.defaultFragmentSize = defaultFragmentSize;
@@ -59,7 +66,23 @@ public class GcMetricsCollector extends MultiLevelCollector<GcMetrics, Integer,
     /** Make an InsertSizeCollector with the given arguments */
     @Override
     protected PerUnitMetricCollector<GcMetrics, Integer, Integer> makeChildCollector(final String sample, final String library, final String readGroup) {
-        return new PerUnitGcMetricsCollector(sample, library, readGroup);
+        PerUnitGcMetricsCollector child = new PerUnitGcMetricsCollector(sample, library, readGroup);
+        children.put(Arrays.asList(sample, library, readGroup), child);
+        return child;
+    }
+
+    /**
+     * Adds the GC histograms of the given collector to this collector.
+     * Both collectors must have been created with the same accumulation levels and read groups.
+     */
+    public void merge(GcMetricsCollector collector) {
+        for (Map.Entry<List<String>, PerUnitGcMetricsCollector> entry : collector.children.entrySet()) {
+            PerUnitGcMetricsCollector child = children.get(entry.getKey());
+            if (child == null) {
+                throw new IllegalArgumentException("Cannot merge GC metrics collected at different accumulation levels");
+            }
+            child.histogram.addHistogram(entry.getValue().histogram);
+        }
     }
 
     @Override
@@ -0,0 +1,153 @@
+package gridss.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gridss.analysis.ParallelSinglePassSamProgram.Accumulator;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+
+/**
+ * Processes records on worker threads using thread-local accumulators.
+ *
+ * Records are buffered into batches on the calling thread and each batch
+ * is processed by a thread-local accumulator. The accumulators are merged once all
+ * records have been read. Since the metrics are aggregates that do not depend on record
+ * order, the merged metrics are identical to single-threaded collection.
+ *
+ * Records are fully decoded before being handed to worker threads as the same record
+ * objects are concurrently passed to any other programs sharing the pass over the input.
+ *
+ * Only per-record work is parallelised. BGZF blocks are still decompressed and decoded
+ * into records by the single thread reading the input (or htsjdk's single async IO
+ * thread). Decoding blocks in parallel would require splitting the input on BGZF block
+ * and record boundaries, which htsjdk's SamReader does not support.
+ *
+ * @author Daniel Cameron
+ *
+ * @param <T> accumulator type
+ */
+public class ParallelRecordAccumulator<T extends Accumulator<T>> {
+	private static final int BATCH_SIZE = 1024;
+	/**
+	 * Number of batches per worker thread that can be waiting to be processed
+	 */
+	private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
+	private final Supplier<T> factory;
+	private T accumulator = null;
+	private ExecutorService threadpool = null;
+	private Semaphore inFlight;
+	private List<T> threadAccumulators;
+	private ThreadLocal<T> threadAccumulator;
+	private AtomicReference<Throwable> workerError;
+	private List<SAMRecord> recordBatch;
+	private List<ReferenceSequence> referenceBatch;
+	/**
+	 * @param threads number of worker threads. Records are processed on the calling thread if 1 or less.
+	 * @param threadName worker thread name prefix
+	 * @param factory creates a new accumulator with no records
+	 */
+	public ParallelRecordAccumulator(int threads, String threadName, Supplier<T> factory) {
+		this.factory = factory;
+		if (threads <= 1) {
+			accumulator = factory.get();
+		} else {
+			threadpool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat(threadName + "-%d").build());
+			inFlight = new Semaphore(threads * BATCHES_IN_FLIGHT_PER_THREAD);
+			threadAccumulators = Collections.synchronizedList(new ArrayList<>());
+			threadAccumulator = ThreadLocal.withInitial(() -> {
+				T acc = factory.get();
+				threadAccumulators.add(acc);
+				return acc;
+			});
+			workerError = new AtomicReference<>();
+			recordBatch = new ArrayList<>(BATCH_SIZE);
+			referenceBatch = new ArrayList<>(BATCH_SIZE);
+		}
+	}
+	public void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
+		if (threadpool == null) {
+			accumulator.acceptRead(rec, ref);
+			return;
+		}
+		decode(rec);
+		recordBatch.add(rec);
+		referenceBatch.add(ref);
+		if (recordBatch.size() >= BATCH_SIZE) {
+			flush();
+		}
+	}
+	/**
+	 * Decodes all lazily decoded record fields as lazy decoding is not thread-safe
+	 */
+	private static void decode(SAMRecord rec) {
+		rec.getReadName();
+		rec.getCigar();
+		rec.getReadBases();
+		rec.getBaseQualities();
+		rec.getAttributes();
+	}
+	private void flush() {
+		checkWorkerError();
+		if (recordBatch.isEmpty()) return;
+		final List<SAMRecord> records = recordBatch;
+		final List<ReferenceSequence> references = referenceBatch;
+		recordBatch = new ArrayList<>(BATCH_SIZE);
+		referenceBatch = new ArrayList<>(BATCH_SIZE);
+		inFlight.acquireUninterruptibly();
+		threadpool.execute(() -> {
+			try {
+				T acc = threadAccumulator.get();
+				for (int i = 0; i < records.size(); i++) {
+					acc.acceptRead(records.get(i), references.get(i));
+				}
+			} catch (Throwable e) {
+				workerError.compareAndSet(null, e);
+			} finally {
+				inFlight.release();
+			}
+		});
+	}
+	private void checkWorkerError() {
+		Throwable e = workerError.get();
+		if (e != null) {
+			threadpool.shutdownNow();
+			if (e instanceof RuntimeException) throw (RuntimeException)e;
+			if (e instanceof Error) throw (Error)e;
+			throw new RuntimeException(e);
+		}
+	}
+	/**
+	 * Waits for all records to be processed
+	 * @return metrics of all records
+	 */
+	public T finish() {
+		if (threadpool == null) {
+			return accumulator;
+		}
+		flush();
+		threadpool.shutdown();
+		try {
+			while (!threadpool.awaitTermination(1, TimeUnit.MINUTES)) {
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		checkWorkerError();
+		T result = factory.get();
+		for (T acc : threadAccumulators) {
+			result.merge(acc);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,57 @@
+package gridss.analysis;
+
+import org.broadinstitute.barclay.argparser.Argument;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import picard.analysis.SinglePassSamProgram;
+
+/**
+ * Single pass metrics program that processes records on worker threads
+ * using a {@link ParallelRecordAccumulator}.
+ *
+ * @author Daniel Cameron
+ *
+ * @param <T> accumulator type
+ */
+public abstract class ParallelSinglePassSamProgram<T extends ParallelSinglePassSamProgram.Accumulator<T>> extends SinglePassSamProgram {
+	@Argument(doc="Number of worker threads to process records on.", shortName="THREADS", optional=true)
+	public int WORKER_THREADS = 1;
+	/**
+	 * Metrics collected from a subset of the input records
+	 */
+	public interface Accumulator<T> {
+		void acceptRead(SAMRecord record, ReferenceSequence ref);
+		/**
+		 * Adds the metrics collected by the given accumulator to this accumulator
+		 */
+		void merge(T accumulator);
+	}
+	private ParallelRecordAccumulator<T> records = null;
+	/**
+	 * Creates a new accumulator with no records
+	 */
+	protected abstract T createAccumulator();
+	/**
+	 * Writes the collected metrics
+	 * @param accumulator metrics of all records
+	 */
+	protected abstract void finish(T accumulator);
+	private void ensureInitialised() {
+		if (records == null) {
+			records = new ParallelRecordAccumulator<>(WORKER_THREADS, getClass().getSimpleName(), this::createAccumulator);
+		}
+	}
+	@Override
+	protected void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
+		ensureInitialised();
+		records.acceptRead(rec, ref);
+	}
+	@Override
+	protected void finish() {
+		ensureInitialised();
+		T result = records.finish();
+		records = null;
+		finish(result);
+	}
+}
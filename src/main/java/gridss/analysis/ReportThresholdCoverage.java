@@ -26,11 +26,18 @@ package gridss.analysis;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import au.edu.wehi.idsv.GenomicProcessingContext;
+import au.edu.wehi.idsv.IndexedCoverageThreshold;
 import au.edu.wehi.idsv.LinearGenomicCoordinate;
 import au.edu.wehi.idsv.PaddedLinearGenomicCoordinate;
 import au.edu.wehi.idsv.SequentialCoverageThreshold;
@@ -39,6 +46,7 @@ import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.util.Log;
 import picard.analysis.SinglePassSamProgram;
 
 @CommandLineProgramProperties(
@@ -47,12 +55,20 @@ import picard.analysis.SinglePassSamProgram;
         programGroup = picard.cmdline.programgroups.SamOrBam.class
 )
 public class ReportThresholdCoverage extends SinglePassSamProgram {
+	private static final Log log = Log.getInstance(ReportThresholdCoverage.class);
 	public static final String SUFFIX = ".coverage.blacklist.bed";
 	
 	@Argument(doc = "Minimum coverage to report.", optional=false)
 	public int THRESHOLD_COVERAGE;
+	@Argument(doc = "Calculate coverage in parallel using the BAM index when the input is an indexed coordinate sorted BAM. "
+			+ "Ignored if STOP_AFTER is set.", optional=true)
+	public boolean USE_INDEX = true;
+	@Argument(doc="Number of worker threads to spawn when calculating coverage from the BAM index. Defaults to number of cores available.", shortName="THREADS", optional=true)
+	public int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
 	
 	private SequentialCoverageThreshold threshold;
+	private ExecutorService threadpool;
+	private Future<IntervalBed> indexedResult;
 	
     /** Required main method. */
     public static void main(final String[] args) {
@@ -62,21 +78,48 @@ public class ReportThresholdCoverage extends SinglePassSamProgram {
     protected void setup(final SAMFileHeader header, final File samFile) {
     	SAMSequenceDictionary dictionary = header.getSequenceDictionary();
     	LinearGenomicCoordinate linear = new PaddedLinearGenomicCoordinate(dictionary, GenomicProcessingContext.LINEAR_COORDINATE_CHROMOSOME_BUFFER, true);
-    	this.threshold = new SequentialCoverageThreshold(dictionary, linear, THRESHOLD_COVERAGE);
+    	if (USE_INDEX && STOP_AFTER <= 0 && IndexedCoverageThreshold.canUseIndex(samFile)) {
+    		// calculate coverage in the background whilst the single pass over the file is
+    		// performed for any other metrics programs
+    		IndexedCoverageThreshold indexed = new IndexedCoverageThreshold(samFile, dictionary, linear, THRESHOLD_COVERAGE, IndexedCoverageThreshold.DEFAULT_TILE_SIZE);
+    		log.info(String.format("Calculating coverage from index using %d worker threads", WORKER_THREADS));
+    		threadpool = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ReportThresholdCoverage-%d").build());
+    		ExecutorService coordinator = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ReportThresholdCoverage").build());
+    		indexedResult = coordinator.submit(() -> indexed.calculate(threadpool));
+    		coordinator.shutdown();
+    	} else {
+    		this.threshold = new SequentialCoverageThreshold(dictionary, linear, THRESHOLD_COVERAGE);
+    	}
     }
 
     @Override
     protected void acceptRead(final SAMRecord rec, final ReferenceSequence ref) {
-    	this.threshold.acceptRecord(rec);
+    	if (threshold != null) {
+    		this.threshold.acceptRecord(rec);
+    	}
     }
     
     @Override
     protected void finish() {
-    	IntervalBed bed = this.threshold.finish();
     	try {
+    		IntervalBed bed;
+    		if (indexedResult != null) {
+    			try {
+    				bed = indexedResult.get();
+    			} finally {
+    				threadpool.shutdown();
+    			}
+    		} else {
+    			bed = this.threshold.finish();
+    		}
 			bed.write(OUTPUT, INPUT.getName());
 		} catch (IOException e) {
 			throw new RuntimeException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
 		}
     }
 }
@@ -0,0 +1,151 @@
+package gridss.analysis;
+
+import java.io.File;
+import java.io.IOException;
+
+import htsjdk.samtools.AbstractBAMFileIndex;
+import htsjdk.samtools.BAMIndex;
+import htsjdk.samtools.BAMIndexMetaData;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+
+/**
+ * Subsamples an indexed, coordinate sorted BAM file by taking records from evenly
+ * spaced regions across the genome.
+ *
+ * The number of records taken from each contig is proportional to the number of records
+ * on that contig reported by the BAM index, and unplaced unmapped records are sampled
+ * in proportion to their count. Within each contig, records are taken from the start of
+ * evenly spaced regions so the subsample remains coordinate sorted.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class UniformSubsample {
+	public static final int DEFAULT_REGIONS = 1024;
+	private final File input;
+	private final File reference;
+	private final int regions;
+	public UniformSubsample(File input, File reference, int regions) {
+		if (regions <= 0) throw new IllegalArgumentException("Number of regions must be greater than zero.");
+		this.input = input;
+		this.reference = reference;
+		this.regions = regions;
+	}
+	/**
+	 * Determines whether the given file can be subsampled using the BAM index
+	 * @param file input file
+	 * @return true if the file is an indexed coordinate sorted BAM
+	 */
+	public static boolean canSubsample(File file, File reference) {
+		if (file == null || !file.isFile()) return false;
+		try (SamReader reader = open(file, reference)) {
+			return reader.type() == SamReader.Type.BAM_TYPE
+					&& reader.hasIndex()
+					&& reader.getFileHeader().getSortOrder() == SortOrder.coordinate;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+	private static SamReader open(File file, File reference) {
+		SamReaderFactory factory = SamReaderFactory.makeDefault();
+		if (reference != null) {
+			factory = factory.referenceSequence(reference);
+		}
+		return factory.open(file);
+	}
+	/**
+	 * Writes approximately the given number of records to the output file.
+	 * Fewer records are written if regions contain fewer records than their share.
+	 * @param output uncompressed BAM output file
+	 * @param records number of records to sample
+	 * @return number of records written
+	 */
+	public long write(File output, long records) throws IOException {
+		try (SamReader reader = open(input, reference)) {
+			SAMFileHeader header = reader.getFileHeader();
+			SAMSequenceDictionary dict = header.getSequenceDictionary();
+			BAMIndex index = reader.indexing().getIndex();
+			long[] counts = new long[dict.size() + 1];
+			for (int i = 0; i < dict.size(); i++) {
+				BAMIndexMetaData md = index.getMetaData(i);
+				if (md != null) {
+					counts[i] = md.getAlignedRecordCount() + md.getUnalignedRecordCount();
+				}
+			}
+			if (index instanceof AbstractBAMFileIndex) {
+				Long noCoordinate = ((AbstractBAMFileIndex)index).getNoCoordinateCount();
+				counts[dict.size()] = noCoordinate == null ? 0 : noCoordinate;
+			}
+			long[] budget = apportion(counts, records);
+			long genomeLength = Math.max(1, dict.getReferenceLength());
+			long written = 0;
+			try (SAMFileWriter writer = new SAMFileWriterFactory()
+					.setCreateIndex(false)
+					.setCompressionLevel(0)
+					.makeBAMWriter(header, true, output)) {
+				for (int i = 0; i < dict.size(); i++) {
+					if (budget[i] <= 0) continue;
+					int length = dict.getSequence(i).getSequenceLength();
+					int contigRegions = (int)Math.max(1, Math.min(budget[i], (long)Math.ceil((double)length * regions / genomeLength)));
+					long[] regionBudget = apportion(new long[contigRegions], budget[i]);
+					String contig = dict.getSequence(i).getSequenceName();
+					for (int j = 0; j < contigRegions; j++) {
+						int start = 1 + (int)((long)length * j / contigRegions);
+						int end = (int)((long)length * (j + 1) / contigRegions);
+						if (start > end) continue;
+						long taken = 0;
+						try (SAMRecordIterator it = reader.queryOverlapping(contig, start, end)) {
+							while (taken < regionBudget[j] && it.hasNext()) {
+								SAMRecord r = it.next();
+								// records overlapping the region start belong to the previous region
+								if (r.getAlignmentStart() >= start) {
+									writer.addAlignment(r);
+									taken++;
+								}
+							}
+						}
+						written += taken;
+					}
+				}
+				long unplacedBudget = budget[dict.size()];
+				if (unplacedBudget > 0) {
+					try (SAMRecordIterator it = reader.queryUnmapped()) {
+						for (long taken = 0; taken < unplacedBudget && it.hasNext(); taken++) {
+							writer.addAlignment(it.next());
+							written++;
+						}
+					}
+				}
+			}
+			return written;
+		}
+	}
+	/**
+	 * Splits the total between the given weights such that the shares sum to the total.
+	 * Totals are split evenly if all weights are zero.
+	 */
+	private static long[] apportion(long[] weights, long total) {
+		long weightSum = 0;
+		for (long w : weights) {
+			weightSum += w;
+		}
+		long[] share = new long[weights.length];
+		long cumulativeWeight = 0;
+		long allocated = 0;
+		for (int i = 0; i < weights.length; i++) {
+			cumulativeWeight += weightSum == 0 ? 1 : weights[i];
+			long cumulativeShare = cumulativeWeight * total / (weightSum == 0 ? weights.length : weightSum);
+			share[i] = cumulativeShare - allocated;
+			allocated = cumulativeShare;
+		}
+		return share;
+	}
+}
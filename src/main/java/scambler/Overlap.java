@@ -10,6 +10,13 @@ public class Overlap {
 		this.matchingBases = PackedSequence.overlapMatches(read1.getSeq(), read2.getSeq(), read2StartRelativeToRead1);
 		this.overlap = PackedSequence.overlapLength(read1.getSeq(), read2.getSeq(), read2StartRelativeToRead1);
 	}
+	public Overlap(Read read1, Read read2, int read2StartRelativeToRead1, int matchingBases, int overlap) {
+		this.read1 = read1;
+		this.read2 = read2;
+		this.read2StartRelativeToRead1 = read2StartRelativeToRead1;
+		this.matchingBases = matchingBases;
+		this.overlap = overlap;
+	}
 	public final Read read1;
 	public final Read read2;
 	public final int read2StartRelativeToRead1;
@@ -0,0 +1,65 @@
+package scambler;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Compact primitive list of read overlaps.
+ *
+ * Each edge indicates that the end of the first read overlaps the start of
+ * the second read, with the second read starting at the given offset of the
+ * first read.
+ *
+ * @author Daniel Cameron
+ *
+ */
+public class OverlapEdgeList {
+	private final IntArrayList read1 = new IntArrayList();
+	private final IntArrayList read2 = new IntArrayList();
+	private final IntArrayList offset = new IntArrayList();
+	private final IntArrayList overlap = new IntArrayList();
+	private final IntArrayList mismatches = new IntArrayList();
+	public void add(int read1, int read2, int offset, int overlap, int mismatches) {
+		this.read1.add(read1);
+		this.read2.add(read2);
+		this.offset.add(offset);
+		this.overlap.add(overlap);
+		this.mismatches.add(mismatches);
+	}
+	public void addAll(OverlapEdgeList list) {
+		read1.addAll(list.read1);
+		read2.addAll(list.read2);
+		offset.addAll(list.offset);
+		overlap.addAll(list.overlap);
+		mismatches.addAll(list.mismatches);
+	}
+	public int size() {
+		return read1.size();
+	}
+	/**
+	 * Index of the read whose end overlaps
+	 */
+	public int getRead1(int edge) {
+		return read1.getInt(edge);
+	}
+	/**
+	 * Index of the read whose start overlaps
+	 */
+	public int getRead2(int edge) {
+		return read2.getInt(edge);
+	}
+	/**
+	 * Offset of the start of read 2 relative to the start of read 1
+	 */
+	public int getOffset(int edge) {
+		return offset.getInt(edge);
+	}
+	/**
+	 * Number of overlapping bases
+	 */
+	public int getOverlap(int edge) {
+		return overlap.getInt(edge);
+	}
+	public int getMismatches(int edge) {
+		return mismatches.getInt(edge);
+	}
+}
@@ -2,42 +2,226 @@ package scambler;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import au.edu.wehi.idsv.debruijn.PackedSequence;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
+/**
+ * Minimizer index for finding read overlaps.
+ *
+ * The (w,k)-minimizers of every read are indexed. Candidate overlaps are
+ * generated by bucketing shared minimizers by read and diagonal, then verified
+ * by counting mismatches across the full overlap.
+ *
+ * Reads must not be added once overlaps have been queried.
+ *
+ * @author Daniel Cameron
+ *
+ */
 public class OverlapLookup {
-	private final int MAX_MISMATCHES = 0;
+	/**
+	 * Reads per fork join task leaf
+	 */
+	private static final int READS_PER_TASK = 256;
 	private final int minOverlap;
 	private final int kmerSize;
-	private final Long2ObjectOpenHashMap<List<Read>> lookup = new Long2ObjectOpenHashMap<>();
+	private final int windowSize;
+	private final int maxMismatches;
+	private final List<Read> reads = new ArrayList<>();
+	private Long2ObjectOpenHashMap<LongArrayList> lookup = null;
 	public OverlapLookup(int minOverlap) {
+		this(minOverlap, Math.min(15, minOverlap), Math.max(1, Math.min(10, minOverlap - Math.min(15, minOverlap) + 1)), 0);
+	}
+	/**
+	 * @param minOverlap minimum number of overlapping bases
+	 * @param kmerSize minimizer kmer size
+	 * @param windowSize number of consecutive kmers in each minimizer window.
+	 * Overlaps of at least windowSize + kmerSize - 1 bases are guaranteed to share
+	 * a minimizer if the overlap contains no mismatches.
+	 * @param maxMismatches maximum number of mismatched bases in the overlap
+	 */
+	public OverlapLookup(int minOverlap, int kmerSize, int windowSize, int maxMismatches) {
+		if (kmerSize < 1 || kmerSize > 31) throw new IllegalArgumentException("kmer size must be between 1 and 31");
+		if (windowSize < 1) throw new IllegalArgumentException("window size must be positive");
+		if (minOverlap < kmerSize) throw new IllegalArgumentException("minimum overlap must be at least the kmer size");
 		this.minOverlap = minOverlap;
-		this.kmerSize = Math.min(32, minOverlap);
+		this.kmerSize = kmerSize;
+		this.windowSize = windowSize;
+		this.maxMismatches = maxMismatches;
 	}
-	public void add(Read r) {
-		long key = r.getSeq().getKmer(0, kmerSize);
-		List<Read> entry = lookup.get(key);
-		if (entry == null) {
-			entry = new ArrayList<>(4);
-			lookup.put(key, entry);
-		}
-		entry.add(r);
+	public synchronized void add(Read r) {
+		if (lookup != null) throw new IllegalStateException("Cannot add reads after overlaps have been queried");
+		reads.add(r);
 	}
-	public List<Overlap> successors(Read r) {
-		PackedSequence seq = r.getSeq();
-		List<Overlap> overlaps = new ArrayList<>();
-		for (int i = 0; i < seq.length() - kmerSize; i++) {
-			long kmer = seq.getKmer(i, kmerSize);
-			for (Read hit : lookup.get(kmer)) {
-				if (hit != r) {
-					Overlap o = new Overlap(r, hit, i);
-					if (o.matchingBases + MAX_MISMATCHES >= o.overlap && o.overlap >= minOverlap) {
-						overlaps.add(o);
+	public Read getRead(int index) {
+		return reads.get(index);
+	}
+	public int size() {
+		return reads.size();
+	}
+	private synchronized Long2ObjectOpenHashMap<LongArrayList> getLookup() {
+		if (lookup == null) {
+			Long2ObjectOpenHashMap<LongArrayList> index = new Long2ObjectOpenHashMap<>();
+			LongArrayList minimizers = new LongArrayList();
+			for (int i = 0; i < reads.size(); i++) {
+				minimizers.clear();
+				minimizers(reads.get(i).getSeq(), minimizers);
+				for (int j = 0; j < minimizers.size(); j += 2) {
+					long hash = minimizers.getLong(j);
+					int position = (int)minimizers.getLong(j + 1);
+					LongArrayList entry = index.get(hash);
+					if (entry == null) {
+						entry = new LongArrayList(2);
+						index.put(hash, entry);
 					}
+					entry.add(((long)i << 32) | position);
+				}
+			}
+			lookup = index;
+		}
+		return lookup;
+	}
+	/**
+	 * Invertible hash so minimizers are not biased towards low complexity kmers
+	 */
+	private static long hash(long kmer) {
+		kmer ^= kmer >>> 33;
+		kmer *= 0xff51afd7ed558ccdL;
+		kmer ^= kmer >>> 33;
+		kmer *= 0xc4ceb9fe1a85ec53L;
+		kmer ^= kmer >>> 33;
+		return kmer;
+	}
+	/**
+	 * Calculates the minimizers of the given sequence
+	 * @param seq sequence
+	 * @param out pairs of (kmer hash, kmer offset)
+	 */
+	private void minimizers(PackedSequence seq, LongArrayList out) {
+		int kmers = seq.length() - kmerSize + 1;
+		if (kmers <= 0) return;
+		long[] hashes = new long[kmers];
+		for (int i = 0; i < kmers; i++) {
+			hashes[i] = hash(seq.getKmer(i, kmerSize));
+		}
+		// monotonic deque of kmer offsets with increasing hash
+		int[] deque = new int[kmers];
+		int head = 0;
+		int tail = 0;
+		int lastReported = -1;
+		for (int i = 0; i < kmers; i++) {
+			while (tail > head && Long.compareUnsigned(hashes[deque[tail - 1]], hashes[i]) > 0) tail--;
+			deque[tail++] = i;
+			if (deque[head] <= i - windowSize) head++;
+			if (i >= windowSize - 1 || i == kmers - 1) {
+				int min = deque[head];
+				if (min != lastReported) {
+					out.add(hashes[min]);
+					out.add(min);
+					lastReported = min;
+				}
+			}
+		}
+	}
+	/**
+	 * Counts the mismatches between read1 and read2 when read2 starts at the given offset of read1
+	 * @return number of mismatches, or a number greater than maxMismatches if the maximum has been exceeded
+	 */
+	private int mismatches(PackedSequence s1, PackedSequence s2, int offset, int overlap) {
+		int mismatches = 0;
+		for (int i = 0; i < overlap && mismatches <= maxMismatches; i += 31) {
+			int length = Math.min(31, overlap - i);
+			long diff = s1.getKmer(offset + i, length) ^ s2.getKmer(i, length);
+			// collapse each 2 bit base difference into a single bit
+			diff = (diff | (diff >>> 1)) & 0x5555555555555555L;
+			mismatches += Long.bitCount(diff);
+		}
+		return mismatches;
+	}
+	/**
+	 * Finds reads whose start overlaps the end of the given read
+	 * @param readIndex index of read
+	 * @param out overlaps found
+	 * @param seen working set of (read, diagonal) candidates already considered
+	 */
+	private void successors(int readIndex, OverlapEdgeList out, LongOpenHashSet seen, LongArrayList minimizers) {
+		Long2ObjectOpenHashMap<LongArrayList> index = getLookup();
+		PackedSequence seq = reads.get(readIndex).getSeq();
+		minimizers.clear();
+		seen.clear();
+		minimizers(seq, minimizers);
+		for (int j = 0; j < minimizers.size(); j += 2) {
+			LongArrayList hits = index.get(minimizers.getLong(j));
+			if (hits == null) continue;
+			int position = (int)minimizers.getLong(j + 1);
+			for (int h = 0; h < hits.size(); h++) {
+				long hit = hits.getLong(h);
+				int hitIndex = (int)(hit >>> 32);
+				int hitPosition = (int)hit;
+				// diagonal of the overlap: offset of the start of the hit relative to the start of the read
+				int offset = position - hitPosition;
+				if (hitIndex == readIndex || offset < 0) continue;
+				if (!seen.add(((long)hitIndex << 32) | offset)) continue;
+				PackedSequence hitSeq = reads.get(hitIndex).getSeq();
+				int overlap = Math.min(seq.length() - offset, hitSeq.length());
+				if (overlap < minOverlap) continue;
+				int mismatches = mismatches(seq, hitSeq, offset, overlap);
+				if (mismatches <= maxMismatches) {
+					out.add(readIndex, hitIndex, offset, overlap, mismatches);
 				}
 			}
 		}
+	}
+	public List<Overlap> successors(Read r) {
+		int readIndex = reads.indexOf(r);
+		if (readIndex < 0) throw new IllegalArgumentException("Read not in lookup");
+		OverlapEdgeList edges = new OverlapEdgeList();
+		successors(readIndex, edges, new LongOpenHashSet(), new LongArrayList());
+		List<Overlap> overlaps = new ArrayList<>(edges.size());
+		for (int i = 0; i < edges.size(); i++) {
+			overlaps.add(new Overlap(r, reads.get(edges.getRead2(i)), edges.getOffset(i), edges.getOverlap(i) - edges.getMismatches(i), edges.getOverlap(i)));
+		}
 		return overlaps;
 	}
+	/**
+	 * Finds all overlaps between reads
+	 * @param pool fork join pool to find overlaps with
+	 * @return overlaps ordered by read
+	 */
+	public OverlapEdgeList overlaps(ForkJoinPool pool) {
+		getLookup();
+		return pool.invoke(new SuccessorTask(0, reads.size()));
+	}
+	private class SuccessorTask extends RecursiveTask<OverlapEdgeList> {
+		private static final long serialVersionUID = 1L;
+		private final int start;
+		private final int end;
+		public SuccessorTask(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+		@Override
+		protected OverlapEdgeList compute() {
+			if (end - start <= READS_PER_TASK) {
+				OverlapEdgeList edges = new OverlapEdgeList();
+				LongOpenHashSet seen = new LongOpenHashSet();
+				LongArrayList minimizers = new LongArrayList();
+				for (int i = start; i < end; i++) {
+					successors(i, edges, seen, minimizers);
+				}
+				return edges;
+			}
+			int mid = (start + end) >>> 1;
+			SuccessorTask left = new SuccessorTask(start, mid);
+			left.fork();
+			OverlapEdgeList right = new SuccessorTask(mid, end).compute();
+			OverlapEdgeList result = left.join();
+			result.addAll(right);
+			return result;
+		}
+	}
 }
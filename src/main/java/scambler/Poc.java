@@ -1,11 +1,11 @@
 package scambler;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-
-import com.google.common.collect.Maps;
+import java.util.concurrent.ForkJoinPool;
 
 import au.edu.wehi.idsv.sam.SAMRecordUtil;
 import au.edu.wehi.idsv.visualisation.GexfHelper;
@@ -72,25 +72,22 @@ public class Poc {
 		// Attribute attrMismatch = edgeAttrList.createAttribute("mm", AttributeType.INTEGER, "base mismatches");
 		graph.getAttributeLists().add(edgeAttrList);
 		
-		HashMap<Read, Node> startLookup = Maps.newHashMap();
-		HashMap<Read, Node> endLookup = Maps.newHashMap();
+		List<Node> startLookup = new ArrayList<>(reads.size());
+		List<Node> endLookup = new ArrayList<>(reads.size());
 		OverlapLookup ol = new OverlapLookup(minOverlap);
 		for (SAMRecord sam : reads) {
 			Read r = Read.create(sam);
-			Node startnode = graph.createNode("start_" + sam.getReadName() + "/" + (SAMRecordUtil.getSegmentIndex(sam) + 1));
-			Node endnode = graph.createNode("end_" + sam.getReadName() + "/" + (SAMRecordUtil.getSegmentIndex(sam) + 1));
-			startLookup.put(r, startnode);
-			endLookup.put(r, endnode);
+			startLookup.add(graph.createNode("start_" + sam.getReadName() + "/" + (SAMRecordUtil.getSegmentIndex(sam) + 1)));
+			endLookup.add(graph.createNode("end_" + sam.getReadName() + "/" + (SAMRecordUtil.getSegmentIndex(sam) + 1)));
 			ol.add(r);
 		}
-		for (Read r : startLookup.keySet()) {
-			Node rend = endLookup.get(r);
-			for (Overlap o : ol.successors(r)) {
-				Node ostart = startLookup.get(o.read2);
-				Edge edge = ostart.connectTo(rend).setEdgeType(EdgeType.DIRECTED);
-				edge.setWeight(o.overlap);
-				edge.getAttributeValues().createValue(attrSeq, o.read2.getRead().getReadBases().toString().substring(0, o.overlap));
-			}
+		OverlapEdgeList edges = ol.overlaps(ForkJoinPool.commonPool());
+		for (int i = 0; i < edges.size(); i++) {
+			Node ostart = startLookup.get(edges.getRead2(i));
+			Node rend = endLookup.get(edges.getRead1(i));
+			Edge edge = ostart.connectTo(rend).setEdgeType(EdgeType.DIRECTED);
+			edge.setWeight(edges.getOverlap(i));
+			edge.getAttributeValues().createValue(attrSeq, new String(ol.getRead(edges.getRead2(i)).getRead().getReadBases(), 0, edges.getOverlap(i), StandardCharsets.US_ASCII));
 		}
 		GexfHelper.saveTo(gexf, file);
 	}
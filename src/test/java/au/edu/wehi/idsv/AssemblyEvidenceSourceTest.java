@@ -8,6 +8,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -104,6 +105,48 @@ public class AssemblyEvidenceSourceTest extends IntermediateFilesTest {
 		List<DirectedEvidence> contigs = Lists.newArrayList(aes.iterator());
 		assertEquals(0, contigs.size());
 	}
+	private static List<String> getSAMStrings(List<SAMRecord> records) {
+		List<String> list = new ArrayList<>();
+		for (SAMRecord r : records) {
+			list.add(r.getSAMString());
+		}
+		return list;
+	}
+	@Test
+	public void should_resume_assembly_from_completed_chunks() throws IOException {
+		ProcessingContext pc = getCommandlineContext();
+		pc.getConfig().getAssembly().minReads = 1;
+		pc.getConfig().terminateOnFirstError = false;
+		pc.getConfig().chunkSize = 10000;
+		pc.getConfig().chunkSequenceChangePenalty = 10000;
+		StubSAMEvidenceSource ses = new StubSAMEvidenceSource(pc, input, 0, 0, 300);
+		for (int i = 0; i < 4; i++) {
+			ses.evidence.add(SCE(FWD, withSequence("AATTAATCGCAAGAGCGGGTTGTATTCGACGCCAAGTCAGCTGAAGCACCATTACCCGATCAAAACATATCAGAAATGATTGACGTATCACAAGCCGGA", Read(i, 100, "41M58S"))));
+			ses.evidence.add(SCE(FWD, withSequence("AATTAATCGCAAGAGCGGGTTGTATTCGACGCCAAGTCAGCTGAAGCACCATTACCCGATCAAAACATATCAGAAATGATTGACGTATCACAAGCCGGAT", Read(i, 100, "41M59S"))));
+		}
+		ses.evidence.sort(DirectedEvidenceOrder.ByStartEnd);
+		new AssemblyEvidenceSource(pc, ImmutableList.of(ses), assemblyFile).assembleBreakends(null);
+		List<String> expected = getSAMStrings(getRecords(assemblyFile));
+		assertEquals(4, expected.size());
+		
+		File resumedFile = new File(testFolder.getRoot(), "resumed.bam");
+		AssemblyEvidenceSource faulty = new AssemblyEvidenceSource(pc, ImmutableList.of(ses), resumedFile);
+		faulty.chunkStartedHook = chunk -> {
+			if (chunk == 2) throw new RuntimeException("Injected fault");
+		};
+		try {
+			faulty.assembleBreakends(null);
+			Assert.fail("Expected injected fault to fail assembly");
+		} catch (RuntimeException e) {
+		}
+		assertFalse(resumedFile.exists());
+		List<Integer> started = new ArrayList<>();
+		AssemblyEvidenceSource resumed = new AssemblyEvidenceSource(pc, ImmutableList.of(ses), resumedFile);
+		resumed.chunkStartedHook = started::add;
+		resumed.assembleBreakends(null);
+		assertEquals(ImmutableList.of(2), started);
+		assertEquals(expected, getSAMStrings(getRecords(resumedFile)));
+	}
 	@Test
 	public void should_filter_fully_reference_assemblies() {
 		SAMRecord r = AssemblyFactory.createAnchoredBreakend(
@@ -291,6 +334,56 @@ public class AssemblyEvidenceSourceTest extends IntermediateFilesTest {
 		List<DirectedEvidence> list = Lists.newArrayList(aes.iterator());
 		assertEquals(100, list.size());
 	}
+	private int assembledEvidenceCount(File assembly) {
+		int count = 0;
+		for (SAMRecord r : getRecords(assembly)) {
+			count += new AssemblyAttributes(r).getEvidenceIDs().size();
+		}
+		return count;
+	}
+	private List<String> assembleWithHeapFraction(ProcessingContext pc, SAMEvidenceSource ses, double heapFraction, File output) throws IOException {
+		pc.getAssemblyParameters().downsampling.maximumHeapFraction = heapFraction;
+		AssemblyEvidenceSource aes = new AssemblyEvidenceSource(pc, ImmutableList.of(ses), output);
+		ExecutorService threadpool = Executors.newFixedThreadPool(4);
+		try {
+			aes.assembleBreakends(threadpool);
+		} finally {
+			threadpool.shutdown();
+		}
+		return getSAMStrings(getRecords(output));
+	}
+	@Test
+	public void should_complete_assembly_deterministically_when_heap_budget_is_exceeded() throws IOException {
+		Random rng = new Random(0);
+		List<SAMRecord> in = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			int pos = 100 + rng.nextInt(200);
+			byte[] seq = new byte[100];
+			System.arraycopy(RANDOM, pos - 1, seq, 0, 50);
+			for (int j = 50; j < seq.length; j++) {
+				seq[j] = (byte)"ACGT".charAt(rng.nextInt(4));
+			}
+			SAMRecord r = withSequence(seq, Read(2, pos, "50M50S"))[0];
+			r.setReadName("r" + i);
+			in.add(r);
+		}
+		createInput(in);
+		ProcessingContext pc = getCommandlineContext();
+		pc.getConfig().getAssembly().minReads = 1;
+		pc.getConfig().chunkSize = 1000;
+		SAMEvidenceSource ses = new SAMEvidenceSource(pc, input, null, 0);
+		File unlimitedFile = new File(testFolder.getRoot(), "unlimited.bam");
+		File limitedFile = new File(testFolder.getRoot(), "limited.bam");
+		File repeatFile = new File(testFolder.getRoot(), "repeat.bam");
+		assembleWithHeapFraction(pc, ses, 0, unlimitedFile);
+		// 16kb per worker thread is far below what the full assembly graph requires
+		double heapFraction = 16384.0 * pc.getWorkerThreadCount() / Runtime.getRuntime().maxMemory();
+		List<String> limited = assembleWithHeapFraction(pc, ses, heapFraction, limitedFile);
+		List<String> repeat = assembleWithHeapFraction(pc, ses, heapFraction, repeatFile);
+		assertEquals(limited, repeat);
+		assertTrue(assembledEvidenceCount(limitedFile) > 0);
+		assertTrue(assembledEvidenceCount(limitedFile) < assembledEvidenceCount(unlimitedFile));
+	}
 	@Test
 	public void bounds_check_should_apply_to_final_assembly_SAMRecord() throws IOException {
 		// TODO: how do we check
@@ -5,6 +5,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
 import htsjdk.samtools.SAMSequenceDictionary;
@@ -181,4 +184,25 @@ public class BreakendSummaryTest extends TestHelper {
 	public void adjustPosition_should_retain_nominal_position() {
 		assertEquals(new BreakendSummary(0, FWD, 10, 10, 20), new BreakendSummary(0, FWD, 10).adjustPosition(0, 10, false));
 	}
+	@Test
+	public void sort_keys_should_be_consistent_with_ordering() {
+		List<BreakendSummary> list = new ArrayList<>();
+		for (int referenceIndex = 0; referenceIndex < 3; referenceIndex++) {
+			for (int start : new int[] { Integer.MIN_VALUE + 1, -10, 0, 1, 10, Integer.MAX_VALUE - 2 }) {
+				for (int width = 0; width < 2; width++) {
+					list.add(new BreakendSummary(referenceIndex, FWD, start, start, start + width));
+				}
+			}
+		}
+		for (BreakendSummary b1 : list) {
+			for (BreakendSummary b2 : list) {
+				int startCmp = b1.referenceIndex != b2.referenceIndex ? Integer.compare(b1.referenceIndex, b2.referenceIndex) : Integer.compare(b1.start, b2.start);
+				int endCmp = b1.referenceIndex != b2.referenceIndex ? Integer.compare(b1.referenceIndex, b2.referenceIndex) : Integer.compare(b1.end, b2.end);
+				assertEquals(Integer.signum(startCmp), Long.signum(Long.compare(b1.getStartSortKey(), b2.getStartSortKey())));
+				assertEquals(Integer.signum(endCmp), Long.signum(Long.compare(b1.getEndSortKey(), b2.getEndSortKey())));
+				if (startCmp != 0) assertEquals(Integer.signum(startCmp), Integer.signum(BreakendSummary.ByStartEnd.compare(b1, b2)));
+				if (endCmp != 0) assertEquals(Integer.signum(endCmp), Integer.signum(BreakendSummary.ByEndStart.compare(b1, b2)));
+			}
+		}
+	}
 }
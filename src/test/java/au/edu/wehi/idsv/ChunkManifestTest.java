@@ -0,0 +1,84 @@
+package au.edu.wehi.idsv;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import htsjdk.samtools.QueryInterval;
+
+
+public class ChunkManifestTest extends IntermediateFilesTest {
+	private static final QueryInterval[] CHUNK = new QueryInterval[] { new QueryInterval(0, 1, 100), new QueryInterval(1, 1, 50) };
+	private File manifestFile;
+	private File chunkFile;
+	@Before
+	public void setup() throws IOException {
+		super.setup();
+		manifestFile = new File(testFolder.getRoot(), "test.chunks.manifest");
+		chunkFile = new File(testFolder.getRoot(), "chunk0.bam");
+		Files.write(chunkFile.toPath(), new byte[] { 1, 2, 3 });
+	}
+	private ChunkManifest manifest(String configurationHash) throws IOException {
+		return new ChunkManifest(manifestFile, configurationHash, ImmutableList.of(input));
+	}
+	@Test
+	public void should_not_consider_unrecorded_chunks_complete() throws IOException {
+		assertFalse(manifest("config").isComplete(0, CHUNK, chunkFile));
+	}
+	@Test
+	public void should_persist_completed_chunks() throws IOException {
+		manifest("config").markComplete(0, CHUNK, chunkFile);
+		ChunkManifest reloaded = manifest("config");
+		assertTrue(reloaded.isComplete(0, CHUNK, chunkFile));
+		assertFalse(reloaded.isComplete(1, CHUNK, chunkFile));
+	}
+	@Test
+	public void should_invalidate_on_configuration_change() throws IOException {
+		manifest("config").markComplete(0, CHUNK, chunkFile);
+		assertFalse(manifest("changed").isComplete(0, CHUNK, chunkFile));
+		// invalidated chunks are removed from the manifest
+		assertFalse(manifest("config").isComplete(0, CHUNK, chunkFile));
+	}
+	@Test
+	public void should_invalidate_on_input_change() throws IOException {
+		manifest("config").markComplete(0, CHUNK, chunkFile);
+		Files.write(input.toPath(), new byte[] { 1 });
+		assertFalse(manifest("config").isComplete(0, CHUNK, chunkFile));
+	}
+	@Test
+	public void should_invalidate_on_interval_change() throws IOException {
+		manifest("config").markComplete(0, CHUNK, chunkFile);
+		assertFalse(manifest("config").isComplete(0, new QueryInterval[] { new QueryInterval(0, 1, 100) }, chunkFile));
+	}
+	@Test
+	public void should_invalidate_missing_or_modified_output() throws IOException {
+		manifest("config").markComplete(0, CHUNK, chunkFile);
+		Files.write(chunkFile.toPath(), new byte[] { 1, 2 });
+		assertFalse(manifest("config").isComplete(0, CHUNK, chunkFile));
+		chunkFile.delete();
+		assertFalse(manifest("config").isComplete(0, CHUNK, chunkFile));
+	}
+	@Test
+	public void should_ignore_partially_written_record() throws IOException {
+		ChunkManifest manifest = manifest("config");
+		manifest.markComplete(0, CHUNK, chunkFile);
+		try (FileWriter writer = new FileWriter(manifestFile, true)) {
+			writer.write("1\t0:1-100");
+		}
+		ChunkManifest reloaded = manifest("config");
+		assertTrue(reloaded.isComplete(0, CHUNK, chunkFile));
+		assertFalse(reloaded.isComplete(1, CHUNK, chunkFile));
+		List<String> lines = Files.readAllLines(manifestFile.toPath());
+		assertFalse(lines.get(lines.size() - 1).startsWith("1\t"));
+	}
+}
@@ -3,6 +3,8 @@ package au.edu.wehi.idsv;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
@@ -18,4 +20,43 @@ public class DirectedEvidenceOrderTest extends TestHelper {
 		assertEquals(BreakendSummary.ByStartEnd.isOrdered(list.stream().map(de -> de.getBreakendSummary()).collect(Collectors.toList())),
 				DirectedEvidenceOrder.ByNatural.isOrdered(list));
 	}
+	private static int lexicographic(int[] a, int[] b) {
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] != b[i]) return Integer.compare(a[i], b[i]);
+		}
+		return 0;
+	}
+	@Test
+	public void ByNatural_should_order_by_start_end_nominal_then_remote_breakend() {
+		Random rng = new Random(0);
+		List<BreakendSummary> list = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			int start = rng.nextInt(5) - 2;
+			int end = start + rng.nextInt(3);
+			int nominal = start + rng.nextInt(end - start + 1);
+			if (rng.nextBoolean()) {
+				list.add(new BreakendSummary(rng.nextInt(2), FWD, nominal, start, end));
+			} else {
+				int start2 = rng.nextInt(3);
+				list.add(new BreakpointSummary(rng.nextInt(2), FWD, nominal, start, end, rng.nextInt(2), BWD, start2, start2, start2 + rng.nextInt(2)));
+			}
+		}
+		for (BreakendSummary b1 : list) {
+			for (BreakendSummary b2 : list) {
+				int[] f1 = fields(b1);
+				int[] f2 = fields(b2);
+				int expected = Integer.signum(lexicographic(f1, f2));
+				assertEquals(expected, Integer.signum(DirectedEvidenceOrder.ByNatural.compare(new MockDirectedEvidence(b1), new MockDirectedEvidence(b2))));
+				assertEquals(Long.signum(DirectedEvidenceOrder.ByNaturalSortKey.applyAsLong(new MockDirectedEvidence(b1)) - DirectedEvidenceOrder.ByNaturalSortKey.applyAsLong(new MockDirectedEvidence(b2))),
+						Integer.signum(lexicographic(new int[] { f1[0], f1[1] }, new int[] { f2[0], f2[1] })));
+			}
+		}
+	}
+	private static int[] fields(BreakendSummary b) {
+		if (b instanceof BreakpointSummary) {
+			BreakpointSummary bp = (BreakpointSummary)b;
+			return new int[] { b.referenceIndex, b.start, b.end, b.nominal, bp.referenceIndex2, bp.start2, bp.end2, bp.nominal2 };
+		}
+		return new int[] { b.referenceIndex, b.start, b.end, b.nominal, 0, 0, 0, 0 };
+	}
 }
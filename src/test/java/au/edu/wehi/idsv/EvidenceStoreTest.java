@@ -0,0 +1,184 @@
+package au.edu.wehi.idsv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+
+
+public class EvidenceStoreTest extends IntermediateFilesTest {
+	private static class MockMetricsSAMEvidenceSource extends SAMEvidenceSource {
+		public MockMetricsSAMEvidenceSource(ProcessingContext processContext, File file) {
+			super(processContext, file, null, 0, 0, 300);
+		}
+		@Override
+		public IdsvSamFileMetrics getMetrics() {
+			return new MockMetrics();
+		}
+	}
+	private void createTestInput() {
+		createInput(new SAMRecord[] {
+				Read(0, 100, "50M50S"),
+				Read(0, 150, "20S80M"),
+				Read(1, 1, "50M50S"),
+				Read(1, 500, "40M20D60M"),
+				Read(2, 1000, "60M40S"),
+			},
+			DP(1, 1, "100M", true, 2, 5, "100M", true),
+			DP(1, 2, "100M", true, 2, 4, "100M", true),
+			OEA(1, 4, "100M", false),
+			OEA(2, 50, "100M", true));
+	}
+	private static List<String> ids(CloseableIterator<DirectedEvidence> it) {
+		try {
+			return Lists.newArrayList(it).stream().map(e -> e.getEvidenceID()).collect(Collectors.toList());
+		} finally {
+			it.close();
+		}
+	}
+	private ProcessingContext getStoreContext() {
+		ProcessingContext pc = getCommandlineContext();
+		pc.getConfig().evidenceStore = true;
+		return pc;
+	}
+	@Test
+	public void should_return_same_evidence_as_reading_input() {
+		createTestInput();
+		ProcessingContext pc = getCommandlineContext();
+		pc.getConfig().evidenceStore = false;
+		SAMEvidenceSource direct = new MockMetricsSAMEvidenceSource(pc, input);
+		List<String> expected = ids(direct.iterator());
+		assertFalse(pc.getFileSystemContext().getEvidenceStore(input, 0).exists());
+		pc.getConfig().evidenceStore = true;
+		SAMEvidenceSource stored = new MockMetricsSAMEvidenceSource(pc, input);
+		assertEquals(expected, ids(stored.iterator()));
+		assertTrue(pc.getFileSystemContext().getEvidenceStore(input, 0).exists());
+		assertTrue(expected.size() > 0);
+	}
+	@Test
+	public void should_return_same_evidence_for_intervals() {
+		createTestInput();
+		ProcessingContext pc = getCommandlineContext();
+		assertSameEvidenceForIntervals(pc);
+	}
+	@Test
+	public void should_return_same_evidence_when_split_into_multiple_chunks() {
+		createTestInput();
+		ProcessingContext pc = getCommandlineContext();
+		pc.getConfig().chunkSize = 200;
+		pc.getConfig().chunkSequenceChangePenalty = 0;
+		assertTrue(pc.getReference().getIntervals(200, 0).size() > 10);
+		pc.getConfig().evidenceStore = false;
+		List<String> expected = ids(new MockMetricsSAMEvidenceSource(pc, input).iterator());
+		pc.getConfig().evidenceStore = true;
+		assertEquals(expected, ids(new MockMetricsSAMEvidenceSource(pc, input).iterator()));
+		assertTrue(pc.getFileSystemContext().getEvidenceStore(input, 1).exists());
+		assertSameEvidenceForIntervals(pc);
+	}
+	@Test
+	public void should_materialise_chunks_from_multiple_threads() throws Exception {
+		createTestInput();
+		ProcessingContext pc = getCommandlineContext();
+		pc.getConfig().chunkSize = 200;
+		pc.getConfig().chunkSequenceChangePenalty = 0;
+		List<QueryInterval[]> chunks = pc.getReference().getIntervals(200, 0);
+		pc.getConfig().evidenceStore = false;
+		List<List<String>> expected = new ArrayList<>();
+		for (QueryInterval[] qi : chunks) {
+			expected.add(ids(new MockMetricsSAMEvidenceSource(pc, input).iterator(qi)));
+		}
+		pc.getConfig().evidenceStore = true;
+		SAMEvidenceSource source = new MockMetricsSAMEvidenceSource(pc, input);
+		ExecutorService threadpool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<String>>> results = new ArrayList<>();
+			for (QueryInterval[] qi : chunks) {
+				results.add(threadpool.submit(() -> ids(source.iterator(qi))));
+			}
+			for (int i = 0; i < chunks.size(); i++) {
+				assertEquals(expected.get(i), results.get(i).get());
+			}
+		} finally {
+			threadpool.shutdown();
+		}
+	}
+	private void assertSameEvidenceForIntervals(ProcessingContext pc) {
+		QueryInterval[][] queries = new QueryInterval[][] {
+			{ new QueryInterval(0, 1, 200) },
+			{ new QueryInterval(0, 140, 160) },
+			{ new QueryInterval(1, 1, 10) },
+			{ new QueryInterval(1, 300, 700) },
+			{ new QueryInterval(0, 1, 1000), new QueryInterval(2, 1, 2000) },
+			{ new QueryInterval(2, 1, 100000) },
+			{ new QueryInterval(3, 1, 100000) },
+		};
+		for (QueryInterval[] qi : queries) {
+			pc.getConfig().evidenceStore = false;
+			List<String> expected = ids(new MockMetricsSAMEvidenceSource(pc, input).iterator(qi));
+			pc.getConfig().evidenceStore = true;
+			assertEquals(expected, ids(new MockMetricsSAMEvidenceSource(pc, input).iterator(qi)));
+		}
+	}
+	@Test
+	public void should_reuse_current_store() {
+		createTestInput();
+		ProcessingContext pc = getStoreContext();
+		SAMEvidenceSource source = new MockMetricsSAMEvidenceSource(pc, input);
+		ids(source.iterator());
+		File store = pc.getFileSystemContext().getEvidenceStore(input, 0);
+		long lastModified = store.lastModified();
+		store.setLastModified(lastModified - 10000);
+		ids(new MockMetricsSAMEvidenceSource(pc, input).iterator());
+		assertEquals(lastModified - 10000, store.lastModified());
+	}
+	@Test
+	public void should_rewrite_store_when_input_changes() {
+		createTestInput();
+		ProcessingContext pc = getStoreContext();
+		List<String> before = ids(new MockMetricsSAMEvidenceSource(pc, input).iterator());
+		createInput(Read(0, 100, "50M50S"));
+		input.setLastModified(input.lastModified() + 10000);
+		List<String> after = ids(new MockMetricsSAMEvidenceSource(pc, input).iterator());
+		assertNotEquals(before, after);
+		assertEquals(1, after.size());
+	}
+	@Test
+	public void should_delete_store_and_index() throws Exception {
+		createTestInput();
+		ProcessingContext pc = getStoreContext();
+		SAMEvidenceSource source = new MockMetricsSAMEvidenceSource(pc, input);
+		List<String> expected = ids(source.iterator());
+		File store = pc.getFileSystemContext().getEvidenceStore(input, 0);
+		File index = new File(store.getAbsolutePath() + ".idx");
+		assertTrue(store.exists());
+		assertTrue(index.exists());
+		source.deleteEvidenceStore();
+		assertFalse(store.exists());
+		assertFalse(index.exists());
+		assertEquals(expected, ids(source.iterator()));
+	}
+	@Test
+	public void should_not_use_store_by_default() {
+		createTestInput();
+		ProcessingContext pc = getCommandlineContext();
+		ids(new MockMetricsSAMEvidenceSource(pc, input).iterator());
+		assertFalse(pc.getFileSystemContext().getEvidenceStore(input, 0).exists());
+	}
+}
@@ -3,6 +3,8 @@ package au.edu.wehi.idsv;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
@@ -92,4 +94,28 @@ public class IdsvVariantContextTest extends TestHelper {
 		TestIdsvVariantContext vc = new TestIdsvVariantContext(minimalVariant().attribute("intlist", L("1", "2")).make());
 		assertEquals(1, vc.getAttributeAsIntListOffset("intlist", 0, 7));
 	}
+	@Test
+	public void ByLocationStart_should_order_by_reference_index_start_end_id() {
+		List<IdsvVariantContext> expected = new ArrayList<>();
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyA").start(10).stop(10).alleles("A", "C").id("b").make()));
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyA").start(10).stop(11).alleles("AA", "C").id("a").make()));
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyA").start(11).stop(11).alleles("A", "C").id("a").make()));
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyACGT").start(1).stop(1).alleles("A", "C").id("a").make()));
+		List<IdsvVariantContext> list = new ArrayList<>(expected);
+		Collections.reverse(list);
+		list.sort(IdsvVariantContext.ByLocationStart);
+		assertEquals(expected, list);
+	}
+	@Test
+	public void ByLocationEnd_should_order_by_reference_index_end_start_id() {
+		List<IdsvVariantContext> expected = new ArrayList<>();
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyA").start(10).stop(10).alleles("A", "C").id("b").make()));
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyA").start(9).stop(11).alleles("AAA", "C").id("a").make()));
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyA").start(10).stop(11).alleles("AA", "C").id("a").make()));
+		expected.add(new TestIdsvVariantContext(minimalVariant().chr("polyACGT").start(1).stop(1).alleles("A", "C").id("a").make()));
+		List<IdsvVariantContext> list = new ArrayList<>(expected);
+		Collections.reverse(list);
+		list.sort(IdsvVariantContext.ByLocationEnd);
+		assertEquals(expected, list);
+	}
 }
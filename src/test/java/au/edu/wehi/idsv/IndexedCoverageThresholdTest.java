@@ -0,0 +1,111 @@
+package au.edu.wehi.idsv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.bed.IntervalBed;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+
+
+public class IndexedCoverageThresholdTest extends IntermediateFilesTest {
+	private void assertSameIntervals(File bam, int threshold, int tileSize) throws IOException {
+		SequentialCoverageThreshold sequential;
+		SAMSequenceDictionary dict;
+		LinearGenomicCoordinate linear;
+		try (SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(bam)) {
+			dict = reader.getFileHeader().getSequenceDictionary();
+			linear = new PaddedLinearGenomicCoordinate(dict, GenomicProcessingContext.LINEAR_COORDINATE_CHROMOSOME_BUFFER, true);
+			sequential = new SequentialCoverageThreshold(dict, linear, threshold);
+			for (SAMRecord r : reader) {
+				sequential.acceptRecord(r);
+			}
+		}
+		IntervalBed expected = sequential.finish();
+		ExecutorService threadpool = Executors.newFixedThreadPool(3);
+		try {
+			IntervalBed actual = new IndexedCoverageThreshold(bam, dict, linear, threshold, tileSize).calculate(threadpool);
+			File expectedBed = new File(testFolder.getRoot(), "expected.bed");
+			File actualBed = new File(testFolder.getRoot(), "actual.bed");
+			expected.write(expectedBed, "test");
+			actual.write(actualBed, "test");
+			assertEquals(Files.readAllLines(expectedBed.toPath()), Files.readAllLines(actualBed.toPath()));
+		} finally {
+			threadpool.shutdown();
+		}
+	}
+	@Test
+	public void should_match_sequential_coverage() throws IOException {
+		Random rng = new Random(0);
+		List<SAMRecord> reads = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			int referenceIndex = rng.nextInt(3);
+			int start = 1 + rng.nextInt(2000);
+			SAMRecord r;
+			switch (rng.nextInt(4)) {
+				case 0:
+					r = Read(referenceIndex, start, "10S40M5D20M10S");
+					break;
+				case 1:
+					r = Read(referenceIndex, start, "5M100N5M");
+					break;
+				case 2:
+					r = Read(referenceIndex, start, "1M");
+					break;
+				default:
+					r = Read(referenceIndex, start, "50M");
+					break;
+			}
+			r.setReadName("r" + i);
+			if (rng.nextInt(50) == 0) {
+				r.setReadUnmappedFlag(true);
+				r.setMappingQuality(0);
+			}
+			reads.add(r);
+		}
+		// read hanging off the end of the contig
+		reads.add(Read(2, 9990, "50M"));
+		reads.add(Read(2, 9990, "50M"));
+		reads.add(Read(2, 9990, "50M"));
+		createInput(reads);
+		for (int threshold : new int[] { 1, 2, 3, 5, 10 }) {
+			for (int tileSize : new int[] { 7, 100, 1000, IndexedCoverageThreshold.DEFAULT_TILE_SIZE }) {
+				assertSameIntervals(input, threshold, tileSize);
+			}
+		}
+	}
+	@Test
+	public void should_match_sequential_coverage_of_test_bams() throws IOException {
+		for (File bam : new File[] {
+				new File("src/test/resources/203541.bam"),
+				new File("src/test/resources/pacbiona12989chem1chr1_196132675-196183463.bam"), }) {
+			assertTrue(IndexedCoverageThreshold.canUseIndex(bam));
+			for (int threshold : new int[] { 1, 5, 20 }) {
+				assertSameIntervals(bam, threshold, 100000);
+			}
+		}
+	}
+	@Test
+	public void should_require_indexed_coordinate_sorted_bam() {
+		createBAM(input, SortOrder.queryname, Read(0, 1, "1M"));
+		assertFalse(IndexedCoverageThreshold.canUseIndex(input));
+		createBAM(input, SortOrder.coordinate, Read(0, 1, "1M"));
+		assertTrue(IndexedCoverageThreshold.canUseIndex(input));
+	}
+}
@@ -188,4 +188,25 @@ public class PaddedLinearGenomicCoordinateTest {
 		assertEquals(-1, c.getReferenceIndex(0));
 		assertEquals(-1, c.getReferenceIndex(1+10+1 +1+10+1 + 2));
 	}
+	@Test
+	public void getReferenceIndex_should_invert_linear_coordinate() {
+		SAMSequenceDictionary dict = new SAMSequenceDictionary();
+		dict.addSequence(new SAMSequenceRecord("contig1", 10));
+		dict.addSequence(new SAMSequenceRecord("contig2", 20));
+		dict.addSequence(new SAMSequenceRecord("contig3", 5));
+		for (LinearGenomicCoordinate c : new LinearGenomicCoordinate[] {
+				new PaddedLinearGenomicCoordinate(dict),
+				new PaddedLinearGenomicCoordinate(dict, 7),
+				new PaddedLinearGenomicCoordinate(dict, 100, true) }) {
+			for (int referenceIndex = 0; referenceIndex < dict.size(); referenceIndex++) {
+				for (int pos = 1; pos <= dict.getSequence(referenceIndex).getSequenceLength(); pos++) {
+					long linear = c.getLinearCoordinate(referenceIndex, pos);
+					assertEquals(referenceIndex, c.getReferenceIndex(linear));
+					assertEquals(pos, c.getReferencePosition(linear));
+				}
+			}
+		}
+		assertEquals(-1, new PaddedLinearGenomicCoordinate(dict).getReferenceIndex(Long.MIN_VALUE + 1));
+		assertEquals(-1, new PaddedLinearGenomicCoordinate(dict).getReferenceIndex(1000));
+	}
 }
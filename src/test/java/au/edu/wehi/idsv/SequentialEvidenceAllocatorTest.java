@@ -81,4 +81,35 @@ public class SequentialEvidenceAllocatorTest extends TestHelper {
 		VariantEvidenceSupport ves = allocator.next();
 		Assert.assertTrue(ves.support.stream().allMatch(e -> ves.variant.getBreakendSummary().overlaps(e.getBreakendSummary())));
 	}
+	@Test
+	public void should_assign_to_all_overlapping_calls_of_differing_width() {
+		final ProcessingContext pc = getContext();
+		pc.getVariantCallingParameters().breakendMargin = 0;
+		StubSAMEvidenceSource ses = new StubSAMEvidenceSource(pc, null, 0, 0, 100);
+		SAMRecord[] dp = withReadName("read", DP(0, 100, "1M", true, 1, 100, "1M", false));
+		ses.evidence.add(NonReferenceReadPair.create(dp[0], dp[1], ses));
+		BreakpointSummary evidenceBreakpoint = (BreakpointSummary)ses.evidence.get(0).getBreakendSummary();
+		List<VariantContextDirectedEvidence> calls = new ArrayList<>();
+		calls.add((VariantContextDirectedEvidence)TestHelper.minimalVariant()
+				.breakpoint(new BreakpointSummary(0, FWD, 1, 1, 1000, 1, BWD, 1, 1, 1000), "")
+				.phredScore(1)
+				.id("wide")
+				.make());
+		calls.add((VariantContextDirectedEvidence)TestHelper.minimalVariant()
+				.breakpoint(new BreakpointSummary(0, FWD, 50, 50, 90, 1, BWD, 1, 1, 1000), "")
+				.phredScore(1)
+				.id("before")
+				.make());
+		calls.add((VariantContextDirectedEvidence)TestHelper.minimalVariant()
+				.breakpoint(new BreakpointSummary(0, FWD, evidenceBreakpoint.end, evidenceBreakpoint.end, evidenceBreakpoint.end, 1, BWD, 1, 1, 1000), "")
+				.phredScore(1)
+				.id("narrow")
+				.make());
+		SequentialEvidenceAllocator allocator = new SequentialEvidenceAllocator(pc, calls.iterator(), ses.evidence.iterator(), 2000, false);
+		ArrayList<VariantEvidenceSupport> result = Lists.newArrayList(allocator);
+		assertEquals(3, result.size());
+		assertEquals(1, result.get(0).support.size());
+		assertEquals(0, result.get(1).support.size());
+		assertEquals(1, result.get(2).support.size());
+	}
 }
@@ -0,0 +1,54 @@
+package au.edu.wehi.idsv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.util.ParallelTransformIterator;
+
+
+public class SequentialEvidenceAnnotatorTest extends TestHelper {
+	private static class CountingIterator implements Iterator<Integer> {
+		private final int size;
+		public int read = 0;
+		public CountingIterator(int size) {
+			this.size = size;
+		}
+		@Override
+		public boolean hasNext() {
+			return read < size;
+		}
+		@Override
+		public Integer next() {
+			return read++;
+		}
+	}
+	@Test
+	public void buffered_records_should_not_exceed_lookahead() {
+		for (int lookahead : new int[] { 1, 2, 3, 7, 16, 255, 256, 1000, 1024, 4096, 100000 }) {
+			assertTrue(SequentialEvidenceAnnotator.batchCount(lookahead) >= 1);
+			CountingIterator cit = new CountingIterator(4 * lookahead + 1000);
+			ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(cit, n -> n,
+					SequentialEvidenceAnnotator.batchCount(lookahead),
+					SequentialEvidenceAnnotator.batchSize(lookahead),
+					Runnable::run);
+			int returned = 0;
+			while (it.hasNext()) {
+				assertEquals(returned, (int)it.next());
+				returned++;
+				// records read from the allocator but not yet returned
+				assertTrue(cit.read - returned <= lookahead);
+			}
+			assertEquals(cit.read, returned);
+		}
+	}
+	@Test
+	public void should_dispatch_multiple_batches_for_large_lookahead() {
+		assertEquals(ParallelTransformIterator.DEFAULT_MAX_BATCH_SIZE, SequentialEvidenceAnnotator.batchSize(4096));
+		assertEquals(16, SequentialEvidenceAnnotator.batchCount(4096));
+		assertEquals(4, SequentialEvidenceAnnotator.batchCount(16));
+	}
+}
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
@@ -198,6 +199,44 @@ public class SingleReadEvidenceTest extends TestHelper {
 		assertTrue(list.stream().allMatch(e -> e.isFromMultimappingFragment()));
 	}
 	@Test
+	public void mayHaveEvidence_should_be_true_whenever_evidence_exists() {
+		for (SAMRecord r : new SAMRecord[] {
+				Read(0, 1, "10M"),
+				Read(0, 1, "10M10S"),
+				Read(0, 1, "10S10M"),
+				Read(0, 1, "5M1D5M"),
+				Read(0, 1, "5M1I5M"),
+				Read(0, 1, "5M10D5M"),
+				Read(0, 1, "5H10M"),
+				Read(0, 1, "1X10S"),
+				withAttr("SA", "polyA,10,+,10S10M,0,0", Read(0, 1, "10M10S"))[0],
+				withAttr("SA", "polyA,10,+,10S10M,0,0", Read(0, 1, "10M10H"))[0],
+				Unmapped(10),
+				}) {
+			for (int minIndelSize : new int[] { 0, 1, 5 }) {
+				boolean hasEvidence = !SingleReadEvidence.createEvidence(SES(), minIndelSize, r).isEmpty();
+				if (hasEvidence) {
+					assertTrue(SingleReadEvidence.mayHaveEvidence(r, minIndelSize));
+				}
+			}
+		}
+	}
+	@Test
+	public void mayHaveEvidence_should_reject_reference_alignments() {
+		assertFalse(SingleReadEvidence.mayHaveEvidence(Read(0, 1, "10M"), 0));
+		assertFalse(SingleReadEvidence.mayHaveEvidence(Read(0, 1, "5M1D5M"), 5));
+		assertFalse(SingleReadEvidence.mayHaveEvidence(Unmapped(10), 0));
+		assertTrue(SingleReadEvidence.mayHaveEvidence(Read(0, 1, "5M1D5M"), 1));
+	}
+	@Test
+	public void createEvidence_should_write_to_output() {
+		SAMRecord r = Read(0, 1, "10S10M4D10M10S");
+		List<DirectedEvidence> out = new ArrayList<>();
+		SingleReadEvidence.createEvidence(SES(), 0, r, out);
+		assertEquals(SingleReadEvidence.createEvidence(SES(), 0, r).stream().map(e -> e.getEvidenceID()).collect(Collectors.toList()),
+				out.stream().map(e -> e.getEvidenceID()).collect(Collectors.toList()));
+	}
+	@Test
 	public void involvesPrimaryReadAlignment_should_require_not_supplementary() {
 		List<SingleReadEvidence> list;
 		SAMRecord r = Read(0, 1, "10M4D10M10S");
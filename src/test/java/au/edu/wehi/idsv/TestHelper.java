@@ -1106,20 +1106,20 @@ public class TestHelper {
 			}
 		}
 	}
-	public static KmerPathNode KPN(long[] kmers, int start, int end, boolean reference, int[] weights) {
-		KmerPathNode pn = new KmerPathNode(kmers[0], start, end, reference, weights[0]);
+	public static KmerPathNode KPN(int k, long[] kmers, int start, int end, boolean reference, int[] weights) {
+		KmerPathNode pn = new KmerPathNode(k, kmers[0], start, end, reference, weights[0]);
 		for (int i = 1; i < kmers.length; i++) {
 			pn.append(new ImmutableKmerNode(kmers[i], start + i, end + i, reference, weights[i]));
 		}
 		return pn;
 	}
-	public static KmerPathNode KPN(long[] kmers, int start, int end, boolean reference, int weight) {
+	public static KmerPathNode KPN(int k, long[] kmers, int start, int end, boolean reference, int weight) {
 		int[] weights = new int[kmers.length];
 		Arrays.fill(weights, weight);
-		return KPN(kmers, start, end, reference, weights);
+		return KPN(k, kmers, start, end, reference, weights);
 	}
-	public static KmerPathNode KPN(long[] kmers, int start, int end, boolean reference) {
-		return KPN(kmers, start, end, reference, 1);
+	public static KmerPathNode KPN(int k, long[] kmers, int start, int end, boolean reference) {
+		return KPN(k, kmers, start, end, reference, 1);
 	}
 	public static KmerPathNode KPN(int k, String seq, int start, int end, boolean reference) {
 		return KPN(k, seq, start, end, reference, 1);
@@ -1131,7 +1131,7 @@ public class TestHelper {
 	}
 	public static KmerPathNode KPN(int k, String seq, int start, int end, boolean reference, int[] weight) {
 		PackedKmerList kmers = new PackedKmerList(k, B(seq), new byte[seq.length()], false, false);
-		KmerPathNode pn = new KmerPathNode(kmers.kmer(0), start, end, reference, weight[0]);
+		KmerPathNode pn = new KmerPathNode(k, kmers.kmer(0), start, end, reference, weight[0]);
 		for (int i = 1; i < kmers.length(); i++) {
 			pn.append(new ImmutableKmerNode(kmers.kmer(i), start + i, end + i, reference, weight[i]));
 		}
@@ -0,0 +1,34 @@
+package au.edu.wehi.idsv.configuration;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationUtils;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+
+
+public class AssemblyConfigurationTest extends TestHelper {
+	private static AssemblyConfiguration withK(int k) {
+		// copy as the default configuration is shared between tests
+		Configuration config = new BaseConfiguration();
+		ConfigurationUtils.copy(getDefaultConfig(), config);
+		config.setProperty("assembly.k", k);
+		return new AssemblyConfiguration(config);
+	}
+	@Test
+	public void should_allow_single_word_kmers() {
+		assertEquals(32, withK(32).k);
+		assertEquals(1, withK(1).k);
+	}
+	@Test(expected=IllegalArgumentException.class)
+	public void should_reject_k_greater_than_32() {
+		withK(33);
+	}
+	@Test(expected=IllegalArgumentException.class)
+	public void should_reject_non_positive_k() {
+		withK(0);
+	}
+}
@@ -0,0 +1,90 @@
+package au.edu.wehi.idsv.debruijn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+
+
+public class PackedKmerPathTest extends TestHelper {
+	private static final String SEQ = "CATTAATCGCAAGAGCGGGTTGTATTCGACGCCAAGTCAGCTGAAGCACCATTACCCGATCAAAACATATCAGAAATGATTGACGTATCACAAGCCGGATTTTGTTTACAGCCTGTCTTATATCCTGAATAACGCACCGCCTATTCGAACGGGCGAATCTACCTAGGTCGCTCAGAACCGGCACCCTTAACCATCCATAT";
+	private static PackedKmerPath path(int k, String seq) {
+		PackedKmerPath path = new PackedKmerPath(k, KmerEncodingHelper.picardBaseToEncoded(k, B(seq.substring(0, k))));
+		for (int i = k; i < seq.length(); i++) {
+			path.appendBase(KmerEncodingHelper.picardBaseToEncoded(B(seq)[i]));
+		}
+		return path;
+	}
+	private static void assertKmers(int k, String seq, PackedKmerPath path) {
+		assertEquals(seq.length() - k + 1, path.length());
+		assertEquals(seq, S(path.getBases()));
+		for (int i = 0; i < path.length(); i++) {
+			assertEquals(KmerEncodingHelper.picardBaseToEncoded(k, B(seq.substring(i, i + k))), path.kmer(i));
+		}
+	}
+	@Test
+	public void should_extract_kmers_for_1_to_32_base_kmers() {
+		for (int k = 1; k <= 32; k++) {
+			assertKmers(k, SEQ, path(k, SEQ));
+		}
+	}
+	@Test
+	public void append_should_concatenate_overlapping_paths() {
+		for (int k = 1; k <= 32; k++) {
+			for (int split = 1; split < 70; split++) {
+				PackedKmerPath first = path(k, SEQ.substring(0, split + k - 1));
+				PackedKmerPath second = path(k, SEQ.substring(split));
+				first.append(second);
+				assertKmers(k, SEQ, first);
+			}
+		}
+	}
+	@Test
+	public void suffix_should_start_at_kmer_offset() {
+		for (int k = 1; k <= 32; k++) {
+			PackedKmerPath path = path(k, SEQ);
+			for (int i = 0; i < 70; i++) {
+				assertKmers(k, SEQ.substring(i), path.suffix(i));
+			}
+		}
+	}
+	@Test
+	public void truncate_should_retain_kmers_prefix() {
+		for (int k = 1; k <= 32; k++) {
+			for (int i = 1; i < 70; i++) {
+				PackedKmerPath path = path(k, SEQ);
+				path.truncate(i);
+				assertKmers(k, SEQ.substring(0, i + k - 1), path);
+				// trailing bases must be cleared so further appends are correct
+				path.append(path(k, SEQ.substring(i)));
+				assertKmers(k, SEQ, path);
+			}
+		}
+	}
+	@Test
+	public void removeFirst_removeLast_should_drop_end_kmers() {
+		int k = 25;
+		PackedKmerPath path = path(k, SEQ);
+		path.removeFirst();
+		path.removeLast();
+		assertKmers(k, SEQ.substring(1, SEQ.length() - 1), path);
+	}
+	@Test
+	public void equals_should_compare_sequence() {
+		assertEquals(path(4, "ACGTACGT"), path(4, "ACGTACGT"));
+		assertEquals(path(4, "ACGTACGT").hashCode(), path(4, "ACGTACGT").hashCode());
+		assertNotEquals(path(4, "ACGTACGT"), path(4, "ACGTACGA"));
+		assertNotEquals(path(4, "ACGTACGT"), path(5, "ACGTACGT"));
+		PackedKmerPath truncated = path(4, "ACGTACGTT");
+		truncated.removeLast();
+		assertEquals(path(4, "ACGTACGT"), truncated);
+	}
+	@Test
+	public void baseCounts_should_count_encoded_bases() {
+		int[] counts = path(3, "AACGTTT").baseCounts();
+		assertArrayEquals(new int[] { 3, 1, 2, 1 }, counts);
+	}
+}
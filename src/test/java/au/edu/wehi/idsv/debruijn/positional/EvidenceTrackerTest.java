@@ -59,4 +59,41 @@ public class EvidenceTrackerTest extends TestHelper {
 		tracker.remove(e);
 		assertFalse(tracker.isTracked(e.evidence().getEvidenceID()));
 	}
+	@Test
+	public void remove_should_only_untrack_given_evidence() {
+		int k = 4;
+		KmerEvidence e1 = KmerEvidence.create(k, SCE(FWD, Read(0, 1, "4M1S")));
+		KmerEvidence e2 = KmerEvidence.create(k, SCE(FWD, Read(0, 1, "4M2S")));
+		EvidenceTracker tracker = new EvidenceTracker();
+		tracker.track(e1.node(0));
+		tracker.track(e1.node(1));
+		tracker.track(e2.node(0));
+		assertEquals(3, tracker.tracking_supportNodeCount());
+		assertEquals(3, tracker.tracking_maxKmerSupportNodesCount());
+		tracker.remove(e1);
+		assertEquals(1, tracker.tracking_supportNodeCount());
+		assertEquals(1, tracker.tracking_kmerCount());
+		Set<KmerEvidence> result = tracker.support(ImmutableList.of(new KmerPathSubnode(KPN(k, "AAAA", 1, 1, true))));
+		assertEquals(1, result.size());
+		assertTrue(result.contains(e2));
+	}
+	@Test
+	public void should_reuse_slots_after_removal() {
+		int k = 4;
+		EvidenceTracker tracker = new EvidenceTracker();
+		for (int i = 0; i < 4096; i++) {
+			KmerEvidence e = KmerEvidence.create(k, SCE(FWD, Read(0, 1, "4M1S")));
+			tracker.track(e.node(0));
+			tracker.track(e.node(1));
+			if (i % 2 == 1) {
+				tracker.remove(e);
+			}
+		}
+		assertEquals(4096, tracker.tracking_supportNodeCount());
+		assertEquals(1, tracker.tracking_kmerCount());
+		Set<KmerEvidence> result = tracker.untrack(ImmutableList.of(new KmerPathSubnode(KPN(k, "AAAA", 1, 1, true))));
+		assertEquals(2048, result.size());
+		assertEquals(0, tracker.tracking_supportNodeCount());
+		assertEquals(0, tracker.tracking_kmerCount());
+	}
 }
@@ -0,0 +1,45 @@
+package au.edu.wehi.idsv.debruijn.positional;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+
+
+public class KmerPathNodeMarkerTest extends TestHelper {
+	@Test
+	public void should_mark_nodes() {
+		KmerPathNodeMarker marker = new KmerPathNodeMarker();
+		KmerPathNode a = KPN(4, "AAAA", 1, 1, false);
+		KmerPathNode b = KPN(4, "AAAA", 1, 1, false);
+		assertTrue(marker.add(a));
+		assertFalse(marker.add(a));
+		assertTrue(marker.contains(a));
+		assertFalse(marker.contains(b));
+		assertTrue(marker.remove(a));
+		assertFalse(marker.remove(a));
+		assertFalse(marker.contains(a));
+	}
+	@Test
+	public void clear_should_unmark_all_nodes() {
+		KmerPathNodeMarker marker = new KmerPathNodeMarker();
+		KmerPathNode a = KPN(4, "AAAA", 1, 1, false);
+		KmerPathNode b = KPN(4, "AAAA", 1, 1, false);
+		marker.add(a);
+		marker.add(b);
+		marker.clear();
+		assertFalse(marker.contains(a));
+		assertFalse(marker.contains(b));
+		assertTrue(marker.add(a));
+	}
+	@Test
+	public void should_not_share_marks_between_markers() {
+		KmerPathNodeMarker marker1 = new KmerPathNodeMarker();
+		KmerPathNodeMarker marker2 = new KmerPathNodeMarker();
+		KmerPathNode a = KPN(4, "AAAA", 1, 1, false);
+		marker1.add(a);
+		assertFalse(marker2.contains(a));
+	}
+}
@@ -20,7 +20,7 @@ import it.unimi.dsi.fastutil.longs.LongArrayList;
 public class KmerPathNodeTest extends TestHelper {
 	@Test
 	public void Constructor_should_copy_KmerNode() {
-		KmerPathNode pn = new KmerPathNode(new ImmutableKmerNode(0, 2, 3, true, 1));
+		KmerPathNode pn = new KmerPathNode(1, new ImmutableKmerNode(0, 2, 3, true, 1));
 		assertEquals(2, pn.lastStart());
 		assertEquals(3, pn.lastEnd());
 		assertEquals(0, pn.lastKmer());
@@ -34,7 +34,7 @@ public class KmerPathNodeTest extends TestHelper {
 		ImmutableKmerNode n2 = new ImmutableKmerNode(1, 2, 3, false, 3);
 		ImmutableKmerNode n3 = new ImmutableKmerNode(2, 3, 4, false, 4);
 		
-		KmerPathNode pn = new KmerPathNode(n1);
+		KmerPathNode pn = new KmerPathNode(1, n1);
 		pn.append(n2);
 		pn.append(n3);
 		assertEquals(2+3+4, pn.weight());
@@ -65,13 +65,13 @@ public class KmerPathNodeTest extends TestHelper {
 		ImmutableKmerNode n4 = new ImmutableKmerNode(3, 4, 5, false, 6);
 		ImmutableKmerNode n5 = new ImmutableKmerNode(0, 1, 10, false, 2);
 		
-		KmerPathNode pn0 = new KmerPathNode(n0);
-		KmerPathNode pn0a = new KmerPathNode(new ImmutableKmerNode(4, -1, 2, false, 1));
-		KmerPathNode pn5 = new KmerPathNode(n5);
+		KmerPathNode pn0 = new KmerPathNode(1, n0);
+		KmerPathNode pn0a = new KmerPathNode(1, new ImmutableKmerNode(3, -1, 2, false, 1));
+		KmerPathNode pn5 = new KmerPathNode(1, n5);
 		
-		KmerPathNode pn1 = new KmerPathNode(n1);
+		KmerPathNode pn1 = new KmerPathNode(1, n1);
 		pn1.append(n2);
-		KmerPathNode pn2 = new KmerPathNode(n3);
+		KmerPathNode pn2 = new KmerPathNode(1, n3);
 		pn2.append(n4);
 		KmerPathNode.addEdge(pn0a, pn1);
 		KmerPathNode.addEdge(pn0, pn1);
@@ -105,9 +105,9 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void prepend_should_relink_earlier_nodes() {
-		KmerPathNode pn1 = new KmerPathNode(0, 1, 1, true, 1);
-		KmerPathNode pn2 = new KmerPathNode(0, 2, 2, true, 1);
-		KmerPathNode pn3 = new KmerPathNode(0, 3, 3, true, 1);
+		KmerPathNode pn1 = new KmerPathNode(1, 0, 1, 1, true, 1);
+		KmerPathNode pn2 = new KmerPathNode(1, 0, 2, 2, true, 1);
+		KmerPathNode pn3 = new KmerPathNode(1, 0, 3, 3, true, 1);
 		KmerPathNode.addEdge(pn1, pn2);
 		KmerPathNode.addEdge(pn2, pn3);
 		pn3.prepend(pn2);
@@ -115,19 +115,19 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void prepend_should_shift_additional_kmer_offsets() {
-		KmerPathNode pn1 = new KmerPathNode(0, 2, 2, true, 1);
-		KmerPathNode pn2 = new KmerPathNode(0, 3, 3, true, 1);
+		KmerPathNode pn1 = new KmerPathNode(1, 0, 2, 2, true, 1);
+		KmerPathNode pn2 = new KmerPathNode(1, 0, 3, 3, true, 1);
 		KmerPathNode.addEdge(pn1, pn2);
-		pn2.merge(new KmerPathNode(7, 3, 3, true, 1));
-		pn1.merge(new KmerPathNode(5, 2, 2, true, 1));
+		pn2.merge(new KmerPathNode(1, 3, 3, 3, true, 1));
+		pn1.merge(new KmerPathNode(1, 2, 2, 2, true, 1));
 		assertEquals(1, pn2.collapsedKmerOffsets().size());
 		assertEquals(0, pn2.collapsedKmerOffsets().getInt(0));
 		pn2.prepend(pn1);
 		assertEquals(2, pn2.collapsedKmerOffsets().size());
 		assertEquals(1, pn2.collapsedKmerOffsets().getInt(0));
 		assertEquals(0, pn2.collapsedKmerOffsets().getInt(1));
-		assertEquals(7, pn2.collapsedKmers().getLong(0));
-		assertEquals(5, pn2.collapsedKmers().getLong(1));
+		assertEquals(3, pn2.collapsedKmers().getLong(0));
+		assertEquals(2, pn2.collapsedKmers().getLong(1));
 	}
 	public static void assertIs(KmerPathNode pn, long[] kmers, int start, int end, boolean reference, int[] weights) {
 		assertEquals(start, pn.startPosition(0));
@@ -151,38 +151,38 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void canCoalese_should_require_adjacent_before_position_and_everything_else_matching() {
-		assertTrue(KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
-				   KPN(new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
+		assertTrue(KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
+				   KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
 		
-		assertFalse(KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
-					KPN(new long[] { 0, 1, 2, 3 }, 3, 3, true, new int[] { 1, 2, 3, 4 })));
-		assertFalse(KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 3, 3, 4 }).canCoaleseBeforeAdjacent(
-				    KPN(new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
-		assertFalse(KPN(new long[] { 0, 3, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
-				    KPN(new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
-		assertFalse(KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
-				    KPN(new long[] { 0, 1, 2, 3 }, 3, 4, false, new int[] { 1, 2, 3, 4 })));
-		assertFalse(KPN(new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
-				    KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 })));
-		assertFalse(KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
-				    KPN(new long[] { 0, 1, 2, 3, 4 }, 3, 4, true, new int[] { 1, 2, 3, 4, 5 })));
-		assertFalse(KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 4, 3, 2, 1 }).canCoaleseBeforeAdjacent(
-				    KPN(new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
+		assertFalse(KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
+					KPN(1, new long[] { 0, 1, 2, 3 }, 3, 3, true, new int[] { 1, 2, 3, 4 })));
+		assertFalse(KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 3, 3, 4 }).canCoaleseBeforeAdjacent(
+				    KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
+		assertFalse(KPN(1, new long[] { 0, 3, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
+				    KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
+		assertFalse(KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
+				    KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, false, new int[] { 1, 2, 3, 4 })));
+		assertFalse(KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
+				    KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 })));
+		assertFalse(KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 }).canCoaleseBeforeAdjacent(
+				    KPN(1, new long[] { 0, 1, 2, 3, 0 }, 3, 4, true, new int[] { 1, 2, 3, 4, 5 })));
+		assertFalse(KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 4, 3, 2, 1 }).canCoaleseBeforeAdjacent(
+				    KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 })));
 	}
 	@Test
 	public void coaleseAdjacent_should_merge_interval() {
-		KmerPathNode pn1 = KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 });
-		KmerPathNode pn2 = KPN(new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 });
+		KmerPathNode pn1 = KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 });
+		KmerPathNode pn2 = KPN(1, new long[] { 0, 1, 2, 3 }, 3, 4, true, new int[] { 1, 2, 3, 4 });
 		
-		KmerPathNode pre1 = KPN(new long[] { 0 }, 4, 5, true, new int[] { 1});
+		KmerPathNode pre1 = KPN(1, new long[] { 0 }, 4, 5, true, new int[] { 1});
 		KmerPathNode.addEdge(pre1, pn1);
-		KmerPathNode.addEdge(KPN(new long[] { 0 }, 6, 7, true, new int[] { 1}), pn1);
-		KmerPathNode sharedPrev = KPN(new long[] { 1 }, 0, 6, true, new int[] { 1});
+		KmerPathNode.addEdge(KPN(1, new long[] { 0 }, 6, 7, true, new int[] { 1}), pn1);
+		KmerPathNode sharedPrev = KPN(1, new long[] { 1 }, 0, 6, true, new int[] { 1});
 		KmerPathNode.addEdge(sharedPrev, pn1);
 		KmerPathNode.addEdge(sharedPrev, pn2);
-		KmerPathNode pre2 = KPN(new long[] { 2 }, 2, 2, true, new int[] { 1 });
+		KmerPathNode pre2 = KPN(1, new long[] { 2 }, 2, 2, true, new int[] { 1 });
 		KmerPathNode.addEdge(pre2, pn2);
-		KmerPathNode sharedNext = KPN(new long[] { 4 }, 0, 20, true, new int[] { 1 });
+		KmerPathNode sharedNext = KPN(1, new long[] { 3 }, 0, 20, true, new int[] { 1 });
 		KmerPathNode.addEdge(pn1, sharedNext);
 		KmerPathNode.addEdge(pn2, sharedNext);
 		
@@ -193,23 +193,23 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void invalidate_should_remove_node() {
-		KmerPathNode pn1 = KPN(new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 });
+		KmerPathNode pn1 = KPN(1, new long[] { 0, 1, 2, 3 }, 5, 10, true, new int[] { 1, 2, 3, 4 });
 		pn1.invalidate();
 		assertFalse(pn1.isValid());
 	}
 	@Test
 	public void next_should_sort_by_first_kmer_start() {
-		KmerPathNode pn1 = KPN(new long[] { 0 }, 1, 100, true, new int[] { 1 });
-		KmerPathNode.addEdge(pn1, KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 3, 3, true));
-		KmerPathNode.addEdge(pn1, KPN(new long[] { 0, 1, 3, 4 }, 2, 2, true));
+		KmerPathNode pn1 = KPN(1, new long[] { 0 }, 1, 100, true, new int[] { 1 });
+		KmerPathNode.addEdge(pn1, KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 3, 3, true));
+		KmerPathNode.addEdge(pn1, KPN(1, new long[] { 0, 1, 3, 0 }, 2, 2, true));
 		assertEquals(2, pn1.next().get(0).startPosition(0));
 		assertEquals(3, pn1.next().get(1).startPosition(0));
 	}
 	@Test
 	public void prev_should_sort_by_last_kmer_start() {
-		KmerPathNode pn1 = KPN(new long[] { 0 }, 1, 100, true, new int[] { 1 });
-		KmerPathNode.addEdge(KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 1, 1, true), pn1);
-		KmerPathNode.addEdge(KPN(new long[] { 0, 1, 3, 4 }, 2, 2, true), pn1);
+		KmerPathNode pn1 = KPN(1, new long[] { 0 }, 1, 100, true, new int[] { 1 });
+		KmerPathNode.addEdge(KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 1, 1, true), pn1);
+		KmerPathNode.addEdge(KPN(1, new long[] { 0, 1, 3, 0 }, 2, 2, true), pn1);
 		assertEquals(5, pn1.prev().get(0).lastStart());
 		assertEquals(8, pn1.prev().get(1).lastStart());
 	}
@@ -219,7 +219,7 @@ public class KmerPathNodeTest extends TestHelper {
 		ImmutableKmerNode n2 = new ImmutableKmerNode(1, 3, 3, false, 2);
 		ImmutableKmerNode n3 = new ImmutableKmerNode(2, 4, 4, false, 3);
 		
-		KmerPathNode pn = new KmerPathNode(n1);
+		KmerPathNode pn = new KmerPathNode(1, n1);
 		pn.append(n2);
 		pn.append(n3);
 		assertEquals(pn.startPosition(2), pn.lastStart());
@@ -228,15 +228,15 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void splitAtLength_should_break_after_nth_kmer() {
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2, 3, 4 }, 1, 10, true, new int[] { 1, 2, 3, 4, 5 });
-		KmerPathNode.addEdge(KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 1, 1, true), pn);
-		KmerPathNode.addEdge(KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 2, 2, true), pn);
-		KmerPathNode.addEdge(pn, KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 6, 6, false));
-		KmerPathNode.addEdge(pn, KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 7, 7, false));
+		KmerPathNode pn = KPN(1, new long[] { 0, 1, 2, 3, 0 }, 1, 10, true, new int[] { 1, 2, 3, 4, 5 });
+		KmerPathNode.addEdge(KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 1, 1, true), pn);
+		KmerPathNode.addEdge(KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 2, 2, true), pn);
+		KmerPathNode.addEdge(pn, KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 6, 6, false));
+		KmerPathNode.addEdge(pn, KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 7, 7, false));
 		KmerPathNode split = pn.splitAtLength(3);
 		
 		assertIs(split, new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
-		assertIs(pn, new long[] { 3, 4 }, 4, 13, true, new int[] { 4, 5 });
+		assertIs(pn, new long[] { 3, 0 }, 4, 13, true, new int[] { 4, 5 });
 		
 		assertEquals(1, pn.prev().size());
 		assertEquals(1, split.next().size());
@@ -247,21 +247,21 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void splitAtStartPosition_should_split_so_first_kmer_starts_at_given_position() {
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2, 3, 4 }, 1, 10, true, new int[] { 1, 2, 3, 4, 5 });
+		KmerPathNode pn = KPN(1, new long[] { 0, 1, 2, 3, 0 }, 1, 10, true, new int[] { 1, 2, 3, 4, 5 });
 		// prev: 
-		KmerPathNode.addEdge(KPN(new long[] { 0, 1 }, -5, 1, true), pn); // split only
-		KmerPathNode.addEdge(KPN(new long[] { 1, 1 }, 1, 1, true), pn); // split only
-		KmerPathNode.addEdge(KPN(new long[] { 2, 1 }, 2, 2, true), pn); // pn only
-		KmerPathNode.addEdge(KPN(new long[] { 3, 1 }, -100, 100, false), pn); // both
+		KmerPathNode.addEdge(KPN(1, new long[] { 0, 1 }, -5, 1, true), pn); // split only
+		KmerPathNode.addEdge(KPN(1, new long[] { 1, 1 }, 1, 1, true), pn); // split only
+		KmerPathNode.addEdge(KPN(1, new long[] { 2, 1 }, 2, 2, true), pn); // pn only
+		KmerPathNode.addEdge(KPN(1, new long[] { 3, 1 }, -100, 100, false), pn); // both
 		// next
-		KmerPathNode.addEdge(pn, KPN(new long[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 6, 6, false)); // split only
-		KmerPathNode.addEdge(pn, KPN(new long[] { 1, 1, 2, 3, 4, 5, 6, 7 }, 8, 8, false)); // split only
-		KmerPathNode.addEdge(pn, KPN(new long[] { 2, 1, 2, 3, 4, 5, 6, 7 }, 8, 9, false)); // both
-		KmerPathNode.addEdge(pn, KPN(new long[] { 3, 1, 2, 3, 4, 5, 6, 7 }, 9, 9, false)); // pn only
+		KmerPathNode.addEdge(pn, KPN(1, new long[] { 0, 1, 2, 3, 0, 1, 2, 3 }, 6, 6, false)); // split only
+		KmerPathNode.addEdge(pn, KPN(1, new long[] { 1, 1, 2, 3, 0, 1, 2, 3 }, 8, 8, false)); // split only
+		KmerPathNode.addEdge(pn, KPN(1, new long[] { 2, 1, 2, 3, 0, 1, 2, 3 }, 8, 9, false)); // both
+		KmerPathNode.addEdge(pn, KPN(1, new long[] { 3, 1, 2, 3, 0, 1, 2, 3 }, 9, 9, false)); // pn only
 		KmerPathNode split = pn.splitAtStartPosition(4);
 		
-		assertIs(split, new long[] { 0, 1, 2, 3, 4 }, 1, 3, true, new int[] { 1, 2, 3, 4, 5 });
-		assertIs(pn, new long[] { 0, 1, 2, 3, 4 }, 4, 10, true, new int[] { 1, 2, 3, 4, 5 });
+		assertIs(split, new long[] { 0, 1, 2, 3, 0 }, 1, 3, true, new int[] { 1, 2, 3, 4, 5 });
+		assertIs(pn, new long[] { 0, 1, 2, 3, 0 }, 4, 10, true, new int[] { 1, 2, 3, 4, 5 });
 		
 		assertEquals(2, pn.next().size());
 		assertEquals(3, split.next().size());
@@ -284,8 +284,8 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void additionalKmers_should_duplicate_on_start_position_split() {
-		KmerPathNode pn = KPN(new long[] { 0, 1 }, 1, 10, true, new int[] { 1, 2 });
-		KmerPathNode toMerge = KPN(new long[] { 2, 3 }, 1, 10, true, new int[] { 3, 4 });
+		KmerPathNode pn = KPN(1, new long[] { 0, 1 }, 1, 10, true, new int[] { 1, 2 });
+		KmerPathNode toMerge = KPN(1, new long[] { 2, 3 }, 1, 10, true, new int[] { 3, 4 });
 		pn.merge(toMerge);
 		KmerPathNode split = pn.splitAtStartPosition(5);
 		assertEquals(2, pn.collapsedKmers().size());
@@ -301,8 +301,8 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void additionalKmers_should_split_on_length_split() {
-		KmerPathNode pn = KPN(new long[] { 0, 1 }, 1, 10, true, new int[] { 1, 2 });
-		KmerPathNode toMerge = KPN(new long[] { 2, 3 }, 1, 10, true, new int[] { 3, 4 });
+		KmerPathNode pn = KPN(1, new long[] { 0, 1 }, 1, 10, true, new int[] { 1, 2 });
+		KmerPathNode toMerge = KPN(1, new long[] { 2, 3 }, 1, 10, true, new int[] { 3, 4 });
 		pn.merge(toMerge);
 		KmerPathNode split = pn.splitAtLength(1);
 		assertEquals(1, pn.collapsedKmers().size());
@@ -314,8 +314,8 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void merge_should_track_additional_kmers() {
-		KmerPathNode pn = KPN(new long[] { 0, 1 }, 1, 10, true, new int[] { 1, 2 });
-		KmerPathNode toMerge = KPN(new long[] { 2, 3 }, 1, 10, true, new int[] { 3, 4 });
+		KmerPathNode pn = KPN(1, new long[] { 0, 1 }, 1, 10, true, new int[] { 1, 2 });
+		KmerPathNode toMerge = KPN(1, new long[] { 2, 3 }, 1, 10, true, new int[] { 3, 4 });
 		pn.merge(toMerge);
 		assertEquals(1+2+3+4, pn.weight());
 		assertEquals(2, pn.collapsedKmers().getLong(0));
@@ -325,9 +325,9 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void removeWeight_full_remove_should_remove_node() {
-		KmerPathNode prev1 = KPN(new long[] { 0 }, 0, 9, true);
-		KmerPathNode next1 = KPN(new long[] { 0 }, 4, 4, true);
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
+		KmerPathNode prev1 = KPN(1, new long[] { 0 }, 0, 9, true);
+		KmerPathNode next1 = KPN(1, new long[] { 0 }, 4, 4, true);
+		KmerPathNode pn = KPN(1, new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
 		KmerPathNode.addEdge(prev1, pn);
 		KmerPathNode.addEdge(pn, next1);
 		
@@ -343,9 +343,9 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void removeWeight_should_split_kmer_by_position() {
-		KmerPathNode prev1 = KPN(new long[] { 0 }, 0, 9, true);
-		KmerPathNode next1 = KPN(new long[] { 0 }, 4, 4, true);
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
+		KmerPathNode prev1 = KPN(1, new long[] { 0 }, 0, 9, true);
+		KmerPathNode next1 = KPN(1, new long[] { 0 }, 4, 4, true);
+		KmerPathNode pn = KPN(1, new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
 		KmerPathNode.addEdge(prev1, pn);
 		KmerPathNode.addEdge(pn, next1);
 		
@@ -360,9 +360,9 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void removeWeight_should_split_node_if_zero_weight() {
-		KmerPathNode prev1 = KPN(new long[] { 0 }, 0, 9, true);
-		KmerPathNode next1 = KPN(new long[] { 0 }, 4, 4, true);
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
+		KmerPathNode prev1 = KPN(1, new long[] { 0 }, 0, 9, true);
+		KmerPathNode next1 = KPN(1, new long[] { 0 }, 4, 4, true);
+		KmerPathNode pn = KPN(1, new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 2, 3 });
 		KmerPathNode.addEdge(prev1, pn);
 		KmerPathNode.addEdge(pn, next1);
 		
@@ -377,9 +377,9 @@ public class KmerPathNodeTest extends TestHelper {
 	}
 	@Test
 	public void removeWeight_should_split_nodes_based_on_aggregate_weight() {
-		KmerPathNode prev1 = KPN(new long[] { 0 }, 0, 9, true);
-		KmerPathNode next1 = KPN(new long[] { 0 }, 4, 4, true);
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 5, 3 });
+		KmerPathNode prev1 = KPN(1, new long[] { 0 }, 0, 9, true);
+		KmerPathNode next1 = KPN(1, new long[] { 0 }, 4, 4, true);
+		KmerPathNode pn = KPN(1, new long[] { 0, 1, 2 }, 1, 10, true, new int[] { 1, 5, 3 });
 		KmerPathNode.addEdge(prev1, pn);
 		KmerPathNode.addEdge(pn, next1);
 		
@@ -400,36 +400,36 @@ public class KmerPathNodeTest extends TestHelper {
 		// ==========
 		// 3300144045 expected remaining weight 
 		List<KmerPathNode> replacement = new ArrayList<KmerPathNode>(KmerPathNode.removeWeight(pn, toRemove));
-		assertEquals(KPN(new long[] { 0 }, 1, 10, true), replacement.get(0));
-		assertEquals(KPN(new long[] { 1 }, 11, 11, true, 5), replacement.get(1));
-		assertEquals(KPN(new long[] { 1 }, 10, 10, true, 4), replacement.get(2));
-		assertEquals(KPN(new long[] { 1 }, 7, 8, true, 4), replacement.get(3));
-		assertEquals(KPN(new long[] { 1 }, 6, 6, true, 1), replacement.get(4));
-		assertEquals(KPN(new long[] { 1 }, 2, 3, true, 3), replacement.get(5));
-		assertEquals(KPN(new long[] { 2 }, 3, 12, true, 3), replacement.get(6));
+		assertEquals(KPN(1, new long[] { 0 }, 1, 10, true), replacement.get(0));
+		assertEquals(KPN(1, new long[] { 1 }, 11, 11, true, 5), replacement.get(1));
+		assertEquals(KPN(1, new long[] { 1 }, 10, 10, true, 4), replacement.get(2));
+		assertEquals(KPN(1, new long[] { 1 }, 7, 8, true, 4), replacement.get(3));
+		assertEquals(KPN(1, new long[] { 1 }, 6, 6, true, 1), replacement.get(4));
+		assertEquals(KPN(1, new long[] { 1 }, 2, 3, true, 3), replacement.get(5));
+		assertEquals(KPN(1, new long[] { 2 }, 3, 12, true, 3), replacement.get(6));
 	}
 	@Test
 	public void removeWeight_final_kmer_removal_should_remove_corresponding_kmers() {
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2 }, 1, 1, true);
-		pn.merge(KPN(new long[] { 3, 4, 5 }, 1, 1, true));
+		KmerPathNode pn = KPN(1, new long[] { 0, 0, 0 }, 1, 1, true);
+		pn.merge(KPN(1, new long[] { 1, 2, 3 }, 1, 1, true));
 		List<List<KmerNode>> toRemove = new ArrayList<List<KmerNode>>();
 		toRemove.add(null);
 		toRemove.add(null);
-		toRemove.add(new ArrayList<KmerNode>(ImmutableList.of(new ImmutableKmerNode(5, 3, 3, false, 2))));
+		toRemove.add(new ArrayList<KmerNode>(ImmutableList.of(new ImmutableKmerNode(3, 3, 3, false, 2))));
 		
 		KmerPathNode.removeWeight(pn, toRemove);
-		assertEquals(LongArrayList.wrap(new long[] { 3, 4 }), pn.collapsedKmers());
+		assertEquals(LongArrayList.wrap(new long[] { 1, 2 }), pn.collapsedKmers());
 		assertEquals(IntArrayList.wrap(new int[] { 0, 1 }), pn.collapsedKmerOffsets());
 	}
 	@Test
 	public void removeWeight_first_kmer_removal_should_remove_corresponding_kmers() {
-		KmerPathNode pn = KPN(new long[] { 0, 1, 2 }, 1, 1, true);
-		pn.merge(KPN(new long[] { 3, 4, 5 }, 1, 1, true));
+		KmerPathNode pn = KPN(1, new long[] { 0, 0, 0 }, 1, 1, true);
+		pn.merge(KPN(1, new long[] { 1, 2, 3 }, 1, 1, true));
 		List<List<KmerNode>> toRemove = new ArrayList<List<KmerNode>>();
-		toRemove.add(new ArrayList<KmerNode>(ImmutableList.of(new ImmutableKmerNode(3, 1, 1, false, 2))));
+		toRemove.add(new ArrayList<KmerNode>(ImmutableList.of(new ImmutableKmerNode(1, 1, 1, false, 2))));
 		
 		KmerPathNode.removeWeight(pn, toRemove);
-		assertEquals(LongArrayList.wrap(new long[] { 4, 5 }), pn.collapsedKmers());
+		assertEquals(LongArrayList.wrap(new long[] { 2, 3 }), pn.collapsedKmers());
 		assertEquals(IntArrayList.wrap(new int[] { 0, 1 }), pn.collapsedKmerOffsets());
 	}
 	@Test
@@ -1,6 +1,7 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -8,6 +9,8 @@ import java.util.List;
 
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 
 public class LeafBubbleCollapseIteratorTest extends CollapseIteratorTest {
 	@Override
@@ -36,4 +39,22 @@ public class LeafBubbleCollapseIteratorTest extends CollapseIteratorTest {
 		List<KmerPathNode> result = go(k, 100, 2, input);
 		assertEquals(6, result.size());
 	}
+	@Test
+	public void should_abandon_collapse_when_traversal_limit_reached() {
+		int k = 4;
+		List<KmerPathNode> input = new ArrayList<KmerPathNode>();
+		input.add(KPN(k, "GTAC", 1, 10, false)); 
+		input.add(KPN(k, "TACTAAA", 3, 11, false, 2));
+		input.add(KPN(k, "TACGAAA", 4, 5, false));
+		input.add(KPN(k, "AAAT", 6, 15, false));
+		KmerPathNode.addEdge(input.get(0), input.get(1));
+		KmerPathNode.addEdge(input.get(0), input.get(2));
+		KmerPathNode.addEdge(input.get(1), input.get(3));
+		KmerPathNode.addEdge(input.get(2), input.get(3));
+		CollapseIterator it = new LeafBubbleCollapseIterator(input.iterator(), k, 100, 100, 0);
+		List<KmerPathNode> result = Lists.newArrayList(it);
+		assertEquals(4, result.size());
+		assertEquals(0, it.tracking_branchCollapseCount());
+		assertTrue(it.tracking_traversalLimitCount() > 0);
+	}
 }
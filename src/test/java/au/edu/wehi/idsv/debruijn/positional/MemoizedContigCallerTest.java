@@ -5,13 +5,22 @@ import static org.junit.Assert.assertNull;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.google.common.collect.Sets;
 
+import au.edu.wehi.idsv.debruijn.KmerEncodingHelper;
+import au.edu.wehi.idsv.util.IntervalUtil;
+
 
 public class MemoizedContigCallerTest extends ContigCallerTest {
 	@Override
@@ -263,4 +272,70 @@ public class MemoizedContigCallerTest extends ContigCallerTest {
 		caller.add(n3);
 		caller.frontierPath(6, 2);
 	}
+	private static List<KmerPathNode> randomGraph(Random rng) {
+		List<KmerPathNode> list = new ArrayList<>();
+		int n = 10 + rng.nextInt(60);
+		for (int i = 0; i < n; i++) {
+			int start = 1 + rng.nextInt(100);
+			int end = start + rng.nextInt(20);
+			int weight = 1 + rng.nextInt(rng.nextBoolean() ? 3 : 100);
+			String firstKmer = KmerEncodingHelper.toString(32, 1000 * ((100 * i) + start) + end);
+			list.add(KPN(32, firstKmer + StringUtils.repeat("A", rng.nextInt(5)), start, end, rng.nextInt(5) == 0, weight));
+		}
+		for (KmerPathNode prev : list) {
+			for (KmerPathNode next : list) {
+				if (prev.isReference() && next.isReference()) continue;
+				if (IntervalUtil.overlapsClosed(prev.lastStart() + 1, prev.lastEnd() + 1, next.firstStart(), next.firstEnd()) && rng.nextInt(3) != 0) {
+					KmerPathNode.addEdge(prev, next);
+				}
+			}
+		}
+		list.sort(KmerNodeUtil.ByFirstStart);
+		return list;
+	}
+	private static MemoizedContigCaller caller(List<KmerPathNode> nodes) {
+		MemoizedContigCaller caller = new MemoizedContigCaller(100, 3);
+		for (KmerPathNode node : nodes) {
+			caller.add(node);
+		}
+		return caller;
+	}
+	private static Integer weight(ArrayDeque<KmerPathSubnode> contig) {
+		if (contig == null) return null;
+		return contig.stream().mapToInt(sn -> sn.weight()).sum();
+	}
+	/**
+	 * Contigs called after incremental removal of memoized paths should
+	 * match those called from a caller freshly constructed on the remaining graph.
+	 * 
+	 * Only the contig weight is compared as the choice between equal scoring
+	 * paths depends on the order in which paths were memoized.
+	 */
+	@Test
+	public void incremental_removal_should_match_fresh_caller_on_random_graphs() {
+		for (int g = 0; g < 100; g++) {
+			Random rng = new Random(g);
+			List<KmerPathNode> nodes = randomGraph(rng);
+			MemoizedContigCaller caller = caller(nodes);
+			while (true) {
+				int position = rng.nextBoolean() ? Integer.MAX_VALUE : 1 + rng.nextInt(150);
+				ArrayDeque<KmerPathSubnode> contig = caller.callBestContigStartingBefore(Integer.MAX_VALUE, position);
+				ArrayDeque<KmerPathSubnode> expected = caller(nodes).callBestContigStartingBefore(Integer.MAX_VALUE, position);
+				assertEquals(weight(expected), weight(contig));
+				if (contig == null) {
+					if (position == Integer.MAX_VALUE) break;
+					continue;
+				}
+				Set<KmerPathNode> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+				for (KmerPathSubnode sn : contig) {
+					toRemove.add(sn.node());
+				}
+				caller.remove(toRemove);
+				for (KmerPathNode node : toRemove) {
+					node.remove();
+				}
+				nodes.removeAll(toRemove);
+			}
+		}
+	}
 }
@@ -1,13 +1,16 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 
 public class PathCollapseIteratorTest extends CollapseIteratorTest {
@@ -40,4 +43,22 @@ public class PathCollapseIteratorTest extends CollapseIteratorTest {
 		//     |
 		// AAAACCCCGTGTGTTGTG
 	}
+	@Test
+	public void should_abandon_collapse_when_traversal_limit_reached() {
+		int k = 4;
+		List<KmerPathNode> input = new ArrayList<KmerPathNode>();
+		input.add(KPN(k, "GTAC", 1, 10, false)); 
+		input.add(KPN(k, "TACTAAA", 3, 11, false, 2));
+		input.add(KPN(k, "TACGAAA", 4, 5, false));
+		input.add(KPN(k, "AAAT", 6, 15, false));
+		KmerPathNode.addEdge(input.get(0), input.get(1));
+		KmerPathNode.addEdge(input.get(0), input.get(2));
+		KmerPathNode.addEdge(input.get(1), input.get(3));
+		KmerPathNode.addEdge(input.get(2), input.get(3));
+		CollapseIterator it = new PathCollapseIterator(input.iterator(), k, 100, 100, false, 0, 0);
+		List<KmerPathNode> result = Lists.newArrayList(it);
+		assertEquals(4, result.size());
+		assertEquals(0, it.tracking_branchCollapseCount());
+		assertTrue(it.tracking_traversalLimitCount() > 0);
+	}
 }
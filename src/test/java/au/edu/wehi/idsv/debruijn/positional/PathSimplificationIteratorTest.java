@@ -46,8 +46,8 @@ public class PathSimplificationIteratorTest extends TestHelper {
 	@Test
 	public void should_match_reference_when_collapsing() {
 		List<KmerPathNode> in = new ArrayList<KmerPathNode>();
-		in.add(new KmerPathNode(K("TAAA"), 1, 1, true, 1));
-		in.add(new KmerPathNode(K("AAAT"), 2, 2, false, 1));
+		in.add(new KmerPathNode(4, K("TAAA"), 1, 1, true, 1));
+		in.add(new KmerPathNode(4, K("AAAT"), 2, 2, false, 1));
 		KmerPathNode.addEdge(in.get(0), in.get(1));
 		in.sort(KmerNodeUtil.ByFirstStart);
 		List<KmerPathNode> list = Lists.newArrayList(new PathSimplificationIterator(in.iterator(), 64, 64));
@@ -57,10 +57,10 @@ public class PathSimplificationIteratorTest extends TestHelper {
 	@Test
 	public void should_collapse_adjacent() {
 		List<KmerPathNode> in = new ArrayList<KmerPathNode>();
-		in.add(new KmerPathNode(K("TAAA"), 1, 1, true, 1));
-		in.add(new KmerPathNode(K("TAAA"), 2, 3, true, 1));
-		in.add(new KmerPathNode(K("TAAA"), 4, 4, true, 1));
-		in.add(new KmerPathNode(K("TAAA"), 5, 10, true, 1));
+		in.add(new KmerPathNode(4, K("TAAA"), 1, 1, true, 1));
+		in.add(new KmerPathNode(4, K("TAAA"), 2, 3, true, 1));
+		in.add(new KmerPathNode(4, K("TAAA"), 4, 4, true, 1));
+		in.add(new KmerPathNode(4, K("TAAA"), 5, 10, true, 1));
 		in.sort(KmerNodeUtil.ByFirstStart);
 		
 		int weightIn = totalWeight(in);
@@ -71,10 +71,10 @@ public class PathSimplificationIteratorTest extends TestHelper {
 	@Test
 	public void should_collapse_consecutive() {
 		List<KmerPathNode> in = new ArrayList<KmerPathNode>();
-		in.add(new KmerPathNode(K("TAAA"), 1, 10, true, 1));
-		in.add(new KmerPathNode(K("AAAT"), 2, 11, true, 1));
+		in.add(new KmerPathNode(4, K("TAAA"), 1, 10, true, 1));
+		in.add(new KmerPathNode(4, K("AAAT"), 2, 11, true, 1));
 		in.get(in.size() - 1).append(new ImmutableKmerNode(K("AATC"), 3, 12, true, 5));
-		in.add(new KmerPathNode(K("ATCC"), 4, 13, true, 6));
+		in.add(new KmerPathNode(4, K("ATCC"), 4, 13, true, 6));
 		in.sort(KmerNodeUtil.ByFirstStart);
 		
 		KmerPathNode.addEdge(in.get(0), in.get(1));
@@ -90,10 +90,10 @@ public class PathSimplificationIteratorTest extends TestHelper {
 	@Test
 	public void should_chain_collapse() {
 		List<KmerPathNode> in = new ArrayList<KmerPathNode>();
-		in.add(new KmerPathNode(K("TAAA"), 1, 2, true, 4));
-		in.add(new KmerPathNode(K("AAAT"), 2, 3, true, 5));
-		in.add(new KmerPathNode(K("TAAA"), 3, 4, true, 4));
-		in.add(new KmerPathNode(K("AAAT"), 4, 5, true, 5));
+		in.add(new KmerPathNode(4, K("TAAA"), 1, 2, true, 4));
+		in.add(new KmerPathNode(4, K("AAAT"), 2, 3, true, 5));
+		in.add(new KmerPathNode(4, K("TAAA"), 3, 4, true, 4));
+		in.add(new KmerPathNode(4, K("AAAT"), 4, 5, true, 5));
 		KmerPathNode.addEdge(in.get(0), in.get(1));
 		KmerPathNode.addEdge(in.get(2), in.get(3));
 		in.sort(KmerNodeUtil.ByFirstStart);
@@ -116,8 +116,8 @@ public class PathSimplificationIteratorTest extends TestHelper {
 	@Test
 	public void should_not_collapse_adjacent_single_kmer_width() {
 		List<KmerPathNode> in = new ArrayList<KmerPathNode>();
-		in.add(new KmerPathNode(K("AAAA"), 1, 1, true, 1));
-		in.add(new KmerPathNode(K("AAAA"), 2, 2, true, 1));
+		in.add(new KmerPathNode(4, K("AAAA"), 1, 1, true, 1));
+		in.add(new KmerPathNode(4, K("AAAA"), 2, 2, true, 1));
 		List<KmerPathNode> list = Lists.newArrayList(new PathSimplificationIterator(in.iterator(), 64, 64));
 		assertEquals(2, list.size());
 	}
@@ -1,12 +1,15 @@
 package au.edu.wehi.idsv.debruijn.positional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
 import au.edu.wehi.idsv.AssemblyAttributes;
@@ -14,11 +17,14 @@ import au.edu.wehi.idsv.AssemblyEvidenceSource;
 import au.edu.wehi.idsv.BreakendDirection;
 import au.edu.wehi.idsv.BreakendSummary;
 import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.DirectedEvidenceDensityThrottlingIterator;
 import au.edu.wehi.idsv.DirectedEvidenceOrder;
 import au.edu.wehi.idsv.ProcessingContext;
 import au.edu.wehi.idsv.SequentialIdGenerator;
 import au.edu.wehi.idsv.SingleReadEvidence;
 import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.bed.IntervalBed;
+import au.edu.wehi.idsv.util.MemoryGovernor;
 import htsjdk.samtools.SAMRecord;
 
 
@@ -143,4 +149,51 @@ public class PositionalAssemblerTest extends TestHelper {
 			assertEquals(BreakendDirection.Forward, new AssemblyAttributes(r).getAssemblyDirection());
 		}
 	}
+	private static long peakTrackedBufferBytes(ProcessingContext pc, List<DirectedEvidence> evidence, MemoryGovernor governor) {
+		AssemblyEvidenceSource aes = AES(pc);
+		PositionalAssembler[] assembler = new PositionalAssembler[1];
+		long[] peak = new long[1];
+		DirectedEvidenceDensityThrottlingIterator throttled = new DirectedEvidenceDensityThrottlingIterator(
+				new IntervalBed(pc.getDictionary(), pc.getLinear()), pc.getDictionary(), pc.getLinear(),
+				Iterators.transform(evidence.iterator(), e -> {
+					if (assembler[0] != null) {
+						peak[0] = Math.max(peak[0], assembler[0].currentTrackedBufferBytes());
+					}
+					return e;
+				}), 100, 5, 10);
+		if (governor != null) {
+			throttled.setMemoryGovernor(governor);
+		}
+		assembler[0] = new PositionalAssembler(pc, aes, new SequentialIdGenerator("asm"), throttled, BreakendDirection.Forward);
+		if (governor != null) {
+			governor.register(assembler[0]);
+		}
+		Iterators.size(assembler[0]);
+		return peak[0];
+	}
+	@Test
+	public void memory_governor_should_limit_dense_region_buffer_size() {
+		ProcessingContext pc = getContext();
+		pc.getAssemblyParameters().k = 15;
+		Random rng = new Random(0);
+		String seq = S(RANDOM);
+		List<DirectedEvidence> input = new ArrayList<DirectedEvidence>();
+		for (int i = 0; i < 8000; i++) {
+			// 40 breakpoints, each with 200 supporting reads
+			int breakpoint = 200 + 100 * rng.nextInt(40);
+			Random tailRng = new Random(breakpoint);
+			StringBuilder sb = new StringBuilder(seq.substring(breakpoint - 25, breakpoint));
+			for (int j = 0; j < 25; j++) {
+				sb.append("ACGT".charAt(tailRng.nextInt(4)));
+			}
+			int offset = rng.nextInt(10);
+			SAMRecord r = withSequence(sb.substring(offset), Read(2, breakpoint - 24 + offset, String.format("%dM25S", 25 - offset)))[0];
+			r.setReadName("r" + Integer.toString(i));
+			input.add(SCE(FWD, r));
+		}
+		input.sort(DirectedEvidenceOrder.ByStartEnd);
+		long unthrottled = peakTrackedBufferBytes(pc, input, null);
+		long throttled = peakTrackedBufferBytes(pc, input, new MemoryGovernor(unthrottled / 4));
+		assertTrue(throttled < unthrottled * 2 / 3);
+	}
 }
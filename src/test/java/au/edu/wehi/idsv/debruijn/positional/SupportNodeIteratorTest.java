@@ -71,4 +71,19 @@ public class SupportNodeIteratorTest extends TestHelper {
 		input = ImmutableList.of(NRRP(withSequence("AAAAAAAATA", OEA(0, 1, "10M", true))));
 		assertEquals((10-3) + (10-3-2), Lists.newArrayList(new SupportNodeIterator(k, input.iterator(), 60, null, true, 5)).size());
 	}
+	@Test
+	public void reuseNodes_should_aggregate_to_same_nodes() {
+		int k = 4;
+		List<DirectedEvidence> input = scrp(k, "ACGTTATACCG", 30, 60);
+		List<KmerNode> expected = Lists.newArrayList(new AggregateNodeIterator(new SupportNodeIterator(k, input.iterator(), 60, null, true, 0, false)));
+		List<KmerNode> result = Lists.newArrayList(new AggregateNodeIterator(new SupportNodeIterator(k, input.iterator(), 60, null, true, 0, true)));
+		assertEquals(expected.size(), result.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).lastKmer(), result.get(i).lastKmer());
+			assertEquals(expected.get(i).lastStart(), result.get(i).lastStart());
+			assertEquals(expected.get(i).lastEnd(), result.get(i).lastEnd());
+			assertEquals(expected.get(i).weight(), result.get(i).weight());
+			assertEquals(expected.get(i).isReference(), result.get(i).isReference());
+		}
+	}
 }
@@ -0,0 +1,85 @@
+package au.edu.wehi.idsv.debruijn.positional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+
+
+public class TraversalNodeFrontierTest extends TestHelper {
+	private static TraversalNode TN(long kmer, int start, int end) {
+		return new TraversalNode(new KmerPathSubnode(KPN(8, new long[] { kmer }, start, end, false)), 0);
+	}
+	@Test
+	public void should_order_by_last_end_then_kmer() {
+		TraversalNodeFrontier frontier = new TraversalNodeFrontier();
+		TraversalNode a = TN(2, 1, 5);
+		TraversalNode b = TN(1, 1, 5);
+		TraversalNode c = TN(0, 1, 6);
+		TraversalNode d = TN(3, 1, 4);
+		frontier.add(a);
+		frontier.add(b);
+		frontier.add(c);
+		frontier.add(d);
+		assertEquals(4, frontier.size());
+		assertEquals(d, frontier.poll());
+		assertEquals(b, frontier.poll());
+		assertEquals(a, frontier.poll());
+		assertEquals(c, frontier.poll());
+		assertTrue(frontier.isEmpty());
+	}
+	@Test
+	public void should_not_return_removed_nodes() {
+		TraversalNodeFrontier frontier = new TraversalNodeFrontier();
+		TraversalNode a = TN(0, 1, 1);
+		TraversalNode b = TN(0, 2, 2);
+		frontier.add(a);
+		frontier.add(b);
+		assertTrue(frontier.remove(a));
+		assertFalse(frontier.remove(a));
+		assertFalse(frontier.contains(a));
+		assertEquals(b, frontier.first());
+		assertEquals(1, frontier.size());
+		assertTrue(frontier.add(a));
+		assertFalse(frontier.add(a));
+		assertEquals(a, frontier.poll());
+		assertEquals(b, frontier.poll());
+		assertTrue(frontier.isEmpty());
+	}
+	@Test
+	public void should_match_sorted_set() {
+		Random rng = new Random(0);
+		TraversalNodeFrontier frontier = new TraversalNodeFrontier();
+		TreeSet<TraversalNode> expected = new TreeSet<>(TraversalNode.ByLastEndKmer);
+		List<TraversalNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			nodes.add(TN(i, rng.nextInt(100), 100 + rng.nextInt(100)));
+		}
+		for (int i = 0; i < 100000; i++) {
+			TraversalNode tn = nodes.get(rng.nextInt(nodes.size()));
+			switch (rng.nextInt(4)) {
+			case 0:
+			case 1:
+				assertEquals(expected.add(tn), frontier.add(tn));
+				break;
+			case 2:
+				assertEquals(expected.remove(tn), frontier.remove(tn));
+				break;
+			case 3:
+				if (!expected.isEmpty()) {
+					assertEquals(expected.pollFirst(), frontier.poll());
+				}
+				break;
+			}
+			assertEquals(expected.size(), frontier.size());
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package au.edu.wehi.idsv.debruijn.positional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.google.common.collect.Ordering;
+
+import au.edu.wehi.idsv.TestHelper;
+
+
+public class TraversalNodeQueueTest extends TestHelper {
+	private static TraversalNode TN(long kmer, int start, int end, int score) {
+		return new TraversalNode(new KmerPathSubnode(KPN(8, new long[] { kmer }, start, end, false)), score - 1);
+	}
+	/**
+	 * Random paths including paths that are equivalent but not the same object
+	 */
+	private static List<TraversalNode> randomPaths(Random rng, int count) {
+		List<TraversalNode> list = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int start = rng.nextInt(500);
+			TraversalNode tn = TN(rng.nextInt(8), start, start + rng.nextInt(4), 1 + rng.nextInt(20));
+			if (rng.nextBoolean()) {
+				int childStart = tn.node.lastStart() + 1 + rng.nextInt(tn.node.lastEnd() - tn.node.lastStart() + 1);
+				tn = new TraversalNode(tn, new KmerPathSubnode(KPN(8, new long[] { rng.nextInt(8) }, childStart, childStart, false, 1 + rng.nextInt(5))));
+			}
+			list.add(tn);
+		}
+		return list;
+	}
+	private static void assertMatches(Ordering<TraversalNode> ordering, boolean byScore) {
+		Random rng = new Random(0);
+		List<TraversalNode> nodes = randomPaths(rng, 2000);
+		TraversalNodeQueue queue = new TraversalNodeQueue(byScore, true);
+		TreeSet<TraversalNode> expected = new TreeSet<>(ordering);
+		for (int i = 0; i < 100000; i++) {
+			TraversalNode tn = nodes.get(rng.nextInt(nodes.size()));
+			switch (rng.nextInt(5)) {
+			case 0:
+			case 1:
+				assertEquals(expected.add(tn), queue.add(tn));
+				break;
+			case 2:
+				assertEquals(expected.remove(tn), queue.remove(tn));
+				break;
+			case 3:
+				int position = rng.nextInt(600);
+				TraversalNode expectedBefore = expected.stream().filter(n -> n.pathFirstStart() < position).findFirst().orElse(null);
+				assertEquals(expectedBefore, queue.firstStartingBefore(position));
+				break;
+			case 4:
+				if (!expected.isEmpty()) {
+					assertEquals(expected.first(), queue.first());
+				}
+				break;
+			}
+			assertEquals(expected.size(), queue.size());
+			assertEquals(expected.contains(tn), queue.contains(tn));
+		}
+	}
+	@Test
+	public void should_match_score_ordered_sorted_set() {
+		assertMatches(TraversalNode.ByScoreDescPathFirstEndSubnode, true);
+	}
+	@Test
+	public void should_match_path_start_ordered_sorted_set() {
+		assertMatches(TraversalNode.ByPathFirstStartEndSubnode, false);
+	}
+	@Test
+	public void should_treat_equivalent_paths_as_duplicates() {
+		TraversalNodeQueue queue = new TraversalNodeQueue(true, true);
+		TraversalNode a = TN(1, 1, 2, 5);
+		TraversalNode b = new TraversalNode(a, 1, 2);
+		assertTrue(queue.add(a));
+		assertFalse(queue.add(b));
+		assertTrue(queue.remove(b));
+		assertTrue(queue.isEmpty());
+		assertNull(queue.firstStartingBefore(10));
+	}
+	@Test
+	public void firstStartingBefore_should_exclude_paths_starting_at_position() {
+		TraversalNodeQueue queue = new TraversalNodeQueue(true, true);
+		TraversalNode a = TN(1, 100, 100, 10);
+		TraversalNode b = TN(2, 99, 99, 5);
+		queue.add(a);
+		queue.add(b);
+		assertEquals(a, queue.first());
+		assertEquals(b, queue.firstStartingBefore(100));
+		assertEquals(a, queue.firstStartingBefore(101));
+		assertNull(queue.firstStartingBefore(99));
+	}
+}
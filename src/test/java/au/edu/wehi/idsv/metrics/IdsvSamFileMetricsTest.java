@@ -4,11 +4,14 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
 import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.util.MathUtil;
 import gridss.analysis.CigarDetailMetrics;
 import gridss.analysis.IdsvMetrics;
 import gridss.analysis.InsertSizeDistribution;
@@ -32,6 +35,34 @@ public class IdsvSamFileMetricsTest extends TestHelper {
 		assertEquals(mqm, metrics.getMapqMetrics());
 	}
 	@Test
+	public void getReadPairPhred_should_match_fragment_size_distribution() {
+		Random rng = new Random(0);
+		int[] fragSize = new int[500];
+		double[] count = new double[500];
+		for (int i = 0; i < fragSize.length; i++) {
+			fragSize[i] = 100 + 2 * i;
+			count[i] = rng.nextInt(1000);
+		}
+		IdsvMetrics im = new IdsvMetrics();
+		im.READ_PAIRS_BOTH_MAPPED = (long)Arrays.stream(count).sum() + 1000;
+		IdsvSamFileMetrics metrics = new IdsvSamFileMetrics(new InsertSizeMetrics(), im, new MapqMetrics(), new InsertSizeDistribution(fragSize, count), new ArrayList<CigarDetailMetrics>());
+		for (int i = -10; i < 1200; i++) {
+			assertEquals(MathUtil.prToPhred(metrics.readPairFoldedCumulativeDistribution(i)), metrics.getReadPairPhred(i), 0);
+		}
+	}
+	@Test
+	public void cumulativeProbabilityTable_should_match_cumulativeProbability() {
+		InsertSizeDistribution sorted = new InsertSizeDistribution(new int[] { 3, 5, 5, 9 }, new double[] { 1, 2, 0, 7 });
+		InsertSizeDistribution unsorted = new InsertSizeDistribution(new int[] { 9, 3, 5 }, new double[] { 7, 1, 2 });
+		for (InsertSizeDistribution isd : new InsertSizeDistribution[] { sorted, unsorted }) {
+			double[] table = isd.cumulativeProbabilityTable();
+			assertEquals(7, table.length);
+			for (int x = 3; x <= 9; x++) {
+				assertEquals(isd.cumulativeProbability(x), table[x - 3], 0);
+			}
+		}
+	}
+	@Test
 	public void getInsertSizeMetrics_should_use_most_plentiful_orientation() {
 		InsertSizeMetrics metrics = IdsvSamFileMetrics.getInsertSizeMetrics(new File("src/test/resources/multiple.idsv.metrics.insertsize.txt"), false);
 		assertEquals(PairOrientation.FR, metrics.PAIR_ORIENTATION);
@@ -0,0 +1,62 @@
+package au.edu.wehi.idsv.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
+import au.edu.wehi.idsv.util.MathUtil;
+import gridss.analysis.CigarDetailMetrics;
+import gridss.analysis.IdsvMetrics;
+import gridss.analysis.InsertSizeDistribution;
+import gridss.analysis.MapqMetrics;
+import htsjdk.samtools.CigarOperator;
+import picard.analysis.InsertSizeMetrics;
+
+public class EmpiricalLlrModelTest extends TestHelper {
+	private static final EmpiricalLlrModel model = new EmpiricalLlrModel();
+	private static IdsvSamFileMetrics metrics() {
+		List<CigarDetailMetrics> cigar = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			CigarDetailMetrics cdm = new CigarDetailMetrics();
+			cdm.OPERATOR = (char)CigarOperator.enumToCharacter(CigarOperator.SOFT_CLIP);
+			cdm.LENGTH = i;
+			cdm.COUNT = 100 >> i;
+			cigar.add(cdm);
+		}
+		IdsvMetrics im = new IdsvMetrics();
+		im.READ_PAIRS = 1000;
+		im.READ_PAIRS_ONE_MAPPED = 10;
+		im.READ_PAIRS_ZERO_MAPPED = 5;
+		im.READ_PAIRS_BOTH_MAPPED = im.READ_PAIRS - im.READ_PAIRS_ONE_MAPPED - im.READ_PAIRS_ZERO_MAPPED;
+		return new IdsvSamFileMetrics(new InsertSizeMetrics(), im, new MapqMetrics(),
+				new InsertSizeDistribution(new int[] { 1, 2, 3, }, new double[] { 100, 800, 85, }),
+				cigar);
+	}
+	private static double expectedLlr(double prEgivenMR, double prEgivenMV, double... mapq) {
+		double prM = 1 - MathUtil.phredToPr(MathUtil.phredOr(mapq));
+		return Math.log10((prEgivenMR + prM * (prEgivenMV - prEgivenMR)) / prEgivenMR);
+	}
+	@Test
+	public void precomputed_mapping_probabilities_should_match_direct_calculation() {
+		IdsvSamFileMetrics metrics = metrics();
+		for (int mapq1 : new int[] { 0, 1, 10, 60, 254, 255, 256, 1000 }) {
+			for (int mapq2 : new int[] { 0, 3, 30, 255, 300 }) {
+				for (int len = 0; len < 12; len++) {
+					double prEgivenMR = MathUtil.phredToPr(metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, len));
+					double prEgivenMV = MathUtil.phredToPr(metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, 0));
+					assertEquals(expectedLlr(prEgivenMR, prEgivenMV, mapq1, mapq2), model.scoreSplitRead(metrics, len, mapq1, mapq2), 0);
+					assertEquals(expectedLlr(prEgivenMR, prEgivenMV, mapq1), model.scoreSoftClip(metrics, len, mapq1), 0);
+				}
+				for (int fragSize = 0; fragSize < 5; fragSize++) {
+					double prEgivenMR = MathUtil.phredToPr(metrics.getReadPairPhred(fragSize));
+					assertEquals(expectedLlr(prEgivenMR, 0.5, mapq1, mapq2), model.scoreReadPair(metrics, fragSize, mapq1, mapq2), 0);
+				}
+			}
+		}
+	}
+}
@@ -3,15 +3,18 @@ package au.edu.wehi.idsv.model;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
 import au.edu.wehi.idsv.TestHelper;
 import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
+import au.edu.wehi.idsv.util.MathUtil;
 import gridss.analysis.CigarDetailMetrics;
 import gridss.analysis.IdsvMetrics;
 import gridss.analysis.InsertSizeDistribution;
 import gridss.analysis.MapqMetrics;
+import htsjdk.samtools.CigarOperator;
 import picard.analysis.InsertSizeMetrics;
 
 public class EmpiricalReferenceLikelihoodModelTest extends TestHelper {
@@ -45,4 +48,35 @@ public class EmpiricalReferenceLikelihoodModelTest extends TestHelper {
 				new ArrayList<CigarDetailMetrics>());
 		assertEquals(10, model.scoreReadPair(metrics, 3, 1000, 1000), 0.001);
 	}
+	@Test
+	public void precomputed_mapping_error_should_match_direct_phred_combination() {
+		List<CigarDetailMetrics> cigar = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			CigarDetailMetrics cdm = new CigarDetailMetrics();
+			cdm.OPERATOR = (char)CigarOperator.enumToCharacter(CigarOperator.SOFT_CLIP);
+			cdm.LENGTH = i;
+			cdm.COUNT = 100 >> i;
+			cigar.add(cdm);
+		}
+		IdsvMetrics im = new IdsvMetrics();
+		im.READ_PAIRS = 1000;
+		im.READ_PAIRS_ONE_MAPPED = 10;
+		im.READ_PAIRS_ZERO_MAPPED = 5;
+		im.READ_PAIRS_BOTH_MAPPED = im.READ_PAIRS - im.READ_PAIRS_ONE_MAPPED - im.READ_PAIRS_ZERO_MAPPED;
+		IdsvSamFileMetrics metrics = new IdsvSamFileMetrics(new InsertSizeMetrics(), im, new MapqMetrics(),
+				new InsertSizeDistribution(new int[] { 1, 2, 3, }, new double[] { 100, 800, 85, }),
+				cigar);
+		for (int mapq1 : new int[] { 0, 1, 10, 60, 254, 255, 256, 1000 }) {
+			for (int mapq2 : new int[] { 0, 3, 30, 255, 300 }) {
+				for (int len = 0; len < 12; len++) {
+					double phred = metrics.getCigarDistribution().getPhred(CigarOperator.SOFT_CLIP, len);
+					assertEquals(MathUtil.phredOr(phred, mapq1, mapq2), model.scoreSplitRead(metrics, len, mapq1, mapq2), 1e-6);
+					assertEquals(MathUtil.phredOr(phred, mapq1), model.scoreSoftClip(metrics, len, mapq1), 1e-6);
+				}
+				for (int fragSize = 0; fragSize < 5; fragSize++) {
+					assertEquals(MathUtil.phredOr(metrics.getReadPairPhred(fragSize), mapq1, mapq2), model.scoreReadPair(metrics, fragSize, mapq1, mapq2), 1e-6);
+				}
+			}
+		}
+	}
 }
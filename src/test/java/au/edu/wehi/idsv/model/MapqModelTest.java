@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import au.edu.wehi.idsv.util.MathUtil;
 
 public class MapqModelTest {
 	private static final MapqModel model = new MapqModel();
@@ -18,4 +19,13 @@ public class MapqModelTest {
 		assertEquals(7.21246399, model.scoreSplitRead(null, 0, 10, 10), 0.000001);
 		assertEquals(7.21246399, model.scoreReadPair(null, 0, 10, 10), 0.000001);
 	}
+	@Test
+	public void precomputed_mapq_should_match_direct_calculation() {
+		for (int mapq1 : new int[] { 0, 1, 10, 60, 254, 255, 256, 1000 }) {
+			for (int mapq2 : new int[] { 0, 3, 30, 255, 300 }) {
+				assertEquals(MathUtil.phredOr(mapq1, mapq2), model.scoreSplitRead(null, 0, mapq1, mapq2), 0);
+				assertEquals(MathUtil.phredOr(mapq1, mapq2), model.scoreReadPair(null, 0, mapq1, mapq2), 0);
+			}
+		}
+	}
 }
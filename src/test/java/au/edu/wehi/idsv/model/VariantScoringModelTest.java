@@ -0,0 +1,95 @@
+package au.edu.wehi.idsv.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
+import gridss.analysis.CigarDetailMetrics;
+import gridss.analysis.IdsvMetrics;
+import gridss.analysis.InsertSizeDistribution;
+import gridss.analysis.MapqMetrics;
+import htsjdk.samtools.CigarOperator;
+import picard.analysis.InsertSizeMetrics;
+
+public class VariantScoringModelTest extends TestHelper {
+	private static final VariantScoringModel[] MODELS = new VariantScoringModel[] {
+		new EmpiricalLlrModel(),
+		new EmpiricalReferenceLikelihoodModel(),
+		new FastEmpiricalReferenceLikelihoodModel(),
+		new ReadCountModel(),
+		new MapqModel(),
+		new ExclusionModel(new EmpiricalLlrModel(), false, true, false, true, false),
+	};
+	private static final int[] MAPQ = new int[] { -1, 0, 1, 10, 60, 254, 255, 256, 1000 };
+	private static IdsvSamFileMetrics metrics() {
+		List<CigarDetailMetrics> cigar = new ArrayList<>();
+		for (CigarOperator op : new CigarOperator[] { CigarOperator.SOFT_CLIP, CigarOperator.INSERTION, CigarOperator.DELETION }) {
+			for (int i = 0; i < 10; i++) {
+				CigarDetailMetrics cdm = new CigarDetailMetrics();
+				cdm.OPERATOR = (char)CigarOperator.enumToCharacter(op);
+				cdm.LENGTH = i;
+				cdm.COUNT = (op == CigarOperator.SOFT_CLIP ? 1000 : 100) >> i;
+				cigar.add(cdm);
+			}
+		}
+		IdsvMetrics im = new IdsvMetrics();
+		im.READ_PAIRS = 1000;
+		im.READ_PAIRS_ONE_MAPPED = 10;
+		im.READ_PAIRS_ZERO_MAPPED = 5;
+		im.READ_PAIRS_BOTH_MAPPED = im.READ_PAIRS - im.READ_PAIRS_ONE_MAPPED - im.READ_PAIRS_ZERO_MAPPED;
+		return new IdsvSamFileMetrics(new InsertSizeMetrics(), im, new MapqMetrics(),
+				new InsertSizeDistribution(new int[] { 1, 2, 3, }, new double[] { 100, 800, 85, }),
+				cigar);
+	}
+	@Test
+	public void batch_scores_should_match_single_evidence_scores() {
+		IdsvSamFileMetrics metrics = metrics();
+		List<int[]> args = new ArrayList<>();
+		for (int length = -1; length < 14; length++) {
+			for (int mapq1 : MAPQ) {
+				for (int mapq2 : MAPQ) {
+					args.add(new int[] { length, mapq1, mapq2 });
+				}
+			}
+		}
+		int n = args.size();
+		int[] length = new int[n];
+		int[] mapq1 = new int[n];
+		int[] mapq2 = new int[n];
+		CigarOperator[] op = new CigarOperator[n];
+		for (int i = 0; i < n; i++) {
+			length[i] = args.get(i)[0];
+			mapq1[i] = args.get(i)[1];
+			mapq2[i] = args.get(i)[2];
+			op[i] = i % 2 == 0 ? CigarOperator.INSERTION : CigarOperator.DELETION;
+		}
+		float[] scores = new float[n];
+		for (VariantScoringModel model : MODELS) {
+			model.scoreSplitReads(metrics, length, mapq1, mapq2, scores);
+			for (int i = 0; i < n; i++) {
+				assertEquals((float)model.scoreSplitRead(metrics, length[i], mapq1[i], mapq2[i]), scores[i], 0);
+			}
+			model.scoreSoftClips(metrics, length, mapq1, scores);
+			for (int i = 0; i < n; i++) {
+				assertEquals((float)model.scoreSoftClip(metrics, length[i], mapq1[i]), scores[i], 0);
+			}
+			model.scoreIndels(metrics, op, length, mapq1, scores);
+			for (int i = 0; i < n; i++) {
+				assertEquals((float)model.scoreIndel(metrics, op[i], length[i], mapq1[i]), scores[i], 0);
+			}
+			model.scoreReadPairs(metrics, length, mapq1, mapq2, scores);
+			for (int i = 0; i < n; i++) {
+				assertEquals((float)model.scoreReadPair(metrics, length[i], mapq1[i], mapq2[i]), scores[i], 0);
+			}
+			model.scoreUnmappedMates(metrics, mapq1, scores);
+			for (int i = 0; i < n; i++) {
+				assertEquals((float)model.scoreUnmappedMate(metrics, mapq1[i]), scores[i], 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package au.edu.wehi.idsv.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+
+
+public class ChimericAlignmentCursorTest extends TestHelper {
+	@Test
+	public void should_parse_fields() {
+		ChimericAlignmentCursor c = new ChimericAlignmentCursor().reset("polyACGT,100,-,10S20M,30,4;random,5,+,5M1D5M20S,0,");
+		assertTrue(c.next());
+		assertEquals(1, c.getReferenceIndex(getSequenceDictionary()));
+		assertEquals("polyACGT", c.getReferenceName());
+		assertEquals(100, c.getPosition());
+		assertEquals(119, c.getAlignmentEnd());
+		assertTrue(c.isNegativeStrand());
+		assertEquals(10, c.getCigar().getStartClipLength());
+		assertEquals(30, c.getMappingQuality());
+		assertTrue(c.hasNm());
+		assertEquals(4, c.getNm());
+		assertTrue(c.next());
+		assertEquals(2, c.getReferenceIndex(getSequenceDictionary()));
+		assertEquals(5, c.getPosition());
+		assertEquals(15, c.getAlignmentEnd());
+		assertFalse(c.isNegativeStrand());
+		assertFalse(c.hasNm());
+		assertFalse(c.next());
+	}
+	@Test
+	public void should_return_negative_index_for_unknown_contig() {
+		ChimericAlignmentCursor c = new ChimericAlignmentCursor().reset("polyAA,1,+,1M,0,0;polyA,1,+,1M,0,0");
+		assertTrue(c.next());
+		assertEquals(-1, c.getReferenceIndex(getSequenceDictionary()));
+		assertTrue(c.next());
+		assertEquals(0, c.getReferenceIndex(getSequenceDictionary()));
+	}
+	@Test
+	public void should_skip_empty_alignments() {
+		ChimericAlignmentCursor c = new ChimericAlignmentCursor().reset(";polyA,1,+,1M,0,0;;polyA,2,+,1M,0,0; ");
+		StringBuilder sb = new StringBuilder();
+		while (c.next()) {
+			if (sb.length() > 0) sb.append(';');
+			c.appendTo(sb);
+		}
+		assertEquals("polyA,1,+,1M,0,0;polyA,2,+,1M,0,0", sb.toString());
+		assertFalse(new ChimericAlignmentCursor().reset(null).next());
+	}
+	@Test
+	public void should_match_ChimericAlignment() {
+		String sa = "chr18,107870,-,8817S631M318S,30,39;chr18,108695,-,7874S237M1D203M1I5M2D215M1D40M1191S,0,48;chrY,13833846,+,7104S60M2602S,15,0;";
+		List<ChimericAlignment> list = ChimericAlignment.getChimericAlignments(sa);
+		ChimericAlignmentCursor c = new ChimericAlignmentCursor().reset(sa);
+		for (ChimericAlignment ca : list) {
+			assertTrue(c.next());
+			assertEquals(ca, c.toChimericAlignment());
+			assertEquals(ca.toString(), c.toChimericAlignment().toString());
+			assertEquals(ca.pos + ca.cigar.getReferenceLength() - 1, c.getAlignmentEnd());
+		}
+		assertFalse(c.next());
+	}
+}
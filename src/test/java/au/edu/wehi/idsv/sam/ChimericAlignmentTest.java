@@ -1,12 +1,14 @@
 package au.edu.wehi.idsv.sam;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
 import org.junit.Test;
 
+import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.TextCigarCodec;
 
 
@@ -38,4 +40,32 @@ public class ChimericAlignmentTest {
 		assertEquals(1, new ChimericAlignment(null, 0, false, TextCigarCodec.decode("1S2M3S4H"), 0, 0).getFirstAlignedBaseReadOffset());
 		assertEquals(7, new ChimericAlignment(null, 0, true, TextCigarCodec.decode("1S2M3S4H"), 0, 0).getFirstAlignedBaseReadOffset());
 	}
+	@Test
+	public void should_cache_parsed_record_tag() {
+		SAMRecord r = new SAMRecord(null);
+		r.setAttribute("SA", "polyA,1,+,1M1S,0,0");
+		List<ChimericAlignment> list = ChimericAlignment.getChimericAlignments(r);
+		assertEquals(1, list.size());
+		list.clear();
+		assertEquals(1, ChimericAlignment.getChimericAlignments(r).size());
+		assertSame(ChimericAlignment.getChimericAlignments(r).get(0), ChimericAlignment.getChimericAlignments(r).get(0));
+	}
+	@Test
+	public void should_reparse_when_record_tag_changes() {
+		SAMRecord r = new SAMRecord(null);
+		r.setAttribute("SA", "polyA,1,+,1M1S,0,0");
+		assertEquals(1, ChimericAlignment.getChimericAlignments(r).size());
+		r.setAttribute("SA", "polyA,1,+,1M1S,0,0;polyA,2,-,1S1M,0,0");
+		assertEquals(2, ChimericAlignment.getChimericAlignments(r).size());
+		r.setAttribute("SA", null);
+		assertEquals(0, ChimericAlignment.getChimericAlignments(r).size());
+	}
+	@Test
+	public void setChimericAlignments_should_write_tag() {
+		SAMRecord r = new SAMRecord(null);
+		List<ChimericAlignment> list = ChimericAlignment.getChimericAlignments("polyA,1,+,1M1S,0,0;polyA,2,-,1S1M,0,");
+		ChimericAlignment.setChimericAlignments(r, list);
+		assertEquals("polyA,1,+,1M1S,0,0;polyA,2,-,1S1M,0,", r.getStringAttribute("SA"));
+		assertSame(list.get(1), ChimericAlignment.getChimericAlignments(r).get(1));
+	}
 }
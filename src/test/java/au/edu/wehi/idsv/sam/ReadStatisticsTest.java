@@ -0,0 +1,112 @@
+package au.edu.wehi.idsv.sam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+
+public class ReadStatisticsTest extends IntermediateFilesTest {
+	private static final String BASES = "ACGTNacgtn";
+	private static SAMRecord randomRead(Random rng, int i) {
+		StringBuilder cigar = new StringBuilder();
+		int readLength = 0;
+		if (rng.nextBoolean()) {
+			int len = 1 + rng.nextInt(30);
+			cigar.append(len).append('S');
+			readLength += len;
+		}
+		int mlen = 1 + rng.nextInt(60);
+		cigar.append(mlen).append('M');
+		readLength += mlen;
+		if (rng.nextInt(4) == 0) {
+			int len = 1 + rng.nextInt(5);
+			cigar.append(len).append(rng.nextBoolean() ? 'I' : 'D');
+			if (cigar.charAt(cigar.length() - 1) == 'I') readLength += len;
+			mlen = 1 + rng.nextInt(30);
+			cigar.append(mlen).append('M');
+			readLength += mlen;
+		}
+		if (rng.nextBoolean()) {
+			int len = 1 + rng.nextInt(30);
+			cigar.append(len).append('S');
+			readLength += len;
+		}
+		// low complexity reads exercise the entropy bounds
+		int alphabet = 1 + rng.nextInt(BASES.length());
+		byte[] bases = new byte[readLength];
+		for (int j = 0; j < readLength; j++) {
+			bases[j] = (byte)BASES.charAt(rng.nextInt(alphabet));
+		}
+		SAMRecord r = Read(0, 1 + rng.nextInt(1000), cigar.toString());
+		r.setReadName("r" + i);
+		r.setReadBases(bases);
+		r.setBaseQualities(new byte[readLength]);
+		r.setAttribute("NM", rng.nextInt(10));
+		return r;
+	}
+	@Test
+	public void should_match_SAMRecordUtil_on_generated_bam() throws IOException {
+		Random rng = new Random(0);
+		List<SAMRecord> reads = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			reads.add(randomRead(rng, i));
+		}
+		createBAM(input, SortOrder.coordinate, reads);
+		int count = 0;
+		try (SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(input)) {
+			for (SAMRecord r : reader) {
+				ReadStatistics stats = ReadStatistics.get(r);
+				for (double threshold = 0; threshold <= 2.5; threshold += 0.125) {
+					assertEquals(SAMRecordUtil.alignedEntropy(r) < threshold, stats.isAlignedEntropyBelow(threshold));
+					assertEquals(SAMRecordUtil.entropy(r) < threshold, stats.isEntropyBelow(threshold));
+				}
+				assertEquals(Float.floatToIntBits(SAMRecordUtil.getAlignedIdentity(r)), Float.floatToIntBits(stats.getAlignedIdentity()));
+				assertEquals(Double.doubleToLongBits(SAMRecordUtil.alignedEntropy(r)), Double.doubleToLongBits(stats.getAlignedEntropy()));
+				assertEquals(Double.doubleToLongBits(SAMRecordUtil.entropy(r)), Double.doubleToLongBits(stats.getEntropy()));
+				count++;
+			}
+		}
+		assertEquals(reads.size(), count);
+	}
+	@Test
+	public void should_cache_on_record() {
+		SAMRecord r = withSequence("AAAACGTT", Read(0, 1, "2S6M"))[0];
+		r.setAttribute("NM", 0);
+		ReadStatistics stats = ReadStatistics.get(r);
+		assertTrue(stats == ReadStatistics.get(r));
+		r.setCigarString("8M");
+		assertTrue(stats != ReadStatistics.get(r));
+		assertEquals(Double.doubleToLongBits(SAMRecordUtil.alignedEntropy(r)), Double.doubleToLongBits(ReadStatistics.get(r).getAlignedEntropy()));
+		stats = ReadStatistics.get(r);
+		r.setReadBases("CCCCCCCC".getBytes());
+		assertTrue(stats != ReadStatistics.get(r));
+		assertEquals(0, ReadStatistics.get(r).getEntropy(), 0);
+	}
+	@Test
+	public void maxEntropy_should_bound_entropy() {
+		assertEquals(0, ReadStatistics.maxEntropy(0), 0);
+		assertEquals(0, ReadStatistics.maxEntropy(1), 0);
+		assertEquals(1, ReadStatistics.maxEntropy(2), 0);
+		assertEquals(2, ReadStatistics.maxEntropy(4), 0);
+		assertEquals(2, ReadStatistics.maxEntropy(100), 0);
+		assertTrue(ReadStatistics.get(withSequence("ACG", Read(0, 1, "3M"))[0]).isEntropyBelow(1.6));
+	}
+	@Test(expected=IllegalStateException.class)
+	public void getAlignedIdentity_should_require_NM() {
+		SAMRecord r = Read(0, 1, "10M");
+		r.setAttribute("NM", null);
+		ReadStatistics.get(r).getAlignedIdentity();
+	}
+}
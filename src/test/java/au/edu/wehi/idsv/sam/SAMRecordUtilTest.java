@@ -914,4 +914,15 @@ public class SAMRecordUtilTest extends TestHelper {
 		Assert.assertEquals("32S48M20S", r2.getCigarString());
 		Assert.assertEquals("64S36M", r3.getCigarString());
 	}
+	@Test
+	public void getMateCigarSummary_should_parse_mc_tag() {
+		SAMRecord r = Read(0, 1, "10M");
+		assertNull(SAMRecordUtil.getMateCigarSummary(r));
+		r.setAttribute(SAMTag.MC.name(), "5S10M2D3M7S");
+		assertEquals(15, SAMRecordUtil.getMateCigarSummary(r).referenceLength);
+		assertEquals(5, SAMRecordUtil.getMateCigarSummary(r).startSoftClipLength);
+		assertEquals(7, SAMRecordUtil.getMateCigarSummary(r).endSoftClipLength);
+		r.setAttribute(SAMTag.MC.name(), "1M");
+		assertEquals(1, SAMRecordUtil.getMateCigarSummary(r).referenceLength);
+	}
 }
@@ -0,0 +1,52 @@
+package au.edu.wehi.idsv.sam;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.TextCigarCodec;
+
+
+public class TextCigarParserTest {
+	@Test
+	public void should_match_TextCigarCodec() {
+		TextCigarParser parser = new TextCigarParser();
+		for (String s : new String[] { "100M", "5H10S20M1I2D3N4P5=6X7S8H", "1S2M3S4H", "10S", "7874S237M1D203M1I5M2D215M1D40M1191S", "*" }) {
+			Cigar cigar = TextCigarCodec.decode(s);
+			parser.parse(s);
+			assertEquals(cigar, parser.toCigar());
+			assertEquals(cigar.numCigarElements(), parser.size());
+			assertEquals(cigar.getReferenceLength(), parser.getReferenceLength());
+			assertEquals(cigar.getReadLength(), parser.getReadLength());
+			assertEquals(CigarUtil.getStartClipLength(cigar.getCigarElements()), parser.getStartClipLength());
+			assertEquals(CigarUtil.getEndClipLength(cigar.getCigarElements()), parser.getEndClipLength());
+			assertEquals(CigarUtil.getStartSoftClipLength(cigar.getCigarElements()), parser.getStartSoftClipLength());
+			assertEquals(CigarUtil.getEndSoftClipLength(cigar.getCigarElements()), parser.getEndSoftClipLength());
+		}
+	}
+	@Test
+	public void should_parse_substring() {
+		TextCigarParser parser = new TextCigarParser();
+		parser.parse("chr1,1,+,10S20M,0", 9, 15);
+		assertEquals(2, parser.size());
+		assertEquals(CigarOperator.S, parser.getOperator(0));
+		assertEquals(10, parser.getLength(0));
+		assertEquals(20, parser.getReferenceLength());
+	}
+	@Test
+	public void should_grow_operator_array() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("1M1I");
+		}
+		TextCigarParser parser = new TextCigarParser().parse(sb);
+		assertEquals(200, parser.size());
+		assertEquals(100, parser.getReferenceLength());
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void should_reject_malformed_cigar() {
+		new TextCigarParser().parse("10M5");
+	}
+}
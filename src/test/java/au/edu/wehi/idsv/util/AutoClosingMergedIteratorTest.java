@@ -6,12 +6,17 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 
 import au.edu.wehi.idsv.TestHelper;
@@ -73,4 +78,53 @@ public class AutoClosingMergedIteratorTest extends TestHelper {
 		assertTrue(it4.isClosed);
 		assertTrue(it5.isClosed);
 	}
+	private static List<List<int[]>> randomSortedLists(Random rng, int k) {
+		List<List<int[]>> lists = new ArrayList<>();
+		for (int i = 0; i < k; i++) {
+			List<int[]> list = new ArrayList<>();
+			int n = rng.nextInt(50);
+			for (int j = 0; j < n; j++) {
+				// { sort key, secondary sort value, source iterator, source offset }
+				list.add(new int[] { rng.nextInt(10), rng.nextInt(3), i, 0 });
+			}
+			Collections.sort(list, (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+			for (int j = 0; j < n; j++) {
+				list.get(j)[3] = j;
+			}
+			lists.add(list);
+		}
+		return lists;
+	}
+	@Test
+	public void should_merge_stably_with_and_without_sort_key() {
+		Random rng = new Random(0);
+		Ordering<int[]> ordering = Ordering.from((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+		Ordering<int[]> stable = ordering.compound((a, b) -> a[2] != b[2] ? Integer.compare(a[2], b[2]) : Integer.compare(a[3], b[3]));
+		for (int k = 0; k < 20; k++) {
+			for (int repeat = 0; repeat < 10; repeat++) {
+				List<List<int[]>> lists = randomSortedLists(rng, k);
+				List<int[]> expected = new ArrayList<>();
+				lists.forEach(expected::addAll);
+				Collections.sort(expected, stable);
+				List<Iterator<int[]>> its = new ArrayList<>();
+				lists.forEach(l -> its.add(l.iterator()));
+				assertEquals(expected, Lists.newArrayList(new AutoClosingMergedIterator<int[]>(its, ordering)));
+				its.clear();
+				lists.forEach(l -> its.add(l.iterator()));
+				assertEquals(expected, Lists.newArrayList(new AutoClosingMergedIterator<int[]>(its, ordering, a -> a[0])));
+			}
+		}
+	}
+	@Test
+	public void should_close_empty_iterators() {
+		CountingIterator it1 = new CountingIterator(0);
+		CountingIterator it2 = new CountingIterator(2);
+		AutoClosingMergedIterator<Integer> merged = new AutoClosingMergedIterator<Integer>(ImmutableList.of(it1, it2), Ordering.natural(), n -> n);
+		assertTrue(it1.isClosed);
+		assertEquals(1, (int)merged.next());
+		assertFalse(it2.isClosed);
+		assertEquals(2, (int)merged.next());
+		assertTrue(it2.isClosed);
+		assertFalse(merged.hasNext());
+	}
 }
@@ -1,6 +1,7 @@
 package au.edu.wehi.idsv.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -41,4 +42,17 @@ public class DensityThrottlingIteratorTest {
 		List<Integer> result = Lists.newArrayList(new IntDensityThrottlingIterator(input.iterator(), 4, 2.0, 4.0));
 		assertEquals(2048, result.size(), 64);
 	}
+	@Test
+	public void should_throttle_when_memory_governor_over_budget() {
+		List<Integer> input = new ArrayList<Integer>();
+		for (int i = 0; i < 1024; i++) {
+			input.add(i);
+		}
+		MemoryGovernor mg = new MemoryGovernor(1);
+		mg.register(new MemoryGovernorTest.FixedSizeBuffer(1024));
+		IntDensityThrottlingIterator dit = new IntDensityThrottlingIterator(input.iterator(), 4, 1, 1);
+		dit.setMemoryGovernor(mg);
+		List<Integer> result = Lists.newArrayList(dit);
+		assertTrue(result.size() < 512);
+	}
 }
@@ -18,4 +18,13 @@ public class MathUtilTest {
 		assertEquals(0.999998875501369913289357102130159464124571763746365284402279, MathUtil.phredOr(1, 60), 0);
 		assertEquals(0.99999999988755012243472182763604174153706462136143019889429, MathUtil.phredOr(1, 100), 0.000000000000001);
 	}
+	@Test
+	public void phredOr_fixed_arity_should_match_varargs() {
+		for (int i = 0; i <= 100; i += 3) {
+			for (int j = 0; j <= 100; j += 7) {
+				assertEquals(MathUtil.phredOr(new double[] { i + 0.5, j }), MathUtil.phredOr(i + 0.5, j), 0);
+				assertEquals(MathUtil.phredOr(new double[] { i + 0.5, j, i }), MathUtil.phredOr(i + 0.5, j, i), 0);
+			}
+		}
+	}
 }
@@ -0,0 +1,68 @@
+package au.edu.wehi.idsv.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import au.edu.wehi.idsv.visualisation.TrackedBuffer;
+
+
+public class MemoryGovernorTest {
+	public static class FixedSizeBuffer implements TrackedBuffer {
+		public long bytes;
+		public FixedSizeBuffer(long bytes) {
+			this.bytes = bytes;
+		}
+		@Override
+		public void setTrackedBufferContext(String context) {
+		}
+		@Override
+		public List<NamedTrackedBuffer> currentTrackedBufferSizes() {
+			return ImmutableList.of(new NamedTrackedBuffer("fixed", 1, bytes));
+		}
+	}
+	@Test
+	public void should_not_throttle_within_budget() {
+		MemoryGovernor mg = new MemoryGovernor(100);
+		mg.register(new FixedSizeBuffer(40));
+		mg.register(new FixedSizeBuffer(60));
+		assertEquals(100, mg.estimatedRetainedBytes());
+		assertEquals(1, mg.densityScale(), 0);
+	}
+	@Test
+	public void should_scale_density_by_budget_excess() {
+		MemoryGovernor mg = new MemoryGovernor(100);
+		FixedSizeBuffer buffer = new FixedSizeBuffer(300);
+		mg.register(buffer);
+		mg.register(new FixedSizeBuffer(100));
+		assertEquals(0.25, mg.densityScale(), 0.0001);
+		buffer.bytes = 0;
+		assertEquals(1, mg.densityScale(), 0);
+	}
+	@Test
+	public void unregister_should_remove_buffer() {
+		MemoryGovernor mg = new MemoryGovernor(100);
+		FixedSizeBuffer a = new FixedSizeBuffer(1000);
+		FixedSizeBuffer b = new FixedSizeBuffer(10);
+		mg.register(a);
+		mg.register(b);
+		mg.unregister(a);
+		assertEquals(10, mg.estimatedRetainedBytes());
+	}
+	@Test
+	public void should_disable_for_non_positive_heap_fraction() {
+		assertNull(MemoryGovernor.forHeapFraction(0, 1));
+		assertTrue(MemoryGovernor.forHeapFraction(0.5, 1).getBudget() > 0);
+	}
+	@Test
+	public void should_divide_budget_between_concurrent_chunks() {
+		long budget = MemoryGovernor.forHeapFraction(0.5, 1).getBudget();
+		assertEquals(budget / 4, MemoryGovernor.forHeapFraction(0.5, 4).getBudget(), 1);
+	}
+}
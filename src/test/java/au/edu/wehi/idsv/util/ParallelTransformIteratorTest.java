@@ -1,8 +1,13 @@
 package au.edu.wehi.idsv.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
@@ -10,6 +15,9 @@ import java.util.function.Function;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
 import com.google.common.primitives.Ints;
 
 import au.edu.wehi.idsv.util.AsyncBufferedIteratorTest.CIT;
@@ -56,4 +64,109 @@ public class ParallelTransformIteratorTest {
 		for (int i = 32; i > 0; i--) assertEquals(i, (int)it.next());
 		threadpool.shutdown();
 	}
+	@Test(expected=IllegalArgumentException.class)
+	public void should_rethrow_transform_exception() {
+		ExecutorService threadpool = Executors.newFixedThreadPool(2);
+		try {
+			ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(Ints.asList(0, 1, 2, 3).iterator(), n -> {
+				if (n == 2) throw new IllegalArgumentException();
+				return n;
+			}, 2, threadpool);
+			assertEquals(0, (int)it.next());
+			assertEquals(1, (int)it.next());
+			it.next();
+		} finally {
+			threadpool.shutdown();
+		}
+	}
+	@Test
+	public void batched_should_buffer_at_most_batches_times_max_batch_size_records() {
+		CIT cit = new CIT(4096);
+		ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(cit, n -> n, 3, 8, Runnable::run);
+		int returned = 0;
+		boolean batched = false;
+		while (it.hasNext()) {
+			it.next();
+			returned++;
+			int buffered = 4096 - cit.recordsleft - returned;
+			assertTrue(buffered <= 3 * 8);
+			batched |= buffered > 3;
+		}
+		assertEquals(4096, returned);
+		assertTrue(batched);
+	}
+	@Test
+	public void batched_should_retain_iteration_order() {
+		ExecutorService threadpool = Executors.newFixedThreadPool(4);
+		List<Integer> list = new ArrayList<>(ContiguousSet.create(Range.closedOpen(0, 100000), DiscreteDomain.integers()));
+		for (int maxBatchSize : new int[] { 1, 2, 7, 1024 }) {
+			for (int lookahead : new int[] { 1, 3, 8 }) {
+				ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(list.iterator(), n -> n + 1, lookahead, maxBatchSize, threadpool);
+				int expected = 1;
+				while (it.hasNext()) {
+					assertEquals(expected++, (int)it.next());
+				}
+				assertEquals(list.size() + 1, expected);
+			}
+		}
+		threadpool.shutdown();
+	}
+	@Test
+	public void batched_should_return_results_before_transform_exception() {
+		ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(Ints.asList(0, 1, 2, 3).iterator(), n -> {
+			if (n == 2) throw new IllegalArgumentException();
+			return n;
+		}, 1, 1024, Runnable::run);
+		assertEquals(0, (int)it.next());
+		assertEquals(1, (int)it.next());
+		try {
+			it.next();
+			assertTrue(false);
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	@Test
+	public void should_terminate_after_rethrowing_transform_exception() {
+		for (int maxBatchSize : new int[] { 1, 1024 }) {
+			ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(Ints.asList(0, 1, 2, 3).iterator(), n -> {
+				if (n == 1) throw new IllegalArgumentException();
+				return n;
+			}, 2, maxBatchSize, Runnable::run);
+			assertEquals(0, (int)it.next());
+			try {
+				it.next();
+				assertTrue(false);
+			} catch (IllegalArgumentException e) {
+			}
+			assertFalse(it.hasNext());
+			try {
+				it.next();
+				assertTrue(false);
+			} catch (NoSuchElementException e) {
+			}
+		}
+	}
+	@Test
+	public void should_restore_interrupt_status_when_interrupted() throws InterruptedException {
+		ExecutorService threadpool = Executors.newFixedThreadPool(1);
+		CountDownLatch latch = new CountDownLatch(1);
+		ParallelTransformIterator<Integer, Integer> it = new ParallelTransformIterator<Integer, Integer>(Ints.asList(0).iterator(), n -> {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+			}
+			return n;
+		}, 1, 16, threadpool);
+		Thread.currentThread().interrupt();
+		try {
+			it.next();
+			assertTrue(false);
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+			assertTrue(Thread.interrupted());
+		} finally {
+			latch.countDown();
+			threadpool.shutdown();
+		}
+	}
 }
@@ -1,14 +1,25 @@
 package au.edu.wehi.idsv.validation;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
+
 import au.edu.wehi.idsv.BreakendSummary;
 import au.edu.wehi.idsv.BreakpointSummary;
+import au.edu.wehi.idsv.IdsvVariantContext;
+import au.edu.wehi.idsv.IdsvVariantContextBuilder;
 import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.VariantContextDirectedEvidence;
+import au.edu.wehi.idsv.vcf.VcfSvConstants;
 
 
 public class TruthAnnotatorTest extends TestHelper {
@@ -165,4 +176,72 @@ public class TruthAnnotatorTest extends TestHelper {
 		// TODO: implement this
 		// low priority as only used for validation testing
 	}
+	private static IdsvVariantContext truth(String id, String svType, int start, int end, int svLen) {
+		IdsvVariantContextBuilder builder = new IdsvVariantContextBuilder(getContext());
+		builder.chr("polyA").start(start).stop(end).alleles("N", "<" + svType + ">").id(id);
+		builder.attribute(VcfSvConstants.SV_TYPE_KEY, svType);
+		builder.attribute(VcfSvConstants.SV_LENGTH_KEY, svLen);
+		return builder.make();
+	}
+	private static VariantContextDirectedEvidence annotate(List<IdsvVariantContext> truth, BreakendSummary call) {
+		IdsvVariantContextBuilder builder = new IdsvVariantContextBuilder(getContext());
+		if (call instanceof BreakpointSummary) {
+			builder.breakpoint((BreakpointSummary)call, "");
+		} else {
+			builder.breakend(call, "");
+		}
+		builder.id("call");
+		VariantContextDirectedEvidence v = (VariantContextDirectedEvidence)builder.make();
+		return new TruthAnnotator(getContext(), Collections.<VariantContextDirectedEvidence>emptyIterator(), truth).annotate(v);
+	}
+	@SuppressWarnings("unchecked")
+	private static List<String> attr(VariantContextDirectedEvidence v, String key) {
+		return (List<String>)v.getAttribute(key);
+	}
+	@Test
+	public void annotate_should_match_deletion() {
+		List<IdsvVariantContext> truth = ImmutableList.of(truth("del", "DEL", 100, 150, -50));
+		VariantContextDirectedEvidence v = annotate(truth, new BreakpointSummary(0, FWD, 100, 0, BWD, 151));
+		assertEquals(ImmutableList.of("del"), attr(v, "TRUTH_MATCHES"));
+		v = annotate(truth, new BreakpointSummary(0, FWD, 100, 0, BWD, 300));
+		assertEquals(ImmutableList.of("del"), attr(v, "TRUTH_MISREALIGN"));
+		v = annotate(truth, new BreakpointSummary(0, FWD, 101, 0, BWD, 300));
+		assertNull(v.getAttribute("TRUTH_MATCHES"));
+	}
+	@Test
+	public void annotate_should_match_duplication() {
+		List<IdsvVariantContext> truth = ImmutableList.of(truth("dup", "DUP", 100, 150, 50));
+		VariantContextDirectedEvidence v = annotate(truth, new BreakpointSummary(0, FWD, 150, 0, BWD, 100));
+		assertEquals(ImmutableList.of("dup"), attr(v, "TRUTH_MATCHES"));
+		v = annotate(truth, new BreakendSummary(0, BWD, 100));
+		assertEquals(ImmutableList.of("dup"), attr(v, "TRUTH_MISREALIGN"));
+	}
+	@Test
+	public void annotate_should_match_either_inversion_breakpoint() {
+		List<IdsvVariantContext> truth = ImmutableList.of(truth("inv", "INV", 101, 200, 0));
+		VariantContextDirectedEvidence v = annotate(truth, new BreakpointSummary(0, FWD, 100, 0, FWD, 200));
+		assertEquals(ImmutableList.of("inv"), attr(v, "TRUTH_MATCHES"));
+		v = annotate(truth, new BreakpointSummary(0, BWD, 201, 0, BWD, 101));
+		assertEquals(ImmutableList.of("inv"), attr(v, "TRUTH_MATCHES"));
+		assertEquals(ImmutableList.of(), attr(v, "TRUTH_MISREALIGN"));
+	}
+	@Test
+	public void annotate_should_match_breakend_notation() {
+		IdsvVariantContextBuilder builder = new IdsvVariantContextBuilder(getContext()).breakpoint(new BreakpointSummary(0, FWD, 100, 1, BWD, 200), "");
+		builder.id("bnd");
+		IdsvVariantContext bnd = builder.make();
+		List<IdsvVariantContext> truth = ImmutableList.of(bnd);
+		VariantContextDirectedEvidence v = annotate(truth, new BreakpointSummary(1, BWD, 200, 0, FWD, 100));
+		assertEquals(ImmutableList.of("bnd"), attr(v, "TRUTH_MATCHES"));
+		v = annotate(truth, new BreakendSummary(1, BWD, 200));
+		assertEquals(ImmutableList.of("bnd"), attr(v, "TRUTH_MISREALIGN"));
+		v = annotate(truth, new BreakendSummary(1, FWD, 200));
+		assertNull(v.getAttribute("TRUTH_MISREALIGN"));
+	}
+	@Test
+	public void annotate_should_apply_margin_to_insertion() {
+		List<IdsvVariantContext> truth = ImmutableList.of(truth("ins", "INS", 100, 100, 20));
+		assertEquals(ImmutableList.of("ins"), attr(annotate(truth, new BreakendSummary(0, FWD, 116)), "TRUTH_MISREALIGN"));
+		assertNull(annotate(truth, new BreakendSummary(0, FWD, 117)).getAttribute("TRUTH_MISREALIGN"));
+	}
 }
@@ -1,6 +1,96 @@
 package au.edu.wehi.idsv.vcf;
 
-public class VcfFileUtilTest {
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.BreakpointSummary;
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import au.edu.wehi.idsv.ProcessingContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFFileReader;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+
+public class VcfFileUtilTest extends IntermediateFilesTest {
+	private int chunkCount = 0;
+	private List<File> writeChunks(int chunks, int variantsPerChunk) {
+		ProcessingContext pc = getContext();
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < chunks; i++) {
+			File f = new File(testFolder.getRoot(), "chunk" + chunkCount++ + ".vcf");
+			try (VariantContextWriter writer = pc.getVariantContextWriter(f, false)) {
+				for (int j = 0; j < variantsPerChunk; j++) {
+					writer.add(BP("bp" + i + "_" + j, new BreakpointSummary(i % 4, FWD, 1 + j, 1, BWD, 100 + j)));
+				}
+			}
+			files.add(f);
+		}
+		return files;
+	}
+	private static List<String> records(File file) {
+		List<String> list = new ArrayList<>();
+		try (VCFFileReader reader = new VCFFileReader(file, false)) {
+			for (VariantContext vc : reader) {
+				list.add(vc.toStringDecodeGenotypes());
+			}
+		}
+		return list;
+	}
+	@Test
+	public void concat_should_match_decoded_concatenation() throws IOException {
+		List<File> chunks = writeChunks(4, 10);
+		// includes a chunk with no records
+		chunks.addAll(writeChunks(1, 0));
+		File raw = new File(testFolder.getRoot(), "raw.vcf");
+		File decoded = new File(testFolder.getRoot(), "decoded.vcf");
+		VcfFileUtil.concat(getContext().getDictionary(), chunks, raw);
+		VcfFileUtil.decodeConcat(getContext().getDictionary(), chunks, decoded);
+		assertEquals(40, records(raw).size());
+		assertArrayEquals(Files.readAllBytes(decoded.toPath()), Files.readAllBytes(raw.toPath()));
+	}
+	@Test
+	public void concat_should_decode_when_headers_differ() throws IOException {
+		List<File> chunks = writeChunks(3, 5);
+		File differentHeader = new File(testFolder.getRoot(), "different.vcf");
+		VCFHeader header;
+		try (VCFFileReader reader = new VCFFileReader(chunks.get(1), false)) {
+			header = reader.getFileHeader();
+		}
+		header.addMetaDataLine(new VCFHeaderLine("test", "value"));
+		try (VariantContextWriter writer = getContext().getVariantContextWriterBuilder(differentHeader, false).build()) {
+			writer.writeHeader(header);
+			for (VariantContext vc : new VCFFileReader(chunks.get(1), false)) {
+				writer.add(vc);
+			}
+		}
+		chunks.set(1, differentHeader);
+		File out = new File(testFolder.getRoot(), "out.vcf");
+		File decoded = new File(testFolder.getRoot(), "decoded.vcf");
+		VcfFileUtil.concat(getContext().getDictionary(), chunks, out);
+		VcfFileUtil.decodeConcat(getContext().getDictionary(), chunks, decoded);
+		assertEquals(15, records(out).size());
+		assertArrayEquals(Files.readAllBytes(decoded.toPath()), Files.readAllBytes(out.toPath()));
+	}
+	@Test
+	public void concat_should_write_compressed_output() throws IOException {
+		List<File> chunks = writeChunks(3, 5);
+		File out = new File(testFolder.getRoot(), "out.vcf.gz");
+		VcfFileUtil.concat(getContext().getDictionary(), chunks, out);
+		List<String> expected = new ArrayList<>();
+		for (File f : chunks) {
+			expected.addAll(records(f));
+		}
+		assertEquals(expected, records(out));
+	}
 	/*
 	public class TestCommandLineProgram extends CommandLineProgram {
 		public TestCommandLineProgram() {
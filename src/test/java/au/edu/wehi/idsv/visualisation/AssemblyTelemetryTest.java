@@ -0,0 +1,193 @@
+package au.edu.wehi.idsv.visualisation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyChunkTelemetry;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.AssemblyPhase;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry.RecordType;
+import gridss.SummariseAssemblyTelemetry;
+import gridss.SummariseAssemblyTelemetry.LocusSummary;
+
+
+public class AssemblyTelemetryTest extends IntermediateFilesTest {
+	private static void spin(long ns) {
+		long start = System.nanoTime();
+		while (System.nanoTime() - start < ns) {
+		}
+	}
+	private List<AssemblyTelemetry.Record> readAll() throws IOException {
+		List<AssemblyTelemetry.Record> list = new ArrayList<>();
+		AssemblyTelemetry.read(output, r -> {
+			AssemblyTelemetry.Record copy = new AssemblyTelemetry.Record();
+			copy.type = r.type;
+			copy.chunk = r.chunk;
+			copy.direction = r.direction;
+			copy.referenceIndex = r.referenceIndex;
+			copy.contig = r.contig;
+			copy.start = r.start;
+			copy.end = r.end;
+			copy.count = r.count;
+			copy.flags = r.flags;
+			copy.nsElapsed = r.nsElapsed;
+			copy.phaseNs = r.phaseNs.clone();
+			list.add(copy);
+		});
+		return list;
+	}
+	@Test
+	public void should_round_trip_records() throws IOException {
+		AssemblyTelemetry telemetry = new AssemblyTelemetry(output, getSequenceDictionary());
+		AssemblyChunkTelemetry fwd = telemetry.getTelemetry(3, BreakendDirection.Forward);
+		AssemblyChunkTelemetry both = telemetry.getTelemetry(4, null);
+		fwd.loadGraph(1, 10, 20, 5, true, 7);
+		both.flushContigs(2, 30, 40, 6, 8);
+		fwd.flushReferenceNodes(1, 50, 60, 7, 9);
+		both.collapseTraversalLimit(2, 70, 80, 1L << 40, 10);
+		telemetry.close();
+		List<AssemblyTelemetry.Record> list = readAll();
+		assertEquals(4, list.size());
+		AssemblyTelemetry.Record r = list.get(0);
+		assertEquals(RecordType.LoadGraph, r.type);
+		assertEquals(3, r.chunk);
+		assertEquals(BreakendDirection.Forward, r.direction);
+		assertEquals(1, r.referenceIndex);
+		assertEquals(getSequenceDictionary().getSequence(1).getSequenceName(), r.contig);
+		assertEquals(10, r.start);
+		assertEquals(20, r.end);
+		assertEquals(5, r.count);
+		assertEquals(1, r.flags);
+		assertEquals(7, r.nsElapsed);
+		assertEquals(RecordType.FlushContigs, list.get(1).type);
+		assertNull(list.get(1).direction);
+		assertEquals(RecordType.FlushReferenceNodes, list.get(2).type);
+		assertEquals(RecordType.CollapseTraversalLimit, list.get(3).type);
+		assertEquals(Integer.MAX_VALUE, list.get(3).count);
+	}
+	@Test
+	public void should_round_trip_records_after_ring_buffer_wraps() throws IOException, InterruptedException {
+		AssemblyTelemetry telemetry = new AssemblyTelemetry(output, getSequenceDictionary());
+		int total = 3 * AssemblyTelemetry.RING_CAPACITY + 17;
+		for (int i = 1; i <= total; i++) {
+			telemetry.getTelemetry(i, BreakendDirection.Backward).flushContigs(2, i, i + 1, i + 2, i + 3);
+			if (i % 1024 == 0) {
+				// give the writer thread a chance to drain the ring buffer
+				Thread.sleep(10);
+			}
+		}
+		telemetry.close();
+		List<AssemblyTelemetry.Record> list = readAll();
+		assertEquals(total, list.size() + telemetry.getDroppedRecordCount());
+		assertTrue(list.size() > AssemblyTelemetry.RING_CAPACITY);
+		int lastChunk = 0;
+		for (AssemblyTelemetry.Record r : list) {
+			assertTrue(r.chunk > lastChunk);
+			lastChunk = r.chunk;
+			int i = r.chunk;
+			assertEquals(RecordType.FlushContigs, r.type);
+			assertEquals(BreakendDirection.Backward, r.direction);
+			assertEquals(2, r.referenceIndex);
+			assertEquals(i, r.start);
+			assertEquals(i + 1, r.end);
+			assertEquals(i + 2, r.count);
+			assertEquals(0, r.flags);
+			assertEquals(i + 3, r.nsElapsed);
+			for (long ns : r.phaseNs) {
+				assertTrue(ns >= 0);
+			}
+		}
+	}
+	@Test
+	public void should_append_sections() throws IOException {
+		for (int i = 0; i < 2; i++) {
+			AssemblyTelemetry telemetry = new AssemblyTelemetry(output, getSequenceDictionary());
+			telemetry.getTelemetry(i, BreakendDirection.Backward).loadGraph(0, i, i, 1, false, 1);
+			telemetry.close();
+		}
+		List<AssemblyTelemetry.Record> list = readAll();
+		assertEquals(2, list.size());
+		assertEquals(0, list.get(0).chunk);
+		assertEquals(1, list.get(1).chunk);
+	}
+	@Test
+	public void should_attribute_time_to_innermost_phase() throws IOException {
+		AssemblyTelemetry telemetry = new AssemblyTelemetry(output, getSequenceDictionary());
+		AssemblyChunkTelemetry chunk = telemetry.getTelemetry(0, BreakendDirection.Forward);
+		Iterator<Integer> upstream = chunk.time(new Iterator<Integer>() {
+			int i = 0;
+			@Override
+			public boolean hasNext() {
+				return i < 256;
+			}
+			@Override
+			public Integer next() {
+				spin(250000);
+				return i++;
+			}
+		}, AssemblyPhase.SupportNodeGeneration);
+		Iterator<Integer> downstream = chunk.time(Iterators.transform(upstream, x -> x), AssemblyPhase.Aggregation);
+		assertEquals(256, Lists.newArrayList(downstream).size());
+		AssemblyPhase previous = chunk.enter(AssemblyPhase.ContigCalling);
+		assertEquals(AssemblyPhase.Other, previous);
+		spin(5000000);
+		chunk.enter(previous);
+		chunk.loadGraph(0, 1, 2, 0, false, 0);
+		chunk.loadGraph(0, 1, 2, 0, false, 0);
+		telemetry.close();
+		List<AssemblyTelemetry.Record> list = readAll();
+		long[] phaseNs = list.get(0).phaseNs;
+		assertTrue(phaseNs[AssemblyPhase.SupportNodeGeneration.ordinal()] >= 48000000);
+		assertTrue(phaseNs[AssemblyPhase.Aggregation.ordinal()] < phaseNs[AssemblyPhase.SupportNodeGeneration.ordinal()]);
+		assertTrue(phaseNs[AssemblyPhase.ContigCalling.ordinal()] >= 5000000);
+		assertTrue(phaseNs[AssemblyPhase.ContigCalling.ordinal()] < 10000000);
+		assertTrue(list.get(0).totalPhaseNs() >= 69000000);
+		// phase time is reset after each record
+		assertTrue(list.get(1).totalPhaseNs() < list.get(0).totalPhaseNs());
+	}
+	@Test
+	public void should_summarise_slowest_loci() throws IOException {
+		AssemblyTelemetry telemetry = new AssemblyTelemetry(output, getSequenceDictionary());
+		AssemblyChunkTelemetry chunk = telemetry.getTelemetry(0, BreakendDirection.Forward);
+		chunk.loadGraph(0, 1, 100, 0, false, 0);
+		chunk.enter(AssemblyPhase.Collapse);
+		spin(5000000);
+		chunk.loadGraph(0, 15000, 16000, 0, true, 0);
+		chunk.enter(AssemblyPhase.Other);
+		spin(1000000);
+		chunk.loadGraph(1, 1, 100, 0, false, 0);
+		telemetry.close();
+		List<LocusSummary> loci = SummariseAssemblyTelemetry.summarise(output, 10000, 2);
+		assertEquals(2, loci.size());
+		assertEquals(getSequenceDictionary().getSequence(0).getSequenceName(), loci.get(0).contig);
+		assertEquals(10001, loci.get(0).start);
+		assertEquals(20000, loci.get(0).end);
+		assertEquals(1, loci.get(0).filtered);
+		assertTrue(loci.get(0).phaseNs[AssemblyPhase.Collapse.ordinal()] >= 5000000);
+		assertEquals(getSequenceDictionary().getSequence(1).getSequenceName(), loci.get(1).contig);
+	}
+	@Test
+	public void should_write_summary() throws IOException {
+		AssemblyTelemetry telemetry = new AssemblyTelemetry(output, getSequenceDictionary());
+		telemetry.getTelemetry(0, BreakendDirection.Forward).loadGraph(0, 1, 100, 0, false, 0);
+		telemetry.close();
+		SummariseAssemblyTelemetry cmd = new SummariseAssemblyTelemetry();
+		assertEquals(0, cmd.instanceMain(new String[] { "INPUT=" + output, "OUTPUT=" + input }));
+		List<String> lines = Files.readAllLines(input.toPath());
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).startsWith("contig\tstart\tend\ttotal_ms"));
+	}
+}
@@ -0,0 +1,141 @@
+package gridss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import htsjdk.samtools.SAMRecord;
+
+public class ReadsToBedpeTest extends IntermediateFilesTest {
+	private static final String[] CONTIGS = new String[] { "polyA", "polyACGT", "random" };
+	private List<String> run(File out, int threads, boolean uniqueIdentifier) throws IOException {
+		return run(out, threads, uniqueIdentifier, 10, 0);
+	}
+	private List<String> run(File out, int threads, boolean uniqueIdentifier, int minSize, int minMapq) throws IOException {
+		ReadsToBedpe cmd = new ReadsToBedpe();
+		assertEquals(0, cmd.instanceMain(new String[] {
+				"I=" + input.getAbsolutePath(),
+				"O=" + out.getAbsolutePath(),
+				"MIN_SIZE=" + minSize,
+				"MIN_MAPQ=" + minMapq,
+				"THREADS=" + threads,
+				"UNIQUE_IDENTIFIER=" + uniqueIdentifier,
+		}));
+		return Files.readLines(out, StandardCharsets.UTF_8);
+	}
+	private static String clip(int length, boolean hard) {
+		if (length == 0) return "";
+		return length + (hard ? "H" : "S");
+	}
+	/**
+	 * 100bp read aligned to the given read interval in sequencing order
+	 */
+	private static String alignedCigar(int readOffset, int alignedLength, boolean negativeStrand, boolean hardClip) {
+		int before = readOffset;
+		int after = 100 - readOffset - alignedLength;
+		if (negativeStrand) {
+			int tmp = before;
+			before = after;
+			after = tmp;
+		}
+		return clip(before, hardClip) + alignedLength + "M" + clip(after, hardClip);
+	}
+	/**
+	 * Creates split reads on both strands with hard and soft clipping, overlapping and
+	 * non-overlapping alignments, and reads containing insertions, deletions and skipped regions.
+	 */
+	private void createRandomInput(int count) {
+		Random rng = new Random(0);
+		List<SAMRecord> list = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			SAMRecord r;
+			switch (rng.nextInt(4)) {
+			case 0:
+			case 1:
+				boolean negativeStrand = rng.nextBoolean();
+				int offset = rng.nextInt(60);
+				int length = 20 + rng.nextInt(80 - offset);
+				r = Read(rng.nextInt(CONTIGS.length), 1 + rng.nextInt(5000), alignedCigar(offset, length, negativeStrand, rng.nextInt(4) == 0));
+				r.setReadNegativeStrandFlag(negativeStrand);
+				StringBuilder sa = new StringBuilder();
+				for (int j = 1 + rng.nextInt(2); j > 0; j--) {
+					boolean saNegativeStrand = rng.nextBoolean();
+					int saOffset = rng.nextInt(80);
+					int saLength = 10 + rng.nextInt(90 - saOffset);
+					sa.append(String.format("%s,%d,%s,%s,%d,0;",
+							CONTIGS[rng.nextInt(CONTIGS.length)],
+							1 + rng.nextInt(5000),
+							saNegativeStrand ? "-" : "+",
+							alignedCigar(saOffset, saLength, saNegativeStrand, false),
+							rng.nextInt(60)));
+				}
+				r.setAttribute("SA", sa.toString());
+				break;
+			case 2:
+				String indel;
+				switch (rng.nextInt(4)) {
+				case 0:
+					indel = (1 + rng.nextInt(40)) + "D";
+					break;
+				case 1:
+					indel = (1 + rng.nextInt(20)) + "I";
+					break;
+				case 2:
+					indel = (1 + rng.nextInt(20)) + "I" + (1 + rng.nextInt(40)) + "D";
+					break;
+				default:
+					indel = (1 + rng.nextInt(40)) + "N";
+					break;
+				}
+				int startClip = rng.nextInt(3) == 0 ? 1 + rng.nextInt(10) : 0;
+				r = Read(rng.nextInt(CONTIGS.length), 1 + rng.nextInt(5000), String.format("%s%dM%s%dM%dD%dM",
+						clip(startClip, false), 10 + rng.nextInt(30), indel, 10 + rng.nextInt(30), 1 + rng.nextInt(20), 10 + rng.nextInt(10)));
+				break;
+			default:
+				r = Read(0, 1 + rng.nextInt(5000), "100M");
+				break;
+			}
+			r.setReadName("r" + i);
+			r.setMappingQuality(rng.nextInt(60));
+			list.add(r);
+		}
+		createInput(list);
+	}
+	@Test
+	public void should_write_split_reads_and_indels() throws IOException {
+		SAMRecord sr = Read(0, 100, "50M50S");
+		sr.setReadName("sr");
+		sr.setAttribute("SA", "polyA,1000,+,50S50M,10,0");
+		SAMRecord del = Read(0, 2000, "50M20D50M");
+		del.setReadName("del");
+		createInput(sr, del);
+		List<String> lines = run(output, 2, true);
+		assertEquals(2, lines.size());
+		assertEquals("polyA	148	149	polyA	999	1000	sr#0#polyA#100#+#50M50S#srf	7	+	-	splitread	0", lines.get(0));
+		assertTrue(lines.get(1).endsWith("indel	0"));
+		assertTrue(lines.get(1).split("\t")[6].startsWith("del#"));
+	}
+	/**
+	 * Expected output was generated by the evidence-based conversion that
+	 * preceded direct conversion from the SA tag and CIGAR.
+	 */
+	@Test
+	public void should_match_evidence_based_conversion() throws IOException {
+		createRandomInput(2000);
+		List<String> expected = Files.readLines(new File("src/test/resources/readstobedpe.expected.bedpe"), StandardCharsets.UTF_8);
+		List<String> actual = run(output, 4, true, 5, 5);
+		assertTrue(expected.size() > 500);
+		assertEquals(expected, actual);
+	}
+}
@@ -0,0 +1,55 @@
+package gridss.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.metrics.MetricsFile;
+import picard.analysis.SinglePassSamProgram;
+
+public class CollectFragmentGCMetricsTest extends IntermediateFilesTest {
+	private static List<String> metricLines(File file) throws IOException {
+		// exclude command line and timestamp headers
+		return Files.readAllLines(file.toPath()).stream().filter(s -> !s.startsWith("#")).collect(Collectors.toList());
+	}
+	private void collect(File out, int threads) {
+		CollectFragmentGCMetrics c = new CollectFragmentGCMetrics();
+		c.INPUT = input;
+		c.OUTPUT = out;
+		c.UNPAIRED_FRAGMENT_SIZE = 300;
+		c.WORKER_THREADS = threads;
+		SinglePassSamProgram.makeItSo(input, reference, true, 0, ImmutableList.of(c));
+	}
+	@Test
+	public void worker_threads_should_not_change_metrics() throws IOException {
+		Random rng = new Random(0);
+		List<SAMRecord> list = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			SAMRecord r = Read(rng.nextInt(3), 1 + rng.nextInt(9000), "100M");
+			r.setReadName("r" + i);
+			r.setDuplicateReadFlag(rng.nextInt(10) == 0);
+			list.add(r);
+		}
+		createInput(list);
+		File single = new File(testFolder.getRoot(), "single.gc_metrics");
+		File multi = new File(testFolder.getRoot(), "multi.gc_metrics");
+		collect(single, 1);
+		collect(multi, 4);
+		assertEquals(metricLines(single), metricLines(multi));
+		GcMetrics metrics = Iterables.getOnlyElement(Iterables.filter(MetricsFile.readBeans(multi), GcMetrics.class));
+		assertEquals(list.stream().filter(r -> !r.getDuplicateReadFlag()).count(), metrics.READ_COUNT);
+	}
+}
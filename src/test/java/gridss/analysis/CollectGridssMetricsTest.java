@@ -1,14 +1,22 @@
 package gridss.analysis;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 import au.edu.wehi.idsv.IntermediateFilesTest;
+import htsjdk.samtools.metrics.MetricsFile;
 
 public class CollectGridssMetricsTest extends IntermediateFilesTest {
 	@Test
@@ -26,6 +34,40 @@ public class CollectGridssMetricsTest extends IntermediateFilesTest {
 		assertTrue(new File(prefix + ".idsv_metrics").exists());
 		assertTrue(new File(prefix + ".tag_metrics").exists());
 	}
+	private static List<String> metricLines(File file) throws IOException {
+		// exclude command line and timestamp headers
+		return Files.readAllLines(file.toPath()).stream().filter(s -> !s.startsWith("#")).collect(Collectors.toList());
+	}
+	private void collect(String prefix, String... args) {
+		List<String> argList = Lists.newArrayList(
+			"INPUT=" + new File("src/test/resources/203541.bam").getAbsolutePath(),
+			"OUTPUT=" + prefix,
+			"THRESHOLD_COVERAGE=1000");
+		argList.addAll(Arrays.asList(args));
+		new CollectGridssMetrics().instanceMain(argList.toArray(new String[0]));
+	}
+	@Test
+	public void worker_threads_should_not_change_metrics() throws IOException {
+		String single = new File(testFolder.getRoot(), "single").getAbsolutePath();
+		String multi = new File(testFolder.getRoot(), "multi").getAbsolutePath();
+		collect(single, "WORKER_THREADS=1");
+		collect(multi, "WORKER_THREADS=4");
+		for (String suffix : new String[] { ".cigar_metrics", ".idsv_metrics", ".tag_metrics", ".mapq_metrics", ".insert_size_metrics" }) {
+			assertEquals(metricLines(new File(single + suffix)), metricLines(new File(multi + suffix)));
+		}
+	}
+	@Test
+	public void uniform_stop_after_should_sample_from_all_contigs() throws IOException {
+		String prefix = new File(testFolder.getRoot(), "output").getAbsolutePath();
+		collect(prefix, "STOP_AFTER=100", "UNIFORM_STOP_AFTER=true", "TMP_DIR=" + testFolder.getRoot().getAbsolutePath());
+		assertTrue(new File(prefix + ".idsv_metrics").exists());
+		List<IdsvMetrics> metrics = MetricsFile.readBeans(new File(prefix + ".idsv_metrics"));
+		assertEquals(1, metrics.size());
+		assertTrue(metrics.get(0).READS > 0);
+		assertTrue(metrics.get(0).READS <= 100);
+		// temporary subsample should be cleaned up
+		assertEquals(0, testFolder.getRoot().listFiles(f -> f.getName().startsWith("gridss.tmp.subsample")).length);
+	}
 	@Test
 	@Ignore("Replaced Rscript with placeholder noop executable to reduce unit test runtime")
 	public void should_generate_histogram() throws IOException {
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
@@ -14,6 +15,7 @@ import com.google.common.collect.ImmutableList;
 
 import au.edu.wehi.idsv.IntermediateFilesTest;
 import htsjdk.samtools.SAMFileHeader.SortOrder;
+import htsjdk.samtools.SAMRecord;
 import picard.analysis.SinglePassSamProgram;
 
 public class ReportThresholdCoverageTest extends IntermediateFilesTest {
@@ -48,4 +50,26 @@ public class ReportThresholdCoverageTest extends IntermediateFilesTest {
 		assertEquals(1, Integer.parseInt(split[1]));
 		assertEquals(3, Integer.parseInt(split[2]));
 	}
+	@Test
+	public void should_report_same_coverage_using_index() throws IOException {
+		List<SAMRecord> reads = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			reads.add(Read(i % 3, 1 + (i * 37) % 1000, "20M10D30M"));
+		}
+		createBAM(input, SortOrder.coordinate, reads);
+		List<List<String>> result = new ArrayList<>();
+		for (boolean useIndex : new boolean[] { false, true }) {
+			output = new File(testFolder.getRoot(), "coverage" + useIndex + ".bed");
+			ReportThresholdCoverage rtc = new ReportThresholdCoverage();
+			rtc.THRESHOLD_COVERAGE = 8;
+			rtc.INPUT = input;
+			rtc.OUTPUT = output;
+			rtc.USE_INDEX = useIndex;
+			rtc.WORKER_THREADS = 2;
+			SinglePassSamProgram.makeItSo(rtc.INPUT, null, true, 0, ImmutableList.of(rtc));
+			result.add(Files.readAllLines(output.toPath()));
+		}
+		assertTrue(result.get(0).size() > 1);
+		assertEquals(result.get(0), result.get(1));
+	}
 }
@@ -0,0 +1,44 @@
+package gridss.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordCoordinateComparator;
+
+public class UniformSubsampleTest extends IntermediateFilesTest {
+	private static final File BAM = new File("src/test/resources/203541.bam");
+	@Test
+	public void should_require_indexed_coordinate_sorted_bam() {
+		assertTrue(UniformSubsample.canSubsample(BAM, null));
+		assertFalse(UniformSubsample.canSubsample(new File("src/test/resources/203541.bam.idsv.realign.bam"), null));
+		assertFalse(UniformSubsample.canSubsample(new File("does_not_exist.bam"), null));
+	}
+	@Test
+	public void should_write_sorted_subsample() throws IOException {
+		File out = new File(testFolder.getRoot(), "out.bam");
+		long written = new UniformSubsample(BAM, null, 16).write(out, 100);
+		List<SAMRecord> records = getRecords(out);
+		assertEquals(written, records.size());
+		assertTrue(written > 0);
+		assertTrue(written <= 100);
+		SAMRecordCoordinateComparator cmp = new SAMRecordCoordinateComparator();
+		for (int i = 1; i < records.size(); i++) {
+			assertTrue(cmp.fileOrderCompare(records.get(i - 1), records.get(i)) <= 0);
+		}
+	}
+	@Test
+	public void should_write_each_record_once_when_sampling_all_records() throws IOException {
+		File out = new File(testFolder.getRoot(), "out.bam");
+		new UniformSubsample(BAM, null, 64).write(out, Integer.MAX_VALUE);
+		assertEquals(getRecords(BAM).size(), getRecords(out).size());
+	}
+}
@@ -0,0 +1,82 @@
+package performancetesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import au.edu.wehi.idsv.AssemblyEvidenceSource;
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.ProcessingContext;
+import au.edu.wehi.idsv.SequentialIdGenerator;
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.debruijn.positional.PositionalAssembler;
+import au.edu.wehi.idsv.visualisation.AssemblyTelemetry;
+
+/**
+ * Assembly wall time with and without per-phase telemetry enabled.
+ */
+public class AssemblyTelemetryOverheadTest extends TestHelper {
+	private static final int READ_LENGTH = 100;
+	private static final int READ_COUNT = 20000;
+	@Rule
+	public TemporaryFolder testFolder = new TemporaryFolder();
+	private static List<DirectedEvidence> evidence() {
+		Random rng = new Random(0);
+		String seq = S(RANDOM);
+		List<DirectedEvidence> list = new ArrayList<>();
+		for (int i = 0; i < READ_COUNT; i++) {
+			int start = rng.nextInt(seq.length() - READ_LENGTH);
+			int anchored = 10 + rng.nextInt(READ_LENGTH - 20);
+			char[] bases = seq.substring(start, start + READ_LENGTH).toCharArray();
+			bases[rng.nextInt(READ_LENGTH)] = "ACGT".charAt(rng.nextInt(4));
+			list.add(SCE(BreakendDirection.Forward, withSequence(new String(bases), Read(0, start + 1, String.format("%dM%dS", anchored, READ_LENGTH - anchored)))[0]));
+		}
+		DirectedEvidence[] array = list.toArray(new DirectedEvidence[0]);
+		Arrays.sort(array, DirectedEvidence.ByStartEnd);
+		return Arrays.asList(array);
+	}
+	private static long assemble(ProcessingContext pc, AssemblyEvidenceSource aes, List<DirectedEvidence> evidence, AssemblyTelemetry telemetry) {
+		PositionalAssembler assembler = new PositionalAssembler(pc, aes, new SequentialIdGenerator("asm"), evidence.iterator(), BreakendDirection.Forward);
+		if (telemetry != null) {
+			assembler.setTelemetry(telemetry.getTelemetry(0, BreakendDirection.Forward));
+		}
+		long startTime = System.nanoTime();
+		while (assembler.hasNext()) {
+			assembler.next();
+		}
+		return System.nanoTime() - startTime;
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void telemetry_overhead() throws IOException {
+		ProcessingContext pc = getContext();
+		AssemblyEvidenceSource aes = AES(pc);
+		List<DirectedEvidence> evidence = evidence();
+		File file = new File(testFolder.getRoot(), "telemetry.bin");
+		// alternate runs and use the median of the paired differences as individual runs vary by more than the overhead
+		int iterations = 15;
+		long[] disabledNs = new long[iterations];
+		double[] overhead = new double[iterations];
+		for (int i = 0; i < iterations; i++) {
+			disabledNs[i] = assemble(pc, aes, evidence, null);
+			long enabledNs;
+			try (AssemblyTelemetry telemetry = new AssemblyTelemetry(file, pc.getDictionary())) {
+				enabledNs = assemble(pc, aes, evidence, telemetry);
+			}
+			overhead[i] = (enabledNs - disabledNs[i]) / (double)disabledNs[i];
+		}
+		Arrays.sort(disabledNs);
+		Arrays.sort(overhead);
+		System.out.println(String.format("Telemetry disabled: %dms median, paired overhead median %.1f%% (interquartile range %.1f%% to %.1f%%), %d bytes written",
+				disabledNs[iterations / 2] / 1000000, 100 * overhead[iterations / 2], 100 * overhead[iterations / 4], 100 * overhead[3 * iterations / 4], file.length()));
+	}
+}
@@ -0,0 +1,84 @@
+package performancetesting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.collect.ComparisonChain;
+
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.BreakendSummary;
+import au.edu.wehi.idsv.BreakpointSummary;
+import au.edu.wehi.idsv.TestHelper;
+
+/**
+ * Breakend comparator cost on a synthetic stream of a million breakends.
+ */
+public class BreakendComparatorBenchmark extends TestHelper {
+	private static final int BREAKENDS = 1000000;
+	private static final int ITERATIONS = 10;
+	private static final Comparator<BreakendSummary> LEGACY_BY_START_END = (o1, o2) -> ComparisonChain.start()
+			.compare(o1.referenceIndex, o2.referenceIndex)
+			.compare(o1.start, o2.start)
+			.compare(o1.end, o2.end)
+			.compare(o1.nominal, o2.nominal)
+			.result();
+	private static final Comparator<BreakpointSummary> LEGACY_BY_START_START2_END_END2 = (o1, o2) -> ComparisonChain.start()
+			.compare(o1.referenceIndex, o2.referenceIndex)
+			.compare(o1.start, o2.start)
+			.compare(o1.referenceIndex2, o2.referenceIndex2)
+			.compare(o1.start2, o2.start2)
+			.compare(o1.end, o2.end)
+			.compare(o1.end2, o2.end2)
+			.compare(o1.nominal, o2.nominal)
+			.compare(o1.nominal2, o2.nominal2)
+			.result();
+	private static BreakpointSummary[] breakpoints() {
+		Random rng = new Random(0);
+		BreakpointSummary[] list = new BreakpointSummary[BREAKENDS];
+		for (int i = 0; i < BREAKENDS; i++) {
+			int start = rng.nextInt(1000000);
+			int end = start + rng.nextInt(300);
+			int start2 = rng.nextInt(1000000);
+			list[i] = new BreakpointSummary(rng.nextInt(24), BreakendDirection.Forward, start, start, end,
+					rng.nextInt(24), BreakendDirection.Backward, start2, start2, start2 + rng.nextInt(300));
+		}
+		return list;
+	}
+	private static <T> long time(T[] data, Comparator<? super T> comparator) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ITERATIONS; i++) {
+			T[] copy = Arrays.copyOf(data, data.length);
+			long start = System.nanoTime();
+			Arrays.sort(copy, comparator);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best / 1000000;
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void breakend_comparator_cost() {
+		BreakpointSummary[] data = breakpoints();
+		System.out.println(String.format("Sorting %d breakends: ComparisonChain ByStartEnd %dms, packed ByStartEnd %dms",
+				BREAKENDS,
+				time(data, LEGACY_BY_START_END),
+				time(data, BreakendSummary.ByStartEnd)));
+		System.out.println(String.format("Sorting %d breakpoints: ComparisonChain ByStartStart2EndEnd2 %dms, packed ByStartStart2EndEnd2 %dms",
+				BREAKENDS,
+				time(data, LEGACY_BY_START_START2_END_END2),
+				time(data, BreakpointSummary.ByStartStart2EndEnd2)));
+		// low cardinality positions to exercise the tie-break fields
+		for (int i = 0; i < data.length; i++) {
+			BreakpointSummary bp = data[i];
+			data[i] = new BreakpointSummary(bp.referenceIndex % 2, bp.direction, bp.start % 1000, bp.start % 1000, bp.start % 1000 + bp.end - bp.start,
+					bp.referenceIndex2, bp.direction2, bp.nominal2, bp.start2, bp.end2);
+		}
+		System.out.println(String.format("Sorting %d clustered breakpoints: ComparisonChain ByStartStart2EndEnd2 %dms, packed ByStartStart2EndEnd2 %dms",
+				BREAKENDS,
+				time(data, LEGACY_BY_START_START2_END_END2),
+				time(data, BreakpointSummary.ByStartStart2EndEnd2)));
+	}
+}
@@ -0,0 +1,119 @@
+package performancetesting;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.sam.ChimericAlignment;
+import au.edu.wehi.idsv.sam.ChimericAlignmentCursor;
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.TextCigarCodec;
+
+/**
+ * SA tag parsing throughput for long read records with many split alignments.
+ */
+public class ChimericAlignmentParsingBenchmark extends TestHelper {
+	private static final int RECORDS = 10000;
+	private static final int ITERATIONS = 20;
+	private static String[] tags() {
+		Random rng = new Random(0);
+		String[] tags = new String[RECORDS];
+		for (int i = 0; i < RECORDS; i++) {
+			StringBuilder sb = new StringBuilder();
+			int alignments = 2 + rng.nextInt(12);
+			for (int j = 0; j < alignments; j++) {
+				sb.append(getSequenceDictionary().getSequence(rng.nextInt(3)).getSequenceName());
+				sb.append(',');
+				sb.append(1 + rng.nextInt(9000));
+				sb.append(rng.nextBoolean() ? ",+," : ",-,");
+				sb.append(rng.nextInt(10000));
+				sb.append('S');
+				for (int k = rng.nextInt(20); k >= 0; k--) {
+					sb.append(1 + rng.nextInt(200));
+					sb.append("MID".charAt(rng.nextInt(3)));
+				}
+				sb.append(1 + rng.nextInt(100));
+				sb.append("M");
+				sb.append(rng.nextInt(10000));
+				sb.append("S,");
+				sb.append(rng.nextInt(61));
+				sb.append(',');
+				sb.append(rng.nextInt(100));
+				sb.append(';');
+			}
+			tags[i] = sb.toString();
+		}
+		return tags;
+	}
+	private static long splitParse(String[] tags, SAMSequenceDictionary dict) {
+		long checksum = 0;
+		for (String sa : tags) {
+			for (String s : sa.split(";")) {
+				String[] splits = s.split(",");
+				Cigar cigar = TextCigarCodec.decode(splits[3]);
+				checksum += dict.getSequenceIndex(splits[0]) + Integer.parseInt(splits[1]) + cigar.getReferenceLength() + Integer.parseInt(splits[4]) + Integer.parseInt(splits[5]);
+			}
+		}
+		return checksum;
+	}
+	private static long cursorParse(String[] tags, SAMSequenceDictionary dict, ChimericAlignmentCursor c) {
+		long checksum = 0;
+		for (String sa : tags) {
+			c.reset(sa);
+			while (c.next()) {
+				checksum += c.getReferenceIndex(dict) + c.getPosition() + c.getCigar().getReferenceLength() + c.getMappingQuality() + c.getNm();
+			}
+		}
+		return checksum;
+	}
+	private static long cachedParse(SAMRecord[] records) {
+		long checksum = 0;
+		for (SAMRecord r : records) {
+			List<ChimericAlignment> list = ChimericAlignment.getChimericAlignments(r);
+			checksum += list.size();
+		}
+		return checksum;
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void sa_tag_parsing() {
+		SAMSequenceDictionary dict = getSequenceDictionary();
+		String[] tags = tags();
+		SAMRecord[] records = new SAMRecord[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			records[i] = new SAMRecord(null);
+			records[i].setAttribute("SA", tags[i]);
+		}
+		ChimericAlignmentCursor c = new ChimericAlignmentCursor();
+		long splitNs = Long.MAX_VALUE;
+		long cursorNs = Long.MAX_VALUE;
+		long uncachedNs = Long.MAX_VALUE;
+		long cachedNs = Long.MAX_VALUE;
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			long splitChecksum = splitParse(tags, dict);
+			splitNs = Math.min(splitNs, System.nanoTime() - start);
+			start = System.nanoTime();
+			long cursorChecksum = cursorParse(tags, dict, c);
+			cursorNs = Math.min(cursorNs, System.nanoTime() - start);
+			if (splitChecksum != cursorChecksum) throw new IllegalStateException("Parsing mismatch");
+			for (SAMRecord r : records) {
+				// force the cache to be invalidated
+				r.setAttribute("SA", new String(r.getStringAttribute("SA")));
+			}
+			start = System.nanoTime();
+			cachedParse(records);
+			uncachedNs = Math.min(uncachedNs, System.nanoTime() - start);
+			start = System.nanoTime();
+			cachedParse(records);
+			cachedNs = Math.min(cachedNs, System.nanoTime() - start);
+		}
+		System.out.println(String.format("%d records: split %dms, cursor %dms, ChimericAlignment %dms, cached ChimericAlignment %dms",
+				RECORDS, splitNs / 1000000, cursorNs / 1000000, uncachedNs / 1000000, cachedNs / 1000000));
+	}
+}
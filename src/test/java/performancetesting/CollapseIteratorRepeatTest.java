@@ -0,0 +1,123 @@
+package performancetesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.debruijn.positional.AggregateNodeIterator;
+import au.edu.wehi.idsv.debruijn.positional.CollapseIterator;
+import au.edu.wehi.idsv.debruijn.positional.KmerPathNode;
+import au.edu.wehi.idsv.debruijn.positional.LeafBubbleCollapseIterator;
+import au.edu.wehi.idsv.debruijn.positional.PathCollapseIterator;
+import au.edu.wehi.idsv.debruijn.positional.PathNodeIterator;
+import au.edu.wehi.idsv.debruijn.positional.SupportNodeIterator;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Path collapse throughput on simulated short tandem repeat (STR) and
+ * variable number tandem repeat (VNTR) regions. Reads contain sequencing
+ * errors so the repeat graph contains many similar paths.
+ */
+public class CollapseIteratorRepeatTest extends TestHelper {
+	private static final int K = 25;
+	private static final int READ_LENGTH = 100;
+	private static final int MAX_PATH_COLLAPSE_LENGTH = 150;
+	private static final int MAX_BASES_MISMATCH = 2;
+	private static final int FLANK_LENGTH = 300;
+	private static final int TRAVERSAL_LIMIT = 64;
+	private static String randomBases(Random rng, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append("ACGT".charAt(rng.nextInt(4)));
+		}
+		return sb.toString();
+	}
+	/**
+	 * Tandem repeat of the given unit with each copy containing the given number of point mutations
+	 */
+	private static String tandemRepeat(Random rng, String unit, int copies, int mutationsPerCopy) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < copies; i++) {
+			char[] copy = unit.toCharArray();
+			for (int j = 0; j < mutationsPerCopy; j++) {
+				copy[rng.nextInt(copy.length)] = "ACGT".charAt(rng.nextInt(4));
+			}
+			sb.append(copy);
+		}
+		return sb.toString();
+	}
+	/**
+	 * Soft clipped reads and unmapped mates of reads anchored upstream of the given sequence
+	 */
+	private static List<DirectedEvidence> evidence(String seq, int readCount, double errorRate) {
+		Random rng = new Random(0);
+		List<DirectedEvidence> list = new ArrayList<>();
+		for (int i = 0; i < readCount; i++) {
+			int start = rng.nextInt(seq.length() - READ_LENGTH);
+			char[] bases = seq.substring(start, start + READ_LENGTH).toCharArray();
+			for (int j = 0; j < bases.length; j++) {
+				if (rng.nextDouble() < errorRate) {
+					bases[j] = "ACGT".charAt(rng.nextInt(4));
+				}
+			}
+			if (rng.nextBoolean()) {
+				int anchored = 10 + rng.nextInt(READ_LENGTH - 20);
+				list.add(SCE(BreakendDirection.Forward, withSequence(new String(bases), Read(0, FLANK_LENGTH + start + 1, String.format("%dM%dS", anchored, READ_LENGTH - anchored)))[0]));
+			} else {
+				SAMRecord[] pair = OEA(0, FLANK_LENGTH + start + 1 - rng.nextInt(FLANK_LENGTH - READ_LENGTH), String.format("%dM", READ_LENGTH), true);
+				pair[1].setReadBases(B(new String(bases)));
+				list.add(NRRP(pair));
+			}
+		}
+		DirectedEvidence[] array = list.toArray(new DirectedEvidence[0]);
+		Arrays.sort(array, DirectedEvidence.ByStartEnd);
+		return Arrays.asList(array);
+	}
+	private static List<KmerPathNode> graph(List<DirectedEvidence> evidence) {
+		return Lists.newArrayList(new PathNodeIterator(new AggregateNodeIterator(new SupportNodeIterator(K, evidence.iterator(), 300, null, false, 0)), 1000, K));
+	}
+	private static void time(String name, List<DirectedEvidence> evidence, Function<List<KmerPathNode>, CollapseIterator> factory) {
+		for (int i = 0; i < 2; i++) {
+			Lists.newArrayList(factory.apply(graph(evidence)));
+		}
+		long bestNs = Long.MAX_VALUE;
+		String stats = null;
+		for (int i = 0; i < 5; i++) {
+			List<KmerPathNode> input = graph(evidence);
+			CollapseIterator it = factory.apply(input);
+			long startTime = System.nanoTime();
+			int output = Lists.newArrayList(it).size();
+			bestNs = Math.min(bestNs, System.nanoTime() - startTime);
+			stats = String.format("%d input nodes, %d output nodes, %d traversal nodes, %d branches and %d leaves collapsed, %d searches abandoned",
+					input.size(), output, it.tracking_traversalCount(), it.tracking_branchCollapseCount(), it.tracking_leafCollapseCount(), it.tracking_traversalLimitCount());
+		}
+		System.out.println(String.format("%s: %s in %dms", name, stats, bestNs / 1000000));
+	}
+	private static void time(String name, String seq, int readCount, double errorRate) {
+		List<DirectedEvidence> evidence = evidence(seq, readCount, errorRate);
+		time(name + " LeafBubbleCollapseIterator", evidence, input -> new LeafBubbleCollapseIterator(input.iterator(), K, MAX_PATH_COLLAPSE_LENGTH, MAX_BASES_MISMATCH));
+		time(name + " PathCollapseIterator", evidence, input -> new PathCollapseIterator(input.iterator(), K, MAX_PATH_COLLAPSE_LENGTH, MAX_BASES_MISMATCH, false, 0));
+		time(name + " PathCollapseIterator (traversal limit " + TRAVERSAL_LIMIT + ")", evidence, input -> new PathCollapseIterator(input.iterator(), K, MAX_PATH_COLLAPSE_LENGTH, MAX_BASES_MISMATCH, false, 0, TRAVERSAL_LIMIT));
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void repeat_collapse_throughput() {
+		Random rng = new Random(0);
+		String str = tandemRepeat(rng, "CA", 100, 0) + randomBases(rng, FLANK_LENGTH);
+		String vntr = tandemRepeat(rng, randomBases(rng, 40), 10, 1) + randomBases(rng, FLANK_LENGTH);
+		String unique = randomBases(rng, str.length());
+		time("unique", unique, 3000, 0.03);
+		time("STR", str, 3000, 0.03);
+		time("VNTR", vntr, 3000, 0.03);
+	}
+}
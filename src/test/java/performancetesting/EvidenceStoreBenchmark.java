@@ -0,0 +1,115 @@
+package performancetesting;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.IntermediateFilesTest;
+import au.edu.wehi.idsv.ProcessingContext;
+import au.edu.wehi.idsv.SAMEvidenceSource;
+import au.edu.wehi.idsv.metrics.IdsvSamFileMetrics;
+import htsjdk.samtools.QueryInterval;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.CloseableIterator;
+
+/**
+ * Time taken for repeated chunked passes over the evidence of an input
+ * with and without the evidence store. Chunks are processed on a thread pool
+ * in the same manner as assembly and variant calling.
+ */
+public class EvidenceStoreBenchmark extends IntermediateFilesTest {
+	private static final int READ_LENGTH = 100;
+	private static final int PASSES = 4;
+	private static final int CHUNK_SIZE = 1000;
+	private static final int THREADS = 4;
+	private static class MockMetricsSAMEvidenceSource extends SAMEvidenceSource {
+		public MockMetricsSAMEvidenceSource(ProcessingContext processContext, File file) {
+			super(processContext, file, null, 0, 0, 300);
+		}
+		@Override
+		public IdsvSamFileMetrics getMetrics() {
+			return new MockMetrics();
+		}
+	}
+	/**
+	 * @return time taken for each pass
+	 */
+	private long[] passes(ProcessingContext pc, ExecutorService threadpool) throws Exception {
+		pc.getConfig().chunkSize = CHUNK_SIZE;
+		pc.getConfig().chunkSequenceChangePenalty = CHUNK_SIZE;
+		List<QueryInterval[]> chunks = pc.getReference().getIntervals(CHUNK_SIZE, CHUNK_SIZE);
+		SAMEvidenceSource source = new MockMetricsSAMEvidenceSource(pc, input);
+		long[] passNs = new long[PASSES];
+		long count = 0;
+		for (int i = 0; i < PASSES; i++) {
+			long startTime = System.nanoTime();
+			List<Callable<Long>> tasks = new ArrayList<>();
+			for (QueryInterval[] chunk : chunks) {
+				tasks.add(() -> {
+					long n = 0;
+					try (CloseableIterator<DirectedEvidence> it = source.iterator(chunk)) {
+						while (it.hasNext()) {
+							it.next();
+							n++;
+						}
+					}
+					return n;
+				});
+			}
+			for (Future<Long> f : threadpool.invokeAll(tasks)) {
+				count += f.get();
+			}
+			passNs[i] = System.nanoTime() - startTime;
+		}
+		System.out.println(String.format("%d evidence", count));
+		return passNs;
+	}
+	private static String format(long[] passNs) {
+		StringBuilder sb = new StringBuilder();
+		long total = 0;
+		for (long ns : passNs) {
+			sb.append(String.format("%dms ", ns / 1000000));
+			total += ns;
+		}
+		sb.append(String.format("(total %dms)", total / 1000000));
+		return sb.toString();
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void chunked_passes() throws Exception {
+		ProcessingContext pc = getCommandlineContext();
+		Random rng = new Random(0);
+		int length = pc.getDictionary().getSequence(0).getSequenceLength();
+		List<SAMRecord> reads = new ArrayList<>();
+		// 30x coverage with 5% soft clipped reads
+		for (int i = 0; i < 30 * length / READ_LENGTH; i++) {
+			int start = 1 + rng.nextInt(length - READ_LENGTH);
+			SAMRecord r = Read(0, start, rng.nextInt(20) == 0 ? "50M50S" : "100M");
+			r.setReadName("r" + i);
+			reads.add(r);
+		}
+		createInput(reads);
+		ExecutorService threadpool = Executors.newFixedThreadPool(THREADS);
+		try {
+			pc.getConfig().evidenceStore = false;
+			// warm up the JIT so the first timed configuration is not penalised
+			passes(pc, threadpool);
+			long[] directNs = passes(pc, threadpool);
+			pc.getConfig().evidenceStore = true;
+			long[] storeNs = passes(pc, threadpool);
+			System.out.println(String.format("%d threads. Direct: %s", THREADS, format(directNs)));
+			System.out.println(String.format("%d threads. Evidence store (first pass includes materialisation): %s", THREADS, format(storeNs)));
+		} finally {
+			threadpool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package performancetesting;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.debruijn.positional.EvidenceTracker;
+import au.edu.wehi.idsv.debruijn.positional.KmerEvidence;
+import au.edu.wehi.idsv.debruijn.positional.KmerSupportNode;
+
+/**
+ * Bytes allocated by the evidence tracker when tracking then removing
+ * the evidence of a simulated high coverage breakpoint.
+ *
+ * Allocation is measured using the per-thread allocation counters
+ * so no profiler or flight recorder is required.
+ */
+public class EvidenceTrackerAllocationTest extends TestHelper {
+	private static final int K = 25;
+	private static final int READ_LENGTH = 100;
+	private static final int READ_COUNT = 5000;
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	private static List<KmerEvidence> evidence() {
+		Random rng = new Random(0);
+		String seq = S(RANDOM);
+		List<KmerEvidence> list = new ArrayList<>();
+		for (int i = 0; i < READ_COUNT; i++) {
+			int anchored = 10 + rng.nextInt(READ_LENGTH - 20);
+			int start = 1000 - anchored;
+			list.add(KmerEvidence.create(K, SCE(BreakendDirection.Forward, withSequence(seq.substring(start, start + READ_LENGTH), Read(0, start + 1, String.format("%dM%dS", anchored, READ_LENGTH - anchored)))[0])));
+		}
+		return list;
+	}
+	private static long trackAndRemove(EvidenceTracker tracker, List<KmerEvidence> evidence, List<KmerSupportNode> nodes) {
+		long before = allocatedBytes();
+		for (KmerSupportNode n : nodes) {
+			tracker.track(n);
+		}
+		for (KmerEvidence e : evidence) {
+			tracker.remove(e);
+		}
+		return allocatedBytes() - before;
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void track_remove_allocation() {
+		List<KmerEvidence> evidence = evidence();
+		List<KmerSupportNode> nodes = new ArrayList<>();
+		for (KmerEvidence e : evidence) {
+			for (int i = 0; i < e.length(); i++) {
+				KmerSupportNode n = e.node(i);
+				if (n != null) nodes.add(n);
+			}
+		}
+		// tracker is long-lived so measure steady state allocation after warm-up
+		EvidenceTracker tracker = new EvidenceTracker();
+		for (int i = 0; i < 2; i++) {
+			trackAndRemove(tracker, evidence, nodes);
+		}
+		long startTime = System.nanoTime();
+		long bytes = trackAndRemove(tracker, evidence, nodes);
+		long ms = (System.nanoTime() - startTime) / 1000000;
+		System.out.println(String.format("%d support nodes: %d bytes allocated (%.1f bytes/node) in %dms", nodes.size(), bytes, bytes / (double)nodes.size(), ms));
+	}
+}
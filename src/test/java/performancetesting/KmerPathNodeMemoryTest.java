@@ -0,0 +1,60 @@
+package performancetesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.debruijn.positional.KmerPathNode;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Heap footprint of the positional de Bruijn graph path nodes
+ * of a simulated high coverage breakpoint.
+ */
+public class KmerPathNodeMemoryTest extends TestHelper {
+	private static final int K = 25;
+	private static final int READ_LENGTH = 100;
+	private static final int BREAKPOINT = 1000;
+	private static final int READ_COUNT = 2000;
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	private static DirectedEvidence[] breakpointSoftClips() {
+		Random rng = new Random(0);
+		String ref = S(RANDOM).substring(0, BREAKPOINT);
+		String breakend = S(RANDOM).substring(BREAKPOINT, 2 * BREAKPOINT);
+		List<DirectedEvidence> list = new ArrayList<>();
+		for (int i = 0; i < READ_COUNT; i++) {
+			int anchored = 10 + rng.nextInt(READ_LENGTH - 20);
+			String seq = ref.substring(BREAKPOINT - anchored) + breakend.substring(0, READ_LENGTH - anchored);
+			// sprinkle sequencing errors so paths do not collapse to a single node
+			char[] bases = seq.toCharArray();
+			bases[rng.nextInt(READ_LENGTH)] = "ACGT".charAt(rng.nextInt(4));
+			list.add(SCE(BreakendDirection.Forward, withSequence(new String(bases), Read(0, BREAKPOINT - anchored + 1, String.format("%dM%dS", anchored, READ_LENGTH - anchored)))[0]));
+		}
+		return list.toArray(new DirectedEvidence[0]);
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void path_node_heap_footprint() {
+		DirectedEvidence[] input = breakpointSoftClips();
+		long before = usedHeap();
+		List<KmerPathNode> nodes = Lists.newArrayList(asKPN(K, 10000, input));
+		long after = usedHeap();
+		long kmers = nodes.stream().mapToLong(n -> n.length()).sum();
+		long packedBytes = nodes.stream().mapToLong(n -> 8 * ((n.length() + K - 1 + 31) / 32)).sum();
+		System.out.println(String.format("%d path nodes containing %d kmers: %d bytes retained heap", nodes.size(), kmers, after - before));
+		System.out.println(String.format("kmer storage: %d bytes packed, %d bytes at one word per kmer", packedBytes, 8 * kmers));
+	}
+}
@@ -0,0 +1,88 @@
+package performancetesting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.debruijn.positional.KmerPathNode;
+import au.edu.wehi.idsv.debruijn.positional.KmerPathSubnode;
+import au.edu.wehi.idsv.debruijn.positional.MemoizedContigCaller;
+import au.edu.wehi.idsv.visualisation.PositionalDeBruijnGraphTracker.MemoizationStats;
+
+/**
+ * Memoization removal cost when repeatedly calling contigs from a
+ * simulated high copy number repeat. Each layer of the graph contains
+ * a node for each repeat copy, with every copy connected to every copy
+ * of the next layer. Removal cost should be proportional to the
+ * number of memoized paths invalidated.
+ */
+public class MemoizedContigCallerRemovalTest extends TestHelper {
+	private static final int K = 25;
+	private static final int LAYERS = 200;
+	private static List<KmerPathNode> repeatGraph(int copies) {
+		Random rng = new Random(0);
+		List<KmerPathNode> nodes = new ArrayList<>();
+		List<KmerPathNode> prevLayer = Collections.emptyList();
+		for (int layer = 0; layer < LAYERS; layer++) {
+			List<KmerPathNode> currentLayer = new ArrayList<>();
+			for (int copy = 0; copy < copies; copy++) {
+				KmerPathNode node = KPN(K, new long[] { layer * copies + copy }, layer + 1, layer + 10, false, 1 + rng.nextInt(100));
+				for (KmerPathNode prev : prevLayer) {
+					KmerPathNode.addEdge(prev, node);
+				}
+				currentLayer.add(node);
+			}
+			nodes.addAll(currentLayer);
+			prevLayer = currentLayer;
+		}
+		return nodes;
+	}
+	/**
+	 * Calls and removes every contig in the graph
+	 * @return removal time and number of invalidated memoized paths
+	 */
+	private static long[] callAll(int copies) {
+		MemoizedContigCaller caller = new MemoizedContigCaller(0, 100); // no reference nodes so anchoring score is irrelevant
+		for (KmerPathNode node : repeatGraph(copies)) {
+			caller.add(node);
+		}
+		long removalNs = 0;
+		long pathsRemoved = 0;
+		ArrayDeque<KmerPathSubnode> contig;
+		while ((contig = caller.bestContig(Integer.MAX_VALUE)) != null) {
+			Set<KmerPathNode> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (KmerPathSubnode sn : contig) {
+				toRemove.add(sn.node());
+			}
+			long removalStart = System.nanoTime();
+			caller.remove(toRemove);
+			removalNs += System.nanoTime() - removalStart;
+			MemoizationStats stats = caller.tracking_lastRemoval();
+			pathsRemoved += stats.pathsRemoved + stats.descendentPathsRemoved;
+			for (KmerPathNode node : toRemove) {
+				node.remove();
+			}
+		}
+		return new long[] { removalNs, pathsRemoved };
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void repeat_contig_removal() {
+		for (int i = 0; i < 3; i++) {
+			callAll(16);
+		}
+		for (int copies = 8; copies <= 64; copies *= 2) {
+			long[] result = callAll(copies);
+			System.out.println(String.format("%d repeat copies: %d memoized paths invalidated, removal %dms (%.2fus/path)",
+					copies, result[1], result[0] / 1000000, result[0] / 1000.0 / result[1]));
+		}
+	}
+}
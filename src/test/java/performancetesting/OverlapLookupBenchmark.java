@@ -0,0 +1,83 @@
+package performancetesting;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+import scambler.OverlapEdgeList;
+import scambler.OverlapLookup;
+import scambler.Read;
+
+/**
+ * Overlap detection throughput and recall for simulated reads with sequencing errors
+ * sampled from a random haplotype.
+ */
+public class OverlapLookupBenchmark extends TestHelper {
+	private static final int HAPLOTYPE_LENGTH = 20000;
+	private static final int READ_LENGTH = 150;
+	private static final int READS = 20000;
+	private static final double ERROR_RATE = 0.002;
+	private static final int MIN_OVERLAP = 50;
+	private static final int MAX_MISMATCHES = 3;
+	@Ignore // TODO: performance testing group
+	@Test
+	public void overlap_throughput_and_recall() {
+		Random rng = new Random(0);
+		char[] haplotype = new char[HAPLOTYPE_LENGTH];
+		for (int i = 0; i < haplotype.length; i++) {
+			haplotype[i] = "ACGT".charAt(rng.nextInt(4));
+		}
+		int[] start = new int[READS];
+		List<Read> reads = new ArrayList<>(READS);
+		for (int i = 0; i < READS; i++) {
+			start[i] = rng.nextInt(HAPLOTYPE_LENGTH - READ_LENGTH);
+			char[] seq = new char[READ_LENGTH];
+			for (int j = 0; j < READ_LENGTH; j++) {
+				seq[j] = haplotype[start[i] + j];
+				if (rng.nextDouble() < ERROR_RATE) {
+					seq[j] = "ACGT".charAt((("ACGT".indexOf(seq[j])) + 1 + rng.nextInt(3)) % 4);
+				}
+			}
+			reads.add(Read.create(withSequence(new String(seq), Read(0, 1, READ_LENGTH + "M"))[0]));
+		}
+		for (int threads : new int[] { 1, 2, 4, 8 }) {
+			OverlapLookup ol = new OverlapLookup(MIN_OVERLAP, 15, 10, MAX_MISMATCHES);
+			for (Read r : reads) {
+				ol.add(r);
+			}
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long startNs = System.nanoTime();
+			OverlapEdgeList edges = ol.overlaps(pool);
+			long ns = System.nanoTime() - startNs;
+			pool.shutdown();
+			Set<Long> found = new HashSet<>();
+			int correct = 0;
+			for (int i = 0; i < edges.size(); i++) {
+				int r1 = edges.getRead1(i);
+				int r2 = edges.getRead2(i);
+				if (start[r2] - start[r1] == edges.getOffset(i)) {
+					correct++;
+					found.add((long)r1 << 32 | r2);
+				}
+			}
+			int expected = 0;
+			for (int r1 = 0; r1 < READS; r1++) {
+				for (int r2 = 0; r2 < READS; r2++) {
+					int offset = start[r2] - start[r1];
+					if (r1 != r2 && offset >= 0 && READ_LENGTH - offset >= MIN_OVERLAP) {
+						expected++;
+					}
+				}
+			}
+			System.out.println(String.format("%d threads: %d reads in %dms (%.0f reads/s), %d overlaps, precision %.4f, recall %.4f",
+					threads, READS, ns / 1000000, READS / (ns / 1e9), edges.size(), correct / (double)edges.size(), found.size() / (double)expected));
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package performancetesting;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.google.common.collect.AbstractIterator;
+
+import au.edu.wehi.idsv.util.ParallelTransformIterator;
+
+/**
+ * Throughput of per-element and batched ParallelTransformIterator
+ * dispatch for transforms of varying cost.
+ */
+public class ParallelTransformIteratorBatchTest {
+	private static final int THREADS = 4;
+	private static final int LOOKAHEAD = 2 * THREADS;
+	private static volatile long sink;
+	private static Iterator<Long> input(int count) {
+		return new AbstractIterator<Long>() {
+			private long i = 0;
+			@Override
+			protected Long computeNext() {
+				if (i >= count) return endOfData();
+				return i++;
+			}
+		};
+	}
+	/**
+	 * Transform performing the given number of iterations of busy work
+	 */
+	private static Function<Long, Long> transform(int work) {
+		return n -> {
+			long x = n;
+			for (int i = 0; i < work; i++) {
+				x = x * 6364136223846793005L + 1442695040888963407L;
+			}
+			return x;
+		};
+	}
+	private static long time(ExecutorService threadpool, int count, int work, int maxBatchSize) {
+		long bestNs = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			ParallelTransformIterator<Long, Long> it = new ParallelTransformIterator<>(input(count), transform(work), LOOKAHEAD, maxBatchSize, threadpool);
+			long startTime = System.nanoTime();
+			long sum = 0;
+			while (it.hasNext()) {
+				sum += it.next();
+			}
+			sink = sum;
+			bestNs = Math.min(bestNs, System.nanoTime() - startTime);
+		}
+		return bestNs;
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void batched_dispatch_throughput() {
+		ExecutorService threadpool = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int work : new int[] { 0, 10, 100, 1000, 10000 }) {
+				int count = (int)Math.min(1000000, 200000000L / (work + 100));
+				long perElement = time(threadpool, count, work, 1);
+				long batched = time(threadpool, count, work, 1024);
+				System.out.println(String.format("%d elements of cost %d: per-element %dms (%.0fns/element), batched %dms (%.0fns/element)",
+						count, work,
+						perElement / 1000000, perElement / (double)count,
+						batched / 1000000, batched / (double)count));
+			}
+		} finally {
+			threadpool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package performancetesting;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.BreakpointSummary;
+import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.DirectedEvidenceOrder;
+import au.edu.wehi.idsv.NonReferenceReadPair;
+import au.edu.wehi.idsv.ProcessingContext;
+import au.edu.wehi.idsv.SequentialEvidenceAllocator;
+import au.edu.wehi.idsv.SequentialEvidenceAllocator.VariantEvidenceSupport;
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.TestHelper.StubSAMEvidenceSource;
+import au.edu.wehi.idsv.VariantContextDirectedEvidence;
+import au.edu.wehi.idsv.vcf.VcfSvConstants;
+import htsjdk.samtools.SAMRecord;
+
+/**
+ * Allocation time and peak heap usage when allocating a dense set of
+ * discordant read pairs to overlapping calls.
+ */
+public class SequentialEvidenceAllocatorBenchmark extends TestHelper {
+	private static final int CALLS = 20000;
+	private static final int EVIDENCE = 200000;
+	/**
+	 * Reads are placed on the first 9kb of each test contig
+	 */
+	private static final int REGION_SIZE = 9000;
+	private static final int ITERATIONS = 5;
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+	private static void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+	}
+	@Test
+	@Ignore // TODO: performance testing group
+	public void dense_allocation() {
+		ProcessingContext pc = getContext();
+		pc.getVariantCallingParameters().breakendMargin = 0;
+		StubSAMEvidenceSource ses = new StubSAMEvidenceSource(pc, null, 0, 0, 300);
+		Random rng = new Random(0);
+		int contigs = pc.getDictionary().size();
+		for (int i = 0; i < EVIDENCE; i++) {
+			SAMRecord[] dp = withReadName("read" + i, DP(rng.nextInt(contigs), 1 + rng.nextInt(REGION_SIZE), "100M", true, rng.nextInt(contigs), 1 + rng.nextInt(REGION_SIZE), "100M", false));
+			NonReferenceReadPair e = NonReferenceReadPair.create(dp[0], dp[1], ses);
+			if (e != null) {
+				ses.evidence.add(e);
+			}
+		}
+		ses.evidence.sort(DirectedEvidenceOrder.ByNatural);
+		List<VariantContextDirectedEvidence> calls = new ArrayList<>();
+		for (int i = 0; i < CALLS; i++) {
+			DirectedEvidence e = ses.evidence.get(rng.nextInt(ses.evidence.size()));
+			calls.add((VariantContextDirectedEvidence)minimalVariant()
+					.breakpoint((BreakpointSummary)e.getBreakendSummary(), "")
+					.phredScore(1 + rng.nextInt(100))
+					.id("call" + i)
+					.attribute(VcfSvConstants.BREAKEND_EVENT_ID_KEY, "call" + i)
+					.make());
+		}
+		calls.sort(VariantContextDirectedEvidence.ByBreakendStartEnd);
+		for (boolean singleBreakpoint : new boolean[] { true, false }) {
+			long best = Long.MAX_VALUE;
+			long heap = 0;
+			long assigned = 0;
+			for (int i = 0; i < ITERATIONS; i++) {
+				resetPeakHeap();
+				long start = System.nanoTime();
+				SequentialEvidenceAllocator allocator = new SequentialEvidenceAllocator(pc, calls.iterator(), ses.evidence.iterator(), 1000, singleBreakpoint);
+				assigned = 0;
+				while (allocator.hasNext()) {
+					VariantEvidenceSupport ves = allocator.next();
+					assigned += ves.support.size();
+				}
+				best = Math.min(best, System.nanoTime() - start);
+				heap = Math.max(heap, peakHeap());
+			}
+			System.out.println(String.format("assignEvidenceToSingleBreakpoint=%s: %d assignments in %dms, peak heap %dMB",
+					singleBreakpoint, assigned, best / 1000000, heap >> 20));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package performancetesting;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import au.edu.wehi.idsv.BreakendDirection;
+import au.edu.wehi.idsv.DirectedEvidence;
+import au.edu.wehi.idsv.TestHelper;
+import au.edu.wehi.idsv.debruijn.positional.AggregateNodeIterator;
+import au.edu.wehi.idsv.debruijn.positional.SupportNodeIterator;
+
+/**
+ * Bytes allocated converting the evidence of a synthetic dense locus
+ * into aggregate positional de Bruijn graph nodes.
+ * 
+ * Evidence tracking is excluded as it retains its state for the
+ * lifetime of the assembly (see EvidenceTrackerAllocationTest).
+ */
+public class SupportNodeAllocationTest extends TestHelper {
+	private static final int K = 25;
+	private static final int READ_LENGTH = 150;
+	private static final int READ_COUNT = 20000;
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	private static List<DirectedEvidence> evidence() {
+		Random rng = new Random(0);
+		String seq = S(RANDOM);
+		List<DirectedEvidence> list = new ArrayList<>();
+		for (int i = 0; i < READ_COUNT; i++) {
+			int start = rng.nextInt(seq.length() - READ_LENGTH);
+			int anchored = 10 + rng.nextInt(READ_LENGTH - 20);
+			char[] bases = seq.substring(start, start + READ_LENGTH).toCharArray();
+			bases[rng.nextInt(READ_LENGTH)] = "ACGT".charAt(rng.nextInt(4));
+			list.add(SCE(BreakendDirection.Forward, withSequence(new String(bases), Read(0, start + 1, String.format("%dM%dS", anchored, READ_LENGTH - anchored)))[0]));
+		}
+		DirectedEvidence[] array = list.toArray(new DirectedEvidence[0]);
+		Arrays.sort(array, DirectedEvidence.ByStartEnd);
+		return Arrays.asList(array);
+	}
+	private static long aggregate(List<DirectedEvidence> evidence) {
+		SupportNodeIterator supportIt = new SupportNodeIterator(K, evidence.iterator(), 300, null, false, 0, true);
+		AggregateNodeIterator agIt = new AggregateNodeIterator(supportIt);
+		long count = 0;
+		while (agIt.hasNext()) {
+			agIt.next();
+			count++;
+		}
+		return count;
+	}
+	@Ignore // TODO: performance testing group
+	@Test
+	public void support_node_allocation() {
+		List<DirectedEvidence> evidence = evidence();
+		for (int i = 0; i < 3; i++) {
+			aggregate(evidence);
+		}
+		long before = allocatedBytes();
+		long startTime = System.nanoTime();
+		long nodes = aggregate(evidence);
+		long ms = (System.nanoTime() - startTime) / 1000000;
+		long bytes = allocatedBytes() - before;
+		System.out.println(String.format("%d reads, %d aggregate nodes: %d bytes allocated (%.1f bytes/read) in %dms", evidence.size(), nodes, bytes, bytes / (double)evidence.size(), ms));
+	}
+}
@@ -0,0 +1,105 @@
+package scambler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import au.edu.wehi.idsv.TestHelper;
+
+public class OverlapLookupTest extends TestHelper {
+	private static Read read(String seq) {
+		return Read.create(withSequence(seq, Read(0, 1, seq.length() + "M"))[0]);
+	}
+	private static String randomSequence(Random rng, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append("ACGT".charAt(rng.nextInt(4)));
+		}
+		return sb.toString();
+	}
+	@Test
+	public void should_not_fail_when_no_kmers_match() {
+		OverlapLookup ol = new OverlapLookup(10);
+		Read r1 = read("AAAAAAAAAAAAAAAAAAAA");
+		Read r2 = read("CCCCCCCCCCCCCCCCCCCC");
+		ol.add(r1);
+		ol.add(r2);
+		assertEquals(0, ol.successors(r1).size());
+		assertEquals(0, ol.successors(r2).size());
+	}
+	@Test
+	public void successors_should_find_overlap_offset() {
+		OverlapLookup ol = new OverlapLookup(8, 4, 3, 0);
+		Read r1 = read("TTGCATCGTAGCTAGG");
+		Read r2 = read("CGTAGCTAGGACTGAC");
+		ol.add(r1);
+		ol.add(r2);
+		List<Overlap> result = ol.successors(r1);
+		assertEquals(1, result.size());
+		assertEquals(r2, result.get(0).read2);
+		assertEquals(6, result.get(0).read2StartRelativeToRead1);
+		assertEquals(10, result.get(0).overlap);
+		assertEquals(10, result.get(0).matchingBases);
+		assertEquals(0, ol.successors(r2).size());
+	}
+	@Test
+	public void should_allow_mismatches_up_to_limit() {
+		String r1 = "TTGCATCGTAGCTAGGACTGACTTAC";
+		String r2 = "CGTAGCTAGGACTGTCTTACGGATCA";
+		OverlapLookup strict = new OverlapLookup(12, 5, 2, 0);
+		strict.add(read(r1));
+		strict.add(read(r2));
+		assertEquals(0, strict.overlaps(ForkJoinPool.commonPool()).size());
+		OverlapLookup ol = new OverlapLookup(12, 5, 2, 1);
+		ol.add(read(r1));
+		ol.add(read(r2));
+		OverlapEdgeList edges = ol.overlaps(ForkJoinPool.commonPool());
+		assertEquals(1, edges.size());
+		assertEquals(0, edges.getRead1(0));
+		assertEquals(1, edges.getRead2(0));
+		assertEquals(6, edges.getOffset(0));
+		assertEquals(20, edges.getOverlap(0));
+		assertEquals(1, edges.getMismatches(0));
+	}
+	@Test
+	public void should_find_all_overlaps_of_reads_spanning_breakpoint() {
+		Random rng = new Random(0);
+		String haplotype = randomSequence(rng, 200) + randomSequence(rng, 200);
+		int readLength = 100;
+		int step = 3;
+		int minOverlap = 30;
+		OverlapLookup ol = new OverlapLookup(minOverlap);
+		List<Read> reads = new ArrayList<>();
+		for (int i = 0; i + readLength <= haplotype.length(); i += step) {
+			Read r = read(haplotype.substring(i, i + readLength));
+			reads.add(r);
+			ol.add(r);
+		}
+		Set<String> expected = new HashSet<>();
+		for (int i = 0; i < reads.size(); i++) {
+			for (int j = i + 1; j < reads.size() && readLength - (j - i) * step >= minOverlap; j++) {
+				expected.add(i + "," + j + "," + (j - i) * step);
+			}
+		}
+		Set<String> found = new HashSet<>();
+		OverlapEdgeList edges = ol.overlaps(new ForkJoinPool(4));
+		for (int i = 0; i < edges.size(); i++) {
+			assertTrue(found.add(edges.getRead1(i) + "," + edges.getRead2(i) + "," + edges.getOffset(i)));
+			assertEquals(0, edges.getMismatches(i));
+		}
+		assertEquals(expected, found);
+		int successorCount = 0;
+		for (Read r : reads) {
+			successorCount += ol.successors(r).size();
+		}
+		assertEquals(edges.size(), successorCount);
+	}
+}